@@ -0,0 +1,195 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.ui.freemarker;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.ScheduledFuture;
+
+import freemarker.template.Configuration;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.lang.Nullable;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.util.Assert;
+
+/**
+ * Loads and compiles a set of FreeMarker templates into the template cache of
+ * a FreeMarker {@link Configuration} on startup, so that the first request
+ * for a view does not pay for template parsing.
+ *
+ * <p>If a {@link TaskScheduler} is set, the templates are also reloaded in the
+ * background. FreeMarker checks whether a cached template is stale once its
+ * {@linkplain Configuration#setTemplateUpdateDelayMilliseconds update delay}
+ * has elapsed, recompiling it on the thread that happens to ask for it. The
+ * refresh interval defaults to half of that delay, so the staleness check and
+ * any recompilation happen on the scheduler thread rather than on a request
+ * thread. Views cached by a view resolver such as
+ * {@code AbstractCachingViewResolver} then always find a compiled template.
+ *
+ * <p>Template names must match the names the views use, i.e. including any
+ * prefix and suffix applied by the view resolver.
+ *
+ * @author agent (agent@local)
+ * @since 5.3.7
+ * @see Configuration#getTemplate(String, Locale, String)
+ */
+public class FreeMarkerTemplatePreloader implements InitializingBean, DisposableBean {
+
+	private static final Log logger = LogFactory.getLog(FreeMarkerTemplatePreloader.class);
+
+
+	private final Configuration configuration;
+
+	private final String[] templateNames;
+
+	@Nullable
+	private Locale[] locales;
+
+	@Nullable
+	private String encoding;
+
+	@Nullable
+	private TaskScheduler taskScheduler;
+
+	@Nullable
+	private Duration refreshInterval;
+
+	@Nullable
+	private ScheduledFuture<?> refreshFuture;
+
+
+	/**
+	 * Create a new {@code FreeMarkerTemplatePreloader} for the given templates.
+	 * @param configuration the FreeMarker configuration whose cache to populate
+	 * @param templateNames the names of the templates to load
+	 */
+	public FreeMarkerTemplatePreloader(Configuration configuration, String... templateNames) {
+		Assert.notNull(configuration, "Configuration must not be null");
+		Assert.notEmpty(templateNames, "At least one template name is required");
+		this.configuration = configuration;
+		this.templateNames = templateNames;
+	}
+
+
+	/**
+	 * Set the locales to load each template for.
+	 * <p>Default is the {@linkplain Configuration#getLocale() default locale}
+	 * of the FreeMarker configuration.
+	 */
+	public void setLocales(Locale... locales) {
+		this.locales = locales;
+	}
+
+	/**
+	 * Set the encoding to load the templates with. This must match the
+	 * encoding used by the views, if any, since FreeMarker caches templates
+	 * per encoding.
+	 * @see org.springframework.web.servlet.view.freemarker.FreeMarkerView#setEncoding
+	 */
+	public void setEncoding(@Nullable String encoding) {
+		this.encoding = encoding;
+	}
+
+	/**
+	 * Set the scheduler to reload the templates in the background with.
+	 * <p>By default, templates are only loaded on startup.
+	 */
+	public void setTaskScheduler(@Nullable TaskScheduler taskScheduler) {
+		this.taskScheduler = taskScheduler;
+	}
+
+	/**
+	 * Set the interval between background reloads.
+	 * <p>Default is half of the template update delay of the configuration.
+	 * @see #setTaskScheduler
+	 */
+	public void setRefreshInterval(@Nullable Duration refreshInterval) {
+		this.refreshInterval = refreshInterval;
+	}
+
+
+	@Override
+	public void afterPropertiesSet() throws IOException {
+		for (Locale locale : getLocales()) {
+			for (String templateName : this.templateNames) {
+				loadTemplate(templateName, locale);
+			}
+		}
+		if (logger.isDebugEnabled()) {
+			logger.debug("Loaded " + this.templateNames.length + " FreeMarker template(s)");
+		}
+		if (this.taskScheduler != null) {
+			Duration interval = getRefreshInterval();
+			if (!interval.isZero() && !interval.isNegative()) {
+				this.refreshFuture = this.taskScheduler.scheduleWithFixedDelay(this::refreshTemplates, interval);
+			}
+		}
+	}
+
+	/**
+	 * Load all configured templates again, giving FreeMarker a chance to
+	 * detect and recompile modified templates off the request path.
+	 * <p>Failures are logged and do not affect other templates.
+	 */
+	public void refreshTemplates() {
+		for (Locale locale : getLocales()) {
+			for (String templateName : this.templateNames) {
+				try {
+					loadTemplate(templateName, locale);
+				}
+				catch (IOException ex) {
+					if (logger.isWarnEnabled()) {
+						logger.warn("Failed to refresh FreeMarker template [" + templateName + "]", ex);
+					}
+				}
+			}
+		}
+	}
+
+	@Override
+	public void destroy() {
+		ScheduledFuture<?> future = this.refreshFuture;
+		if (future != null) {
+			this.refreshFuture = null;
+			future.cancel(false);
+		}
+	}
+
+	private void loadTemplate(String templateName, Locale locale) throws IOException {
+		if (this.encoding != null) {
+			this.configuration.getTemplate(templateName, locale, this.encoding);
+		}
+		else {
+			this.configuration.getTemplate(templateName, locale);
+		}
+	}
+
+	private Locale[] getLocales() {
+		return (this.locales != null ? this.locales : new Locale[] {this.configuration.getLocale()});
+	}
+
+	private Duration getRefreshInterval() {
+		return (this.refreshInterval != null ? this.refreshInterval :
+				Duration.ofMillis(this.configuration.getTemplateUpdateDelayMilliseconds() / 2));
+	}
+
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.ui.freemarker;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import freemarker.cache.StringTemplateLoader;
+import freemarker.cache.TemplateLoader;
+import freemarker.template.Configuration;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.scheduling.TaskScheduler;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIOException;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Unit tests for {@link FreeMarkerTemplatePreloader}.
+ *
+ * @author agent (agent@local)
+ */
+class FreeMarkerTemplatePreloaderTests {
+
+	private final StringTemplateLoader templates = new StringTemplateLoader();
+
+	private final CountingTemplateLoader loader = new CountingTemplateLoader(this.templates);
+
+	private final Configuration configuration = new Configuration(Configuration.VERSION_2_3_30);
+
+
+	FreeMarkerTemplatePreloaderTests() {
+		this.templates.putTemplate("home.ftl", "Hello", 1);
+		this.configuration.setTemplateLoader(this.loader);
+		this.configuration.setTemplateUpdateDelayMilliseconds(60_000);
+		this.configuration.setLocale(Locale.ENGLISH);
+	}
+
+
+	@Test
+	void templatesLoadedOnStartup() throws Exception {
+		FreeMarkerTemplatePreloader preloader = new FreeMarkerTemplatePreloader(this.configuration, "home.ftl");
+		preloader.afterPropertiesSet();
+		assertThat(this.loader.reads.get()).isEqualTo(1);
+
+		assertThat(this.configuration.getTemplate("home.ftl", Locale.ENGLISH).toString()).isEqualTo("Hello");
+		assertThat(this.loader.reads.get()).isEqualTo(1);
+	}
+
+	@Test
+	void templatesLoadedForEachLocale() throws Exception {
+		FreeMarkerTemplatePreloader preloader = new FreeMarkerTemplatePreloader(this.configuration, "home.ftl");
+		preloader.setLocales(Locale.ENGLISH, Locale.GERMAN);
+		preloader.afterPropertiesSet();
+
+		this.configuration.getTemplate("home.ftl", Locale.GERMAN);
+		this.configuration.getTemplate("home.ftl", Locale.ENGLISH);
+		assertThat(this.loader.reads.get()).isEqualTo(2);
+	}
+
+	@Test
+	void missingTemplateFailsOnStartup() {
+		FreeMarkerTemplatePreloader preloader = new FreeMarkerTemplatePreloader(this.configuration, "missing.ftl");
+		assertThatIOException().isThrownBy(preloader::afterPropertiesSet);
+	}
+
+	@Test
+	void refreshScheduledAtHalfTheUpdateDelay() throws Exception {
+		TaskScheduler scheduler = mock(TaskScheduler.class);
+		FreeMarkerTemplatePreloader preloader = new FreeMarkerTemplatePreloader(this.configuration, "home.ftl");
+		preloader.setTaskScheduler(scheduler);
+		preloader.afterPropertiesSet();
+
+		then(scheduler).should().scheduleWithFixedDelay(any(Runnable.class), eq(Duration.ofSeconds(30)));
+	}
+
+	@Test
+	void refreshRecompilesModifiedTemplates() throws Exception {
+		this.configuration.setTemplateUpdateDelayMilliseconds(0);
+		FreeMarkerTemplatePreloader preloader = new FreeMarkerTemplatePreloader(this.configuration, "home.ftl");
+		preloader.afterPropertiesSet();
+
+		this.templates.putTemplate("home.ftl", "Hello again", 2);
+		preloader.refreshTemplates();
+		assertThat(this.loader.reads.get()).isEqualTo(2);
+
+		this.configuration.setTemplateUpdateDelayMilliseconds(60_000);
+		assertThat(this.configuration.getTemplate("home.ftl", Locale.ENGLISH).toString()).isEqualTo("Hello again");
+		assertThat(this.loader.reads.get()).isEqualTo(2);
+	}
+
+	@Test
+	void refreshIgnoresFailures() throws Exception {
+		this.templates.putTemplate("about.ftl", "About", 1);
+		this.configuration.setTemplateUpdateDelayMilliseconds(0);
+		FreeMarkerTemplatePreloader preloader =
+				new FreeMarkerTemplatePreloader(this.configuration, "home.ftl", "about.ftl");
+		preloader.afterPropertiesSet();
+		assertThat(this.loader.reads.get()).isEqualTo(2);
+
+		this.templates.removeTemplate("home.ftl");
+		this.templates.putTemplate("about.ftl", "About again", 2);
+		preloader.refreshTemplates();
+		assertThat(this.loader.reads.get()).isEqualTo(3);
+
+		this.configuration.setTemplateUpdateDelayMilliseconds(60_000);
+		assertThat(this.configuration.getTemplate("about.ftl", Locale.ENGLISH).toString()).isEqualTo("About again");
+		assertThat(this.loader.reads.get()).isEqualTo(3);
+	}
+
+
+	private static class CountingTemplateLoader implements TemplateLoader {
+
+		private final TemplateLoader delegate;
+
+		private final AtomicInteger reads = new AtomicInteger();
+
+		CountingTemplateLoader(TemplateLoader delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		public Object findTemplateSource(String name) throws IOException {
+			return this.delegate.findTemplateSource(name);
+		}
+
+		@Override
+		public long getLastModified(Object templateSource) {
+			return this.delegate.getLastModified(templateSource);
+		}
+
+		@Override
+		public Reader getReader(Object templateSource, String encoding) throws IOException {
+			this.reads.incrementAndGet();
+			return this.delegate.getReader(templateSource, encoding);
+		}
+
+		@Override
+		public void closeTemplateSource(Object templateSource) throws IOException {
+			this.delegate.closeTemplateSource(templateSource);
+		}
+	}
+
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.core;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+/**
+ * Benchmarks for {@link RowMapper} implementations mapping rows to beans,
+ * against an in-memory H2 database.
+ *
+ * @author agent (agent@local)
+ */
+@BenchmarkMode(Mode.Throughput)
+public class RowMapperBenchmark {
+
+	private static final String QUERY = "select id, first_name, last_name, age, balance, active from customer";
+
+
+	@Benchmark
+	public void beanPropertyRowMapper(BenchmarkState state, Blackhole bh) {
+		bh.consume(state.jdbcTemplate.query(QUERY, state.beanPropertyRowMapper));
+	}
+
+	@Benchmark
+	public void indexedBeanPropertyRowMapper(BenchmarkState state, Blackhole bh) {
+		bh.consume(state.jdbcTemplate.query(QUERY, state.indexedBeanPropertyRowMapper));
+	}
+
+	@Benchmark
+	public void baseline(BenchmarkState state, Blackhole bh) {
+		bh.consume(state.jdbcTemplate.query(QUERY, (rs, rowNum) -> {
+			Customer customer = new Customer();
+			customer.setId(rs.getLong(1));
+			customer.setFirstName(rs.getString(2));
+			customer.setLastName(rs.getString(3));
+			customer.setAge(rs.getInt(4));
+			customer.setBalance(rs.getBigDecimal(5));
+			customer.setActive(rs.getBoolean(6));
+			return customer;
+		}));
+	}
+
+
+	@State(Scope.Benchmark)
+	public static class BenchmarkState {
+
+		@Param({"10", "1000"})
+		public int rowCount;
+
+		public EmbeddedDatabase database;
+
+		public JdbcTemplate jdbcTemplate;
+
+		public RowMapper<Customer> beanPropertyRowMapper;
+
+		public RowMapper<Customer> indexedBeanPropertyRowMapper;
+
+		@Setup(Level.Trial)
+		public void setup() {
+			this.database = new EmbeddedDatabaseBuilder()
+					.setType(EmbeddedDatabaseType.H2)
+					.generateUniqueName(true)
+					.build();
+			this.jdbcTemplate = new JdbcTemplate(this.database);
+			this.jdbcTemplate.execute("create table customer (id bigint primary key, " +
+					"first_name varchar(50), last_name varchar(50), age int, balance decimal(10,2), active boolean)");
+			List<Object[]> batchArgs = new ArrayList<>(this.rowCount);
+			for (int i = 0; i < this.rowCount; i++) {
+				batchArgs.add(new Object[] {i, "First" + i, "Last" + i, i % 100, new BigDecimal(i + ".50"), i % 2 == 0});
+			}
+			this.jdbcTemplate.batchUpdate("insert into customer values (?, ?, ?, ?, ?, ?)", batchArgs);
+			this.beanPropertyRowMapper = new BeanPropertyRowMapper<>(Customer.class);
+			this.indexedBeanPropertyRowMapper = new IndexedBeanPropertyRowMapper<>(Customer.class);
+		}
+
+		@TearDown(Level.Trial)
+		public void tearDown() {
+			this.database.shutdown();
+		}
+	}
+
+
+	public static class Customer {
+
+		private long id;
+
+		private String firstName;
+
+		private String lastName;
+
+		private int age;
+
+		private BigDecimal balance;
+
+		private boolean active;
+
+		public long getId() {
+			return this.id;
+		}
+
+		public void setId(long id) {
+			this.id = id;
+		}
+
+		public String getFirstName() {
+			return this.firstName;
+		}
+
+		public void setFirstName(String firstName) {
+			this.firstName = firstName;
+		}
+
+		public String getLastName() {
+			return this.lastName;
+		}
+
+		public void setLastName(String lastName) {
+			this.lastName = lastName;
+		}
+
+		public int getAge() {
+			return this.age;
+		}
+
+		public void setAge(int age) {
+			this.age = age;
+		}
+
+		public BigDecimal getBalance() {
+			return this.balance;
+		}
+
+		public void setBalance(BigDecimal balance) {
+			this.balance = balance;
+		}
+
+		public boolean isActive() {
+			return this.active;
+		}
+
+		public void setActive(boolean active) {
+			this.active = active;
+		}
+	}
+
+}
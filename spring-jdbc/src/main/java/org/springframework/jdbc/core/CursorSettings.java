@@ -0,0 +1,90 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.core;
+
+/**
+ * Immutable settings for streaming query results through a forward-only,
+ * read-only cursor, as used by the {@code queryForCursorStream} and
+ * {@code queryForChunks} methods of {@link JdbcTemplate}.
+ *
+ * <p>Many drivers only stream rows from the server when a fetch size is set,
+ * and some of them, e.g. PostgreSQL, only when auto-commit is off as well.
+ * MySQL Connector/J requires a fetch size of {@link Integer#MIN_VALUE} for
+ * row-by-row streaming instead. The settings apply to a single query and
+ * take precedence over the {@link JdbcTemplate#setFetchSize fetch size} of
+ * the template.
+ *
+ * @author agent (agent@local)
+ * @since 5.3.7
+ * @see JdbcTemplate#queryForCursorStream(String, CursorSettings, RowMapper, Object...)
+ * @see JdbcTemplate#queryForChunks(String, CursorSettings, RowMapper, int, java.util.function.Consumer, Object...)
+ */
+public final class CursorSettings {
+
+	private final int fetchSize;
+
+	private final boolean disableAutoCommit;
+
+
+	private CursorSettings(int fetchSize, boolean disableAutoCommit) {
+		this.fetchSize = fetchSize;
+		this.disableAutoCommit = disableAutoCommit;
+	}
+
+
+	/**
+	 * Return a copy of these settings that switches off auto-commit for the
+	 * duration of the query, if the connection is in auto-commit mode, i.e.
+	 * not already participating in a transaction. Auto-commit is switched
+	 * back on when the result stream is closed.
+	 */
+	public CursorSettings disableAutoCommit() {
+		return new CursorSettings(this.fetchSize, true);
+	}
+
+	/**
+	 * Return the fetch size to apply, or -1 to apply the fetch size of the
+	 * template, if any.
+	 */
+	public int getFetchSize() {
+		return this.fetchSize;
+	}
+
+	/**
+	 * Return whether auto-commit is switched off for the duration of the query.
+	 */
+	public boolean isDisableAutoCommit() {
+		return this.disableAutoCommit;
+	}
+
+	@Override
+	public String toString() {
+		return "CursorSettings[fetchSize=" + this.fetchSize + ", disableAutoCommit=" + this.disableAutoCommit + "]";
+	}
+
+
+	/**
+	 * Create settings with the given fetch size.
+	 * @param fetchSize the number of rows to fetch from the database per round
+	 * trip, as a hint for the driver
+	 * @see java.sql.Statement#setFetchSize
+	 */
+	public static CursorSettings fetchSize(int fetchSize) {
+		return new CursorSettings(fetchSize, false);
+	}
+
+}
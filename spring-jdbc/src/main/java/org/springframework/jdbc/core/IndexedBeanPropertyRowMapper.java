@@ -0,0 +1,488 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.core;
+
+import java.beans.PropertyDescriptor;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.TypeMismatchException;
+import org.springframework.core.convert.ConversionService;
+import org.springframework.core.convert.support.DefaultConversionService;
+import org.springframework.dao.DataRetrievalFailureException;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ConcurrentLruCache;
+import org.springframework.util.ReflectionUtils;
+import org.springframework.util.StringUtils;
+
+/**
+ * {@link RowMapper} implementation that converts a row into a new instance of
+ * the specified mapped target class, matching columns to constructor parameters
+ * and bean properties by name, like {@link BeanPropertyRowMapper} and
+ * {@link DataClassRowMapper} do, but optimized for throughput.
+ *
+ * <p>The mapping from column indexes to constructor parameters and setter
+ * methods is resolved once per distinct set of result set columns and cached,
+ * rather than for every row. For every row, values are then read with the
+ * {@code ResultSet} getter that corresponds to the target type, e.g.
+ * {@code getLong} for a {@code long} property, and passed to the constructor
+ * or setter method directly, without going through a
+ * {@link org.springframework.beans.BeanWrapper}. Values of other types are
+ * read via {@link JdbcUtils#getResultSetValue(ResultSet, int, Class)} and
+ * converted through the configured {@link ConversionService} if necessary.
+ *
+ * <p>If the mapped class declares a single constructor with parameters, or
+ * a primary Kotlin constructor, constructor parameters are bound by name.
+ * All remaining columns are bound to public setters. Column names are matched
+ * either directly or by transforming a name separating the parts with
+ * underscores to the same name using "camel" case.
+ *
+ * <p>A {@code null} value for a primitive constructor parameter or property
+ * results in a {@link TypeMismatchException}, unless the
+ * {@link #setPrimitivesDefaultedForNullValue primitivesDefaultedForNullValue}
+ * flag is set, in which case the primitive default value is used.
+ *
+ * @author agent (agent@local)
+ * @since 5.3.7
+ * @param <T> the result type
+ * @see BeanPropertyRowMapper
+ * @see DataClassRowMapper
+ */
+public class IndexedBeanPropertyRowMapper<T> implements RowMapper<T> {
+
+	private static final int MAPPING_CACHE_LIMIT = 32;
+
+
+	/** Logger available to subclasses. */
+	protected final Log logger = LogFactory.getLog(getClass());
+
+	private final Class<T> mappedClass;
+
+	private final Constructor<T> mappedConstructor;
+
+	private final ConstructorParameter[] constructorParameters;
+
+	private final Map<String, PropertySetter> propertySetters = new HashMap<>();
+
+	private final Set<String> mappedProperties = new HashSet<>();
+
+	private boolean checkFullyPopulated = false;
+
+	private boolean primitivesDefaultedForNullValue = false;
+
+	@Nullable
+	private ConversionService conversionService = DefaultConversionService.getSharedInstance();
+
+	private final ConcurrentLruCache<List<String>, ColumnMapping> mappingCache =
+			new ConcurrentLruCache<>(MAPPING_CACHE_LIMIT, this::createMapping);
+
+	@Nullable
+	private volatile ResultSetMapping currentMapping;
+
+
+	/**
+	 * Create a new {@code IndexedBeanPropertyRowMapper}.
+	 * @param mappedClass the class that each row should be mapped to
+	 */
+	public IndexedBeanPropertyRowMapper(Class<T> mappedClass) {
+		Assert.notNull(mappedClass, "Mapped class must not be null");
+		this.mappedClass = mappedClass;
+		this.mappedConstructor = BeanUtils.getResolvableConstructor(mappedClass);
+
+		Set<String> constructorNames = new HashSet<>();
+		if (this.mappedConstructor.getParameterCount() > 0) {
+			String[] names = BeanUtils.getParameterNames(this.mappedConstructor);
+			Class<?>[] types = this.mappedConstructor.getParameterTypes();
+			this.constructorParameters = new ConstructorParameter[names.length];
+			for (int i = 0; i < names.length; i++) {
+				this.constructorParameters[i] = new ConstructorParameter(names[i], types[i]);
+				constructorNames.add(names[i]);
+			}
+		}
+		else {
+			this.constructorParameters = new ConstructorParameter[0];
+		}
+
+		for (PropertyDescriptor pd : BeanUtils.getPropertyDescriptors(mappedClass)) {
+			Method writeMethod = pd.getWriteMethod();
+			if (writeMethod != null && !constructorNames.contains(pd.getName())) {
+				ReflectionUtils.makeAccessible(writeMethod);
+				PropertySetter setter = new PropertySetter(pd.getName(), writeMethod, pd.getPropertyType());
+				this.propertySetters.put(lowerCaseName(pd.getName()), setter);
+				this.propertySetters.putIfAbsent(underscoreName(pd.getName()), setter);
+				this.mappedProperties.add(pd.getName());
+			}
+		}
+	}
+
+
+	/**
+	 * Return the class that we are mapping to.
+	 */
+	public final Class<T> getMappedClass() {
+		return this.mappedClass;
+	}
+
+	/**
+	 * Set whether we're strictly validating that all bean properties have been
+	 * mapped from corresponding database columns.
+	 * <p>Default is {@code false}, accepting unpopulated properties in the
+	 * target bean.
+	 */
+	public void setCheckFullyPopulated(boolean checkFullyPopulated) {
+		this.checkFullyPopulated = checkFullyPopulated;
+	}
+
+	/**
+	 * Return whether we're strictly validating that all bean properties have
+	 * been mapped from corresponding database columns.
+	 */
+	public boolean isCheckFullyPopulated() {
+		return this.checkFullyPopulated;
+	}
+
+	/**
+	 * Set whether we're defaulting Java primitives in the case of mapping a
+	 * null value from corresponding database columns.
+	 * <p>Default is {@code false}, throwing an exception when nulls are mapped
+	 * to Java primitives.
+	 */
+	public void setPrimitivesDefaultedForNullValue(boolean primitivesDefaultedForNullValue) {
+		this.primitivesDefaultedForNullValue = primitivesDefaultedForNullValue;
+	}
+
+	/**
+	 * Return whether we're defaulting Java primitives in the case of mapping
+	 * a null value from corresponding database columns.
+	 */
+	public boolean isPrimitivesDefaultedForNullValue() {
+		return this.primitivesDefaultedForNullValue;
+	}
+
+	/**
+	 * Set a {@link ConversionService} for converting column values that are
+	 * not of the target type already.
+	 * <p>Default is a {@link DefaultConversionService}. Can be set to
+	 * {@code null} to not convert values at all.
+	 */
+	public void setConversionService(@Nullable ConversionService conversionService) {
+		this.conversionService = conversionService;
+	}
+
+	/**
+	 * Return a {@link ConversionService} for converting column values, if any.
+	 */
+	@Nullable
+	public ConversionService getConversionService() {
+		return this.conversionService;
+	}
+
+
+	/**
+	 * Extract the values for all mapped columns in the current row.
+	 * <p>Resolves the column mapping on the first row of every result set,
+	 * and looks it up in the cache for the shape of the result set.
+	 */
+	@Override
+	public T mapRow(ResultSet rs, int rowNumber) throws SQLException {
+		ColumnMapping mapping = getColumnMapping(rs, rowNumber);
+
+		Object[] args = new Object[this.constructorParameters.length];
+		for (int i = 0; i < args.length; i++) {
+			ConstructorParameter parameter = this.constructorParameters[i];
+			Object value = parameter.reader.read(rs, mapping.constructorColumns[i]);
+			if (value == null && parameter.type.isPrimitive() && !this.primitivesDefaultedForNullValue) {
+				throw new TypeMismatchException(value, parameter.type);
+			}
+			args[i] = value;
+		}
+		T mappedObject = BeanUtils.instantiateClass(this.mappedConstructor, args);
+
+		for (PropertyBinding binding : mapping.propertyBindings) {
+			PropertySetter setter = binding.setter;
+			Object value = setter.reader.read(rs, binding.column);
+			if (value == null && setter.type.isPrimitive()) {
+				if (this.primitivesDefaultedForNullValue) {
+					continue;
+				}
+				throw new TypeMismatchException(value, setter.type);
+			}
+			try {
+				setter.method.invoke(mappedObject, value);
+			}
+			catch (InvocationTargetException ex) {
+				throw new DataRetrievalFailureException("Unable to map column " + binding.column +
+						" to property '" + setter.name + "'", ex.getTargetException());
+			}
+			catch (IllegalAccessException ex) {
+				throw new DataRetrievalFailureException("Unable to map column " + binding.column +
+						" to property '" + setter.name + "'", ex);
+			}
+		}
+		return mappedObject;
+	}
+
+	private ColumnMapping getColumnMapping(ResultSet rs, int rowNumber) throws SQLException {
+		ResultSetMapping current = this.currentMapping;
+		if (rowNumber != 0 && current != null && current.resultSet.get() == rs) {
+			return current.mapping;
+		}
+		ResultSetMetaData rsmd = rs.getMetaData();
+		int columnCount = rsmd.getColumnCount();
+		String[] columns = new String[columnCount];
+		for (int index = 1; index <= columnCount; index++) {
+			columns[index - 1] = JdbcUtils.lookupColumnName(rsmd, index);
+		}
+		ColumnMapping mapping = this.mappingCache.get(Arrays.asList(columns));
+		this.currentMapping = new ResultSetMapping(rs, mapping);
+		return mapping;
+	}
+
+	private ColumnMapping createMapping(List<String> columns) {
+		Map<String, Integer> columnIndexes = new LinkedHashMap<>(columns.size());
+		for (int i = 0; i < columns.size(); i++) {
+			columnIndexes.putIfAbsent(lowerCaseName(StringUtils.delete(columns.get(i), " ")), i + 1);
+		}
+
+		int[] constructorColumns = new int[this.constructorParameters.length];
+		for (int i = 0; i < constructorColumns.length; i++) {
+			String name = this.constructorParameters[i].name;
+			Integer index = columnIndexes.remove(lowerCaseName(name));
+			if (index == null) {
+				index = columnIndexes.remove(underscoreName(name));
+			}
+			if (index == null) {
+				throw new InvalidDataAccessApiUsageException("Given ResultSet does not contain a column for " +
+						"constructor parameter '" + name + "' of " + this.mappedClass + ": " + columns);
+			}
+			constructorColumns[i] = index;
+		}
+
+		List<PropertyBinding> propertyBindings = new ArrayList<>(columnIndexes.size());
+		Set<String> populatedProperties = new HashSet<>();
+		columnIndexes.forEach((field, index) -> {
+			PropertySetter setter = this.propertySetters.get(field);
+			if (setter != null && populatedProperties.add(setter.name)) {
+				if (logger.isDebugEnabled()) {
+					logger.debug("Mapping column '" + columns.get(index - 1) + "' to property '" + setter.name +
+							"' of type '" + ClassUtils.getQualifiedName(setter.type) + "'");
+				}
+				propertyBindings.add(new PropertyBinding(index, setter));
+			}
+			else if (setter == null && logger.isDebugEnabled()) {
+				logger.debug("No property found for column '" + columns.get(index - 1) +
+						"' mapped to field '" + field + "'");
+			}
+		});
+
+		if (this.checkFullyPopulated && !populatedProperties.equals(this.mappedProperties)) {
+			throw new InvalidDataAccessApiUsageException("Given ResultSet does not contain all fields " +
+					"necessary to populate object of " + this.mappedClass + ": " + this.mappedProperties);
+		}
+		return new ColumnMapping(constructorColumns, propertyBindings.toArray(new PropertyBinding[0]));
+	}
+
+	private ColumnReader createReader(Class<?> type) {
+		if (String.class == type) {
+			return ResultSet::getString;
+		}
+		else if (long.class == type || Long.class == type) {
+			return (rs, index) -> {
+				long value = rs.getLong(index);
+				return (value == 0 && rs.wasNull() ? null : value);
+			};
+		}
+		else if (int.class == type || Integer.class == type) {
+			return (rs, index) -> {
+				int value = rs.getInt(index);
+				return (value == 0 && rs.wasNull() ? null : value);
+			};
+		}
+		else if (double.class == type || Double.class == type) {
+			return (rs, index) -> {
+				double value = rs.getDouble(index);
+				return (value == 0 && rs.wasNull() ? null : value);
+			};
+		}
+		else if (boolean.class == type || Boolean.class == type) {
+			return (rs, index) -> {
+				boolean value = rs.getBoolean(index);
+				return (!value && rs.wasNull() ? null : value);
+			};
+		}
+		else if (BigDecimal.class == type) {
+			return ResultSet::getBigDecimal;
+		}
+		return (rs, index) -> {
+			Object value = JdbcUtils.getResultSetValue(rs, index, type);
+			if (value == null || ClassUtils.isAssignableValue(type, value)) {
+				return value;
+			}
+			ConversionService cs = getConversionService();
+			if (cs == null) {
+				throw new TypeMismatchException(value, type);
+			}
+			return cs.convert(value, type);
+		};
+	}
+
+	/**
+	 * Convert a name in camelCase to an underscored name in lower case.
+	 * @see BeanPropertyRowMapper#underscoreName
+	 */
+	private static String underscoreName(String name) {
+		StringBuilder result = new StringBuilder(name.length() + 4);
+		for (int i = 0; i < name.length(); i++) {
+			char c = name.charAt(i);
+			if (Character.isUpperCase(c)) {
+				result.append('_').append(Character.toLowerCase(c));
+			}
+			else {
+				result.append(c);
+			}
+		}
+		return result.toString();
+	}
+
+	private static String lowerCaseName(String name) {
+		return name.toLowerCase(Locale.US);
+	}
+
+
+	/**
+	 * Static factory method to create a new {@code IndexedBeanPropertyRowMapper}.
+	 * @param mappedClass the class that each row should be mapped to
+	 */
+	public static <T> IndexedBeanPropertyRowMapper<T> newInstance(Class<T> mappedClass) {
+		return new IndexedBeanPropertyRowMapper<>(mappedClass);
+	}
+
+
+	/**
+	 * Strategy for reading a column value for a specific target type.
+	 */
+	@FunctionalInterface
+	private interface ColumnReader {
+
+		@Nullable
+		Object read(ResultSet rs, int index) throws SQLException;
+	}
+
+
+	private class ConstructorParameter {
+
+		final String name;
+
+		final Class<?> type;
+
+		final ColumnReader reader;
+
+		ConstructorParameter(String name, Class<?> type) {
+			this.name = name;
+			this.type = type;
+			this.reader = createReader(type);
+		}
+	}
+
+
+	private class PropertySetter {
+
+		final String name;
+
+		final Method method;
+
+		final Class<?> type;
+
+		final ColumnReader reader;
+
+		PropertySetter(String name, Method method, Class<?> type) {
+			this.name = name;
+			this.method = method;
+			this.type = type;
+			this.reader = createReader(type);
+		}
+	}
+
+
+	private static class PropertyBinding {
+
+		final int column;
+
+		final PropertySetter setter;
+
+		PropertyBinding(int column, PropertySetter setter) {
+			this.column = column;
+			this.setter = setter;
+		}
+	}
+
+
+	/**
+	 * The resolved mapping for a specific set of result set columns.
+	 */
+	private static class ColumnMapping {
+
+		final int[] constructorColumns;
+
+		final PropertyBinding[] propertyBindings;
+
+		ColumnMapping(int[] constructorColumns, PropertyBinding[] propertyBindings) {
+			this.constructorColumns = constructorColumns;
+			this.propertyBindings = propertyBindings;
+		}
+	}
+
+
+	/**
+	 * The mapping used for the most recent result set, which is held weakly.
+	 */
+	private static class ResultSetMapping {
+
+		final WeakReference<ResultSet> resultSet;
+
+		final ColumnMapping mapping;
+
+		ResultSetMapping(ResultSet resultSet, ColumnMapping mapping) {
+			this.resultSet = new WeakReference<>(resultSet);
+			this.mapping = mapping;
+		}
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -31,6 +31,7 @@ import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -52,6 +53,7 @@ import org.springframework.jdbc.datasource.DataSourceUtils;
 import org.springframework.jdbc.support.JdbcAccessor;
 import org.springframework.jdbc.support.JdbcUtils;
 import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.jdbc.support.StatementObserver;
 import org.springframework.jdbc.support.rowset.SqlRowSet;
 import org.springframework.lang.Nullable;
 import org.springframework.util.Assert;
@@ -327,13 +329,15 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 	public <T> T execute(ConnectionCallback<T> action) throws DataAccessException {
 		Assert.notNull(action, "Callback object must not be null");
 
-		Connection con = DataSourceUtils.getConnection(obtainDataSource());
+		StatementRecording recording = startRecording(action);
+		Connection con = getConnection(recording);
 		try {
 			// Create close-suppressing Connection proxy, also preparing returned Statements.
 			Connection conToUse = createConnectionProxy(con);
 			return action.doInConnection(conToUse);
 		}
 		catch (SQLException ex) {
+			recording.failed(ex);
 			// Release Connection early, to avoid potential connection pool deadlock
 			// in the case when the exception translator hasn't been initialized yet.
 			String sql = getSql(action);
@@ -341,9 +345,32 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 			con = null;
 			throw translateException("ConnectionCallback", sql, ex);
 		}
+		catch (RuntimeException | Error ex) {
+			recording.failed(ex);
+			throw ex;
+		}
 		finally {
 			DataSourceUtils.releaseConnection(con, getDataSource());
+			recording.complete();
+		}
+	}
+
+	/**
+	 * Obtain a Connection for the given statement recording, completing the
+	 * recording with the failure if no Connection could be obtained.
+	 */
+	private Connection getConnection(StatementRecording recording) {
+		Connection con;
+		try {
+			con = DataSourceUtils.getConnection(obtainDataSource());
+		}
+		catch (RuntimeException | Error ex) {
+			recording.failed(ex);
+			recording.complete();
+			throw ex;
 		}
+		recording.connectionAcquired();
+		return con;
 	}
 
 	/**
@@ -371,18 +398,30 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 
 	@Nullable
 	private <T> T execute(StatementCallback<T> action, boolean closeResources) throws DataAccessException {
+		return execute(action, closeResources, startRecording(action));
+	}
+
+	@Nullable
+	private <T> T execute(StatementCallback<T> action, boolean closeResources, StatementRecording recording)
+			throws DataAccessException {
+
 		Assert.notNull(action, "Callback object must not be null");
 
-		Connection con = DataSourceUtils.getConnection(obtainDataSource());
+		Connection con = getConnection(recording);
 		Statement stmt = null;
+		boolean resultPending = false;
 		try {
 			stmt = con.createStatement();
 			applyStatementSettings(stmt);
+			recording.prepared();
 			T result = action.doInStatement(stmt);
 			handleWarnings(stmt);
+			// A result holding on to the resources completes the recording when closed
+			resultPending = !closeResources;
 			return result;
 		}
 		catch (SQLException ex) {
+			recording.failed(ex);
 			// Release Connection early, to avoid potential connection pool deadlock
 			// in the case when the exception translator hasn't been initialized yet.
 			String sql = getSql(action);
@@ -392,11 +431,18 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 			con = null;
 			throw translateException("StatementCallback", sql, ex);
 		}
+		catch (RuntimeException | Error ex) {
+			recording.failed(ex);
+			throw ex;
+		}
 		finally {
 			if (closeResources) {
 				JdbcUtils.closeStatement(stmt);
 				DataSourceUtils.releaseConnection(con, getDataSource());
 			}
+			if (!resultPending) {
+				recording.complete();
+			}
 		}
 	}
 
@@ -440,6 +486,8 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 			logger.debug("Executing SQL query [" + sql + "]");
 		}
 
+		StatementRecording recording = startRecording(sql);
+
 		/**
 		 * Callback to execute the query.
 		 */
@@ -450,7 +498,7 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 				ResultSet rs = null;
 				try {
 					rs = stmt.executeQuery(sql);
-					return rse.extractData(rs);
+					return extractData(rse, rs, recording);
 				}
 				finally {
 					JdbcUtils.closeResultSet(rs);
@@ -462,7 +510,7 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 			}
 		}
 
-		return execute(new QueryStatementCallback(), true);
+		return execute(new QueryStatementCallback(), true, recording);
 	}
 
 	@Override
@@ -477,15 +525,19 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 
 	@Override
 	public <T> Stream<T> queryForStream(String sql, RowMapper<T> rowMapper) throws DataAccessException {
+		StatementRecording recording = startRecording(sql);
+
 		class StreamStatementCallback implements StatementCallback<Stream<T>>, SqlProvider {
 			@Override
 			public Stream<T> doInStatement(Statement stmt) throws SQLException {
 				ResultSet rs = stmt.executeQuery(sql);
+				recording.executed();
 				Connection con = stmt.getConnection();
-				return new ResultSetSpliterator<>(rs, rowMapper).stream().onClose(() -> {
+				return new ResultSetSpliterator<>(rs, rowMapper, recording).stream().onClose(() -> {
 					JdbcUtils.closeResultSet(rs);
 					JdbcUtils.closeStatement(stmt);
 					DataSourceUtils.releaseConnection(con, getDataSource());
+					recording.complete();
 				});
 			}
 			@Override
@@ -494,7 +546,7 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 			}
 		}
 
-		return result(execute(new StreamStatementCallback(), false));
+		return result(execute(new StreamStatementCallback(), false, recording));
 	}
 
 	@Override
@@ -636,6 +688,13 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 	private <T> T execute(PreparedStatementCreator psc, PreparedStatementCallback<T> action, boolean closeResources)
 			throws DataAccessException {
 
+		return execute(psc, action, closeResources, startRecording(psc));
+	}
+
+	@Nullable
+	private <T> T execute(PreparedStatementCreator psc, PreparedStatementCallback<T> action, boolean closeResources,
+			StatementRecording recording) throws DataAccessException {
+
 		Assert.notNull(psc, "PreparedStatementCreator must not be null");
 		Assert.notNull(action, "Callback object must not be null");
 		if (logger.isDebugEnabled()) {
@@ -643,16 +702,21 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 			logger.debug("Executing prepared SQL statement" + (sql != null ? " [" + sql + "]" : ""));
 		}
 
-		Connection con = DataSourceUtils.getConnection(obtainDataSource());
+		Connection con = getConnection(recording);
 		PreparedStatement ps = null;
+		boolean resultPending = false;
 		try {
 			ps = psc.createPreparedStatement(con);
 			applyStatementSettings(ps);
+			recording.prepared();
 			T result = action.doInPreparedStatement(ps);
 			handleWarnings(ps);
+			// A result holding on to the resources completes the recording when closed
+			resultPending = !closeResources;
 			return result;
 		}
 		catch (SQLException ex) {
+			recording.failed(ex);
 			// Release Connection early, to avoid potential connection pool deadlock
 			// in the case when the exception translator hasn't been initialized yet.
 			if (psc instanceof ParameterDisposer) {
@@ -666,6 +730,10 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 			con = null;
 			throw translateException("PreparedStatementCallback", sql, ex);
 		}
+		catch (RuntimeException | Error ex) {
+			recording.failed(ex);
+			throw ex;
+		}
 		finally {
 			if (closeResources) {
 				if (psc instanceof ParameterDisposer) {
@@ -674,6 +742,9 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 				JdbcUtils.closeStatement(ps);
 				DataSourceUtils.releaseConnection(con, getDataSource());
 			}
+			if (!resultPending) {
+				recording.complete();
+			}
 		}
 	}
 
@@ -710,6 +781,7 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 		Assert.notNull(rse, "ResultSetExtractor must not be null");
 		logger.debug("Executing prepared SQL query");
 
+		StatementRecording recording = startRecording(psc);
 		return execute(psc, new PreparedStatementCallback<T>() {
 			@Override
 			@Nullable
@@ -718,9 +790,10 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 				try {
 					if (pss != null) {
 						pss.setValues(ps);
+						recording.prepared();
 					}
 					rs = ps.executeQuery();
-					return rse.extractData(rs);
+					return extractData(rse, rs, recording);
 				}
 				finally {
 					JdbcUtils.closeResultSet(rs);
@@ -729,7 +802,7 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 					}
 				}
 			}
-		}, true);
+		}, true, recording);
 	}
 
 	@Override
@@ -831,21 +904,25 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 	public <T> Stream<T> queryForStream(PreparedStatementCreator psc, @Nullable PreparedStatementSetter pss,
 			RowMapper<T> rowMapper) throws DataAccessException {
 
+		StatementRecording recording = startRecording(psc);
 		return result(execute(psc, ps -> {
 			if (pss != null) {
 				pss.setValues(ps);
+				recording.prepared();
 			}
 			ResultSet rs = ps.executeQuery();
+			recording.executed();
 			Connection con = ps.getConnection();
-			return new ResultSetSpliterator<>(rs, rowMapper).stream().onClose(() -> {
+			return new ResultSetSpliterator<>(rs, rowMapper, recording).stream().onClose(() -> {
 				JdbcUtils.closeResultSet(rs);
 				if (pss instanceof ParameterDisposer) {
 					((ParameterDisposer) pss).cleanupParameters();
 				}
 				JdbcUtils.closeStatement(ps);
 				DataSourceUtils.releaseConnection(con, getDataSource());
+				recording.complete();
 			});
-		}, false));
+		}, false, recording));
 	}
 
 	@Override
@@ -863,6 +940,197 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 		return queryForStream(new SimplePreparedStatementCreator(sql), newArgPreparedStatementSetter(args), rowMapper);
 	}
 
+	/**
+	 * Query using a prepared statement, reading rows through a forward-only,
+	 * read-only cursor configured with the given settings, mapping each row
+	 * to a result object via a RowMapper, and turning it into an iterable
+	 * and closeable Stream.
+	 * <p>Rows are fetched as the Stream is consumed, so memory use is bounded
+	 * by the fetch size rather than by the size of the result. The Connection
+	 * is held until the Stream is closed, which may happen before all rows
+	 * have been consumed.
+	 * @param psc a callback that creates a PreparedStatement given a Connection
+	 * @param settings the cursor settings to apply to the query
+	 * @param rowMapper a callback that will map one object per row
+	 * @return the result Stream, containing mapped objects, needing to be
+	 * closed once processed (e.g. through a try-with-resources clause)
+	 * @throws DataAccessException if the query fails
+	 * @since 5.3.7
+	 */
+	public <T> Stream<T> queryForCursorStream(PreparedStatementCreator psc, CursorSettings settings,
+			RowMapper<T> rowMapper) throws DataAccessException {
+
+		return queryForCursorStream(psc, null, settings, rowMapper);
+	}
+
+	/**
+	 * Query given SQL to create a prepared statement from SQL and a list of
+	 * arguments to bind to the query, reading rows through a forward-only,
+	 * read-only cursor configured with the given settings, mapping each row
+	 * to a result object via a RowMapper, and turning it into an iterable
+	 * and closeable Stream.
+	 * @param sql the SQL query to execute
+	 * @param settings the cursor settings to apply to the query
+	 * @param rowMapper a callback that will map one object per row
+	 * @param args arguments to bind to the query
+	 * (leaving it to the PreparedStatement to guess the corresponding SQL type);
+	 * may also contain {@link SqlParameterValue} objects which indicate not
+	 * only the argument value but also the SQL type and optionally the scale
+	 * @return the result Stream, containing mapped objects, needing to be
+	 * closed once processed (e.g. through a try-with-resources clause)
+	 * @throws DataAccessException if the query fails
+	 * @since 5.3.7
+	 * @see #queryForCursorStream(PreparedStatementCreator, CursorSettings, RowMapper)
+	 */
+	public <T> Stream<T> queryForCursorStream(String sql, CursorSettings settings, RowMapper<T> rowMapper,
+			@Nullable Object... args) throws DataAccessException {
+
+		return queryForCursorStream(new SimplePreparedStatementCreator(sql), newArgPreparedStatementSetter(args),
+				settings, rowMapper);
+	}
+
+	/**
+	 * Query using a prepared statement, allowing for a PreparedStatementCreator
+	 * and a PreparedStatementSetter, and reading rows through a cursor
+	 * configured with the given settings.
+	 * <p>Statements are created forward-only and read-only, which is the JDBC
+	 * default for {@code Connection.prepareStatement(String)} as well as for
+	 * {@link PreparedStatementCreatorFactory}. The fetch size of the settings
+	 * takes precedence over the {@link #setFetchSize fetch size} of the template.
+	 * @param psc a callback that creates a PreparedStatement given a Connection
+	 * @param pss a callback that knows how to set values on the prepared statement.
+	 * If this is {@code null}, the SQL will be assumed to contain no bind parameters.
+	 * @param settings the cursor settings to apply to the query
+	 * @param rowMapper a callback that will map one object per row
+	 * @return the result Stream, containing mapped objects, needing to be
+	 * closed once processed (e.g. through a try-with-resources clause)
+	 * @throws DataAccessException if the query fails
+	 * @since 5.3.7
+	 */
+	public <T> Stream<T> queryForCursorStream(PreparedStatementCreator psc, @Nullable PreparedStatementSetter pss,
+			CursorSettings settings, RowMapper<T> rowMapper) throws DataAccessException {
+
+		Assert.notNull(settings, "CursorSettings must not be null");
+		StatementRecording recording = startRecording(psc);
+		return result(execute(psc, ps -> {
+			Connection con = ps.getConnection();
+			boolean autoCommitDisabled = false;
+			ResultSet rs;
+			try {
+				if (pss != null) {
+					pss.setValues(ps);
+				}
+				if (settings.getFetchSize() != -1) {
+					ps.setFetchSize(settings.getFetchSize());
+				}
+				if (settings.isDisableAutoCommit() && con.getAutoCommit()) {
+					con.setAutoCommit(false);
+					autoCommitDisabled = true;
+				}
+				recording.prepared();
+				rs = ps.executeQuery();
+				recording.executed();
+			}
+			catch (SQLException | RuntimeException ex) {
+				if (autoCommitDisabled) {
+					resetAutoCommit(con);
+				}
+				throw ex;
+			}
+			boolean restoreAutoCommit = autoCommitDisabled;
+			return new ResultSetSpliterator<>(rs, rowMapper, recording).stream().onClose(() -> {
+				JdbcUtils.closeResultSet(rs);
+				if (pss instanceof ParameterDisposer) {
+					((ParameterDisposer) pss).cleanupParameters();
+				}
+				JdbcUtils.closeStatement(ps);
+				if (restoreAutoCommit) {
+					resetAutoCommit(con);
+				}
+				DataSourceUtils.releaseConnection(con, getDataSource());
+				recording.complete();
+			});
+		}, false, recording));
+	}
+
+	private void resetAutoCommit(Connection con) {
+		try {
+			con.setAutoCommit(true);
+		}
+		catch (SQLException ex) {
+			logger.debug("Could not reset auto-commit after streaming query", ex);
+		}
+	}
+
+	/**
+	 * Query using a prepared statement, reading rows through a forward-only,
+	 * read-only cursor configured with the given settings, mapping each row
+	 * to a result object via a RowMapper, and passing the mapped objects to
+	 * the given handler in chunks of the given size.
+	 * <p>Only a single chunk is held in memory at any time. The Connection is
+	 * released once all rows have been processed, or if the handler throws.
+	 * @param psc a callback that creates a PreparedStatement given a Connection
+	 * @param settings the cursor settings to apply to the query
+	 * @param rowMapper a callback that will map one object per row
+	 * @param chunkSize the maximum number of objects per chunk
+	 * @param chunkHandler a callback that will process one chunk at a time;
+	 * a new List is passed for every chunk
+	 * @throws DataAccessException if the query fails
+	 * @since 5.3.7
+	 */
+	public <T> void queryForChunks(PreparedStatementCreator psc, CursorSettings settings, RowMapper<T> rowMapper,
+			int chunkSize, Consumer<List<T>> chunkHandler) throws DataAccessException {
+
+		Assert.isTrue(chunkSize > 0, "Chunk size must be greater than 0");
+		Assert.notNull(chunkHandler, "Chunk handler must not be null");
+		processChunks(queryForCursorStream(psc, settings, rowMapper), chunkSize, chunkHandler);
+	}
+
+	/**
+	 * Query given SQL to create a prepared statement from SQL and a list of
+	 * arguments to bind to the query, reading rows through a forward-only,
+	 * read-only cursor configured with the given settings, mapping each row
+	 * to a result object via a RowMapper, and passing the mapped objects to
+	 * the given handler in chunks of the given size.
+	 * @param sql the SQL query to execute
+	 * @param settings the cursor settings to apply to the query
+	 * @param rowMapper a callback that will map one object per row
+	 * @param chunkSize the maximum number of objects per chunk
+	 * @param chunkHandler a callback that will process one chunk at a time;
+	 * a new List is passed for every chunk
+	 * @param args arguments to bind to the query
+	 * (leaving it to the PreparedStatement to guess the corresponding SQL type);
+	 * may also contain {@link SqlParameterValue} objects which indicate not
+	 * only the argument value but also the SQL type and optionally the scale
+	 * @throws DataAccessException if the query fails
+	 * @since 5.3.7
+	 * @see #queryForChunks(PreparedStatementCreator, CursorSettings, RowMapper, int, Consumer)
+	 */
+	public <T> void queryForChunks(String sql, CursorSettings settings, RowMapper<T> rowMapper,
+			int chunkSize, Consumer<List<T>> chunkHandler, @Nullable Object... args) throws DataAccessException {
+
+		Assert.isTrue(chunkSize > 0, "Chunk size must be greater than 0");
+		Assert.notNull(chunkHandler, "Chunk handler must not be null");
+		processChunks(queryForCursorStream(sql, settings, rowMapper, args), chunkSize, chunkHandler);
+	}
+
+	private static <T> void processChunks(Stream<T> stream, int chunkSize, Consumer<List<T>> chunkHandler) {
+		try (Stream<T> rows = stream) {
+			List<T> chunk = new ArrayList<>(chunkSize);
+			Iterator<T> it = rows.iterator();
+			while (it.hasNext()) {
+				chunk.add(it.next());
+				if (chunk.size() == chunkSize) {
+					chunkHandler.accept(chunk);
+					chunk = new ArrayList<>(chunkSize);
+				}
+			}
+			if (!chunk.isEmpty()) {
+				chunkHandler.accept(chunk);
+			}
+		}
+	}
+
 	@Override
 	@Nullable
 	public <T> T queryForObject(String sql, Object[] args, int[] argTypes, RowMapper<T> rowMapper)
@@ -957,12 +1225,16 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 
 		logger.debug("Executing prepared SQL update");
 
+		StatementRecording recording = startRecording(psc);
 		return updateCount(execute(psc, ps -> {
 			try {
 				if (pss != null) {
 					pss.setValues(ps);
+					recording.prepared();
 				}
 				int rows = ps.executeUpdate();
+				recording.executed();
+				recording.setRowCount(rows);
 				if (logger.isTraceEnabled()) {
 					logger.trace("SQL update affected " + rows + " rows");
 				}
@@ -973,7 +1245,7 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 					((ParameterDisposer) pss).cleanupParameters();
 				}
 			}
-		}, true));
+		}, true, recording));
 	}
 
 	@Override
@@ -988,8 +1260,11 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 		Assert.notNull(generatedKeyHolder, "KeyHolder must not be null");
 		logger.debug("Executing SQL update and returning generated keys");
 
+		StatementRecording recording = startRecording(psc);
 		return updateCount(execute(psc, ps -> {
 			int rows = ps.executeUpdate();
+			recording.executed();
+			recording.setRowCount(rows);
 			List<Map<String, Object>> generatedKeys = generatedKeyHolder.getKeyList();
 			generatedKeys.clear();
 			ResultSet keys = ps.getGeneratedKeys();
@@ -1007,7 +1282,7 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 				logger.trace("SQL update affected " + rows + " rows and returned " + generatedKeys.size() + " keys");
 			}
 			return rows;
-		}, true));
+		}, true, recording));
 	}
 
 	@Override
@@ -1031,7 +1306,9 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 			logger.debug("Executing SQL batch update [" + sql + "]");
 		}
 
-		int[] result = execute(sql, (PreparedStatementCallback<int[]>) ps -> {
+		PreparedStatementCreator psc = new SimplePreparedStatementCreator(sql);
+		StatementRecording recording = startRecording(psc);
+		int[] result = execute(psc, (PreparedStatementCallback<int[]>) ps -> {
 			try {
 				int batchSize = pss.getBatchSize();
 				InterruptibleBatchPreparedStatementSetter ipss =
@@ -1045,7 +1322,8 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 						}
 						ps.addBatch();
 					}
-					return ps.executeBatch();
+					recording.prepared();
+					return recordBatchRowCount(ps.executeBatch(), recording);
 				}
 				else {
 					List<Integer> rowsAffected = new ArrayList<>();
@@ -1060,7 +1338,7 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 					for (int i = 0; i < rowsAffectedArray.length; i++) {
 						rowsAffectedArray[i] = rowsAffected.get(i);
 					}
-					return rowsAffectedArray;
+					return recordBatchRowCount(rowsAffectedArray, recording);
 				}
 			}
 			finally {
@@ -1068,7 +1346,7 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 					((ParameterDisposer) pss).cleanupParameters();
 				}
 			}
-		});
+		}, true, recording);
 
 		Assert.state(result != null, "No result array");
 		return result;
@@ -1182,16 +1460,20 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 			logger.debug("Calling stored procedure" + (sql != null ? " [" + sql  + "]" : ""));
 		}
 
-		Connection con = DataSourceUtils.getConnection(obtainDataSource());
+		StatementRecording recording = startRecording(csc);
+		Connection con = getConnection(recording);
 		CallableStatement cs = null;
 		try {
 			cs = csc.createCallableStatement(con);
 			applyStatementSettings(cs);
+			recording.prepared();
 			T result = action.doInCallableStatement(cs);
+			recording.executed();
 			handleWarnings(cs);
 			return result;
 		}
 		catch (SQLException ex) {
+			recording.failed(ex);
 			// Release Connection early, to avoid potential connection pool deadlock
 			// in the case when the exception translator hasn't been initialized yet.
 			if (csc instanceof ParameterDisposer) {
@@ -1205,12 +1487,17 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 			con = null;
 			throw translateException("CallableStatementCallback", sql, ex);
 		}
+		catch (RuntimeException | Error ex) {
+			recording.failed(ex);
+			throw ex;
+		}
 		finally {
 			if (csc instanceof ParameterDisposer) {
 				((ParameterDisposer) csc).cleanupParameters();
 			}
 			JdbcUtils.closeStatement(cs);
 			DataSourceUtils.releaseConnection(con, getDataSource());
+			recording.complete();
 		}
 	}
 
@@ -1559,6 +1846,55 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 		}
 	}
 
+	/**
+	 * Start recording a statement execution if a {@link #getStatementObserver()
+	 * StatementObserver} is set, or return a no-op recording otherwise.
+	 */
+	private StatementRecording startRecording(@Nullable Object sqlSource) {
+		StatementObserver observer = getStatementObserver();
+		if (observer == null) {
+			return StatementRecording.NONE;
+		}
+		return new StatementRecording(observer,
+				(sqlSource instanceof String ? (String) sqlSource : getSql(sqlSource)));
+	}
+
+	/**
+	 * Extract the data from the given ResultSet, recording fetch and mapping
+	 * times as well as the row count for the common row-based extractors.
+	 */
+	@Nullable
+	@SuppressWarnings("unchecked")
+	private static <T> T extractData(ResultSetExtractor<T> rse, ResultSet rs, StatementRecording recording)
+			throws SQLException {
+
+		if (!recording.isEnabled()) {
+			return rse.extractData(rs);
+		}
+		recording.executed();
+		if (rse.getClass() == RowMapperResultSetExtractor.class) {
+			return (T) ((RowMapperResultSetExtractor<?>) rse).extractData(rs, recording);
+		}
+		if (rse instanceof RowCallbackHandlerResultSetExtractor) {
+			return (T) ((RowCallbackHandlerResultSetExtractor) rse).extractData(rs, recording);
+		}
+		return rse.extractData(rs);
+	}
+
+	private static int[] recordBatchRowCount(int[] rowsAffected, StatementRecording recording) {
+		if (recording.isEnabled()) {
+			recording.executed();
+			int rowCount = 0;
+			for (int rows : rowsAffected) {
+				if (rows > 0) {
+					rowCount += rows;
+				}
+			}
+			recording.setRowCount(rowCount);
+		}
+		return rowsAffected;
+	}
+
 	private static <T> T result(@Nullable T result) {
 		Assert.state(result != null, "No result");
 		return result;
@@ -1697,6 +2033,16 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 			}
 			return null;
 		}
+
+		@Nullable
+		public Object extractData(ResultSet rs, StatementRecording recording) throws SQLException {
+			while (rs.next()) {
+				long mappingStartTime = System.nanoTime();
+				this.rch.processRow(rs);
+				recording.rowMapped(mappingStartTime);
+			}
+			return null;
+		}
 	}
 
 
@@ -1710,23 +2056,31 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 
 		private final RowMapper<T> rowMapper;
 
+		private final StatementRecording recording;
+
 		private int rowNum = 0;
 
-		public ResultSetSpliterator(ResultSet rs, RowMapper<T> rowMapper) {
+		public ResultSetSpliterator(ResultSet rs, RowMapper<T> rowMapper, StatementRecording recording) {
 			this.rs = rs;
 			this.rowMapper = rowMapper;
+			this.recording = recording;
 		}
 
 		@Override
 		public boolean tryAdvance(Consumer<? super T> action) {
 			try {
 				if (this.rs.next()) {
-					action.accept(this.rowMapper.mapRow(this.rs, this.rowNum++));
+					long mappingStartTime = (this.recording.isEnabled() ? System.nanoTime() : 0);
+					T row = this.rowMapper.mapRow(this.rs, this.rowNum++);
+					this.recording.rowMapped(mappingStartTime);
+					action.accept(row);
 					return true;
 				}
+				this.recording.setRowCount(this.rowNum);
 				return false;
 			}
 			catch (SQLException ex) {
+				this.recording.failed(ex);
 				throw new InvalidResultSetAccessException(ex);
 			}
 		}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -96,4 +96,20 @@ public class RowMapperResultSetExtractor<T> implements ResultSetExtractor<List<T
 		return results;
 	}
 
+	/**
+	 * Variant of {@link #extractData(ResultSet)} that records the time spent
+	 * in the RowMapper, as used by {@link JdbcTemplate} with a statement observer.
+	 */
+	List<T> extractData(ResultSet rs, StatementRecording recording) throws SQLException {
+		List<T> results = (this.rowsExpected > 0 ? new ArrayList<>(this.rowsExpected) : new ArrayList<>());
+		int rowNum = 0;
+		while (rs.next()) {
+			long mappingStartTime = System.nanoTime();
+			results.add(this.rowMapper.mapRow(rs, rowNum++));
+			recording.rowMapped(mappingStartTime);
+		}
+		recording.setRowCount(rowNum);
+		return results;
+	}
+
 }
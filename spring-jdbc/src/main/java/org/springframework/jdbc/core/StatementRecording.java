@@ -0,0 +1,150 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.core;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.jdbc.support.StatementMetrics;
+import org.springframework.jdbc.support.StatementObserver;
+import org.springframework.lang.Nullable;
+
+/**
+ * Collects the phase timings of a single statement execution within
+ * {@link JdbcTemplate}, reporting them to a {@link StatementObserver}
+ * on completion.
+ *
+ * <p>The {@link #NONE} instance is used when no observer is registered,
+ * turning all recording calls into no-ops without taking any timings.
+ *
+ * @author agent (agent@local)
+ * @since 5.3.7
+ */
+final class StatementRecording {
+
+	static final StatementRecording NONE = new StatementRecording(null, null);
+
+	private static final Log logger = LogFactory.getLog(StatementRecording.class);
+
+
+	@Nullable
+	private final StatementObserver observer;
+
+	@Nullable
+	private final String sql;
+
+	private final long startTime;
+
+	private long connectionAcquiredTime;
+
+	private long preparedTime;
+
+	private long executedTime;
+
+	private long mappingNanos;
+
+	private int rowCount = StatementMetrics.UNKNOWN_ROW_COUNT;
+
+	@Nullable
+	private Throwable failure;
+
+	private boolean completed;
+
+
+	StatementRecording(@Nullable StatementObserver observer, @Nullable String sql) {
+		this.observer = observer;
+		this.sql = sql;
+		this.startTime = (observer != null ? System.nanoTime() : 0);
+	}
+
+
+	/**
+	 * Return whether timings are actually being recorded.
+	 */
+	boolean isEnabled() {
+		return (this.observer != null);
+	}
+
+	void connectionAcquired() {
+		if (this.observer != null) {
+			this.connectionAcquiredTime = System.nanoTime();
+		}
+	}
+
+	/**
+	 * Mark the end of statement preparation; may be called repeatedly
+	 * when parameters are bound after the statement has been created.
+	 */
+	void prepared() {
+		if (this.observer != null) {
+			this.preparedTime = System.nanoTime();
+		}
+	}
+
+	void executed() {
+		if (this.observer != null) {
+			this.executedTime = System.nanoTime();
+		}
+	}
+
+	/**
+	 * Record the mapping of a row, started at the given {@link System#nanoTime()}.
+	 */
+	void rowMapped(long mappingStartTime) {
+		if (this.observer != null) {
+			this.mappingNanos += System.nanoTime() - mappingStartTime;
+			this.rowCount = (this.rowCount < 0 ? 1 : this.rowCount + 1);
+		}
+	}
+
+	void setRowCount(int rowCount) {
+		if (this.observer != null) {
+			this.rowCount = rowCount;
+		}
+	}
+
+	void failed(Throwable failure) {
+		if (this.observer != null) {
+			this.failure = failure;
+		}
+	}
+
+	/**
+	 * Complete this recording, notifying the observer once.
+	 */
+	void complete() {
+		StatementObserver observer = this.observer;
+		if (observer == null || this.completed) {
+			return;
+		}
+		this.completed = true;
+		long endTime = System.nanoTime();
+		long acquired = (this.connectionAcquiredTime != 0 ? this.connectionAcquiredTime : endTime);
+		long prepared = Math.max(this.preparedTime, acquired);
+		long executed = (this.executedTime != 0 ? Math.max(this.executedTime, prepared) : endTime);
+		StatementMetrics metrics = new StatementMetrics(this.sql,
+				acquired - this.startTime, prepared - acquired, executed - prepared,
+				Math.max(0, endTime - executed - this.mappingNanos), this.mappingNanos, this.rowCount, this.failure);
+		try {
+			observer.statementCompleted(metrics);
+		}
+		catch (Throwable ex) {
+			logger.warn("StatementObserver failed to process statement metrics", ex);
+		}
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -18,6 +18,9 @@ package org.springframework.jdbc.core.namedparam;
 
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.function.Consumer;
@@ -29,6 +32,7 @@ import org.springframework.dao.DataAccessException;
 import org.springframework.dao.support.DataAccessUtils;
 import org.springframework.jdbc.core.BatchPreparedStatementSetter;
 import org.springframework.jdbc.core.ColumnMapRowMapper;
+import org.springframework.jdbc.core.CursorSettings;
 import org.springframework.jdbc.core.JdbcOperations;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.PreparedStatementCallback;
@@ -39,12 +43,14 @@ import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.core.SingleColumnRowMapper;
 import org.springframework.jdbc.core.SqlParameter;
+import org.springframework.jdbc.core.SqlParameterValue;
 import org.springframework.jdbc.core.SqlRowSetResultSetExtractor;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.jdbc.support.rowset.SqlRowSet;
 import org.springframework.lang.Nullable;
 import org.springframework.util.Assert;
 import org.springframework.util.ConcurrentLruCache;
+import org.springframework.util.ObjectUtils;
 
 /**
  * Template class with a basic set of JDBC operations, allowing the use
@@ -80,6 +86,12 @@ public class NamedParameterJdbcTemplate implements NamedParameterJdbcOperations
 	private volatile ConcurrentLruCache<String, ParsedSql> parsedSqlCache =
 			new ConcurrentLruCache<>(DEFAULT_CACHE_LIMIT, NamedParameterUtils::parseSqlStatement);
 
+	/** Cache of parameter shape to substituted SQL String and declared parameters. */
+	private volatile ConcurrentLruCache<SqlShape, ExpandedSql> expandedSqlCache =
+			new ConcurrentLruCache<>(DEFAULT_CACHE_LIMIT * 4, SqlShape::expand);
+
+	private boolean inListPadding = false;
+
 
 	/**
 	 * Create a new NamedParameterJdbcTemplate for the given {@link DataSource}.
@@ -129,6 +141,7 @@ public class NamedParameterJdbcTemplate implements NamedParameterJdbcOperations
 	 */
 	public void setCacheLimit(int cacheLimit) {
 		this.parsedSqlCache = new ConcurrentLruCache<>(cacheLimit, NamedParameterUtils::parseSqlStatement);
+		this.expandedSqlCache = new ConcurrentLruCache<>(cacheLimit * 4, SqlShape::expand);
 	}
 
 	/**
@@ -138,6 +151,28 @@ public class NamedParameterJdbcTemplate implements NamedParameterJdbcOperations
 		return this.parsedSqlCache.sizeLimit();
 	}
 
+	/**
+	 * Specify whether to pad the number of placeholders for collection parameters,
+	 * typically used in {@code IN (...)} lists, to the next power of two by
+	 * repeating the last element. This bounds the number of distinct statements
+	 * for varying collection sizes, improving statement cache hit rates in the
+	 * driver and the database.
+	 * <p>Default is "false". Only enable this if all collection parameters are
+	 * used in {@code IN} clauses, where repeated elements do not change the result.
+	 * @since 5.3.7
+	 */
+	public void setInListPadding(boolean inListPadding) {
+		this.inListPadding = inListPadding;
+	}
+
+	/**
+	 * Return whether collection parameters are padded to the next power of two.
+	 * @since 5.3.7
+	 */
+	public boolean isInListPadding() {
+		return this.inListPadding;
+	}
+
 
 	@Override
 	@Nullable
@@ -235,6 +270,100 @@ public class NamedParameterJdbcTemplate implements NamedParameterJdbcOperations
 		return queryForStream(sql, new MapSqlParameterSource(paramMap), rowMapper);
 	}
 
+	/**
+	 * Query given SQL to create a prepared statement from SQL and a list
+	 * of arguments to bind to the query, reading rows through a forward-only,
+	 * read-only cursor configured with the given settings, mapping each row
+	 * to a Java object via a RowMapper, and turning it into an iterable and
+	 * closeable Stream.
+	 * <p>Requires the wrapped JdbcOperations to be a {@link JdbcTemplate}.
+	 * @param sql the SQL query to execute
+	 * @param paramSource container of arguments to bind to the query
+	 * @param settings the cursor settings to apply to the query
+	 * @param rowMapper object that will map one object per row
+	 * @return the result Stream, containing mapped objects, needing to be
+	 * closed once processed (e.g. through a try-with-resources clause)
+	 * @throws DataAccessException if the query fails
+	 * @since 5.3.7
+	 * @see JdbcTemplate#queryForCursorStream(org.springframework.jdbc.core.PreparedStatementCreator, CursorSettings, RowMapper)
+	 */
+	public <T> Stream<T> queryForCursorStream(String sql, SqlParameterSource paramSource, CursorSettings settings,
+			RowMapper<T> rowMapper) throws DataAccessException {
+
+		return getJdbcTemplate().queryForCursorStream(
+				getPreparedStatementCreator(sql, paramSource), settings, rowMapper);
+	}
+
+	/**
+	 * Query given SQL to create a prepared statement from SQL and a list
+	 * of arguments to bind to the query, reading rows through a forward-only,
+	 * read-only cursor configured with the given settings, mapping each row
+	 * to a Java object via a RowMapper, and turning it into an iterable and
+	 * closeable Stream.
+	 * @param sql the SQL query to execute
+	 * @param paramMap map of parameters to bind to the query
+	 * (leaving it to the PreparedStatement to guess the corresponding SQL type)
+	 * @param settings the cursor settings to apply to the query
+	 * @param rowMapper object that will map one object per row
+	 * @return the result Stream, containing mapped objects, needing to be
+	 * closed once processed (e.g. through a try-with-resources clause)
+	 * @throws DataAccessException if the query fails
+	 * @since 5.3.7
+	 */
+	public <T> Stream<T> queryForCursorStream(String sql, Map<String, ?> paramMap, CursorSettings settings,
+			RowMapper<T> rowMapper) throws DataAccessException {
+
+		return queryForCursorStream(sql, new MapSqlParameterSource(paramMap), settings, rowMapper);
+	}
+
+	/**
+	 * Query given SQL to create a prepared statement from SQL and a list
+	 * of arguments to bind to the query, reading rows through a forward-only,
+	 * read-only cursor configured with the given settings, mapping each row
+	 * to a Java object via a RowMapper, and passing the mapped objects to the
+	 * given handler in chunks of the given size.
+	 * <p>Requires the wrapped JdbcOperations to be a {@link JdbcTemplate}.
+	 * @param sql the SQL query to execute
+	 * @param paramSource container of arguments to bind to the query
+	 * @param settings the cursor settings to apply to the query
+	 * @param rowMapper object that will map one object per row
+	 * @param chunkSize the maximum number of objects per chunk
+	 * @param chunkHandler a callback that will process one chunk at a time;
+	 * a new List is passed for every chunk
+	 * @throws DataAccessException if the query fails
+	 * @since 5.3.7
+	 * @see JdbcTemplate#queryForChunks(org.springframework.jdbc.core.PreparedStatementCreator, CursorSettings, RowMapper, int, Consumer)
+	 */
+	public <T> void queryForChunks(String sql, SqlParameterSource paramSource, CursorSettings settings,
+			RowMapper<T> rowMapper, int chunkSize, Consumer<List<T>> chunkHandler) throws DataAccessException {
+
+		getJdbcTemplate().queryForChunks(
+				getPreparedStatementCreator(sql, paramSource), settings, rowMapper, chunkSize, chunkHandler);
+	}
+
+	/**
+	 * Query given SQL to create a prepared statement from SQL and a list
+	 * of arguments to bind to the query, reading rows through a forward-only,
+	 * read-only cursor configured with the given settings, mapping each row
+	 * to a Java object via a RowMapper, and passing the mapped objects to the
+	 * given handler in chunks of the given size.
+	 * @param sql the SQL query to execute
+	 * @param paramMap map of parameters to bind to the query
+	 * (leaving it to the PreparedStatement to guess the corresponding SQL type)
+	 * @param settings the cursor settings to apply to the query
+	 * @param rowMapper object that will map one object per row
+	 * @param chunkSize the maximum number of objects per chunk
+	 * @param chunkHandler a callback that will process one chunk at a time;
+	 * a new List is passed for every chunk
+	 * @throws DataAccessException if the query fails
+	 * @since 5.3.7
+	 */
+	public <T> void queryForChunks(String sql, Map<String, ?> paramMap, CursorSettings settings,
+			RowMapper<T> rowMapper, int chunkSize, Consumer<List<T>> chunkHandler) throws DataAccessException {
+
+		queryForChunks(sql, new MapSqlParameterSource(paramMap), settings, rowMapper, chunkSize, chunkHandler);
+	}
+
 	@Override
 	@Nullable
 	public <T> T queryForObject(String sql, SqlParameterSource paramSource, RowMapper<T> rowMapper)
@@ -375,7 +504,7 @@ public class NamedParameterJdbcTemplate implements NamedParameterJdbcOperations
 				new BatchPreparedStatementSetter() {
 					@Override
 					public void setValues(PreparedStatement ps, int i) throws SQLException {
-						Object[] values = NamedParameterUtils.buildValueArray(parsedSql, batchArgs[i], null);
+						Object[] values = buildValueArray(parsedSql, batchArgs[i]);
 						pscf.newPreparedStatementSetter(values).setValues(ps);
 					}
 					@Override
@@ -422,13 +551,34 @@ public class NamedParameterJdbcTemplate implements NamedParameterJdbcOperations
 		if (customizer != null) {
 			customizer.accept(pscf);
 		}
-		Object[] params = NamedParameterUtils.buildValueArray(parsedSql, paramSource, null);
+		Object[] params = buildValueArray(parsedSql, paramSource);
 		return pscf.newPreparedStatementCreator(params);
 	}
 
+	/**
+	 * Build the array of values for the given parsed SQL statement,
+	 * padding collection values if {@link #setInListPadding in-list padding} is active.
+	 */
+	private Object[] buildValueArray(ParsedSql parsedSql, SqlParameterSource paramSource) {
+		Object[] params = NamedParameterUtils.buildValueArray(parsedSql, paramSource, null);
+		if (this.inListPadding) {
+			for (int i = 0; i < params.length; i++) {
+				Object value = params[i];
+				if (value instanceof SqlParameterValue && ((SqlParameterValue) value).getValue() instanceof Iterable) {
+					SqlParameterValue spv = (SqlParameterValue) value;
+					params[i] = new SqlParameterValue(spv, padValues((Iterable<?>) spv.getValue()));
+				}
+				else if (value instanceof Iterable) {
+					params[i] = padValues((Iterable<?>) value);
+				}
+			}
+		}
+		return params;
+	}
+
 	/**
 	 * Obtain a parsed representation of the given SQL statement.
-	 * <p>The default implementation uses an LRU cache with an upper limit of 256 entries.
+	 * <p>The default implementation uses a concurrent LRU cache with an upper limit of 256 entries.
 	 * @param sql the original SQL statement
 	 * @return a representation of the parsed SQL statement
 	 */
@@ -448,9 +598,173 @@ public class NamedParameterJdbcTemplate implements NamedParameterJdbcOperations
 	protected PreparedStatementCreatorFactory getPreparedStatementCreatorFactory(
 			ParsedSql parsedSql, SqlParameterSource paramSource) {
 
-		String sqlToUse = NamedParameterUtils.substituteNamedParameters(parsedSql, paramSource);
-		List<SqlParameter> declaredParameters = NamedParameterUtils.buildSqlParameterList(parsedSql, paramSource);
-		return new PreparedStatementCreatorFactory(sqlToUse, declaredParameters);
+		SqlShape shape = SqlShape.of(parsedSql, paramSource, this.inListPadding);
+		if (shape == null) {
+			// Nested value arrays in collections: not cacheable by size alone.
+			String sqlToUse = NamedParameterUtils.substituteNamedParameters(parsedSql, paramSource);
+			List<SqlParameter> declaredParameters = NamedParameterUtils.buildSqlParameterList(parsedSql, paramSource);
+			return new PreparedStatementCreatorFactory(sqlToUse, declaredParameters);
+		}
+		ExpandedSql expandedSql = this.expandedSqlCache.get(shape);
+		return new PreparedStatementCreatorFactory(expandedSql.sql, new ArrayList<>(expandedSql.declaredParameters));
+	}
+
+
+	/**
+	 * Pad the given values to the next power of two by repeating the last element.
+	 */
+	private static List<?> padValues(Iterable<?> values) {
+		List<Object> padded = new ArrayList<>();
+		values.forEach(padded::add);
+		int paddedSize = paddedSize(padded.size());
+		if (paddedSize > padded.size()) {
+			Object last = padded.get(padded.size() - 1);
+			while (padded.size() < paddedSize) {
+				padded.add(last);
+			}
+		}
+		return padded;
+	}
+
+	private static int paddedSize(int size) {
+		return (size <= 1 ? size : Integer.highestOneBit(size - 1) << 1);
+	}
+
+
+	/**
+	 * Cache key for the expansion of a {@link ParsedSql} statement, capturing the
+	 * number of placeholders per parameter and the declared parameter types.
+	 */
+	private static final class SqlShape {
+
+		private static final int SINGLE_VALUE = -1;
+
+		private final ParsedSql parsedSql;
+
+		private final int[] placeholderCounts;
+
+		private final int[] sqlTypes;
+
+		private final String[] typeNames;
+
+		private final int hashCode;
+
+		private SqlShape(ParsedSql parsedSql, int[] placeholderCounts, int[] sqlTypes, String[] typeNames) {
+			this.parsedSql = parsedSql;
+			this.placeholderCounts = placeholderCounts;
+			this.sqlTypes = sqlTypes;
+			this.typeNames = typeNames;
+			this.hashCode = parsedSql.getOriginalSql().hashCode() * 31 +
+					Arrays.hashCode(placeholderCounts) * 31 + Arrays.hashCode(sqlTypes);
+		}
+
+		/**
+		 * Determine the shape of the given statement for the given parameters,
+		 * or {@code null} if it cannot be captured by collection sizes alone.
+		 */
+		@Nullable
+		static SqlShape of(ParsedSql parsedSql, SqlParameterSource paramSource, boolean padding) {
+			List<String> paramNames = parsedSql.getParameterNames();
+			int[] placeholderCounts = new int[paramNames.size()];
+			int[] sqlTypes = new int[paramNames.size()];
+			String[] typeNames = new String[paramNames.size()];
+			for (int i = 0; i < paramNames.size(); i++) {
+				String paramName = paramNames.get(i);
+				int count = SINGLE_VALUE;
+				if (paramSource.hasValue(paramName)) {
+					Object value = paramSource.getValue(paramName);
+					if (value instanceof SqlParameterValue) {
+						value = ((SqlParameterValue) value).getValue();
+					}
+					if (value instanceof Iterable) {
+						count = 0;
+						for (Object entryItem : (Iterable<?>) value) {
+							if (entryItem instanceof Object[]) {
+								return null;
+							}
+							count++;
+						}
+						if (padding) {
+							count = paddedSize(count);
+						}
+					}
+				}
+				placeholderCounts[i] = count;
+				sqlTypes[i] = paramSource.getSqlType(paramName);
+				typeNames[i] = paramSource.getTypeName(paramName);
+			}
+			return new SqlShape(parsedSql, placeholderCounts, sqlTypes, typeNames);
+		}
+
+		/**
+		 * Build the substituted SQL String and declared parameters for this shape,
+		 * equivalent to {@link NamedParameterUtils#substituteNamedParameters} and
+		 * {@link NamedParameterUtils#buildSqlParameterList}.
+		 */
+		ExpandedSql expand() {
+			String originalSql = this.parsedSql.getOriginalSql();
+			List<String> paramNames = this.parsedSql.getParameterNames();
+			StringBuilder actualSql = new StringBuilder(originalSql.length());
+			List<SqlParameter> declaredParameters = new ArrayList<>(paramNames.size());
+			int lastIndex = 0;
+			for (int i = 0; i < paramNames.size(); i++) {
+				int[] indexes = this.parsedSql.getParameterIndexes(i);
+				actualSql.append(originalSql, lastIndex, indexes[0]);
+				int count = this.placeholderCounts[i];
+				if (count == SINGLE_VALUE) {
+					actualSql.append('?');
+				}
+				else {
+					for (int k = 0; k < count; k++) {
+						if (k > 0) {
+							actualSql.append(", ");
+						}
+						actualSql.append('?');
+					}
+				}
+				lastIndex = indexes[1];
+				declaredParameters.add(new SqlParameter(paramNames.get(i), this.sqlTypes[i], this.typeNames[i]));
+			}
+			actualSql.append(originalSql, lastIndex, originalSql.length());
+			return new ExpandedSql(actualSql.toString(), Collections.unmodifiableList(declaredParameters));
+		}
+
+		@Override
+		public boolean equals(@Nullable Object other) {
+			if (this == other) {
+				return true;
+			}
+			if (!(other instanceof SqlShape)) {
+				return false;
+			}
+			SqlShape otherShape = (SqlShape) other;
+			return (this.hashCode == otherShape.hashCode &&
+					this.parsedSql.getOriginalSql().equals(otherShape.parsedSql.getOriginalSql()) &&
+					Arrays.equals(this.placeholderCounts, otherShape.placeholderCounts) &&
+					Arrays.equals(this.sqlTypes, otherShape.sqlTypes) &&
+					ObjectUtils.nullSafeEquals(this.typeNames, otherShape.typeNames));
+		}
+
+		@Override
+		public int hashCode() {
+			return this.hashCode;
+		}
+	}
+
+
+	/**
+	 * Substituted SQL String and declared parameters for a given {@link SqlShape}.
+	 */
+	private static final class ExpandedSql {
+
+		final String sql;
+
+		final List<SqlParameter> declaredParameters;
+
+		ExpandedSql(String sql, List<SqlParameter> declaredParameters) {
+			this.sql = sql;
+			this.declaredParameters = declaredParameters;
+		}
 	}
 
 }
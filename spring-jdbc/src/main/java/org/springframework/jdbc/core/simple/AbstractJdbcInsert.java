@@ -27,12 +27,16 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 
 import javax.sql.DataSource;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import org.springframework.dao.DataAccessException;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.dao.InvalidDataAccessApiUsageException;
 import org.springframework.dao.InvalidDataAccessResourceUsageException;
@@ -47,6 +51,7 @@ import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.JdbcUtils;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.lang.Nullable;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.util.Assert;
 
 /**
@@ -88,6 +93,19 @@ public abstract class AbstractJdbcInsert {
 	/** The SQL type information for the insert columns. */
 	private int[] insertTypes = new int[0];
 
+	/** The maximum number of rows per chunk of a bulk insert. */
+	private int bulkChunkSize = 1000;
+
+	/** The maximum number of rows per multi-row insert statement. */
+	private int multiRowInsertSize = 1;
+
+	/** The maximum number of bind parameters per insert statement. */
+	private int maxParametersPerStatement = Integer.MAX_VALUE;
+
+	/** Executor for running bulk insert chunks in parallel, if any. */
+	@Nullable
+	private Executor bulkExecutor;
+
 
 	/**
 	 * Constructor to be used when initializing using a {@link DataSource}.
@@ -221,6 +239,87 @@ public abstract class AbstractJdbcInsert {
 		this.tableMetaDataContext.setOverrideIncludeSynonymsDefault(override);
 	}
 
+	/**
+	 * Set the maximum number of rows per chunk of a bulk insert, with each chunk
+	 * executed as a single JDBC batch. The default is 1000.
+	 * @since 5.3.7
+	 */
+	public void setBulkChunkSize(int bulkChunkSize) {
+		Assert.isTrue(bulkChunkSize > 0, "Bulk chunk size must be greater than 0");
+		this.bulkChunkSize = bulkChunkSize;
+	}
+
+	/**
+	 * Get the maximum number of rows per chunk of a bulk insert.
+	 * @since 5.3.7
+	 */
+	public int getBulkChunkSize() {
+		return this.bulkChunkSize;
+	}
+
+	/**
+	 * Set the maximum number of rows to combine into a single multi-row
+	 * {@code INSERT ... VALUES (...), (...)} statement for bulk inserts.
+	 * <p>The default is 1, i.e. no rewriting. Only enable this for databases
+	 * that support multi-row {@code VALUES} clauses and benefit from fewer
+	 * statement round trips compared to plain JDBC batching.
+	 * @since 5.3.7
+	 * @see #setMaxParametersPerStatement
+	 */
+	public void setMultiRowInsertSize(int multiRowInsertSize) {
+		Assert.isTrue(multiRowInsertSize > 0, "Multi-row insert size must be greater than 0");
+		this.multiRowInsertSize = multiRowInsertSize;
+	}
+
+	/**
+	 * Get the maximum number of rows per multi-row insert statement.
+	 * @since 5.3.7
+	 */
+	public int getMultiRowInsertSize() {
+		return this.multiRowInsertSize;
+	}
+
+	/**
+	 * Set the maximum number of bind parameters the database accepts in a
+	 * single statement, limiting the number of rows per multi-row insert.
+	 * <p>The default is unlimited.
+	 * @since 5.3.7
+	 */
+	public void setMaxParametersPerStatement(int maxParametersPerStatement) {
+		Assert.isTrue(maxParametersPerStatement > 0, "Max parameters per statement must be greater than 0");
+		this.maxParametersPerStatement = maxParametersPerStatement;
+	}
+
+	/**
+	 * Get the maximum number of bind parameters per insert statement.
+	 * @since 5.3.7
+	 */
+	public int getMaxParametersPerStatement() {
+		return this.maxParametersPerStatement;
+	}
+
+	/**
+	 * Set an {@link Executor} for running the chunks of a bulk insert in parallel,
+	 * each on its own pooled connection.
+	 * <p>Chunks are always executed sequentially on the calling thread when a
+	 * transaction or connection is bound to the current thread, since parallel
+	 * chunks would not participate in it. The first failing chunk is thrown to
+	 * the caller in that case, rather than being reported in the result.
+	 * @since 5.3.7
+	 */
+	public void setBulkExecutor(@Nullable Executor bulkExecutor) {
+		this.bulkExecutor = bulkExecutor;
+	}
+
+	/**
+	 * Get the {@link Executor} for running bulk insert chunks in parallel, if any.
+	 * @since 5.3.7
+	 */
+	@Nullable
+	public Executor getBulkExecutor() {
+		return this.bulkExecutor;
+	}
+
 	/**
 	 * Get the insert string to be used.
 	 */
@@ -582,6 +681,216 @@ public abstract class AbstractJdbcInsert {
 				});
 	}
 
+	/**
+	 * Delegate method that executes a bulk insert using the passed-in Maps of parameters.
+	 * @param batch array of Maps with parameter names and values to be used in bulk insert
+	 * @return the per-chunk outcome of the bulk insert
+	 * @since 5.3.7
+	 */
+	@SuppressWarnings("unchecked")
+	protected BulkInsertResult doExecuteBulk(Map<String, ?>... batch) {
+		checkCompiled();
+		List<List<Object>> batchValues = new ArrayList<>(batch.length);
+		for (Map<String, ?> args : batch) {
+			batchValues.add(matchInParameterValuesWithInsertColumns(args));
+		}
+		return executeBulkInternal(batchValues);
+	}
+
+	/**
+	 * Delegate method that executes a bulk insert using the passed-in {@link SqlParameterSource SqlParameterSources}.
+	 * @param batch array of SqlParameterSource with parameter names and values to be used in bulk insert
+	 * @return the per-chunk outcome of the bulk insert
+	 * @since 5.3.7
+	 */
+	protected BulkInsertResult doExecuteBulk(SqlParameterSource... batch) {
+		checkCompiled();
+		List<List<Object>> batchValues = new ArrayList<>(batch.length);
+		for (SqlParameterSource parameterSource : batch) {
+			batchValues.add(matchInParameterValuesWithInsertColumns(parameterSource));
+		}
+		return executeBulkInternal(batchValues);
+	}
+
+	/**
+	 * Delegate method to execute the bulk insert, chunk by chunk.
+	 */
+	private BulkInsertResult executeBulkInternal(final List<List<Object>> batchValues) {
+		int rowCount = batchValues.size();
+		int chunkCount = (rowCount + this.bulkChunkSize - 1) / this.bulkChunkSize;
+		int rowsPerStatement = determineRowsPerStatement(batchValues);
+		boolean transactional = isTransactionBound();
+		Executor executor = this.bulkExecutor;
+		if (logger.isDebugEnabled()) {
+			logger.debug("Executing bulk insert " + getInsertString() + " with " + rowCount + " rows in " +
+					chunkCount + " chunks, " + rowsPerStatement + " rows per statement" +
+					(executor != null && !transactional ? ", in parallel" : ""));
+		}
+
+		List<BulkInsertResult.Chunk> chunks = new ArrayList<>(chunkCount);
+		if (executor != null && !transactional && chunkCount > 1) {
+			List<CompletableFuture<BulkInsertResult.Chunk>> futures = new ArrayList<>(chunkCount);
+			for (int offset = 0; offset < rowCount; offset += this.bulkChunkSize) {
+				int chunkOffset = offset;
+				futures.add(CompletableFuture.supplyAsync(
+						() -> executeChunk(batchValues, chunkOffset, rowsPerStatement, true), executor));
+			}
+			for (CompletableFuture<BulkInsertResult.Chunk> future : futures) {
+				try {
+					chunks.add(future.join());
+				}
+				catch (CompletionException ex) {
+					Throwable cause = ex.getCause();
+					if (cause instanceof RuntimeException) {
+						throw (RuntimeException) cause;
+					}
+					if (cause instanceof Error) {
+						throw (Error) cause;
+					}
+					throw ex;
+				}
+			}
+		}
+		else {
+			for (int offset = 0; offset < rowCount; offset += this.bulkChunkSize) {
+				chunks.add(executeChunk(batchValues, offset, rowsPerStatement, !transactional));
+			}
+		}
+		return new BulkInsertResult(chunks, rowCount);
+	}
+
+	/**
+	 * Determine the number of rows per insert statement, taking the configured
+	 * multi-row insert size and the parameter limit into account.
+	 */
+	private int determineRowsPerStatement(List<List<Object>> batchValues) {
+		if (this.multiRowInsertSize == 1 || batchValues.isEmpty()) {
+			return 1;
+		}
+		int columnCount = batchValues.get(0).size();
+		if (columnCount == 0) {
+			return 1;
+		}
+		int rows = Math.min(this.multiRowInsertSize, this.bulkChunkSize);
+		return Math.max(1, Math.min(rows, this.maxParametersPerStatement / columnCount));
+	}
+
+	/**
+	 * Determine whether a transaction or connection is bound to the current thread,
+	 * in which case bulk chunks must share it instead of running in parallel.
+	 */
+	private boolean isTransactionBound() {
+		DataSource dataSource = getJdbcTemplate().getDataSource();
+		return (TransactionSynchronizationManager.isActualTransactionActive() ||
+				(dataSource != null && TransactionSynchronizationManager.hasResource(dataSource)));
+	}
+
+	/**
+	 * Execute a single chunk of a bulk insert.
+	 * @param captureFailure whether to capture a failure in the returned chunk,
+	 * which is only appropriate if the chunk has been committed on its own;
+	 * otherwise the failure is rethrown for the surrounding transaction to roll back
+	 */
+	private BulkInsertResult.Chunk executeChunk(
+			List<List<Object>> batchValues, int offset, int rowsPerStatement, boolean captureFailure) {
+
+		List<List<Object>> rows = batchValues.subList(offset, Math.min(offset + this.bulkChunkSize, batchValues.size()));
+		try {
+			int[] updateCounts = getJdbcTemplate().execute(
+					(ConnectionCallback<int[]>) con -> executeChunkStatements(con, rows, rowsPerStatement));
+			Assert.state(updateCounts != null, "No update counts");
+			return new BulkInsertResult.Chunk(offset, rows.size(), updateCounts, null);
+		}
+		catch (DataAccessException ex) {
+			if (!captureFailure) {
+				throw ex;
+			}
+			if (logger.isDebugEnabled()) {
+				logger.debug("Bulk insert chunk at offset " + offset + " failed", ex);
+			}
+			return new BulkInsertResult.Chunk(offset, rows.size(), new int[0], ex);
+		}
+	}
+
+	/**
+	 * Execute the statements for a chunk of rows on the given Connection: full-size
+	 * statements as a JDBC batch, followed by a single statement for any remainder.
+	 */
+	private int[] executeChunkStatements(Connection con, List<List<Object>> rows, int rowsPerStatement)
+			throws SQLException {
+
+		int fullStatements = rows.size() / rowsPerStatement;
+		int remainingRows = rows.size() % rowsPerStatement;
+		int[] updateCounts = new int[fullStatements + (remainingRows > 0 ? 1 : 0)];
+		boolean batchSupported = JdbcUtils.supportsBatchUpdates(con);
+
+		if (fullStatements > 0) {
+			PreparedStatement ps = con.prepareStatement(createMultiRowInsertString(rowsPerStatement));
+			try {
+				for (int i = 0; i < fullStatements; i++) {
+					setRowValues(ps, rows, i * rowsPerStatement, rowsPerStatement);
+					if (batchSupported && fullStatements > 1) {
+						ps.addBatch();
+					}
+					else {
+						updateCounts[i] = ps.executeUpdate();
+					}
+				}
+				if (batchSupported && fullStatements > 1) {
+					int[] batchCounts = ps.executeBatch();
+					System.arraycopy(batchCounts, 0, updateCounts, 0, Math.min(batchCounts.length, fullStatements));
+				}
+			}
+			finally {
+				JdbcUtils.closeStatement(ps);
+			}
+		}
+		if (remainingRows > 0) {
+			PreparedStatement ps = con.prepareStatement(createMultiRowInsertString(remainingRows));
+			try {
+				setRowValues(ps, rows, fullStatements * rowsPerStatement, remainingRows);
+				updateCounts[fullStatements] = ps.executeUpdate();
+			}
+			finally {
+				JdbcUtils.closeStatement(ps);
+			}
+		}
+		return updateCounts;
+	}
+
+	/**
+	 * Create an insert string with a {@code VALUES} clause for the given number of rows.
+	 */
+	private String createMultiRowInsertString(int rows) {
+		String insertString = getInsertString();
+		if (rows == 1) {
+			return insertString;
+		}
+		int valuesIndex = insertString.lastIndexOf("VALUES");
+		Assert.state(valuesIndex != -1, () -> "Cannot rewrite insert string [" + insertString + "]");
+		String valuesGroup = ", " + insertString.substring(valuesIndex + "VALUES".length()).trim();
+		StringBuilder sb = new StringBuilder(insertString.length() + (rows - 1) * valuesGroup.length());
+		sb.append(insertString);
+		for (int i = 1; i < rows; i++) {
+			sb.append(valuesGroup);
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Set the values of consecutive rows on a (multi-row) insert statement.
+	 */
+	private void setRowValues(PreparedStatement ps, List<List<Object>> rows, int fromRow, int rowCount)
+			throws SQLException {
+
+		int paramIndex = 0;
+		for (int i = fromRow; i < fromRow + rowCount; i++) {
+			List<Object> values = rows.get(i);
+			setParameterValues(ps, paramIndex, values, getInsertTypes());
+			paramIndex += values.size();
+		}
+	}
+
 	/**
 	 * Internal implementation for setting parameter values.
 	 * @param preparedStatement the PreparedStatement
@@ -590,14 +899,28 @@ public abstract class AbstractJdbcInsert {
 	private void setParameterValues(PreparedStatement preparedStatement, List<?> values, @Nullable int... columnTypes)
 			throws SQLException {
 
+		setParameterValues(preparedStatement, 0, values, columnTypes);
+	}
+
+	/**
+	 * Internal implementation for setting parameter values, starting after the given index.
+	 * @param preparedStatement the PreparedStatement
+	 * @param startIndex the number of parameters preceding the values to be set
+	 * @param values the values to be set
+	 */
+	private void setParameterValues(PreparedStatement preparedStatement, int startIndex, List<?> values,
+			@Nullable int... columnTypes) throws SQLException {
+
 		int colIndex = 0;
 		for (Object value : values) {
 			colIndex++;
 			if (columnTypes == null || colIndex > columnTypes.length) {
-				StatementCreatorUtils.setParameterValue(preparedStatement, colIndex, SqlTypeValue.TYPE_UNKNOWN, value);
+				StatementCreatorUtils.setParameterValue(
+						preparedStatement, startIndex + colIndex, SqlTypeValue.TYPE_UNKNOWN, value);
 			}
 			else {
-				StatementCreatorUtils.setParameterValue(preparedStatement, colIndex, columnTypes[colIndex - 1], value);
+				StatementCreatorUtils.setParameterValue(
+						preparedStatement, startIndex + colIndex, columnTypes[colIndex - 1], value);
 			}
 		}
 	}
@@ -0,0 +1,192 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.core.simple;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.springframework.dao.DataAccessException;
+import org.springframework.lang.Nullable;
+
+/**
+ * Outcome of a bulk insert executed through {@link SimpleJdbcInsert#executeBulk},
+ * reporting the update counts and the failure (if any) for each chunk of rows.
+ *
+ * <p>Failed chunks are only reported when the bulk insert runs without a
+ * surrounding transaction, with every chunk committed independently. Within a
+ * transaction, the first failure is thrown to the caller instead.
+ *
+ * <p>Chunks are listed in the order of the rows they cover, independent of the
+ * order in which they were actually executed.
+ *
+ * @author agent (agent@local)
+ * @since 5.3.7
+ * @see SimpleJdbcInsert#withBulkChunkSize
+ */
+public final class BulkInsertResult {
+
+	private final List<Chunk> chunks;
+
+	private final int rowCount;
+
+
+	BulkInsertResult(List<Chunk> chunks, int rowCount) {
+		this.chunks = Collections.unmodifiableList(chunks);
+		this.rowCount = rowCount;
+	}
+
+
+	/**
+	 * Return the executed chunks, in row order.
+	 */
+	public List<Chunk> getChunks() {
+		return this.chunks;
+	}
+
+	/**
+	 * Return the total number of rows submitted for insertion.
+	 */
+	public int getRowCount() {
+		return this.rowCount;
+	}
+
+	/**
+	 * Return the sum of all known update counts across successful chunks.
+	 * <p>Counts reported as {@link java.sql.Statement#SUCCESS_NO_INFO} are not included.
+	 */
+	public int getTotalUpdateCount() {
+		int total = 0;
+		for (Chunk chunk : this.chunks) {
+			total += chunk.getTotalUpdateCount();
+		}
+		return total;
+	}
+
+	/**
+	 * Return whether any chunk failed.
+	 */
+	public boolean hasFailures() {
+		for (Chunk chunk : this.chunks) {
+			if (!chunk.isSuccessful()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Return the failed chunks, in row order.
+	 */
+	public List<Chunk> getFailedChunks() {
+		List<Chunk> failed = new ArrayList<>();
+		for (Chunk chunk : this.chunks) {
+			if (!chunk.isSuccessful()) {
+				failed.add(chunk);
+			}
+		}
+		return failed;
+	}
+
+	@Override
+	public String toString() {
+		return "BulkInsertResult: " + this.rowCount + " rows in " + this.chunks.size() +
+				" chunks, " + getFailedChunks().size() + " failed";
+	}
+
+
+	/**
+	 * Outcome of a single chunk of a bulk insert.
+	 */
+	public static final class Chunk {
+
+		private final int offset;
+
+		private final int rowCount;
+
+		private final int[] updateCounts;
+
+		@Nullable
+		private final DataAccessException failure;
+
+		Chunk(int offset, int rowCount, int[] updateCounts, @Nullable DataAccessException failure) {
+			this.offset = offset;
+			this.rowCount = rowCount;
+			this.updateCounts = updateCounts;
+			this.failure = failure;
+		}
+
+		/**
+		 * Return the index of the first row of this chunk within the submitted rows.
+		 */
+		public int getOffset() {
+			return this.offset;
+		}
+
+		/**
+		 * Return the number of rows covered by this chunk.
+		 */
+		public int getRowCount() {
+			return this.rowCount;
+		}
+
+		/**
+		 * Return the update counts as returned by the JDBC driver, one per statement
+		 * executed for this chunk. With multi-row inserts, a single count covers
+		 * all rows of the corresponding statement.
+		 * <p>Empty if the chunk failed.
+		 */
+		public int[] getUpdateCounts() {
+			return this.updateCounts;
+		}
+
+		/**
+		 * Return the sum of all known update counts of this chunk.
+		 */
+		public int getTotalUpdateCount() {
+			int total = 0;
+			for (int count : this.updateCounts) {
+				if (count > 0) {
+					total += count;
+				}
+			}
+			return total;
+		}
+
+		/**
+		 * Return the exception that caused this chunk to fail, if any.
+		 */
+		@Nullable
+		public DataAccessException getFailure() {
+			return this.failure;
+		}
+
+		/**
+		 * Return whether this chunk has been executed successfully.
+		 */
+		public boolean isSuccessful() {
+			return (this.failure == null);
+		}
+
+		@Override
+		public String toString() {
+			return "Chunk [offset=" + this.offset + ", rows=" + this.rowCount +
+					(this.failure != null ? ", failure=" + this.failure : "") + "]";
+		}
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2017 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -18,6 +18,7 @@ package org.springframework.jdbc.core.simple;
 
 import java.util.Arrays;
 import java.util.Map;
+import java.util.concurrent.Executor;
 
 import javax.sql.DataSource;
 
@@ -112,6 +113,45 @@ public class SimpleJdbcInsert extends AbstractJdbcInsert implements SimpleJdbcIn
 		return this;
 	}
 
+	/**
+	 * Specify the maximum number of rows per chunk for {@link #executeBulk bulk inserts}.
+	 * @param bulkChunkSize the maximum number of rows per chunk (default 1000)
+	 * @return the instance of this SimpleJdbcInsert
+	 * @since 5.3.7
+	 */
+	public SimpleJdbcInsert withBulkChunkSize(int bulkChunkSize) {
+		setBulkChunkSize(bulkChunkSize);
+		return this;
+	}
+
+	/**
+	 * Rewrite {@link #executeBulk bulk inserts} into multi-row
+	 * {@code INSERT ... VALUES (...), (...)} statements, for databases that support them.
+	 * @param rowsPerStatement the maximum number of rows per statement
+	 * @param maxParametersPerStatement the maximum number of bind parameters the
+	 * database accepts per statement, further limiting the rows per statement
+	 * @return the instance of this SimpleJdbcInsert
+	 * @since 5.3.7
+	 */
+	public SimpleJdbcInsert withMultiRowInsert(int rowsPerStatement, int maxParametersPerStatement) {
+		setMultiRowInsertSize(rowsPerStatement);
+		setMaxParametersPerStatement(maxParametersPerStatement);
+		return this;
+	}
+
+	/**
+	 * Run the chunks of {@link #executeBulk bulk inserts} in parallel on the given
+	 * {@link Executor}, unless a transaction is bound to the calling thread.
+	 * <p>Each parallel chunk is committed independently on its own connection.
+	 * @param executor the executor to use
+	 * @return the instance of this SimpleJdbcInsert
+	 * @since 5.3.7
+	 */
+	public SimpleJdbcInsert withBulkExecutor(Executor executor) {
+		setBulkExecutor(executor);
+		return this;
+	}
+
 	@Override
 	public int execute(Map<String, ?> args) {
 		return doExecute(args);
@@ -153,4 +193,39 @@ public class SimpleJdbcInsert extends AbstractJdbcInsert implements SimpleJdbcIn
 		return doExecuteBatch(batch);
 	}
 
+	/**
+	 * Execute a bulk insert using the values passed in, split into chunks that are
+	 * executed as separate JDBC batches.
+	 * <p>Without a surrounding transaction, each chunk is committed on its own:
+	 * in contrast to {@link #executeBatch}, a failing chunk does not abort the
+	 * other chunks, and failures are reported per chunk in the returned result.
+	 * Within a transaction, the first failing chunk is thrown as a
+	 * {@link org.springframework.dao.DataAccessException}, leaving it to the
+	 * transaction to roll back all chunks.
+	 * @param batch an array of Maps containing a batch of column names and corresponding value
+	 * @return the per-chunk update counts and failures
+	 * @since 5.3.7
+	 */
+	@SuppressWarnings("unchecked")
+	public BulkInsertResult executeBulk(Map<String, ?>... batch) {
+		return doExecuteBulk(batch);
+	}
+
+	/**
+	 * Execute a bulk insert using the values passed in, split into chunks that are
+	 * executed as separate JDBC batches.
+	 * <p>Without a surrounding transaction, each chunk is committed on its own:
+	 * in contrast to {@link #executeBatch}, a failing chunk does not abort the
+	 * other chunks, and failures are reported per chunk in the returned result.
+	 * Within a transaction, the first failing chunk is thrown as a
+	 * {@link org.springframework.dao.DataAccessException}, leaving it to the
+	 * transaction to roll back all chunks.
+	 * @param batch an array of SqlParameterSource containing values for the batch
+	 * @return the per-chunk update counts and failures
+	 * @since 5.3.7
+	 */
+	public BulkInsertResult executeBulk(SqlParameterSource... batch) {
+		return doExecuteBulk(batch);
+	}
+
 }
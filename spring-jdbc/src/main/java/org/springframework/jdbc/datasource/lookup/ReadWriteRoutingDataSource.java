@@ -0,0 +1,492 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.datasource.lookup;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.core.NamedThreadLocal;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.jdbc.datasource.ConnectionProxy;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.lang.Nullable;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.Assert;
+
+/**
+ * {@link javax.sql.DataSource} implementation that routes read-only transactions
+ * to replica DataSources and all other work to a primary DataSource.
+ *
+ * <p>The routing decision is based on
+ * {@link TransactionSynchronizationManager#isCurrentTransactionReadOnly()}, i.e.
+ * on the "readOnly" flag of the current transaction definition, as typically
+ * specified through {@code @Transactional(readOnly = true)}. Since transaction
+ * managers such as {@link org.springframework.jdbc.datasource.DataSourceTransactionManager}
+ * obtain their Connection before exposing the read-only flag, Connections returned
+ * by this DataSource are lazy proxies, only deciding on their target DataSource
+ * when the first statement gets created. This corresponds to a
+ * {@link LazyConnectionDataSourceProxy} in front of a routing DataSource.
+ *
+ * <p>Read-only work is balanced across the replicas according to the configured
+ * {@link LoadBalancingStrategy}. If a replica fails to provide a Connection,
+ * it is considered unhealthy and skipped for the
+ * {@linkplain #setReplicaRetryInterval retry interval}, with the work going to
+ * another healthy replica or, if there is none, to the primary DataSource.
+ *
+ * <p>To cope with replication lag, a {@linkplain #setPrimaryPinWindow pin window}
+ * can be specified: within that time after the current thread has used the
+ * primary DataSource for non-read-only work, read-only work on that thread keeps
+ * going to the primary as well, reading its own writes. Note that any non-read-only
+ * work counts as a potential write here, whether or not it actually modifies data;
+ * mark purely reading transactions as read-only to avoid pinning. Callers may also
+ * {@linkplain #recordWrite() record a write} explicitly, e.g. for writes performed
+ * through another channel.
+ *
+ * <pre class="code">
+ * ReadWriteRoutingDataSource dataSource = new ReadWriteRoutingDataSource(primary, replica1, replica2);
+ * dataSource.setPrimaryPinWindow(Duration.ofSeconds(2));
+ * dataSource.afterPropertiesSet();</pre>
+ *
+ * @author agent (agent@local)
+ * @since 5.3.7
+ * @see TransactionSynchronizationManager#isCurrentTransactionReadOnly()
+ * @see LazyConnectionDataSourceProxy
+ * @see AbstractRoutingDataSource
+ */
+public class ReadWriteRoutingDataSource extends AbstractDataSource implements InitializingBean {
+
+	/**
+	 * Strategies for choosing a replica for read-only work.
+	 */
+	public enum LoadBalancingStrategy {
+
+		/**
+		 * Choose the replica with the fewest Connections currently in use
+		 * through this DataSource.
+		 */
+		LEAST_OUTSTANDING_CONNECTIONS,
+
+		/**
+		 * Choose the replica with the lowest average Connection acquisition
+		 * latency, as a moving average over recent acquisitions.
+		 */
+		LOWEST_LATENCY
+	}
+
+
+	@Nullable
+	private DataSource primaryDataSource;
+
+	private List<Replica> replicas = new ArrayList<>();
+
+	private LoadBalancingStrategy loadBalancingStrategy = LoadBalancingStrategy.LEAST_OUTSTANDING_CONNECTIONS;
+
+	private long primaryPinNanos;
+
+	private long replicaRetryNanos = TimeUnit.SECONDS.toNanos(5);
+
+	private final ThreadLocal<Long> lastWriteTime = new NamedThreadLocal<>("Last write to primary DataSource");
+
+	private final AtomicInteger selectionCounter = new AtomicInteger();
+
+	@Nullable
+	private LazyConnectionDataSourceProxy connectionProxy;
+
+
+	/**
+	 * Create a new ReadWriteRoutingDataSource.
+	 * @see #setPrimaryDataSource
+	 * @see #setReplicaDataSources
+	 */
+	public ReadWriteRoutingDataSource() {
+	}
+
+	/**
+	 * Create a new ReadWriteRoutingDataSource.
+	 * @param primaryDataSource the DataSource for read-write work
+	 * @param replicaDataSources the DataSources for read-only work
+	 */
+	public ReadWriteRoutingDataSource(DataSource primaryDataSource, DataSource... replicaDataSources) {
+		setPrimaryDataSource(primaryDataSource);
+		setReplicaDataSources(Arrays.asList(replicaDataSources));
+	}
+
+
+	/**
+	 * Set the primary DataSource, used for all work that is not read-only.
+	 */
+	public void setPrimaryDataSource(DataSource primaryDataSource) {
+		this.primaryDataSource = primaryDataSource;
+	}
+
+	/**
+	 * Return the primary DataSource.
+	 */
+	@Nullable
+	public DataSource getPrimaryDataSource() {
+		return this.primaryDataSource;
+	}
+
+	/**
+	 * Set the replica DataSources, used for read-only work.
+	 * <p>If none are specified, all work goes to the primary DataSource.
+	 */
+	public void setReplicaDataSources(List<DataSource> replicaDataSources) {
+		List<Replica> replicas = new ArrayList<>(replicaDataSources.size());
+		for (DataSource dataSource : replicaDataSources) {
+			replicas.add(new Replica(dataSource));
+		}
+		this.replicas = replicas;
+	}
+
+	/**
+	 * Return the replica DataSources.
+	 */
+	public List<DataSource> getReplicaDataSources() {
+		List<DataSource> dataSources = new ArrayList<>(this.replicas.size());
+		for (Replica replica : this.replicas) {
+			dataSources.add(replica.dataSource);
+		}
+		return dataSources;
+	}
+
+	/**
+	 * Set the strategy for choosing a replica for read-only work.
+	 * <p>Default is {@link LoadBalancingStrategy#LEAST_OUTSTANDING_CONNECTIONS}.
+	 */
+	public void setLoadBalancingStrategy(LoadBalancingStrategy loadBalancingStrategy) {
+		Assert.notNull(loadBalancingStrategy, "LoadBalancingStrategy must not be null");
+		this.loadBalancingStrategy = loadBalancingStrategy;
+	}
+
+	/**
+	 * Return the strategy for choosing a replica for read-only work.
+	 */
+	public LoadBalancingStrategy getLoadBalancingStrategy() {
+		return this.loadBalancingStrategy;
+	}
+
+	/**
+	 * Set the time window after a write during which read-only work on the
+	 * same thread keeps using the primary DataSource, typically chosen to
+	 * exceed the expected replication lag.
+	 * <p>Default is none, always routing read-only work to the replicas.
+	 */
+	public void setPrimaryPinWindow(Duration primaryPinWindow) {
+		Assert.isTrue(!primaryPinWindow.isNegative(), "Primary pin window must not be negative");
+		this.primaryPinNanos = primaryPinWindow.toNanos();
+	}
+
+	/**
+	 * Return the time window after a write during which read-only work
+	 * keeps using the primary DataSource.
+	 */
+	public Duration getPrimaryPinWindow() {
+		return Duration.ofNanos(this.primaryPinNanos);
+	}
+
+	/**
+	 * Set the time for which a replica that failed to provide a Connection is
+	 * skipped, before it is tried again for read-only work.
+	 * <p>Default is 5 seconds.
+	 */
+	public void setReplicaRetryInterval(Duration replicaRetryInterval) {
+		Assert.isTrue(!replicaRetryInterval.isNegative(), "Replica retry interval must not be negative");
+		this.replicaRetryNanos = replicaRetryInterval.toNanos();
+	}
+
+	/**
+	 * Return the time for which a failed replica is skipped.
+	 */
+	public Duration getReplicaRetryInterval() {
+		return Duration.ofNanos(this.replicaRetryNanos);
+	}
+
+	@Override
+	public void afterPropertiesSet() {
+		DataSource primaryDataSource = this.primaryDataSource;
+		if (primaryDataSource == null) {
+			throw new IllegalArgumentException("Property 'primaryDataSource' is required");
+		}
+		LazyConnectionDataSourceProxy connectionProxy = new LazyConnectionDataSourceProxy();
+		connectionProxy.setTargetDataSource(new RoutingTargetDataSource());
+		// Determine connection defaults from the primary, without routing.
+		try (Connection con = primaryDataSource.getConnection()) {
+			connectionProxy.setDefaultAutoCommit(con.getAutoCommit());
+			connectionProxy.setDefaultTransactionIsolation(con.getTransactionIsolation());
+		}
+		catch (SQLException ex) {
+			logger.debug("Could not retrieve default auto-commit and transaction isolation settings", ex);
+		}
+		connectionProxy.afterPropertiesSet();
+		this.connectionProxy = connectionProxy;
+	}
+
+
+	/**
+	 * Record a write on the current thread, pinning subsequent read-only work
+	 * on this thread to the primary DataSource for the
+	 * {@linkplain #setPrimaryPinWindow pin window}.
+	 * <p>Called automatically whenever a Connection for non-read-only work is
+	 * obtained from the primary DataSource. This conservatively treats all such
+	 * work as a write, since the statements to be executed are not known yet.
+	 */
+	public void recordWrite() {
+		if (this.primaryPinNanos > 0) {
+			this.lastWriteTime.set(System.nanoTime());
+		}
+	}
+
+	/**
+	 * Return whether read-only work on the current thread is currently pinned
+	 * to the primary DataSource, due to a recent write.
+	 */
+	public boolean isPinnedToPrimary() {
+		Long lastWrite = this.lastWriteTime.get();
+		if (lastWrite == null) {
+			return false;
+		}
+		if (System.nanoTime() - lastWrite < this.primaryPinNanos) {
+			return true;
+		}
+		this.lastWriteTime.remove();
+		return false;
+	}
+
+
+	@Override
+	public Connection getConnection() throws SQLException {
+		return obtainConnectionProxy().getConnection();
+	}
+
+	@Override
+	public Connection getConnection(String username, String password) throws SQLException {
+		return obtainConnectionProxy().getConnection(username, password);
+	}
+
+	private LazyConnectionDataSourceProxy obtainConnectionProxy() {
+		LazyConnectionDataSourceProxy connectionProxy = this.connectionProxy;
+		Assert.state(connectionProxy != null, "ReadWriteRoutingDataSource not initialized");
+		return connectionProxy;
+	}
+
+	/**
+	 * Determine whether the current work may be routed to a replica.
+	 * <p>The default implementation checks the current transaction's read-only
+	 * flag, as well as a pin to the primary DataSource after a recent write.
+	 */
+	protected boolean isReplicaEligible() {
+		return (TransactionSynchronizationManager.isCurrentTransactionReadOnly() && !isPinnedToPrimary());
+	}
+
+	/**
+	 * Obtain a target Connection for the current work, called on creation of
+	 * the first statement on a Connection returned by this DataSource.
+	 */
+	private Connection getTargetConnection(@Nullable String username, @Nullable String password)
+			throws SQLException {
+
+		DataSource primaryDataSource = this.primaryDataSource;
+		Assert.state(primaryDataSource != null, "No primary DataSource set");
+		if (!this.replicas.isEmpty() && isReplicaEligible()) {
+			// Each failing replica is marked unhealthy, so the next attempt selects another one.
+			for (int attempt = 0; attempt < this.replicas.size(); attempt++) {
+				Replica replica = selectReplica();
+				if (replica == null) {
+					break;
+				}
+				try {
+					return replica.getConnection(username, password, this.replicaRetryNanos);
+				}
+				catch (SQLException ex) {
+					if (logger.isWarnEnabled()) {
+						logger.warn("Failed to obtain Connection from replica DataSource [" + replica.dataSource +
+								"] - skipping it for " + getReplicaRetryInterval(), ex);
+					}
+				}
+			}
+			return obtainConnection(primaryDataSource, username, password);
+		}
+		if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+			recordWrite();
+		}
+		return obtainConnection(primaryDataSource, username, password);
+	}
+
+	/**
+	 * Select a healthy replica according to the load balancing strategy.
+	 * @return the selected replica, or {@code null} if all replicas are unhealthy
+	 */
+	@Nullable
+	private Replica selectReplica() {
+		List<Replica> replicas = this.replicas;
+		int size = replicas.size();
+		long now = System.nanoTime();
+		// Rotate the starting point so that ties are spread across replicas.
+		int start = Math.floorMod(this.selectionCounter.getAndIncrement(), size);
+		Replica selected = null;
+		for (int i = 0; i < size; i++) {
+			Replica candidate = replicas.get((start + i) % size);
+			if (!candidate.isHealthy(now)) {
+				continue;
+			}
+			if (selected == null || (this.loadBalancingStrategy == LoadBalancingStrategy.LOWEST_LATENCY ?
+					candidate.latencyNanos < selected.latencyNanos :
+					candidate.outstanding.get() < selected.outstanding.get())) {
+				selected = candidate;
+			}
+		}
+		return selected;
+	}
+
+	private static Connection obtainConnection(DataSource dataSource, @Nullable String username, @Nullable String password)
+			throws SQLException {
+
+		return (username != null ? dataSource.getConnection(username, password) : dataSource.getConnection());
+	}
+
+
+	/**
+	 * Target DataSource for the lazy Connection proxy, performing the actual routing.
+	 */
+	private class RoutingTargetDataSource extends AbstractDataSource {
+
+		@Override
+		public Connection getConnection() throws SQLException {
+			return getTargetConnection(null, null);
+		}
+
+		@Override
+		public Connection getConnection(String username, String password) throws SQLException {
+			return getTargetConnection(username, password);
+		}
+	}
+
+
+	/**
+	 * A replica DataSource along with its load and health statistics.
+	 */
+	private static class Replica {
+
+		/** Weight of the most recent sample in the latency moving average. */
+		private static final double LATENCY_ALPHA = 0.2;
+
+		final DataSource dataSource;
+
+		final AtomicInteger outstanding = new AtomicInteger();
+
+		volatile long latencyNanos;
+
+		/** Time (in {@link System#nanoTime()} terms) until which this replica is skipped, if unhealthy. */
+		volatile long retryTime;
+
+		volatile boolean unhealthy;
+
+		Replica(DataSource dataSource) {
+			this.dataSource = dataSource;
+		}
+
+		boolean isHealthy(long now) {
+			return (!this.unhealthy || now - this.retryTime >= 0);
+		}
+
+		Connection getConnection(@Nullable String username, @Nullable String password, long retryNanos)
+				throws SQLException {
+
+			long start = System.nanoTime();
+			Connection con;
+			try {
+				con = obtainConnection(this.dataSource, username, password);
+			}
+			catch (SQLException ex) {
+				long now = System.nanoTime();
+				// A failed attempt often takes as long as a timeout: let it count against the replica.
+				recordLatency(now - start);
+				this.retryTime = now + retryNanos;
+				this.unhealthy = true;
+				throw ex;
+			}
+			recordLatency(System.nanoTime() - start);
+			this.unhealthy = false;
+			this.outstanding.incrementAndGet();
+			return (Connection) Proxy.newProxyInstance(ConnectionProxy.class.getClassLoader(),
+					new Class<?>[] {ConnectionProxy.class}, new OutstandingConnectionInvocationHandler(con, this));
+		}
+
+		private void recordLatency(long latency) {
+			long previous = this.latencyNanos;
+			this.latencyNanos = (previous == 0 ? latency : (long) (previous + LATENCY_ALPHA * (latency - previous)));
+		}
+	}
+
+
+	/**
+	 * Invocation handler that keeps track of a replica's outstanding Connections.
+	 */
+	private static class OutstandingConnectionInvocationHandler implements InvocationHandler {
+
+		private final Connection target;
+
+		private final Replica replica;
+
+		private boolean closed;
+
+		OutstandingConnectionInvocationHandler(Connection target, Replica replica) {
+			this.target = target;
+			this.replica = replica;
+		}
+
+		@Override
+		@Nullable
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			switch (method.getName()) {
+				case "equals":
+					return (proxy == args[0]);
+				case "hashCode":
+					return System.identityHashCode(proxy);
+				case "getTargetConnection":
+					return this.target;
+				case "close":
+					if (!this.closed) {
+						this.closed = true;
+						this.replica.outstanding.decrementAndGet();
+					}
+					break;
+			}
+			try {
+				return method.invoke(this.target, args);
+			}
+			catch (InvocationTargetException ex) {
+				throw ex.getTargetException();
+			}
+		}
+	}
+
+}
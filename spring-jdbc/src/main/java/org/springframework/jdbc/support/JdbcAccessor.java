@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -59,6 +59,9 @@ public abstract class JdbcAccessor implements InitializingBean {
 
 	private boolean lazyInit = true;
 
+	@Nullable
+	private StatementObserver statementObserver;
+
 
 	/**
 	 * Set the JDBC DataSource to obtain connections from.
@@ -164,6 +167,26 @@ public abstract class JdbcAccessor implements InitializingBean {
 		return this.lazyInit;
 	}
 
+	/**
+	 * Set an observer to be notified of timings and row counts for each
+	 * statement executed through this accessor.
+	 * <p>Default is none. When no observer is set, no timings are taken.
+	 * @since 5.3.7
+	 * @see SlowStatementRecorder
+	 */
+	public void setStatementObserver(@Nullable StatementObserver statementObserver) {
+		this.statementObserver = statementObserver;
+	}
+
+	/**
+	 * Return the observer for statements executed through this accessor, if any.
+	 * @since 5.3.7
+	 */
+	@Nullable
+	public StatementObserver getStatementObserver() {
+		return this.statementObserver;
+	}
+
 	/**
 	 * Eagerly initialize the exception translator, if demanded,
 	 * creating a default one for the specified DataSource if none set.
@@ -0,0 +1,285 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.support;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+import org.springframework.util.ConcurrentLruCache;
+
+/**
+ * {@link StatementObserver} that aggregates statement timings in memory per
+ * {@linkplain SqlFingerprintUtils#fingerprint SQL fingerprint}, exposing the
+ * top-N slowest statements for diagnostic purposes.
+ *
+ * <p>Only statements whose total time reaches the configured
+ * {@linkplain #setThreshold threshold} are recorded. The number of distinct
+ * fingerprints tracked is bounded; further fingerprints are counted as dropped
+ * until {@link #reset()} is called.
+ *
+ * <p>A typical setup registers a shared instance on the {@code JdbcTemplate}
+ * and exposes {@link #getSlowestStatements()} through a management endpoint:
+ *
+ * <pre class="code">
+ * SlowStatementRecorder recorder = new SlowStatementRecorder(20);
+ * recorder.setThreshold(Duration.ofMillis(50));
+ * jdbcTemplate.setStatementObserver(recorder);</pre>
+ *
+ * @author agent (agent@local)
+ * @since 5.3.7
+ * @see org.springframework.jdbc.core.JdbcTemplate#setStatementObserver
+ */
+public class SlowStatementRecorder implements StatementObserver {
+
+	/** Default maximum number of distinct fingerprints tracked: 1000. */
+	public static final int DEFAULT_MAX_FINGERPRINTS = 1000;
+
+
+	private final int topN;
+
+	private final int maxFingerprints;
+
+	private volatile long thresholdNanos;
+
+	private final Map<String, StatementStatistics> statistics = new ConcurrentHashMap<>();
+
+	private final ConcurrentLruCache<String, String> fingerprintCache =
+			new ConcurrentLruCache<>(256, SqlFingerprintUtils::fingerprint);
+
+	private final LongAdder droppedCount = new LongAdder();
+
+
+	/**
+	 * Create a new recorder exposing the given number of slowest statements.
+	 * @param topN the number of statements to expose
+	 */
+	public SlowStatementRecorder(int topN) {
+		this(topN, DEFAULT_MAX_FINGERPRINTS);
+	}
+
+	/**
+	 * Create a new recorder exposing the given number of slowest statements.
+	 * @param topN the number of statements to expose
+	 * @param maxFingerprints the maximum number of distinct fingerprints to track
+	 */
+	public SlowStatementRecorder(int topN, int maxFingerprints) {
+		Assert.isTrue(topN > 0, "topN must be greater than 0");
+		Assert.isTrue(maxFingerprints >= topN, "maxFingerprints must not be less than topN");
+		this.topN = topN;
+		this.maxFingerprints = maxFingerprints;
+	}
+
+
+	/**
+	 * Set the minimum total time for a statement to be recorded.
+	 * <p>Default is zero, recording all statements.
+	 */
+	public void setThreshold(Duration threshold) {
+		Assert.isTrue(!threshold.isNegative(), "Threshold must not be negative");
+		this.thresholdNanos = threshold.toNanos();
+	}
+
+	/**
+	 * Return the minimum total time for a statement to be recorded.
+	 */
+	public Duration getThreshold() {
+		return Duration.ofNanos(this.thresholdNanos);
+	}
+
+
+	@Override
+	public void statementCompleted(StatementMetrics metrics) {
+		long totalNanos = metrics.getTotalNanos();
+		String sql = metrics.getSql();
+		if (totalNanos < this.thresholdNanos || sql == null) {
+			return;
+		}
+		String fingerprint = this.fingerprintCache.get(sql);
+		StatementStatistics stats = this.statistics.get(fingerprint);
+		if (stats == null) {
+			if (this.statistics.size() >= this.maxFingerprints) {
+				this.droppedCount.increment();
+				return;
+			}
+			stats = this.statistics.computeIfAbsent(fingerprint, StatementStatistics::new);
+		}
+		stats.record(metrics, totalNanos);
+	}
+
+	/**
+	 * Return the top-N statements by maximum execution time, slowest first.
+	 */
+	public List<StatementStatistics> getSlowestStatements() {
+		return getTopStatements(Comparator.comparingLong(StatementStatistics::getMaxNanos));
+	}
+
+	/**
+	 * Return the top-N statements by accumulated execution time, most expensive first.
+	 */
+	public List<StatementStatistics> getMostExpensiveStatements() {
+		return getTopStatements(Comparator.comparingLong(StatementStatistics::getTotalNanos));
+	}
+
+	private List<StatementStatistics> getTopStatements(Comparator<StatementStatistics> comparator) {
+		List<StatementStatistics> result = new ArrayList<>(this.statistics.values());
+		result.sort(comparator.reversed());
+		return (result.size() > this.topN ? new ArrayList<>(result.subList(0, this.topN)) : result);
+	}
+
+	/**
+	 * Return the number of recorded statements that were dropped since the
+	 * maximum number of distinct fingerprints had been reached.
+	 */
+	public long getDroppedCount() {
+		return this.droppedCount.sum();
+	}
+
+	/**
+	 * Discard all recorded statistics.
+	 */
+	public void reset() {
+		this.statistics.clear();
+		this.droppedCount.reset();
+	}
+
+
+	/**
+	 * Aggregated statistics for all recorded executions of a statement fingerprint.
+	 */
+	public static final class StatementStatistics {
+
+		private final String fingerprint;
+
+		private final LongAdder count = new LongAdder();
+
+		private final LongAdder failureCount = new LongAdder();
+
+		private final LongAdder totalNanos = new LongAdder();
+
+		private final LongAdder totalRows = new LongAdder();
+
+		private final AtomicLong maxNanos = new AtomicLong();
+
+		@Nullable
+		private volatile StatementMetrics slowestExecution;
+
+		StatementStatistics(String fingerprint) {
+			this.fingerprint = fingerprint;
+		}
+
+		void record(StatementMetrics metrics, long nanos) {
+			this.count.increment();
+			this.totalNanos.add(nanos);
+			if (metrics.getRowCount() > 0) {
+				this.totalRows.add(metrics.getRowCount());
+			}
+			if (!metrics.isSuccessful()) {
+				this.failureCount.increment();
+			}
+			long max = this.maxNanos.get();
+			while (nanos > max) {
+				if (this.maxNanos.compareAndSet(max, nanos)) {
+					this.slowestExecution = metrics;
+					break;
+				}
+				max = this.maxNanos.get();
+			}
+		}
+
+		/**
+		 * Return the statement fingerprint.
+		 */
+		public String getFingerprint() {
+			return this.fingerprint;
+		}
+
+		/**
+		 * Return the number of recorded executions.
+		 */
+		public long getCount() {
+			return this.count.sum();
+		}
+
+		/**
+		 * Return the number of recorded executions that failed.
+		 */
+		public long getFailureCount() {
+			return this.failureCount.sum();
+		}
+
+		/**
+		 * Return the accumulated time of all recorded executions.
+		 */
+		public Duration getTotalTime() {
+			return Duration.ofNanos(getTotalNanos());
+		}
+
+		long getTotalNanos() {
+			return this.totalNanos.sum();
+		}
+
+		/**
+		 * Return the average time of the recorded executions.
+		 */
+		public Duration getAverageTime() {
+			long count = getCount();
+			return Duration.ofNanos(count > 0 ? getTotalNanos() / count : 0);
+		}
+
+		/**
+		 * Return the time of the slowest recorded execution.
+		 */
+		public Duration getMaxTime() {
+			return Duration.ofNanos(getMaxNanos());
+		}
+
+		long getMaxNanos() {
+			return this.maxNanos.get();
+		}
+
+		/**
+		 * Return the total number of rows fetched or affected, as far as known.
+		 */
+		public long getTotalRows() {
+			return this.totalRows.sum();
+		}
+
+		/**
+		 * Return the metrics of the slowest recorded execution, including
+		 * its original SQL and the breakdown into phases.
+		 */
+		@Nullable
+		public StatementMetrics getSlowestExecution() {
+			return this.slowestExecution;
+		}
+
+		@Override
+		public String toString() {
+			return "StatementStatistics [" + this.fingerprint + ": count=" + getCount() +
+					", max=" + getMaxTime() + ", avg=" + getAverageTime() + ", total=" + getTotalTime() + "]";
+		}
+	}
+
+}
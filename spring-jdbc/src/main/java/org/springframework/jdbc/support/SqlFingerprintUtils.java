@@ -0,0 +1,136 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.support;
+
+import java.util.regex.Pattern;
+
+/**
+ * Utility methods for computing SQL fingerprints: normalized forms of SQL
+ * statements that group executions of the same statement shape together.
+ *
+ * @author agent (agent@local)
+ * @since 5.3.7
+ * @see StatementMetrics#getFingerprint()
+ */
+public abstract class SqlFingerprintUtils {
+
+	private static final Pattern PLACEHOLDER_LIST = Pattern.compile("\\?(?:\\s*,\\s*\\?)+");
+
+
+	/**
+	 * Compute the fingerprint of the given SQL statement.
+	 * <p>String and numeric literals are replaced by {@code ?} placeholders,
+	 * comments are removed, whitespace is collapsed, unquoted text is lower-cased,
+	 * and lists of placeholders such as {@code IN (?, ?, ?)} are collapsed into
+	 * {@code ?+}, so that statements differing only in their arguments share
+	 * the same fingerprint.
+	 * @param sql the SQL statement
+	 * @return the fingerprint
+	 */
+	public static String fingerprint(String sql) {
+		int length = sql.length();
+		StringBuilder fingerprint = new StringBuilder(length);
+		boolean pendingSpace = false;
+		int i = 0;
+		while (i < length) {
+			char c = sql.charAt(i);
+			char next = (i + 1 < length ? sql.charAt(i + 1) : 0);
+			if (Character.isWhitespace(c)) {
+				pendingSpace = true;
+				i++;
+				continue;
+			}
+			if (c == '-' && next == '-') {
+				int end = sql.indexOf('\n', i);
+				i = (end != -1 ? end + 1 : length);
+				pendingSpace = true;
+				continue;
+			}
+			if (c == '/' && next == '*') {
+				int end = sql.indexOf("*/", i + 2);
+				i = (end != -1 ? end + 2 : length);
+				pendingSpace = true;
+				continue;
+			}
+			if (pendingSpace && fingerprint.length() > 0) {
+				fingerprint.append(' ');
+			}
+			pendingSpace = false;
+			if (c == '\'') {
+				i = skipStringLiteral(sql, i + 1);
+				fingerprint.append('?');
+			}
+			else if (c == '"' || c == '`') {
+				int end = sql.indexOf(c, i + 1);
+				end = (end != -1 ? end + 1 : length);
+				fingerprint.append(sql, i, end);
+				i = end;
+			}
+			else if (Character.isDigit(c) && !endsWithIdentifierPart(fingerprint)) {
+				i = skipNumericLiteral(sql, i);
+				fingerprint.append('?');
+			}
+			else {
+				fingerprint.append(Character.toLowerCase(c));
+				i++;
+			}
+		}
+		return PLACEHOLDER_LIST.matcher(fingerprint).replaceAll("?+");
+	}
+
+	private static int skipStringLiteral(String sql, int index) {
+		int i = index;
+		while (i < sql.length()) {
+			if (sql.charAt(i) == '\'') {
+				if (i + 1 < sql.length() && sql.charAt(i + 1) == '\'') {
+					i += 2;
+					continue;
+				}
+				return i + 1;
+			}
+			i++;
+		}
+		return i;
+	}
+
+	private static int skipNumericLiteral(String sql, int index) {
+		int i = index;
+		while (i < sql.length()) {
+			char c = sql.charAt(i);
+			if (Character.isDigit(c) || c == '.') {
+				i++;
+			}
+			else if ((c == 'e' || c == 'E') && i + 1 < sql.length() &&
+					(Character.isDigit(sql.charAt(i + 1)) || sql.charAt(i + 1) == '-')) {
+				i += 2;
+			}
+			else {
+				break;
+			}
+		}
+		return i;
+	}
+
+	private static boolean endsWithIdentifierPart(StringBuilder fingerprint) {
+		if (fingerprint.length() == 0) {
+			return false;
+		}
+		char last = fingerprint.charAt(fingerprint.length() - 1);
+		return (Character.isLetterOrDigit(last) || last == '_' || last == '$');
+	}
+
+}
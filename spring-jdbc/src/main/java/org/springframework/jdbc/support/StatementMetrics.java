@@ -0,0 +1,195 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.support;
+
+import java.time.Duration;
+
+import org.springframework.lang.Nullable;
+
+/**
+ * Timings and outcome of a single statement execution, as passed to a
+ * {@link StatementObserver}.
+ *
+ * <p>The execution is broken down into the following phases:
+ * <ul>
+ * <li>connection acquisition from the {@code DataSource}</li>
+ * <li>statement preparation, including parameter binding where applicable</li>
+ * <li>statement execution, up to the first results being available</li>
+ * <li>result fetching, i.e. iterating over the {@code ResultSet}</li>
+ * <li>row mapping, i.e. time spent in a {@code RowMapper} or {@code RowCallbackHandler}</li>
+ * </ul>
+ * Phases that do not apply, or that cannot be told apart for a given kind
+ * of callback, are reported as zero.
+ *
+ * @author agent (agent@local)
+ * @since 5.3.7
+ */
+public final class StatementMetrics {
+
+	/** Row count value indicating that the number of rows is not known. */
+	public static final int UNKNOWN_ROW_COUNT = -1;
+
+
+	@Nullable
+	private final String sql;
+
+	private final long connectionAcquireNanos;
+
+	private final long prepareNanos;
+
+	private final long executeNanos;
+
+	private final long fetchNanos;
+
+	private final long mappingNanos;
+
+	private final int rowCount;
+
+	@Nullable
+	private final Throwable failure;
+
+	@Nullable
+	private String fingerprint;
+
+
+	/**
+	 * Create a new {@code StatementMetrics} instance.
+	 * @param sql the SQL statement, if known
+	 * @param connectionAcquireNanos the time spent obtaining a Connection
+	 * @param prepareNanos the time spent preparing the statement
+	 * @param executeNanos the time spent executing the statement
+	 * @param fetchNanos the time spent fetching results, excluding row mapping
+	 * @param mappingNanos the time spent mapping rows
+	 * @param rowCount the number of rows fetched or affected,
+	 * or {@link #UNKNOWN_ROW_COUNT}
+	 * @param failure the exception that the statement failed with, if any
+	 */
+	public StatementMetrics(@Nullable String sql, long connectionAcquireNanos, long prepareNanos,
+			long executeNanos, long fetchNanos, long mappingNanos, int rowCount, @Nullable Throwable failure) {
+
+		this.sql = sql;
+		this.connectionAcquireNanos = connectionAcquireNanos;
+		this.prepareNanos = prepareNanos;
+		this.executeNanos = executeNanos;
+		this.fetchNanos = fetchNanos;
+		this.mappingNanos = mappingNanos;
+		this.rowCount = rowCount;
+		this.failure = failure;
+	}
+
+
+	/**
+	 * Return the SQL statement, if known.
+	 */
+	@Nullable
+	public String getSql() {
+		return this.sql;
+	}
+
+	/**
+	 * Return the fingerprint of the SQL statement, with literals replaced by
+	 * placeholders, or {@code null} if the SQL is not known.
+	 * @see SqlFingerprintUtils#fingerprint(String)
+	 */
+	@Nullable
+	public String getFingerprint() {
+		String fingerprint = this.fingerprint;
+		if (fingerprint == null && this.sql != null) {
+			fingerprint = SqlFingerprintUtils.fingerprint(this.sql);
+			this.fingerprint = fingerprint;
+		}
+		return fingerprint;
+	}
+
+	/**
+	 * Return the time spent obtaining a Connection from the DataSource.
+	 */
+	public Duration getConnectionAcquireTime() {
+		return Duration.ofNanos(this.connectionAcquireNanos);
+	}
+
+	/**
+	 * Return the time spent preparing the statement.
+	 */
+	public Duration getPrepareTime() {
+		return Duration.ofNanos(this.prepareNanos);
+	}
+
+	/**
+	 * Return the time spent executing the statement.
+	 */
+	public Duration getExecuteTime() {
+		return Duration.ofNanos(this.executeNanos);
+	}
+
+	/**
+	 * Return the time spent fetching results, excluding row mapping.
+	 */
+	public Duration getFetchTime() {
+		return Duration.ofNanos(this.fetchNanos);
+	}
+
+	/**
+	 * Return the time spent mapping rows.
+	 */
+	public Duration getMappingTime() {
+		return Duration.ofNanos(this.mappingNanos);
+	}
+
+	/**
+	 * Return the total time across all phases.
+	 */
+	public Duration getTotalTime() {
+		return Duration.ofNanos(getTotalNanos());
+	}
+
+	long getTotalNanos() {
+		return (this.connectionAcquireNanos + this.prepareNanos + this.executeNanos +
+				this.fetchNanos + this.mappingNanos);
+	}
+
+	/**
+	 * Return the number of rows fetched or affected, or {@link #UNKNOWN_ROW_COUNT}.
+	 */
+	public int getRowCount() {
+		return this.rowCount;
+	}
+
+	/**
+	 * Return the exception that the statement failed with, if any.
+	 */
+	@Nullable
+	public Throwable getFailure() {
+		return this.failure;
+	}
+
+	/**
+	 * Return whether the statement completed successfully.
+	 */
+	public boolean isSuccessful() {
+		return (this.failure == null);
+	}
+
+	@Override
+	public String toString() {
+		return "StatementMetrics [sql=" + this.sql + ", total=" + getTotalTime() +
+				", acquire=" + getConnectionAcquireTime() + ", prepare=" + getPrepareTime() +
+				", execute=" + getExecuteTime() + ", fetch=" + getFetchTime() + ", mapping=" + getMappingTime() +
+				", rows=" + this.rowCount + (this.failure != null ? ", failure=" + this.failure : "") + "]";
+	}
+
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.support;
+
+/**
+ * Callback interface for observing the statements executed by a
+ * {@link JdbcAccessor}, typically a {@link org.springframework.jdbc.core.JdbcTemplate}.
+ *
+ * <p>Invoked once per statement on the executing thread, after the statement
+ * has completed or failed. Implementations need to be thread-safe and should
+ * return quickly, deferring any expensive processing.
+ *
+ * @author agent (agent@local)
+ * @since 5.3.7
+ * @see JdbcAccessor#setStatementObserver
+ * @see SlowStatementRecorder
+ */
+@FunctionalInterface
+public interface StatementObserver {
+
+	/**
+	 * Receive the metrics of a completed statement.
+	 * @param metrics the timings, row count and outcome of the statement
+	 */
+	void statementCompleted(StatementMetrics metrics);
+
+}
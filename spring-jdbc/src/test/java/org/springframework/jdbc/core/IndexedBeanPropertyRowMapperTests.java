@@ -0,0 +1,183 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.core;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import org.springframework.beans.TypeMismatchException;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.jdbc.core.test.ConcretePerson;
+import org.springframework.jdbc.core.test.ConstructorPerson;
+import org.springframework.jdbc.core.test.ExtendedPerson;
+import org.springframework.jdbc.core.test.Person;
+import org.springframework.jdbc.core.test.SpacePerson;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Unit tests for {@link IndexedBeanPropertyRowMapper}.
+ *
+ * @author agent (agent@local)
+ */
+public class IndexedBeanPropertyRowMapperTests extends AbstractRowMapperTests {
+
+	@Test
+	public void testStaticQueryWithRowMapper() throws Exception {
+		Mock mock = new Mock();
+		List<Person> result = mock.getJdbcTemplate().query(
+				"select name, age, birth_date, balance from people",
+				new IndexedBeanPropertyRowMapper<>(Person.class));
+		assertThat(result.size()).isEqualTo(1);
+		verifyPerson(result.get(0));
+		mock.verifyClosed();
+	}
+
+	@Test
+	public void testMappingWithInheritance() throws Exception {
+		Mock mock = new Mock();
+		List<ConcretePerson> result = mock.getJdbcTemplate().query(
+				"select name, age, birth_date, balance from people",
+				new IndexedBeanPropertyRowMapper<>(ConcretePerson.class));
+		assertThat(result.size()).isEqualTo(1);
+		verifyPerson(result.get(0));
+		mock.verifyClosed();
+	}
+
+	@Test
+	public void testStaticQueryWithDataClass() throws Exception {
+		Mock mock = new Mock();
+		List<ConstructorPerson> result = mock.getJdbcTemplate().query(
+				"select name, age, birth_date, balance from people",
+				new IndexedBeanPropertyRowMapper<>(ConstructorPerson.class));
+		assertThat(result.size()).isEqualTo(1);
+		verifyPerson(result.get(0));
+		mock.verifyClosed();
+	}
+
+	@Test
+	public void testMappingWithUnpopulatedFieldsNotAccepted() throws Exception {
+		Mock mock = new Mock();
+		IndexedBeanPropertyRowMapper<ExtendedPerson> mapper = new IndexedBeanPropertyRowMapper<>(ExtendedPerson.class);
+		mapper.setCheckFullyPopulated(true);
+		assertThatExceptionOfType(InvalidDataAccessApiUsageException.class).isThrownBy(() ->
+				mock.getJdbcTemplate().query("select name, age, birth_date, balance from people", mapper));
+	}
+
+	@Test
+	public void testQueryWithSpaceInColumnNameAndLocalDateTime() throws Exception {
+		Mock mock = new Mock(MockType.THREE);
+		List<SpacePerson> result = mock.getJdbcTemplate().query(
+				"select last_name as \"Last Name\", age, birth_date, balance from people",
+				new IndexedBeanPropertyRowMapper<>(SpacePerson.class));
+		assertThat(result.size()).isEqualTo(1);
+		verifyPerson(result.get(0));
+		mock.verifyClosed();
+	}
+
+	@Test
+	public void testMappingNullValue() throws Exception {
+		ResultSet rs = mockResultSet("name", "age");
+		given(rs.getLong(2)).willReturn(0L);
+		given(rs.wasNull()).willReturn(true);
+		IndexedBeanPropertyRowMapper<Person> mapper = new IndexedBeanPropertyRowMapper<>(Person.class);
+		assertThatExceptionOfType(TypeMismatchException.class).isThrownBy(() -> mapper.mapRow(rs, 0));
+	}
+
+	@Test
+	public void testMappingNullValueWithPrimitivesDefaulted() throws Exception {
+		ResultSet rs = mockResultSet("name", "age");
+		given(rs.getString(1)).willReturn("Bubba");
+		given(rs.getLong(2)).willReturn(0L);
+		given(rs.wasNull()).willReturn(true);
+		IndexedBeanPropertyRowMapper<Person> mapper = new IndexedBeanPropertyRowMapper<>(Person.class);
+		mapper.setPrimitivesDefaultedForNullValue(true);
+		Person person = mapper.mapRow(rs, 0);
+		assertThat(person.getName()).isEqualTo("Bubba");
+		assertThat(person.getAge()).isEqualTo(0L);
+	}
+
+	@Test
+	public void testMappingNullValueToConstructorParameter() throws Exception {
+		ResultSet rs = mockResultSet("name", "age", "birth_date", "balance");
+		given(rs.getString(1)).willReturn("Bubba");
+		given(rs.getLong(2)).willReturn(0L);
+		given(rs.wasNull()).willReturn(true);
+		IndexedBeanPropertyRowMapper<ConstructorPerson> mapper =
+				new IndexedBeanPropertyRowMapper<>(ConstructorPerson.class);
+		assertThatExceptionOfType(TypeMismatchException.class).isThrownBy(() -> mapper.mapRow(rs, 0));
+
+		mapper.setPrimitivesDefaultedForNullValue(true);
+		ConstructorPerson person = mapper.mapRow(rs, 0);
+		assertThat(person.name()).isEqualTo("Bubba");
+		assertThat(person.age()).isEqualTo(0L);
+	}
+
+	@Test
+	public void testMappingUsesTypedGetters() throws Exception {
+		ResultSet rs = mockResultSet("NAME", "AGE", "BALANCE");
+		given(rs.getString(1)).willReturn("Bubba");
+		given(rs.getLong(2)).willReturn(22L);
+		given(rs.getBigDecimal(3)).willReturn(new BigDecimal("1234.56"));
+		Person person = new IndexedBeanPropertyRowMapper<>(Person.class).mapRow(rs, 0);
+		assertThat(person.getName()).isEqualTo("Bubba");
+		assertThat(person.getAge()).isEqualTo(22L);
+		assertThat(person.getBalance()).isEqualTo(new BigDecimal("1234.56"));
+		verify(rs, never()).getObject(2);
+		verify(rs, never()).wasNull();
+	}
+
+	@Test
+	public void testMappingIsResolvedOncePerResultSet() throws Exception {
+		ResultSet rs = mockResultSet("name", "age");
+		ResultSetMetaData rsmd = rs.getMetaData();
+		IndexedBeanPropertyRowMapper<Person> mapper = new IndexedBeanPropertyRowMapper<>(Person.class);
+		for (int i = 0; i < 3; i++) {
+			given(rs.getString(1)).willReturn("Bubba" + i);
+			assertThat(mapper.mapRow(rs, i).getName()).isEqualTo("Bubba" + i);
+		}
+		verify(rsmd, times(1)).getColumnCount();
+
+		ResultSet otherRs = mockResultSet("name", "age");
+		mapper.mapRow(otherRs, 0);
+		verify(otherRs.getMetaData(), times(1)).getColumnCount();
+	}
+
+
+	private static ResultSet mockResultSet(String... columns) throws SQLException {
+		ResultSet rs = mock(ResultSet.class);
+		ResultSetMetaData rsmd = mock(ResultSetMetaData.class);
+		given(rs.getMetaData()).willReturn(rsmd);
+		given(rsmd.getColumnCount()).willReturn(columns.length);
+		for (int i = 0; i < columns.length; i++) {
+			given(rsmd.getColumnLabel(i + 1)).willReturn(columns[i]);
+		}
+		return rs;
+	}
+
+}
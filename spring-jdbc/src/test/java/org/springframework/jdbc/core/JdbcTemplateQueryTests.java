@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -24,6 +24,9 @@ import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -33,14 +36,20 @@ import javax.sql.DataSource;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
 
+import org.springframework.dao.DataAccessException;
 import org.springframework.dao.IncorrectResultSizeDataAccessException;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+import static org.mockito.ArgumentMatchers.anyBoolean;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 
 /**
@@ -384,6 +393,93 @@ public class JdbcTemplateQueryTests {
 		verify(this.preparedStatement).close();
 	}
 
+	@Test
+	public void testQueryForCursorStream() throws Exception {
+		String sql = "SELECT AGE FROM CUSTMR WHERE ID > ?";
+		given(this.preparedStatement.getConnection()).willReturn(this.connection);
+		given(this.connection.getAutoCommit()).willReturn(true);
+		given(this.resultSet.next()).willReturn(true, true, false);
+		given(this.resultSet.getInt(1)).willReturn(22, 23);
+		this.template.setFetchSize(10);
+		CursorSettings settings = CursorSettings.fetchSize(500).disableAutoCommit();
+		try (Stream<Integer> s = this.template.queryForCursorStream(sql, settings, (rs, rowNum) -> rs.getInt(1), 3)) {
+			assertThat(s.findFirst()).contains(22);
+		}
+		InOrder inOrder = inOrder(this.preparedStatement, this.connection, this.resultSet);
+		inOrder.verify(this.preparedStatement).setFetchSize(10);
+		inOrder.verify(this.preparedStatement).setFetchSize(500);
+		inOrder.verify(this.connection).setAutoCommit(false);
+		inOrder.verify(this.preparedStatement).executeQuery();
+		inOrder.verify(this.resultSet).close();
+		inOrder.verify(this.preparedStatement).close();
+		inOrder.verify(this.connection).setAutoCommit(true);
+		inOrder.verify(this.connection).close();
+	}
+
+	@Test
+	public void testQueryForCursorStreamInTransaction() throws Exception {
+		String sql = "SELECT AGE FROM CUSTMR";
+		given(this.preparedStatement.getConnection()).willReturn(this.connection);
+		given(this.connection.getAutoCommit()).willReturn(false);
+		given(this.resultSet.next()).willReturn(true, false);
+		given(this.resultSet.getInt(1)).willReturn(22);
+		CursorSettings settings = CursorSettings.fetchSize(500).disableAutoCommit();
+		try (Stream<Integer> s = this.template.queryForCursorStream(sql, settings, (rs, rowNum) -> rs.getInt(1))) {
+			assertThat(s.count()).isEqualTo(1);
+		}
+		verify(this.connection, never()).setAutoCommit(anyBoolean());
+		verify(this.resultSet).close();
+		verify(this.preparedStatement).close();
+	}
+
+	@Test
+	public void testQueryForCursorStreamResetsAutoCommitOnFailure() throws Exception {
+		String sql = "SELECT AGE FROM CUSTMR";
+		given(this.preparedStatement.getConnection()).willReturn(this.connection);
+		given(this.connection.getAutoCommit()).willReturn(true);
+		given(this.preparedStatement.executeQuery()).willThrow(new SQLException("boom"));
+		CursorSettings settings = CursorSettings.fetchSize(500).disableAutoCommit();
+		assertThatExceptionOfType(DataAccessException.class).isThrownBy(() ->
+				this.template.queryForCursorStream(sql, settings, (rs, rowNum) -> rs.getInt(1)));
+		InOrder inOrder = inOrder(this.connection);
+		inOrder.verify(this.connection).setAutoCommit(false);
+		inOrder.verify(this.connection).setAutoCommit(true);
+		inOrder.verify(this.connection).close();
+		verify(this.preparedStatement).close();
+	}
+
+	@Test
+	public void testQueryForChunks() throws Exception {
+		String sql = "SELECT AGE FROM CUSTMR WHERE ID > ?";
+		given(this.preparedStatement.getConnection()).willReturn(this.connection);
+		given(this.resultSet.next()).willReturn(true, true, true, true, true, false);
+		given(this.resultSet.getInt(1)).willReturn(1, 2, 3, 4, 5);
+		List<List<Integer>> chunks = new ArrayList<>();
+		this.template.queryForChunks(sql, CursorSettings.fetchSize(2), (rs, rowNum) -> rs.getInt(1), 2, chunks::add, 3);
+		assertThat(chunks).containsExactly(Arrays.asList(1, 2), Arrays.asList(3, 4), Collections.singletonList(5));
+		verify(this.preparedStatement).setObject(1, 3);
+		verify(this.preparedStatement).setFetchSize(2);
+		verify(this.resultSet).close();
+		verify(this.preparedStatement).close();
+		verify(this.connection).close();
+	}
+
+	@Test
+	public void testQueryForChunksReleasesConnectionIfHandlerFails() throws Exception {
+		String sql = "SELECT AGE FROM CUSTMR";
+		given(this.preparedStatement.getConnection()).willReturn(this.connection);
+		given(this.resultSet.next()).willReturn(true, true, false);
+		given(this.resultSet.getInt(1)).willReturn(1, 2);
+		assertThatIllegalStateException().isThrownBy(() ->
+				this.template.queryForChunks(sql, CursorSettings.fetchSize(1), (rs, rowNum) -> rs.getInt(1), 1,
+						chunk -> {
+							throw new IllegalStateException("boom");
+						}));
+		verify(this.resultSet).close();
+		verify(this.preparedStatement).close();
+		verify(this.connection).close();
+	}
+
 	@Test
 	public void testQueryForObjectWithArgsAndInteger() throws Exception {
 		String sql = "SELECT AGE FROM CUSTMR WHERE ID = ?";
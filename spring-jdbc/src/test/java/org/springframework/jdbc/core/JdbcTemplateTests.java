@@ -27,11 +27,13 @@ import java.sql.SQLException;
 import java.sql.SQLWarning;
 import java.sql.Statement;
 import java.sql.Types;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
 
 import javax.sql.DataSource;
 
@@ -49,6 +51,7 @@ import org.springframework.jdbc.datasource.ConnectionProxy;
 import org.springframework.jdbc.datasource.SingleConnectionDataSource;
 import org.springframework.jdbc.support.SQLErrorCodeSQLExceptionTranslator;
 import org.springframework.jdbc.support.SQLStateSQLExceptionTranslator;
+import org.springframework.jdbc.support.StatementMetrics;
 import org.springframework.util.LinkedCaseInsensitiveMap;
 import org.springframework.util.StringUtils;
 
@@ -56,6 +59,7 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
 import static org.mockito.BDDMockito.willThrow;
 import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.mock;
@@ -1092,6 +1096,131 @@ public class JdbcTemplateTests {
 	}
 
 
+	@Test
+	public void testStatementObserverWithQuery() throws SQLException {
+		List<StatementMetrics> metrics = new ArrayList<>();
+		this.template.setStatementObserver(metrics::add);
+		given(this.resultSet.next()).willReturn(true, true, false);
+		given(this.resultSet.getString(1)).willReturn("rod", "juergen");
+
+		List<String> names = this.template.query("SELECT NAME FROM CUSTMR WHERE ID > ?",
+				(rs, rowNum) -> rs.getString(1), 10);
+
+		assertThat(names).containsExactly("rod", "juergen");
+		assertThat(metrics).hasSize(1);
+		StatementMetrics statementMetrics = metrics.get(0);
+		assertThat(statementMetrics.getSql()).isEqualTo("SELECT NAME FROM CUSTMR WHERE ID > ?");
+		assertThat(statementMetrics.getFingerprint()).isEqualTo("select name from custmr where id > ?");
+		assertThat(statementMetrics.getRowCount()).isEqualTo(2);
+		assertThat(statementMetrics.isSuccessful()).isTrue();
+		assertThat(statementMetrics.getTotalTime()).isEqualTo(statementMetrics.getConnectionAcquireTime()
+				.plus(statementMetrics.getPrepareTime()).plus(statementMetrics.getExecuteTime())
+				.plus(statementMetrics.getFetchTime()).plus(statementMetrics.getMappingTime()));
+		verify(this.resultSet).close();
+		verify(this.preparedStatement).close();
+		verify(this.connection).close();
+	}
+
+	@Test
+	public void testStatementObserverWithUpdate() throws SQLException {
+		List<StatementMetrics> metrics = new ArrayList<>();
+		this.template.setStatementObserver(metrics::add);
+		given(this.preparedStatement.executeUpdate()).willReturn(3);
+
+		int rowsAffected = this.template.update("UPDATE CUSTMR SET NAME = ? WHERE ID > ?", "rod", 10);
+
+		assertThat(rowsAffected).isEqualTo(3);
+		assertThat(metrics).hasSize(1);
+		assertThat(metrics.get(0).getRowCount()).isEqualTo(3);
+		assertThat(metrics.get(0).getFetchTime().isZero()).isTrue();
+		assertThat(metrics.get(0).getMappingTime().isZero()).isTrue();
+	}
+
+	@Test
+	public void testStatementObserverWithFailure() throws SQLException {
+		List<StatementMetrics> metrics = new ArrayList<>();
+		this.template.setStatementObserver(metrics::add);
+		this.template.setExceptionTranslator(new SQLStateSQLExceptionTranslator());
+		SQLException sqlException = new SQLException("Bad SQL", "42000");
+		given(this.preparedStatement.executeQuery()).willThrow(sqlException);
+
+		assertThatExceptionOfType(BadSqlGrammarException.class).isThrownBy(() ->
+				this.template.queryForList("SELECT NAME FROM CUSTMR WHERE ID > ?", String.class, 10));
+
+		assertThat(metrics).hasSize(1);
+		assertThat(metrics.get(0).isSuccessful()).isFalse();
+		assertThat(metrics.get(0).getFailure()).isSameAs(sqlException);
+		verify(this.connection).close();
+	}
+
+	@Test
+	public void testStatementObserverWithStream() throws SQLException {
+		List<StatementMetrics> metrics = new ArrayList<>();
+		this.template.setStatementObserver(metrics::add);
+		given(this.resultSet.next()).willReturn(true, true, false);
+		given(this.resultSet.getString(1)).willReturn("rod", "juergen");
+
+		try (Stream<String> names = this.template.queryForStream("SELECT NAME FROM CUSTMR WHERE ID > ?",
+				(rs, rowNum) -> rs.getString(1), 10)) {
+			assertThat(metrics).isEmpty();
+			assertThat(names).containsExactly("rod", "juergen");
+			assertThat(metrics).isEmpty();
+		}
+
+		assertThat(metrics).hasSize(1);
+		assertThat(metrics.get(0).getRowCount()).isEqualTo(2);
+		assertThat(metrics.get(0).isSuccessful()).isTrue();
+		verify(this.connection).close();
+	}
+
+	@Test
+	public void testStatementObserverWithCallableStatement() throws SQLException {
+		List<StatementMetrics> metrics = new ArrayList<>();
+		this.template.setStatementObserver(metrics::add);
+		given(this.callableStatement.execute()).willReturn(false);
+		given(this.callableStatement.getUpdateCount()).willReturn(-1);
+		willAnswer(invocation -> {
+			Thread.sleep(20);
+			return null;
+		}).given(this.callableStatement).close();
+
+		this.template.call(conn -> conn.prepareCall("my query"), Collections.emptyList());
+
+		assertThat(metrics).hasSize(1);
+		StatementMetrics statementMetrics = metrics.get(0);
+		assertThat(statementMetrics.isSuccessful()).isTrue();
+		// The execute phase ends with the callback, before the statement is closed
+		assertThat(statementMetrics.getFetchTime()).isGreaterThanOrEqualTo(Duration.ofMillis(20));
+		assertThat(statementMetrics.getTotalTime()).isEqualTo(statementMetrics.getConnectionAcquireTime()
+				.plus(statementMetrics.getPrepareTime()).plus(statementMetrics.getExecuteTime())
+				.plus(statementMetrics.getFetchTime()).plus(statementMetrics.getMappingTime()));
+		verify(this.callableStatement).close();
+	}
+
+	@Test
+	public void testStatementObserverWithConnectionFailure() throws SQLException {
+		List<StatementMetrics> metrics = new ArrayList<>();
+		this.template.setStatementObserver(metrics::add);
+		given(this.dataSource.getConnection()).willThrow(new SQLException("foo", "07xxx"));
+
+		assertThatExceptionOfType(CannotGetJdbcConnectionException.class).isThrownBy(() ->
+				this.template.update("UPDATE CUSTMR SET NAME = ?", "rod"));
+
+		assertThat(metrics).hasSize(1);
+		assertThat(metrics.get(0).getFailure()).isInstanceOf(CannotGetJdbcConnectionException.class);
+	}
+
+	@Test
+	public void testStatementObserverFailureDoesNotAffectStatement() throws SQLException {
+		this.template.setStatementObserver(metrics -> {
+			throw new IllegalStateException("observer failure");
+		});
+		given(this.preparedStatement.executeUpdate()).willReturn(1);
+
+		assertThat(this.template.update("UPDATE CUSTMR SET NAME = ?", "rod")).isEqualTo(1);
+		verify(this.connection).close();
+	}
+
 	private void mockDatabaseMetaData(boolean supportsBatchUpdates) throws SQLException {
 		DatabaseMetaData databaseMetaData = mock(DatabaseMetaData.class);
 		given(databaseMetaData.getDatabaseProductName()).willReturn("MySQL");
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -39,6 +39,7 @@ import org.junit.jupiter.api.Test;
 import org.mockito.InOrder;
 
 import org.springframework.jdbc.Customer;
+import org.springframework.jdbc.core.CursorSettings;
 import org.springframework.jdbc.core.JdbcOperations;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.PreparedStatementCallback;
@@ -200,6 +201,70 @@ public class NamedParameterJdbcTemplateTests {
 		verify(connection).close();
 	}
 
+	@Test
+	public void testQueryWithVaryingInListSizes() throws SQLException {
+		given(resultSet.next()).willReturn(false);
+
+		namedParameterTemplate.query("select id from custmr where id in (:ids) and country = :country",
+				new MapSqlParameterSource("ids", Arrays.asList(1, 2)).addValue("country", "UK"), (rs, i) -> rs.getInt(1));
+		namedParameterTemplate.query("select id from custmr where id in (:ids) and country = :country",
+				new MapSqlParameterSource("ids", Arrays.asList(1, 2, 3)).addValue("country", "UK"), (rs, i) -> rs.getInt(1));
+		namedParameterTemplate.query("select id from custmr where id in (:ids) and country = :country",
+				new MapSqlParameterSource("ids", Arrays.asList(4, 5)).addValue("country", "US"), (rs, i) -> rs.getInt(1));
+
+		verify(connection, times(2)).prepareStatement("select id from custmr where id in (?, ?) and country = ?");
+		verify(connection).prepareStatement("select id from custmr where id in (?, ?, ?) and country = ?");
+		verify(preparedStatement).setObject(1, 4);
+		verify(preparedStatement).setObject(2, 5);
+		verify(preparedStatement).setString(3, "US");
+	}
+
+	@Test
+	public void testQueryWithInListPadding() throws SQLException {
+		given(resultSet.next()).willReturn(false);
+		namedParameterTemplate.setInListPadding(true);
+
+		params.put("ids", Arrays.asList(1, 2, 3));
+		namedParameterTemplate.query("select id from custmr where id in (:ids)", params, (rs, i) -> rs.getInt(1));
+
+		verify(connection).prepareStatement("select id from custmr where id in (?, ?, ?, ?)");
+		verify(preparedStatement).setObject(1, 1);
+		verify(preparedStatement).setObject(2, 2);
+		verify(preparedStatement).setObject(3, 3);
+		verify(preparedStatement).setObject(4, 3);
+		verify(preparedStatement).close();
+		verify(connection).close();
+	}
+
+	@Test
+	public void testQueryWithInListPaddingAndTypedParameter() throws SQLException {
+		given(resultSet.next()).willReturn(false);
+		namedParameterTemplate.setInListPadding(true);
+
+		params.put("ids", new SqlParameterValue(Types.DECIMAL, Arrays.asList(1, 2, 3, 4, 5)));
+		namedParameterTemplate.query("select id from custmr where id in (:ids)", params, (rs, i) -> rs.getInt(1));
+
+		verify(connection).prepareStatement("select id from custmr where id in (?, ?, ?, ?, ?, ?, ?, ?)");
+		verify(preparedStatement).setObject(1, 1, Types.DECIMAL);
+		verify(preparedStatement).setObject(5, 5, Types.DECIMAL);
+		verify(preparedStatement).setObject(8, 5, Types.DECIMAL);
+	}
+
+	@Test
+	public void testQueryWithTupleInList() throws SQLException {
+		given(resultSet.next()).willReturn(false);
+
+		params.put("pairs", Arrays.asList(new Object[] {1, "UK"}, new Object[] {2, "US"}));
+		namedParameterTemplate.query("select id from custmr where (id, country) in (:pairs)", params,
+				(rs, i) -> rs.getInt(1));
+
+		verify(connection).prepareStatement("select id from custmr where (id, country) in ((?, ?), (?, ?))");
+		verify(preparedStatement).setObject(1, 1);
+		verify(preparedStatement).setString(2, "UK");
+		verify(preparedStatement).setObject(3, 2);
+		verify(preparedStatement).setString(4, "US");
+	}
+
 	@Test
 	public void testExecuteNoParameters() throws SQLException {
 		given(preparedStatement.executeUpdate()).willReturn(1);
@@ -427,6 +492,50 @@ public class NamedParameterJdbcTemplateTests {
 		verify(connection).close();
 	}
 
+	@Test
+	public void testQueryForCursorStream() throws SQLException {
+		given(connection.getAutoCommit()).willReturn(true);
+		given(resultSet.next()).willReturn(true, false);
+		given(resultSet.getInt("id")).willReturn(1);
+
+		params.put("id", new SqlParameterValue(Types.DECIMAL, 1));
+		params.put("country", "UK");
+		CursorSettings settings = CursorSettings.fetchSize(100).disableAutoCommit();
+
+		try (Stream<Integer> s = namedParameterTemplate.queryForCursorStream(SELECT_NAMED_PARAMETERS, params, settings,
+				(rs, rownum) -> rs.getInt(COLUMN_NAMES[0]))) {
+			assertThat(s.findFirst()).contains(1);
+		}
+
+		InOrder inOrder = inOrder(connection, preparedStatement);
+		inOrder.verify(connection).prepareStatement(SELECT_NAMED_PARAMETERS_PARSED);
+		inOrder.verify(preparedStatement).setFetchSize(100);
+		inOrder.verify(connection).setAutoCommit(false);
+		inOrder.verify(preparedStatement).executeQuery();
+		inOrder.verify(preparedStatement).close();
+		inOrder.verify(connection).setAutoCommit(true);
+		inOrder.verify(connection).close();
+	}
+
+	@Test
+	public void testQueryForChunks() throws SQLException {
+		given(resultSet.next()).willReturn(true, true, true, false);
+		given(resultSet.getInt("id")).willReturn(1, 2, 3);
+
+		params.put("id", new SqlParameterValue(Types.DECIMAL, 1));
+		params.put("country", "UK");
+		List<List<Integer>> chunks = new ArrayList<>();
+
+		namedParameterTemplate.queryForChunks(SELECT_NAMED_PARAMETERS, params, CursorSettings.fetchSize(2),
+				(rs, rownum) -> rs.getInt(COLUMN_NAMES[0]), 2, chunks::add);
+
+		assertThat(chunks).containsExactly(Arrays.asList(1, 2), Collections.singletonList(3));
+		verify(preparedStatement).setFetchSize(2);
+		verify(resultSet).close();
+		verify(preparedStatement).close();
+		verify(connection).close();
+	}
+
 	@Test
 	public void testUpdate() throws SQLException {
 		given(preparedStatement.executeUpdate()).willReturn(1);
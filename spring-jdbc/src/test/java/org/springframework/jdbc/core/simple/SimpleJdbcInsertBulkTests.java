@@ -0,0 +1,178 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.core.simple;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+/**
+ * Integration tests for bulk inserts via {@link SimpleJdbcInsert#executeBulk},
+ * against an embedded H2 database.
+ *
+ * @author agent (agent@local)
+ */
+class SimpleJdbcInsertBulkTests {
+
+	private EmbeddedDatabase database;
+
+	private JdbcTemplate jdbcTemplate;
+
+
+	@BeforeEach
+	void setUp() {
+		this.database = new EmbeddedDatabaseBuilder()
+				.setType(EmbeddedDatabaseType.H2)
+				.generateUniqueName(true)
+				.build();
+		this.jdbcTemplate = new JdbcTemplate(this.database);
+		this.jdbcTemplate.execute("create table person (id int primary key, name varchar(50))");
+	}
+
+	@AfterEach
+	void tearDown() {
+		this.database.shutdown();
+	}
+
+
+	@Test
+	void bulkInsertInChunks() {
+		BulkInsertResult result = createInsert().withBulkChunkSize(10).executeBulk(rows(0, 25));
+
+		assertThat(result.getRowCount()).isEqualTo(25);
+		assertThat(result.getChunks()).extracting(BulkInsertResult.Chunk::getOffset).containsExactly(0, 10, 20);
+		assertThat(result.getChunks()).extracting(BulkInsertResult.Chunk::getRowCount).containsExactly(10, 10, 5);
+		assertThat(result.getChunks().get(0).getUpdateCounts()).hasSize(10);
+		assertThat(result.getTotalUpdateCount()).isEqualTo(25);
+		assertThat(result.hasFailures()).isFalse();
+		assertThat(countRows()).isEqualTo(25);
+	}
+
+	@Test
+	void bulkInsertWithMultiRowStatements() {
+		SimpleJdbcInsert insert = createInsert().withBulkChunkSize(10).withMultiRowInsert(4, 1000);
+		BulkInsertResult result = insert.executeBulk(rows(0, 25));
+
+		assertThat(result.getChunks()).hasSize(3);
+		assertThat(result.getChunks().get(0).getUpdateCounts()).containsExactly(4, 4, 2);
+		assertThat(result.getChunks().get(2).getUpdateCounts()).containsExactly(4, 1);
+		assertThat(result.getTotalUpdateCount()).isEqualTo(25);
+		assertThat(countRows()).isEqualTo(25);
+		assertThat(this.jdbcTemplate.queryForObject("select name from person where id = 17", String.class))
+				.isEqualTo("name17");
+	}
+
+	@Test
+	void multiRowStatementsLimitedByParameterCount() {
+		SimpleJdbcInsert insert = createInsert().withBulkChunkSize(10).withMultiRowInsert(100, 6);
+		BulkInsertResult result = insert.executeBulk(rows(0, 10));
+
+		assertThat(result.getChunks().get(0).getUpdateCounts()).containsExactly(3, 3, 3, 1);
+		assertThat(countRows()).isEqualTo(10);
+	}
+
+	@Test
+	void failuresReportedPerChunk() {
+		this.jdbcTemplate.update("insert into person (id, name) values (15, 'existing')");
+		BulkInsertResult result = createInsert().withBulkChunkSize(10).executeBulk(rows(0, 25));
+
+		assertThat(result.hasFailures()).isTrue();
+		assertThat(result.getChunks()).hasSize(3);
+		assertThat(result.getFailedChunks()).extracting(BulkInsertResult.Chunk::getOffset).containsExactly(10);
+		assertThat(result.getFailedChunks().get(0).getFailure()).isInstanceOf(DataIntegrityViolationException.class);
+		assertThat(result.getChunks().get(0).isSuccessful()).isTrue();
+		assertThat(result.getChunks().get(2).isSuccessful()).isTrue();
+	}
+
+	@Test
+	void bulkInsertInParallel() {
+		ExecutorService executor = Executors.newFixedThreadPool(3);
+		try {
+			SimpleJdbcInsert insert = createInsert().withBulkChunkSize(10).withBulkExecutor(executor);
+			BulkInsertResult result = insert.executeBulk(rows(0, 95));
+
+			assertThat(result.getChunks()).hasSize(10);
+			assertThat(result.getChunks()).extracting(BulkInsertResult.Chunk::getOffset)
+					.containsExactly(0, 10, 20, 30, 40, 50, 60, 70, 80, 90);
+			assertThat(result.getTotalUpdateCount()).isEqualTo(95);
+			assertThat(countRows()).isEqualTo(95);
+		}
+		finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	void bulkInsertWithinTransactionRunsSequentially() {
+		SimpleJdbcInsert insert = createInsert().withBulkChunkSize(10).withBulkExecutor(command -> {
+			throw new IllegalStateException("Executor must not be used within a transaction");
+		});
+		TransactionTemplate tt = new TransactionTemplate(new DataSourceTransactionManager(this.database));
+		BulkInsertResult result = tt.execute(status -> insert.executeBulk(rows(0, 25)));
+
+		assertThat(result.getChunks()).hasSize(3);
+		assertThat(result.hasFailures()).isFalse();
+		assertThat(countRows()).isEqualTo(25);
+	}
+
+	@Test
+	void bulkInsertWithinTransactionThrowsFirstFailure() {
+		this.jdbcTemplate.update("insert into person (id, name) values (15, 'existing')");
+		SimpleJdbcInsert insert = createInsert().withBulkChunkSize(10);
+		TransactionTemplate tt = new TransactionTemplate(new DataSourceTransactionManager(this.database));
+
+		assertThatExceptionOfType(DataIntegrityViolationException.class).isThrownBy(() ->
+				tt.execute(status -> insert.executeBulk(rows(0, 25))));
+		// The successful first chunk has been rolled back along with the transaction
+		assertThat(countRows()).isEqualTo(1);
+	}
+
+
+	private SimpleJdbcInsert createInsert() {
+		return new SimpleJdbcInsert(this.jdbcTemplate).withTableName("person").usingColumns("id", "name");
+	}
+
+	private static SqlParameterSource[] rows(int from, int count) {
+		SqlParameterSource[] rows = new SqlParameterSource[count];
+		for (int i = 0; i < count; i++) {
+			rows[i] = new MapSqlParameterSource("id", from + i).addValue("name", "name" + (from + i));
+		}
+		return rows;
+	}
+
+	private int countRows() {
+		Integer count = this.jdbcTemplate.queryForObject("select count(*) from person", Integer.class);
+		return (count != null ? count : 0);
+	}
+
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.datasource;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.transaction.support.GroupCommitTransactionTemplate;
+import org.springframework.transaction.support.GroupCommitTransactionTemplate.UnitExecutor;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+
+/**
+ * Integration tests for {@link GroupCommitTransactionTemplate} with a
+ * {@link DataSourceTransactionManager}, against an embedded H2 database.
+ *
+ * @author agent (agent@local)
+ */
+class GroupCommitTransactionTemplateTests {
+
+	private EmbeddedDatabase database;
+
+	private JdbcTemplate jdbcTemplate;
+
+	private GroupCommitTransactionTemplate template;
+
+
+	@BeforeEach
+	void setUp() {
+		this.database = new EmbeddedDatabaseBuilder()
+				.setType(EmbeddedDatabaseType.H2)
+				.generateUniqueName(true)
+				.build();
+		this.jdbcTemplate = new JdbcTemplate(this.database);
+		this.jdbcTemplate.execute("create table event (id int primary key)");
+		this.template = new GroupCommitTransactionTemplate(new DataSourceTransactionManager(this.database));
+		this.template.setMaxCommitDelay(Duration.ofMinutes(1));
+	}
+
+	@AfterEach
+	void tearDown() {
+		assertThat(TransactionSynchronizationManager.getResourceMap()).isEmpty();
+		assertThat(TransactionSynchronizationManager.isActualTransactionActive()).isFalse();
+		this.database.shutdown();
+	}
+
+
+	@Test
+	void unitsAreCommittedInGroups() {
+		this.template.setMaxUnitsPerCommit(5);
+		this.template.executeGroup(units -> {
+			for (int i = 0; i < 12; i++) {
+				insert(units, i);
+			}
+			assertThat(committedRowCount()).isEqualTo(10);
+			assertThat(units.getPendingUnitCount()).isEqualTo(2);
+
+			units.flush();
+			assertThat(committedRowCount()).isEqualTo(12);
+			assertThat(units.getPendingUnitCount()).isEqualTo(0);
+			assertThat(TransactionSynchronizationManager.isActualTransactionActive()).isFalse();
+		});
+	}
+
+	@Test
+	void pendingUnitsAreCommittedAtEndOfGroup() {
+		this.template.executeGroup(units -> {
+			insert(units, 1);
+			insert(units, 2);
+			assertThat(committedRowCount()).isEqualTo(0);
+		});
+		assertThat(committedRowCount()).isEqualTo(2);
+	}
+
+	@Test
+	void unitsAreCommittedAfterMaxDelay() {
+		this.template.setMaxCommitDelay(Duration.ZERO);
+		this.template.executeGroup(units -> {
+			insert(units, 1);
+			insert(units, 2);
+			assertThat(committedRowCount()).isEqualTo(2);
+			assertThat(units.getPendingUnitCount()).isEqualTo(0);
+		});
+	}
+
+	@Test
+	void failingUnitIsRolledBackOnItsOwn() {
+		this.template.executeGroup(units -> {
+			insert(units, 1);
+			assertThatIllegalStateException().isThrownBy(() ->
+					units.executeWithoutResult(status -> {
+						this.jdbcTemplate.update("insert into event (id) values (2)");
+						throw new IllegalStateException("Unit failure");
+					}));
+			insert(units, 3);
+		});
+		assertThat(committedRowCount()).isEqualTo(2);
+		assertThat(this.jdbcTemplate.queryForList("select id from event order by id", Integer.class))
+				.containsExactly(1, 3);
+	}
+
+	@Test
+	void rollbackOnlyUnitIsRolledBackOnItsOwn() {
+		this.template.executeGroup(units -> {
+			insert(units, 1);
+			units.executeWithoutResult(status -> {
+				this.jdbcTemplate.update("insert into event (id) values (2)");
+				status.setRollbackOnly();
+			});
+			assertThat(units.getPendingUnitCount()).isEqualTo(2);
+		});
+		assertThat(this.jdbcTemplate.queryForList("select id from event order by id", Integer.class))
+				.containsExactly(1);
+	}
+
+	@Test
+	void failingGroupCallbackRollsBackPendingUnits() {
+		this.template.setMaxUnitsPerCommit(2);
+		assertThatIllegalStateException().isThrownBy(() ->
+				this.template.executeGroup(units -> {
+					insert(units, 1);
+					insert(units, 2);
+					insert(units, 3);
+					throw new IllegalStateException("Group failure");
+				}));
+		assertThat(this.jdbcTemplate.queryForList("select id from event order by id", Integer.class))
+				.containsExactly(1, 2);
+	}
+
+	@Test
+	void unitsShareOnePhysicalTransaction() {
+		this.template.executeGroup(units -> {
+			Object first = units.execute(status -> TransactionSynchronizationManager.getResource(this.database));
+			Object second = units.execute(status -> TransactionSynchronizationManager.getResource(this.database));
+			assertThat(first).isNotNull().isSameAs(second);
+		});
+	}
+
+	@Test
+	void noTransactionBoundAfterGroup() {
+		UnitExecutor[] executor = new UnitExecutor[1];
+		this.template.executeGroup(units -> {
+			insert(units, 1);
+			executor[0] = units;
+		});
+		assertThat(TransactionSynchronizationManager.isActualTransactionActive()).isFalse();
+		assertThat(TransactionSynchronizationManager.getResourceMap()).isEmpty();
+		assertThatIllegalStateException().isThrownBy(() -> insert(executor[0], 2));
+		assertThat(committedRowCount()).isEqualTo(1);
+	}
+
+
+	private void insert(UnitExecutor units, int id) {
+		units.executeWithoutResult(status ->
+				this.jdbcTemplate.update("insert into event (id) values (?)", id));
+	}
+
+	private int committedRowCount() {
+		try (Connection con = this.database.getConnection();
+				Statement stmt = con.createStatement();
+				ResultSet rs = stmt.executeQuery("select count(*) from event")) {
+			rs.next();
+			return rs.getInt(1);
+		}
+		catch (SQLException ex) {
+			throw new IllegalStateException(ex);
+		}
+	}
+
+}
@@ -0,0 +1,243 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.datasource.lookup;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Integration tests for {@link ReadWriteRoutingDataSource}, against embedded
+ * H2 databases each identifying themselves through a marker table.
+ *
+ * @author agent (agent@local)
+ */
+class ReadWriteRoutingDataSourceTests {
+
+	private EmbeddedDatabase primary;
+
+	private EmbeddedDatabase replica1;
+
+	private EmbeddedDatabase replica2;
+
+
+	@BeforeEach
+	void setUp() {
+		this.primary = createDatabase("primary");
+		this.replica1 = createDatabase("replica1");
+		this.replica2 = createDatabase("replica2");
+	}
+
+	@AfterEach
+	void tearDown() {
+		this.primary.shutdown();
+		this.replica1.shutdown();
+		this.replica2.shutdown();
+	}
+
+
+	@Test
+	void nonTransactionalWorkRoutesToPrimary() {
+		ReadWriteRoutingDataSource dataSource = createDataSource(this.primary, this.replica1, this.replica2);
+		assertThat(currentDatabase(dataSource)).isEqualTo("primary");
+	}
+
+	@Test
+	void readWriteTransactionRoutesToPrimary() {
+		ReadWriteRoutingDataSource dataSource = createDataSource(this.primary, this.replica1, this.replica2);
+		assertThat(inTransaction(dataSource, false)).isEqualTo("primary");
+	}
+
+	@Test
+	void readOnlyTransactionRoutesToReplica() {
+		ReadWriteRoutingDataSource dataSource = createDataSource(this.primary, this.replica1, this.replica2);
+		assertThat(inTransaction(dataSource, true)).isIn("replica1", "replica2");
+	}
+
+	@Test
+	void readOnlyTransactionWithoutReplicasRoutesToPrimary() {
+		ReadWriteRoutingDataSource dataSource = createDataSource(this.primary);
+		assertThat(inTransaction(dataSource, true)).isEqualTo("primary");
+	}
+
+	@Test
+	void readOnlyTransactionAfterWriteRoutesToPrimaryWithinPinWindow() {
+		ReadWriteRoutingDataSource dataSource = createDataSource(this.primary, this.replica1);
+		dataSource.setPrimaryPinWindow(Duration.ofMinutes(1));
+
+		assertThat(dataSource.isPinnedToPrimary()).isFalse();
+		assertThat(inTransaction(dataSource, false)).isEqualTo("primary");
+		assertThat(dataSource.isPinnedToPrimary()).isTrue();
+		assertThat(inTransaction(dataSource, true)).isEqualTo("primary");
+	}
+
+	@Test
+	void readOnlyTransactionAfterWriteRoutesToReplicaWithoutPinWindow() {
+		ReadWriteRoutingDataSource dataSource = createDataSource(this.primary, this.replica1);
+
+		assertThat(inTransaction(dataSource, false)).isEqualTo("primary");
+		assertThat(dataSource.isPinnedToPrimary()).isFalse();
+		assertThat(inTransaction(dataSource, true)).isEqualTo("replica1");
+	}
+
+	@Test
+	void explicitlyRecordedWriteExpiresAfterPinWindow() throws Exception {
+		ReadWriteRoutingDataSource dataSource = createDataSource(this.primary, this.replica1);
+		dataSource.setPrimaryPinWindow(Duration.ofMillis(50));
+
+		dataSource.recordWrite();
+		assertThat(inTransaction(dataSource, true)).isEqualTo("primary");
+		Thread.sleep(100);
+		assertThat(dataSource.isPinnedToPrimary()).isFalse();
+		assertThat(inTransaction(dataSource, true)).isEqualTo("replica1");
+	}
+
+	@Test
+	void leastOutstandingConnectionsSpreadsAcrossReplicas() throws SQLException {
+		ReadWriteRoutingDataSource dataSource = createDataSource(this.primary, this.replica1, this.replica2);
+		TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+		try (Connection con1 = dataSource.getConnection(); Connection con2 = dataSource.getConnection()) {
+			String db1 = currentDatabase(con1);
+			String db2 = currentDatabase(con2);
+			assertThat(db1).isIn("replica1", "replica2");
+			assertThat(db2).isIn("replica1", "replica2");
+			assertThat(db1).isNotEqualTo(db2);
+		}
+		finally {
+			TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+		}
+	}
+
+	@Test
+	void closedConnectionsNoLongerCountAsOutstanding() throws SQLException {
+		ReadWriteRoutingDataSource dataSource = createDataSource(this.primary, this.replica1, this.replica2);
+		TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+		try (Connection con1 = dataSource.getConnection()) {
+			String db1 = currentDatabase(con1);
+			for (int i = 0; i < 4; i++) {
+				try (Connection con2 = dataSource.getConnection()) {
+					assertThat(currentDatabase(con2)).isNotEqualTo(db1);
+				}
+			}
+		}
+		finally {
+			TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+		}
+	}
+
+	@Test
+	void lowestLatencyStrategyRoutesToReplica() {
+		ReadWriteRoutingDataSource dataSource = createDataSource(this.primary, this.replica1, this.replica2);
+		dataSource.setLoadBalancingStrategy(ReadWriteRoutingDataSource.LoadBalancingStrategy.LOWEST_LATENCY);
+		for (int i = 0; i < 4; i++) {
+			assertThat(inTransaction(dataSource, true)).isIn("replica1", "replica2");
+		}
+	}
+
+	@Test
+	void replicaFailureFallsBackToPrimary() throws SQLException {
+		DataSource failingReplica = mock(DataSource.class);
+		given(failingReplica.getConnection()).willThrow(new SQLException("Replica down"));
+		ReadWriteRoutingDataSource dataSource = createDataSource(this.primary, failingReplica);
+		assertThat(inTransaction(dataSource, true)).isEqualTo("primary");
+	}
+
+	@Test
+	void deadReplicaIsSkippedWithinRetryInterval() throws SQLException {
+		DataSource deadReplica = mock(DataSource.class);
+		given(deadReplica.getConnection()).willThrow(new SQLException("Replica down"));
+		ReadWriteRoutingDataSource dataSource = createDataSource(this.primary, deadReplica, this.replica1);
+		dataSource.setLoadBalancingStrategy(ReadWriteRoutingDataSource.LoadBalancingStrategy.LOWEST_LATENCY);
+		dataSource.setReplicaRetryInterval(Duration.ofMinutes(1));
+
+		for (int i = 0; i < 5; i++) {
+			assertThat(inTransaction(dataSource, true)).isEqualTo("replica1");
+		}
+		verify(deadReplica, times(1)).getConnection();
+	}
+
+	@Test
+	void deadReplicaIsRetriedAfterRetryInterval() throws SQLException {
+		DataSource deadReplica = mock(DataSource.class);
+		given(deadReplica.getConnection()).willThrow(new SQLException("Replica down"));
+		ReadWriteRoutingDataSource dataSource = createDataSource(this.primary, deadReplica);
+		dataSource.setReplicaRetryInterval(Duration.ZERO);
+
+		for (int i = 0; i < 3; i++) {
+			assertThat(inTransaction(dataSource, true)).isEqualTo("primary");
+		}
+		verify(deadReplica, times(3)).getConnection();
+	}
+
+
+	private static EmbeddedDatabase createDatabase(String name) {
+		EmbeddedDatabase database = new EmbeddedDatabaseBuilder()
+				.setType(EmbeddedDatabaseType.H2)
+				.generateUniqueName(true)
+				.build();
+		JdbcTemplate jdbcTemplate = new JdbcTemplate(database);
+		jdbcTemplate.execute("create table marker (name varchar(20))");
+		jdbcTemplate.update("insert into marker (name) values (?)", name);
+		return database;
+	}
+
+	private static ReadWriteRoutingDataSource createDataSource(DataSource primary, DataSource... replicas) {
+		ReadWriteRoutingDataSource dataSource = new ReadWriteRoutingDataSource(primary, replicas);
+		dataSource.afterPropertiesSet();
+		return dataSource;
+	}
+
+	private static String inTransaction(DataSource dataSource, boolean readOnly) {
+		TransactionTemplate tt = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+		tt.setReadOnly(readOnly);
+		return tt.execute(status -> currentDatabase(dataSource));
+	}
+
+	private static String currentDatabase(DataSource dataSource) {
+		return new JdbcTemplate(dataSource).queryForObject("select name from marker", String.class);
+	}
+
+	private static String currentDatabase(Connection con) throws SQLException {
+		try (Statement stmt = con.createStatement(); ResultSet rs = stmt.executeQuery("select name from marker")) {
+			rs.next();
+			return rs.getString(1);
+		}
+	}
+
+}
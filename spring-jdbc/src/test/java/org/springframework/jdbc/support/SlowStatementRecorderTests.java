@@ -0,0 +1,113 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.support;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import org.springframework.jdbc.support.SlowStatementRecorder.StatementStatistics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for {@link SlowStatementRecorder}.
+ *
+ * @author agent (agent@local)
+ */
+public class SlowStatementRecorderTests {
+
+	@Test
+	public void statementsGroupedByFingerprint() {
+		SlowStatementRecorder recorder = new SlowStatementRecorder(10);
+		recorder.statementCompleted(metrics("select * from a where id = 1", 100, 1));
+		recorder.statementCompleted(metrics("select * from a where id = 2", 300, 1));
+		recorder.statementCompleted(metrics("select * from b", 200, 5));
+
+		List<StatementStatistics> slowest = recorder.getSlowestStatements();
+		assertThat(slowest).extracting(StatementStatistics::getFingerprint)
+				.containsExactly("select * from a where id = ?", "select * from b");
+		StatementStatistics stats = slowest.get(0);
+		assertThat(stats.getCount()).isEqualTo(2);
+		assertThat(stats.getMaxTime()).isEqualTo(Duration.ofNanos(300));
+		assertThat(stats.getTotalTime()).isEqualTo(Duration.ofNanos(400));
+		assertThat(stats.getAverageTime()).isEqualTo(Duration.ofNanos(200));
+		assertThat(stats.getTotalRows()).isEqualTo(2);
+		assertThat(stats.getSlowestExecution().getSql()).isEqualTo("select * from a where id = 2");
+	}
+
+	@Test
+	public void topStatementsLimited() {
+		SlowStatementRecorder recorder = new SlowStatementRecorder(2);
+		recorder.statementCompleted(metrics("select * from a", 100, 0));
+		recorder.statementCompleted(metrics("select * from b", 300, 0));
+		recorder.statementCompleted(metrics("select * from c", 200, 0));
+		for (int i = 0; i < 10; i++) {
+			recorder.statementCompleted(metrics("select * from a", 100, 0));
+		}
+
+		assertThat(recorder.getSlowestStatements()).extracting(StatementStatistics::getFingerprint)
+				.containsExactly("select * from b", "select * from c");
+		assertThat(recorder.getMostExpensiveStatements()).extracting(StatementStatistics::getFingerprint)
+				.containsExactly("select * from a", "select * from b");
+	}
+
+	@Test
+	public void statementsBelowThresholdIgnored() {
+		SlowStatementRecorder recorder = new SlowStatementRecorder(10);
+		recorder.setThreshold(Duration.ofNanos(150));
+		recorder.statementCompleted(metrics("select * from a", 100, 0));
+		recorder.statementCompleted(metrics("select * from b", 200, 0));
+
+		assertThat(recorder.getSlowestStatements()).extracting(StatementStatistics::getFingerprint)
+				.containsExactly("select * from b");
+	}
+
+	@Test
+	public void fingerprintsBeyondLimitDropped() {
+		SlowStatementRecorder recorder = new SlowStatementRecorder(1, 2);
+		recorder.statementCompleted(metrics("select * from a", 100, 0));
+		recorder.statementCompleted(metrics("select * from b", 100, 0));
+		recorder.statementCompleted(metrics("select * from c", 100, 0));
+		recorder.statementCompleted(metrics("select * from a", 100, 0));
+
+		assertThat(recorder.getDroppedCount()).isEqualTo(1);
+		recorder.reset();
+		assertThat(recorder.getSlowestStatements()).isEmpty();
+		assertThat(recorder.getDroppedCount()).isZero();
+	}
+
+	@Test
+	public void failuresCounted() {
+		SlowStatementRecorder recorder = new SlowStatementRecorder(10);
+		recorder.statementCompleted(metrics("select * from a", 100, 0));
+		recorder.statementCompleted(new StatementMetrics("select * from a", 10, 10, 10, 0, 0,
+				StatementMetrics.UNKNOWN_ROW_COUNT, new SQLException("failure")));
+
+		StatementStatistics stats = recorder.getSlowestStatements().get(0);
+		assertThat(stats.getCount()).isEqualTo(2);
+		assertThat(stats.getFailureCount()).isEqualTo(1);
+	}
+
+
+	private static StatementMetrics metrics(String sql, long executeNanos, int rows) {
+		return new StatementMetrics(sql, 0, 0, executeNanos, 0, 0, rows, null);
+	}
+
+}
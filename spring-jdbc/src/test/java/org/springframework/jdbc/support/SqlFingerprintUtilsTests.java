@@ -0,0 +1,60 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.support;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for {@link SqlFingerprintUtils}.
+ *
+ * @author agent (agent@local)
+ */
+public class SqlFingerprintUtilsTests {
+
+	@Test
+	public void literalsReplaced() {
+		assertThat(SqlFingerprintUtils.fingerprint("SELECT * FROM t1 WHERE name = 'O''Brien' AND age > 42"))
+				.isEqualTo("select * from t1 where name = ? and age > ?");
+		assertThat(SqlFingerprintUtils.fingerprint("select a from b where x = 1.5e10 or y = -3"))
+				.isEqualTo("select a from b where x = ? or y = -?");
+	}
+
+	@Test
+	public void placeholderListsCollapsed() {
+		assertThat(SqlFingerprintUtils.fingerprint("select a from b where id in (1, 2, 3)"))
+				.isEqualTo("select a from b where id in (?+)");
+		assertThat(SqlFingerprintUtils.fingerprint("select a from b where id in (?,?)"))
+				.isEqualTo("select a from b where id in (?+)");
+		assertThat(SqlFingerprintUtils.fingerprint("select a from b where id = ?"))
+				.isEqualTo("select a from b where id = ?");
+	}
+
+	@Test
+	public void whitespaceAndCommentsNormalized() {
+		assertThat(SqlFingerprintUtils.fingerprint("  select   a\n\tfrom b -- trailing comment\n where /* hint */ c = ?"))
+				.isEqualTo("select a from b where c = ?");
+	}
+
+	@Test
+	public void quotedIdentifiersPreserved() {
+		assertThat(SqlFingerprintUtils.fingerprint("SELECT \"MyColumn1\" FROM `Table2`"))
+				.isEqualTo("select \"MyColumn1\" from `Table2`");
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -18,6 +18,7 @@ package org.springframework.jms.config;
 
 import java.util.concurrent.Executor;
 
+import org.springframework.jms.listener.AbstractPollingMessageListenerContainer.BatchFailureStrategy;
 import org.springframework.jms.listener.DefaultMessageListenerContainer;
 import org.springframework.lang.Nullable;
 import org.springframework.transaction.PlatformTransactionManager;
@@ -63,6 +64,15 @@ public class DefaultJmsListenerContainerFactory
 	@Nullable
 	private BackOff backOff;
 
+	@Nullable
+	private Integer batchSize;
+
+	@Nullable
+	private Long batchTimeout;
+
+	@Nullable
+	private BatchFailureStrategy batchFailureStrategy;
+
 
 	/**
 	 * @see DefaultMessageListenerContainer#setTaskExecutor
@@ -127,6 +137,30 @@ public class DefaultJmsListenerContainerFactory
 		this.backOff = backOff;
 	}
 
+	/**
+	 * @since 5.3.7
+	 * @see DefaultMessageListenerContainer#setBatchSize
+	 */
+	public void setBatchSize(Integer batchSize) {
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * @since 5.3.7
+	 * @see DefaultMessageListenerContainer#setBatchTimeout
+	 */
+	public void setBatchTimeout(Long batchTimeout) {
+		this.batchTimeout = batchTimeout;
+	}
+
+	/**
+	 * @since 5.3.7
+	 * @see DefaultMessageListenerContainer#setBatchFailureStrategy
+	 */
+	public void setBatchFailureStrategy(BatchFailureStrategy batchFailureStrategy) {
+		this.batchFailureStrategy = batchFailureStrategy;
+	}
+
 
 	@Override
 	protected DefaultMessageListenerContainer createContainerInstance() {
@@ -168,6 +202,16 @@ public class DefaultJmsListenerContainerFactory
 		else if (this.recoveryInterval != null) {
 			container.setRecoveryInterval(this.recoveryInterval);
 		}
+
+		if (this.batchSize != null) {
+			container.setBatchSize(this.batchSize);
+		}
+		if (this.batchTimeout != null) {
+			container.setBatchTimeout(this.batchTimeout);
+		}
+		if (this.batchFailureStrategy != null) {
+			container.setBatchFailureStrategy(this.batchFailureStrategy);
+		}
 	}
 
 }
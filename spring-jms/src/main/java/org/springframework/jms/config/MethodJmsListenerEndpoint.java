@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -18,6 +18,7 @@ package org.springframework.jms.config;
 
 import java.lang.reflect.Method;
 import java.util.Arrays;
+import java.util.List;
 
 import org.springframework.aop.framework.AopProxyUtils;
 import org.springframework.aop.support.AopUtils;
@@ -25,13 +26,19 @@ import org.springframework.beans.factory.BeanFactory;
 import org.springframework.beans.factory.BeanFactoryAware;
 import org.springframework.beans.factory.config.ConfigurableBeanFactory;
 import org.springframework.beans.factory.config.EmbeddedValueResolver;
+import org.springframework.core.MethodParameter;
+import org.springframework.core.ResolvableType;
 import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.jms.listener.AbstractPollingMessageListenerContainer;
 import org.springframework.jms.listener.MessageListenerContainer;
+import org.springframework.jms.listener.adapter.BatchMessagingMessageListenerAdapter;
 import org.springframework.jms.listener.adapter.MessagingMessageListenerAdapter;
 import org.springframework.jms.support.QosSettings;
 import org.springframework.jms.support.converter.MessageConverter;
 import org.springframework.jms.support.destination.DestinationResolver;
 import org.springframework.lang.Nullable;
+import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.messaging.handler.annotation.Headers;
 import org.springframework.messaging.handler.annotation.SendTo;
 import org.springframework.messaging.handler.annotation.support.MessageHandlerMethodFactory;
 import org.springframework.messaging.handler.invocation.InvocableHandlerMethod;
@@ -146,10 +153,22 @@ public class MethodJmsListenerEndpoint extends AbstractJmsListenerEndpoint imple
 	protected MessagingMessageListenerAdapter createMessageListener(MessageListenerContainer container) {
 		Assert.state(this.messageHandlerMethodFactory != null,
 				"Could not create message listener - MessageHandlerMethodFactory not set");
-		MessagingMessageListenerAdapter messageListener = createMessageListenerInstance();
 		Object bean = getBean();
 		Method method = getMethod();
 		Assert.state(bean != null && method != null, "No bean+method set on endpoint");
+		MethodParameter batchParameter = getBatchParameter(container, method);
+		MessagingMessageListenerAdapter messageListener;
+		if (batchParameter != null) {
+			BatchMessagingMessageListenerAdapter batchListener = createBatchMessageListenerInstance();
+			Class<?> elementType = ResolvableType.forMethodParameter(batchParameter).asCollection().resolveGeneric(0);
+			if (elementType != null) {
+				batchListener.setElementType(elementType);
+			}
+			messageListener = batchListener;
+		}
+		else {
+			messageListener = createMessageListenerInstance();
+		}
 		InvocableHandlerMethod invocableHandlerMethod =
 				this.messageHandlerMethodFactory.createInvocableHandlerMethod(bean, method);
 		messageListener.setHandlerMethod(invocableHandlerMethod);
@@ -185,6 +204,39 @@ public class MethodJmsListenerEndpoint extends AbstractJmsListenerEndpoint imple
 		return new MessagingMessageListenerAdapter();
 	}
 
+	/**
+	 * Create an empty {@link BatchMessagingMessageListenerAdapter} instance,
+	 * used if the container receives messages in batches and the listener
+	 * method declares a {@link List} parameter for them.
+	 * @return a new {@code BatchMessagingMessageListenerAdapter} or subclass thereof
+	 * @since 5.3.7
+	 * @see AbstractPollingMessageListenerContainer#setBatchSize
+	 */
+	protected BatchMessagingMessageListenerAdapter createBatchMessageListenerInstance() {
+		return new BatchMessagingMessageListenerAdapter();
+	}
+
+	/**
+	 * Return the {@link List} parameter receiving a batch of messages, if the
+	 * given container is configured for batch receipt.
+	 */
+	@Nullable
+	private MethodParameter getBatchParameter(MessageListenerContainer container, Method method) {
+		if (!(container instanceof AbstractPollingMessageListenerContainer) ||
+				((AbstractPollingMessageListenerContainer) container).getBatchSize() <= 1) {
+			return null;
+		}
+		for (int i = 0; i < method.getParameterCount(); i++) {
+			MethodParameter parameter = new MethodParameter(method, i);
+			if (List.class.isAssignableFrom(parameter.getParameterType()) &&
+					!parameter.hasParameterAnnotation(Header.class) &&
+					!parameter.hasParameterAnnotation(Headers.class)) {
+				return parameter;
+			}
+		}
+		return null;
+	}
+
 	/**
 	 * Return the default response destination, if any.
 	 */
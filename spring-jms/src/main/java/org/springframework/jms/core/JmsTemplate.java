@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,6 +16,13 @@
 
 package org.springframework.jms.core;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+
+import javax.jms.CompletionListener;
 import javax.jms.Connection;
 import javax.jms.ConnectionFactory;
 import javax.jms.DeliveryMode;
@@ -75,6 +82,13 @@ import org.springframework.util.Assert;
  * application's environment naming context via JNDI; application servers
  * typically expose pooled, transaction-aware factories there.
  *
+ * <p>For publishing many messages, {@link #sendBatch(Destination, Collection)}
+ * sends them through a single transacted Session and MessageProducer, committing
+ * once per {@link #setSendBatchSize batch}. {@link #sendAsync(Destination, MessageCreator)}
+ * uses a JMS 2.0 {@link CompletionListener} instead of waiting for the broker to
+ * acknowledge each message, with a {@link #setMaxAsyncSendsInFlight limit} on the
+ * number of unacknowledged messages.
+ *
  * @author Mark Pollack
  * @author Juergen Hoeller
  * @author Stephane Nicoll
@@ -88,6 +102,20 @@ import org.springframework.util.Assert;
  */
 public class JmsTemplate extends JmsDestinationAccessor implements JmsOperations {
 
+	/**
+	 * The default number of messages per transaction for batch sends: 100.
+	 * @since 5.3.7
+	 * @see #setSendBatchSize
+	 */
+	public static final int DEFAULT_SEND_BATCH_SIZE = 100;
+
+	/**
+	 * The default limit for asynchronous sends awaiting completion: 1000.
+	 * @since 5.3.7
+	 * @see #setMaxAsyncSendsInFlight
+	 */
+	public static final int DEFAULT_MAX_ASYNC_SENDS_IN_FLIGHT = 1000;
+
 	/** Internal ResourceFactory adapter for interacting with ConnectionFactoryUtils. */
 	private final JmsTemplateResourceFactory transactionalResourceFactory = new JmsTemplateResourceFactory();
 
@@ -109,6 +137,12 @@ public class JmsTemplate extends JmsDestinationAccessor implements JmsOperations
 
 	private long deliveryDelay = -1;
 
+	private int sendBatchSize = DEFAULT_SEND_BATCH_SIZE;
+
+	private int maxAsyncSendsInFlight = DEFAULT_MAX_ASYNC_SENDS_IN_FLIGHT;
+
+	private volatile Semaphore asyncSendPermits = new Semaphore(DEFAULT_MAX_ASYNC_SENDS_IN_FLIGHT);
+
 
 	private boolean explicitQosEnabled = false;
 
@@ -339,6 +373,48 @@ public class JmsTemplate extends JmsDestinationAccessor implements JmsOperations
 		return this.deliveryDelay;
 	}
 
+	/**
+	 * Set the number of messages to send per transaction with
+	 * {@link #sendBatch(Destination, Collection)} and
+	 * {@link #convertAndSendBatch(Destination, Collection)}.
+	 * <p>The default is {@link #DEFAULT_SEND_BATCH_SIZE}.
+	 * @since 5.3.7
+	 */
+	public void setSendBatchSize(int sendBatchSize) {
+		Assert.isTrue(sendBatchSize > 0, "'sendBatchSize' must be greater than 0");
+		this.sendBatchSize = sendBatchSize;
+	}
+
+	/**
+	 * Return the number of messages to send per transaction with batch sends.
+	 * @since 5.3.7
+	 */
+	public int getSendBatchSize() {
+		return this.sendBatchSize;
+	}
+
+	/**
+	 * Set the maximum number of messages sent with
+	 * {@link #sendAsync(Destination, MessageCreator)} that may await their
+	 * completion at any time, across all threads using this template.
+	 * Further asynchronous sends block until earlier ones have completed.
+	 * <p>The default is {@link #DEFAULT_MAX_ASYNC_SENDS_IN_FLIGHT}.
+	 * @since 5.3.7
+	 */
+	public void setMaxAsyncSendsInFlight(int maxAsyncSendsInFlight) {
+		Assert.isTrue(maxAsyncSendsInFlight > 0, "'maxAsyncSendsInFlight' must be greater than 0");
+		this.maxAsyncSendsInFlight = maxAsyncSendsInFlight;
+		this.asyncSendPermits = new Semaphore(maxAsyncSendsInFlight);
+	}
+
+	/**
+	 * Return the maximum number of asynchronous sends awaiting completion.
+	 * @since 5.3.7
+	 */
+	public int getMaxAsyncSendsInFlight() {
+		return this.maxAsyncSendsInFlight;
+	}
+
 
 	/**
 	 * Set if the QOS values (deliveryMode, priority, timeToLive)
@@ -695,6 +771,342 @@ public class JmsTemplate extends JmsDestinationAccessor implements JmsOperations
 	}
 
 
+	//---------------------------------------------------------------------------------------
+	// Convenience methods for sending messages in batches
+	//---------------------------------------------------------------------------------------
+
+	/**
+	 * Send the messages created by the given callbacks to the specified destination,
+	 * through a single transacted Session, committing after each
+	 * {@link #setSendBatchSize "sendBatchSize"} messages.
+	 * <p>Within an externally managed transaction, the messages are sent within
+	 * that transaction instead, with no intermediate commits.
+	 * <p>If a message cannot be created or sent, the current batch is rolled back
+	 * and the exception is propagated, whereas previous batches remain committed.
+	 * @param destination the destination to send the messages to
+	 * @param messageCreators the callbacks to create the messages, in sending order
+	 * @throws JmsException checked JMSException converted to unchecked
+	 * @since 5.3.7
+	 */
+	public void sendBatch(final Destination destination, final Collection<? extends MessageCreator> messageCreators)
+			throws JmsException {
+
+		executeTransacted(session -> {
+			doSendBatch(session, destination, messageCreators);
+			return null;
+		});
+	}
+
+	/**
+	 * Send the messages created by the given callbacks to the specified destination,
+	 * through a single transacted Session, committing after each
+	 * {@link #setSendBatchSize "sendBatchSize"} messages.
+	 * @param destinationName the name of the destination to send the messages to
+	 * (to be resolved to an actual destination by a DestinationResolver)
+	 * @param messageCreators the callbacks to create the messages, in sending order
+	 * @throws JmsException checked JMSException converted to unchecked
+	 * @since 5.3.7
+	 * @see #sendBatch(Destination, Collection)
+	 */
+	public void sendBatch(final String destinationName, final Collection<? extends MessageCreator> messageCreators)
+			throws JmsException {
+
+		executeTransacted(session -> {
+			Destination destination = resolveDestinationName(session, destinationName);
+			doSendBatch(session, destination, messageCreators);
+			return null;
+		});
+	}
+
+	/**
+	 * Convert the given objects to messages with the configured MessageConverter
+	 * and send them to the specified destination in batches.
+	 * @param destination the destination to send the messages to
+	 * @param messages the objects to convert to messages, in sending order
+	 * @throws JmsException converted checked JMSException to unchecked
+	 * @since 5.3.7
+	 * @see #sendBatch(Destination, Collection)
+	 */
+	public void convertAndSendBatch(Destination destination, Collection<?> messages) throws JmsException {
+		sendBatch(destination, toMessageCreators(messages));
+	}
+
+	/**
+	 * Convert the given objects to messages with the configured MessageConverter
+	 * and send them to the specified destination in batches.
+	 * @param destinationName the name of the destination to send the messages to
+	 * (to be resolved to an actual destination by a DestinationResolver)
+	 * @param messages the objects to convert to messages, in sending order
+	 * @throws JmsException converted checked JMSException to unchecked
+	 * @since 5.3.7
+	 * @see #sendBatch(String, Collection)
+	 */
+	public void convertAndSendBatch(String destinationName, Collection<?> messages) throws JmsException {
+		sendBatch(destinationName, toMessageCreators(messages));
+	}
+
+	private List<MessageCreator> toMessageCreators(Collection<?> messages) {
+		List<MessageCreator> messageCreators = new ArrayList<>(messages.size());
+		for (Object message : messages) {
+			messageCreators.add(session -> getRequiredMessageConverter().toMessage(message, session));
+		}
+		return messageCreators;
+	}
+
+	/**
+	 * Send the given JMS messages in batches, committing after each
+	 * {@link #setSendBatchSize "sendBatchSize"} messages unless the
+	 * Session takes part in an externally managed transaction.
+	 * @param session the JMS Session to operate on
+	 * @param destination the JMS Destination to send to
+	 * @param messageCreators callbacks to create the JMS Messages
+	 * @throws JMSException if thrown by JMS API methods
+	 * @since 5.3.7
+	 */
+	protected void doSendBatch(Session session, Destination destination,
+			Collection<? extends MessageCreator> messageCreators) throws JMSException {
+
+		Assert.notNull(messageCreators, "MessageCreators must not be null");
+		boolean commitBatches = (session.getTransacted() &&
+				!ConnectionFactoryUtils.isSessionTransactional(session, getConnectionFactory()));
+		MessageProducer producer = createProducer(session, destination);
+		try {
+			int count = 0;
+			for (MessageCreator messageCreator : messageCreators) {
+				Message message = messageCreator.createMessage(session);
+				if (logger.isTraceEnabled()) {
+					logger.trace("Sending created message: " + message);
+				}
+				doSend(producer, message);
+				count++;
+				if (commitBatches && count % this.sendBatchSize == 0) {
+					JmsUtils.commitIfNecessary(session);
+				}
+			}
+			if (commitBatches && count % this.sendBatchSize != 0) {
+				JmsUtils.commitIfNecessary(session);
+			}
+			if (logger.isDebugEnabled()) {
+				logger.debug("Sent batch of " + count + " messages to " + destination);
+			}
+		}
+		catch (JMSException | RuntimeException ex) {
+			if (commitBatches) {
+				JmsUtils.rollbackIfNecessary(session);
+			}
+			throw ex;
+		}
+		finally {
+			JmsUtils.closeMessageProducer(producer);
+		}
+	}
+
+	/**
+	 * Execute the given action within a transacted JMS Session: the Session
+	 * bound to the current transaction, if any, or a new locally transacted one.
+	 */
+	@Nullable
+	private <T> T executeTransacted(SessionCallback<T> action) throws JmsException {
+		Connection conToClose = null;
+		Session sessionToClose = null;
+		try {
+			Session sessionToUse = ConnectionFactoryUtils.doGetTransactionalSession(
+					obtainConnectionFactory(), this.transactionalResourceFactory, false);
+			if (sessionToUse == null) {
+				conToClose = createConnection();
+				sessionToClose = conToClose.createSession(true, Session.SESSION_TRANSACTED);
+				sessionToUse = sessionToClose;
+			}
+			return action.doInJms(sessionToUse);
+		}
+		catch (JMSException ex) {
+			throw convertJmsAccessException(ex);
+		}
+		finally {
+			JmsUtils.closeSession(sessionToClose);
+			ConnectionFactoryUtils.releaseConnection(conToClose, getConnectionFactory(), false);
+		}
+	}
+
+
+	//---------------------------------------------------------------------------------------
+	// Convenience methods for sending messages asynchronously
+	//---------------------------------------------------------------------------------------
+
+	/**
+	 * Send a message to the specified destination without waiting for the
+	 * broker to acknowledge it, using a JMS 2.0 {@link CompletionListener}.
+	 * <p>Blocks if the {@link #setMaxAsyncSendsInFlight "maxAsyncSendsInFlight"}
+	 * limit has been reached, until an earlier send has completed.
+	 * <p>Note that JMS providers block when closing a Session or MessageProducer
+	 * with incomplete sends. Use a {@code ConnectionFactory} that caches Sessions
+	 * and MessageProducers, such as
+	 * {@link org.springframework.jms.connection.CachingConnectionFactory}, so that
+	 * this method actually returns before completion. Likewise, committing a
+	 * transacted Session waits for completion of its sends.
+	 * @param destination the destination to send the message to
+	 * @param messageCreator callback to create a message
+	 * @return a future completed with the sent message once the broker has
+	 * acknowledged it, or completed exceptionally if sending failed (note that
+	 * dependent actions run on a thread of the JMS provider by default)
+	 * @throws JmsException checked JMSException converted to unchecked,
+	 * if the message could not be handed to the JMS provider
+	 * @since 5.3.7
+	 */
+	public CompletableFuture<Message> sendAsync(final Destination destination, final MessageCreator messageCreator)
+			throws JmsException {
+
+		CompletableFuture<Message> future = execute(session ->
+				doSendAsync(session, destination, messageCreator), false);
+		Assert.state(future != null, "No CompletableFuture");
+		return future;
+	}
+
+	/**
+	 * Send a message to the specified destination without waiting for the
+	 * broker to acknowledge it, using a JMS 2.0 {@link CompletionListener}.
+	 * @param destinationName the name of the destination to send the message to
+	 * (to be resolved to an actual destination by a DestinationResolver)
+	 * @param messageCreator callback to create a message
+	 * @return a future completed with the sent message once the broker has
+	 * acknowledged it, or completed exceptionally if sending failed
+	 * @throws JmsException checked JMSException converted to unchecked,
+	 * if the message could not be handed to the JMS provider
+	 * @since 5.3.7
+	 * @see #sendAsync(Destination, MessageCreator)
+	 */
+	public CompletableFuture<Message> sendAsync(final String destinationName, final MessageCreator messageCreator)
+			throws JmsException {
+
+		CompletableFuture<Message> future = execute(session -> {
+			Destination destination = resolveDestinationName(session, destinationName);
+			return doSendAsync(session, destination, messageCreator);
+		}, false);
+		Assert.state(future != null, "No CompletableFuture");
+		return future;
+	}
+
+	/**
+	 * Convert the given object to a message with the configured MessageConverter
+	 * and send it to the specified destination asynchronously.
+	 * @param destination the destination to send the message to
+	 * @param message the object to convert to a message
+	 * @return a future completed with the sent message once the broker has
+	 * acknowledged it, or completed exceptionally if sending failed
+	 * @throws JmsException converted checked JMSException to unchecked
+	 * @since 5.3.7
+	 * @see #sendAsync(Destination, MessageCreator)
+	 */
+	public CompletableFuture<Message> convertAndSendAsync(Destination destination, final Object message)
+			throws JmsException {
+
+		return sendAsync(destination, session -> getRequiredMessageConverter().toMessage(message, session));
+	}
+
+	/**
+	 * Convert the given object to a message with the configured MessageConverter
+	 * and send it to the specified destination asynchronously.
+	 * @param destinationName the name of the destination to send the message to
+	 * (to be resolved to an actual destination by a DestinationResolver)
+	 * @param message the object to convert to a message
+	 * @return a future completed with the sent message once the broker has
+	 * acknowledged it, or completed exceptionally if sending failed
+	 * @throws JmsException converted checked JMSException to unchecked
+	 * @since 5.3.7
+	 * @see #sendAsync(String, MessageCreator)
+	 */
+	public CompletableFuture<Message> convertAndSendAsync(String destinationName, final Object message)
+			throws JmsException {
+
+		return sendAsync(destinationName, session -> getRequiredMessageConverter().toMessage(message, session));
+	}
+
+	/**
+	 * Send the given JMS message asynchronously.
+	 * @param session the JMS Session to operate on
+	 * @param destination the JMS Destination to send to
+	 * @param messageCreator callback to create a JMS Message
+	 * @return a future for the completion of the send
+	 * @throws JMSException if thrown by JMS API methods
+	 * @since 5.3.7
+	 */
+	protected CompletableFuture<Message> doSendAsync(Session session, Destination destination,
+			MessageCreator messageCreator) throws JMSException {
+
+		Assert.notNull(messageCreator, "MessageCreator must not be null");
+		MessageProducer producer = createProducer(session, destination);
+		try {
+			Message message = messageCreator.createMessage(session);
+			if (logger.isDebugEnabled()) {
+				logger.debug("Sending created message asynchronously: " + message);
+			}
+			CompletableFuture<Message> future = doSendAsync(producer, message);
+			// Check commit - avoid commit call within a JTA transaction.
+			if (session.getTransacted() && isSessionLocallyTransacted(session)) {
+				// Transacted session created by this template -> commit.
+				JmsUtils.commitIfNecessary(session);
+			}
+			return future;
+		}
+		finally {
+			JmsUtils.closeMessageProducer(producer);
+		}
+	}
+
+	/**
+	 * Actually send the given JMS message asynchronously, once the number of
+	 * asynchronous sends in flight is below the configured limit.
+	 * @param producer the JMS MessageProducer to send with
+	 * @param message the JMS Message to send
+	 * @return a future for the completion of the send
+	 * @throws JMSException if thrown by JMS API methods
+	 * @since 5.3.7
+	 * @see #setMaxAsyncSendsInFlight
+	 */
+	protected CompletableFuture<Message> doSendAsync(MessageProducer producer, Message message) throws JMSException {
+		Semaphore permits = this.asyncSendPermits;
+		try {
+			permits.acquire();
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			JMSException jmsEx = new JMSException("Interrupted while waiting for asynchronous sends to complete");
+			jmsEx.initCause(ex);
+			throw jmsEx;
+		}
+		CompletableFuture<Message> future = new CompletableFuture<>();
+		CompletionListener completionListener = new CompletionListener() {
+			@Override
+			public void onCompletion(Message sentMessage) {
+				permits.release();
+				future.complete(sentMessage);
+			}
+			@Override
+			public void onException(Message failedMessage, Exception ex) {
+				permits.release();
+				future.completeExceptionally(ex instanceof JMSException ?
+						convertJmsAccessException((JMSException) ex) : ex);
+			}
+		};
+		try {
+			if (this.deliveryDelay >= 0) {
+				producer.setDeliveryDelay(this.deliveryDelay);
+			}
+			if (isExplicitQosEnabled()) {
+				producer.send(message, getDeliveryMode(), getPriority(), getTimeToLive(), completionListener);
+			}
+			else {
+				producer.send(message, completionListener);
+			}
+		}
+		catch (JMSException | RuntimeException ex) {
+			permits.release();
+			throw ex;
+		}
+		return future;
+	}
+
+
 	//---------------------------------------------------------------------------------------
 	// Convenience methods for receiving messages
 	//---------------------------------------------------------------------------------------
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -936,7 +936,7 @@ public abstract class AbstractMessageListenerContainer extends AbstractJmsListen
 	 * Used to trigger a rollback for an external transaction manager in that case.
 	 */
 	@SuppressWarnings("serial")
-	private static class MessageRejectedWhileStoppingException extends RuntimeException {
+	static class MessageRejectedWhileStoppingException extends RuntimeException {
 	}
 
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2017 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,6 +16,10 @@
 
 package org.springframework.jms.listener;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 import javax.jms.Connection;
 import javax.jms.Destination;
 import javax.jms.JMSException;
@@ -47,6 +51,11 @@ import org.springframework.util.Assert;
  * to the concrete implementation. The receive timeout for each attempt can be
  * configured through the {@link #setReceiveTimeout "receiveTimeout"} property.
  *
+ * <p>With a {@link #setBatchSize "batchSize"} greater than 1, each attempt
+ * receives up to that number of messages and commits or acknowledges them
+ * together, passing them to a {@link BatchMessageListener} at once or to
+ * any other listener one by one.
+ *
  * <p>The underlying mechanism is based on standard JMS MessageConsumer handling,
  * which is perfectly compatible with both native JMS and JMS in a Java EE environment.
  * Neither the JMS {@code MessageConsumer.setMessageListener} facility  nor the JMS
@@ -94,6 +103,12 @@ public abstract class AbstractPollingMessageListenerContainer extends AbstractMe
 
 	private long receiveTimeout = DEFAULT_RECEIVE_TIMEOUT;
 
+	private int batchSize = 1;
+
+	private long batchTimeout = 0;
+
+	private BatchFailureStrategy batchFailureStrategy = BatchFailureStrategy.ROLLBACK_BATCH;
+
 
 	@Override
 	public void setSessionTransacted(boolean sessionTransacted) {
@@ -182,6 +197,74 @@ public abstract class AbstractPollingMessageListenerContainer extends AbstractMe
 		return this.receiveTimeout;
 	}
 
+	/**
+	 * Set the maximum number of messages to receive per transaction, or per
+	 * acknowledgement in case of {@link Session#CLIENT_ACKNOWLEDGE}.
+	 * <p>Default is 1, receiving and committing one message at a time. With a
+	 * higher value, further messages are received right after the first one,
+	 * for up to the {@link #setBatchTimeout "batchTimeout"}. The messages are
+	 * passed to a {@link BatchMessageListener} at once, or to any other type
+	 * of listener one by one, followed by a single commit or acknowledgement.
+	 * <p>Batching requires a transacted Session or client acknowledgement to
+	 * be effective: with automatic acknowledgement, each message is
+	 * acknowledged by the JMS provider as it is received.
+	 * @since 5.3.7
+	 * @see #setBatchTimeout
+	 * @see #setBatchFailureStrategy
+	 */
+	public void setBatchSize(int batchSize) {
+		Assert.isTrue(batchSize > 0, "'batchSize' must be greater than 0");
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * Return the maximum number of messages to receive per transaction.
+	 * @since 5.3.7
+	 */
+	public int getBatchSize() {
+		return this.batchSize;
+	}
+
+	/**
+	 * Set the time to wait for further messages to complete a batch, in
+	 * <b>milliseconds</b>, counting from the receipt of the first message.
+	 * <p>Default is 0, only adding messages that are available immediately.
+	 * A higher value leads to fuller batches at the expense of latency.
+	 * @since 5.3.7
+	 * @see #setBatchSize
+	 */
+	public void setBatchTimeout(long batchTimeout) {
+		this.batchTimeout = batchTimeout;
+	}
+
+	/**
+	 * Return the time to wait for further messages to complete a batch.
+	 * @since 5.3.7
+	 */
+	public long getBatchTimeout() {
+		return this.batchTimeout;
+	}
+
+	/**
+	 * Specify what to do when the listener fails to process a batch of
+	 * messages, or a message of a batch.
+	 * <p>Default is {@link BatchFailureStrategy#ROLLBACK_BATCH}.
+	 * @since 5.3.7
+	 * @see #setBatchSize
+	 */
+	public void setBatchFailureStrategy(BatchFailureStrategy batchFailureStrategy) {
+		Assert.notNull(batchFailureStrategy, "BatchFailureStrategy must not be null");
+		this.batchFailureStrategy = batchFailureStrategy;
+	}
+
+	/**
+	 * Return the configured batch failure strategy.
+	 * @since 5.3.7
+	 */
+	public BatchFailureStrategy getBatchFailureStrategy() {
+		return this.batchFailureStrategy;
+	}
+
 
 	@Override
 	public void initialize() {
@@ -302,8 +385,10 @@ public abstract class AbstractPollingMessageListenerContainer extends AbstractMe
 			}
 			Message message = receiveMessage(consumerToUse);
 			if (message != null) {
+				List<Message> batch = (this.batchSize > 1 ? receiveBatch(consumerToUse, message) : null);
 				if (logger.isDebugEnabled()) {
-					logger.debug("Received message of type [" + message.getClass() + "] from consumer [" +
+					logger.debug("Received " + (batch != null ? batch.size() + " messages starting with " : "") +
+							"message of type [" + message.getClass() + "] from consumer [" +
 							consumerToUse + "] of " + (transactional ? "transactional " : "") + "session [" +
 							sessionToUse + "]");
 				}
@@ -315,7 +400,12 @@ public abstract class AbstractPollingMessageListenerContainer extends AbstractMe
 							obtainConnectionFactory(), new LocallyExposedJmsResourceHolder(sessionToUse));
 				}
 				try {
-					doExecuteListener(sessionToUse, message);
+					if (batch != null) {
+						doExecuteListener(sessionToUse, batch);
+					}
+					else {
+						doExecuteListener(sessionToUse, message);
+					}
 				}
 				catch (Throwable ex) {
 					if (status != null) {
@@ -418,6 +508,87 @@ public abstract class AbstractPollingMessageListenerContainer extends AbstractMe
 		return receiveFromConsumer(consumer, getReceiveTimeout());
 	}
 
+	/**
+	 * Receive further messages from the given consumer to complete a batch,
+	 * until the batch size or the batch timeout is reached.
+	 * @param consumer the MessageConsumer to use
+	 * @param firstMessage the message that started the batch
+	 * @return the batch of messages, starting with the given message
+	 * @throws JMSException if thrown by JMS methods
+	 * @since 5.3.7
+	 * @see #setBatchSize
+	 * @see #setBatchTimeout
+	 */
+	protected List<Message> receiveBatch(MessageConsumer consumer, Message firstMessage) throws JMSException {
+		List<Message> messages = new ArrayList<>(this.batchSize);
+		messages.add(firstMessage);
+		long deadline = System.currentTimeMillis() + this.batchTimeout;
+		while (messages.size() < this.batchSize) {
+			long remaining = deadline - System.currentTimeMillis();
+			// A negative timeout indicates a no-wait receive
+			Message message = receiveFromConsumer(consumer, (remaining > 0 ? remaining : -1));
+			if (message == null) {
+				break;
+			}
+			messages.add(message);
+		}
+		return messages;
+	}
+
+	/**
+	 * Execute the listener for the given batch of messages,
+	 * committing or rolling back the transaction afterwards (if necessary).
+	 * @param session the JMS Session to operate on
+	 * @param messages the received JMS Messages
+	 * @throws JMSException if thrown by JMS API methods
+	 * @since 5.3.7
+	 * @see BatchMessageListener
+	 * @see #setBatchFailureStrategy
+	 */
+	protected void doExecuteListener(Session session, List<Message> messages) throws JMSException {
+		if (!isAcceptMessagesWhileStopping() && !isRunning()) {
+			if (logger.isWarnEnabled()) {
+				logger.warn("Rejecting " + messages.size() + " received messages because of the " +
+						"listener container having been stopped in the meantime");
+			}
+			rollbackIfNecessary(session);
+			throw new MessageRejectedWhileStoppingException();
+		}
+
+		Object listener = getMessageListener();
+		if (listener instanceof BatchMessageListener) {
+			try {
+				((BatchMessageListener) listener).onMessages(Collections.unmodifiableList(messages), session);
+			}
+			catch (JMSException | RuntimeException | Error ex) {
+				if (!isSkippableBatchFailure(ex)) {
+					rollbackOnExceptionIfNecessary(session, ex);
+					throw ex;
+				}
+				handleListenerException(ex);
+			}
+		}
+		else {
+			for (Message message : messages) {
+				try {
+					invokeListener(session, message);
+				}
+				catch (JMSException | RuntimeException | Error ex) {
+					if (!isSkippableBatchFailure(ex)) {
+						rollbackOnExceptionIfNecessary(session, ex);
+						throw ex;
+					}
+					handleListenerException(ex);
+				}
+			}
+		}
+		commitIfNecessary(session, messages.get(messages.size() - 1));
+	}
+
+	private boolean isSkippableBatchFailure(Throwable ex) {
+		return (this.batchFailureStrategy == BatchFailureStrategy.SKIP_FAILED && ex instanceof RuntimeException);
+	}
+
 	/**
 	 * Template method that gets called right when a new message has been received,
 	 * before attempting to process it. Allows subclasses to react to the event
@@ -502,4 +673,29 @@ public abstract class AbstractPollingMessageListenerContainer extends AbstractMe
 		}
 	}
 
+
+	/**
+	 * Strategies for a listener failing to process a batch of messages.
+	 * @since 5.3.7
+	 * @see #setBatchFailureStrategy
+	 */
+	public enum BatchFailureStrategy {
+
+		/**
+		 * Roll back the transaction, or recover the Session in case of client
+		 * acknowledgement, so that all messages of the batch get redelivered.
+		 */
+		ROLLBACK_BATCH,
+
+		/**
+		 * Report the failure to the {@link AbstractMessageListenerContainer#setErrorHandler
+		 * ErrorHandler} and commit the batch nonetheless. With a {@link BatchMessageListener}
+		 * the whole batch is considered processed; with any other listener,
+		 * the remaining messages of the batch are processed first.
+		 * <p>{@link JMSException JMSExceptions} and errors still lead to a
+		 * rollback since they may indicate an infrastructure problem.
+		 */
+		SKIP_FAILED
+	}
+
 }
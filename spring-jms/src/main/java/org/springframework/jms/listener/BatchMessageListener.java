@@ -0,0 +1,62 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.jms.listener;
+
+import java.util.Collections;
+import java.util.List;
+
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.Session;
+
+/**
+ * Variant of {@link SessionAwareMessageListener} that processes several
+ * received messages at once.
+ *
+ * <p>Supported by Spring's {@link DefaultMessageListenerContainer} when
+ * configured with a {@link AbstractPollingMessageListenerContainer#setBatchSize
+ * batch size} greater than 1, in which case the messages of a batch are received
+ * within the same transaction and committed or acknowledged together. Other
+ * containers deliver each message as a batch of its own.
+ *
+ * @author agent (agent@local)
+ * @since 5.3.7
+ * @see AbstractPollingMessageListenerContainer#setBatchSize
+ * @see AbstractPollingMessageListenerContainer#setBatchFailureStrategy
+ */
+@FunctionalInterface
+public interface BatchMessageListener extends SessionAwareMessageListener<Message> {
+
+	/**
+	 * Callback for processing a batch of received JMS messages.
+	 * <p>An exception thrown from this method applies to the entire batch,
+	 * according to the container's batch failure strategy.
+	 * @param messages the received JMS messages, in the order received
+	 * (never {@code null} or empty)
+	 * @param session the underlying JMS Session (never {@code null})
+	 * @throws JMSException if thrown by JMS methods
+	 */
+	void onMessages(List<Message> messages, Session session) throws JMSException;
+
+	/**
+	 * Process the given message as a batch of one.
+	 */
+	@Override
+	default void onMessage(Message message, Session session) throws JMSException {
+		onMessages(Collections.singletonList(message), session);
+	}
+
+}
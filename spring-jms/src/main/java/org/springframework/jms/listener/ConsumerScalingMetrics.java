@@ -0,0 +1,166 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jms.listener;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Statistics collected by a {@link DefaultMessageListenerContainer} for its
+ * consumers over one scaling interval, as input for a {@link ConsumerScalingPolicy}.
+ *
+ * <p>Receive attempts that return with a batch of messages are counted once.
+ *
+ * @author agent (agent@local)
+ * @since 5.3.7
+ * @see DefaultMessageListenerContainer#getConsumerScalingMetrics()
+ */
+public final class ConsumerScalingMetrics {
+
+	private final long intervalNanos;
+
+	private final int consumerCount;
+
+	private final int activeConsumerCount;
+
+	private final long receiveCount;
+
+	private final long emptyReceiveCount;
+
+	private final long processingNanos;
+
+	private final long queueDepth;
+
+
+	/**
+	 * Create a new {@code ConsumerScalingMetrics} instance.
+	 * @param intervalNanos the duration of the interval, in nanoseconds
+	 * @param consumerCount the number of scheduled consumers
+	 * @param activeConsumerCount the number of active consumers
+	 * @param receiveCount the number of receive attempts within the interval
+	 * @param emptyReceiveCount the number of receive attempts that returned
+	 * without a message, i.e. that ran into the receive timeout
+	 * @param processingNanos the total time spent processing received messages,
+	 * in nanoseconds
+	 * @param queueDepth the number of messages pending in the queue,
+	 * or -1 if not known
+	 */
+	public ConsumerScalingMetrics(long intervalNanos, int consumerCount, int activeConsumerCount,
+			long receiveCount, long emptyReceiveCount, long processingNanos, long queueDepth) {
+
+		this.intervalNanos = intervalNanos;
+		this.consumerCount = consumerCount;
+		this.activeConsumerCount = activeConsumerCount;
+		this.receiveCount = receiveCount;
+		this.emptyReceiveCount = emptyReceiveCount;
+		this.processingNanos = processingNanos;
+		this.queueDepth = queueDepth;
+	}
+
+
+	/**
+	 * Return the duration of the interval, in milliseconds.
+	 */
+	public long getIntervalMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(this.intervalNanos);
+	}
+
+	/**
+	 * Return the number of scheduled consumers at the end of the interval.
+	 */
+	public int getConsumerCount() {
+		return this.consumerCount;
+	}
+
+	/**
+	 * Return the number of active consumers at the end of the interval.
+	 */
+	public int getActiveConsumerCount() {
+		return this.activeConsumerCount;
+	}
+
+	/**
+	 * Return the number of receive attempts within the interval.
+	 */
+	public long getReceiveCount() {
+		return this.receiveCount;
+	}
+
+	/**
+	 * Return the number of receive attempts within the interval that returned
+	 * without a message, i.e. that ran into the receive timeout.
+	 */
+	public long getEmptyReceiveCount() {
+		return this.emptyReceiveCount;
+	}
+
+	/**
+	 * Return the number of receive attempts within the interval that
+	 * returned a message.
+	 */
+	public long getMessageCount() {
+		return Math.max(this.receiveCount - this.emptyReceiveCount, 0);
+	}
+
+	/**
+	 * Return the ratio of receive attempts that ran into the receive timeout,
+	 * between 0 and 1, or 0 if there were no receive attempts at all.
+	 */
+	public double getEmptyReceiveRatio() {
+		return (this.receiveCount > 0 ? (double) this.emptyReceiveCount / this.receiveCount : 0);
+	}
+
+	/**
+	 * Return the average time spent processing a received message (or batch),
+	 * in nanoseconds, or 0 if no message has been received.
+	 */
+	public long getAverageProcessingNanos() {
+		long messageCount = getMessageCount();
+		return (messageCount > 0 ? this.processingNanos / messageCount : 0);
+	}
+
+	/**
+	 * Return the fraction of the available consumer time spent processing
+	 * messages, between 0 and 1.
+	 * <p>A value close to 1 indicates that all consumers have been busy throughout
+	 * the interval, whereas a value close to 0 indicates that they have been
+	 * waiting for messages most of the time.
+	 */
+	public double getUtilization() {
+		if (this.intervalNanos <= 0 || this.consumerCount <= 0) {
+			return 0;
+		}
+		return Math.min((double) this.processingNanos / this.intervalNanos / this.consumerCount, 1);
+	}
+
+	/**
+	 * Return the number of messages pending in the queue at the end of the
+	 * interval, or -1 if not known.
+	 * @see DefaultMessageListenerContainer#setQueueDepthSupplier
+	 */
+	public long getQueueDepth() {
+		return this.queueDepth;
+	}
+
+	@Override
+	public String toString() {
+		return "ConsumerScalingMetrics [consumers=" + this.consumerCount + ", active=" +
+				this.activeConsumerCount + ", receives=" + this.receiveCount + ", emptyReceives=" +
+				this.emptyReceiveCount + ", averageProcessingNanos=" + getAverageProcessingNanos() +
+				", utilization=" + getUtilization() + ", queueDepth=" + this.queueDepth + "]";
+	}
+
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jms.listener;
+
+/**
+ * Strategy for determining the number of concurrent consumers of a
+ * {@link DefaultMessageListenerContainer}, based on the statistics
+ * collected by the container for each scaling interval.
+ *
+ * <p>Once registered with a container, a policy replaces the container's
+ * default scaling, which is based on idle consumers and idle task executions
+ * only. Implementations are typically stateful and should therefore not be
+ * shared between containers.
+ *
+ * @author agent (agent@local)
+ * @since 5.3.7
+ * @see DefaultMessageListenerContainer#setConsumerScalingPolicy
+ * @see SmoothConsumerScalingPolicy
+ */
+@FunctionalInterface
+public interface ConsumerScalingPolicy {
+
+	/**
+	 * Determine the number of consumers that the container should schedule,
+	 * given the statistics for the most recent scaling interval.
+	 * <p>The container adds consumers immediately if the returned count is higher
+	 * than the current count, and lets surplus consumers shut down once they
+	 * finish their current receive attempt if it is lower. Values outside of the
+	 * given bounds are adjusted to the nearest bound.
+	 * @param metrics the statistics for the most recent scaling interval
+	 * @param minConsumers the minimum number of consumers
+	 * (the container's "concurrentConsumers" setting)
+	 * @param maxConsumers the maximum number of consumers
+	 * (the container's "maxConcurrentConsumers" setting)
+	 * @return the number of consumers to schedule
+	 */
+	int determineConsumerCount(ConsumerScalingMetrics metrics, int minConsumers, int maxConsumers);
+
+}
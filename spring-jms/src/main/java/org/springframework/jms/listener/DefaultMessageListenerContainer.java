@@ -19,6 +19,10 @@ package org.springframework.jms.listener;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
 
 import javax.jms.Connection;
 import javax.jms.JMSException;
@@ -99,6 +103,16 @@ import org.springframework.util.backoff.FixedBackOff;
  * number of 1 consumer, otherwise you'd receive the same message multiple times on
  * the same node.
  *
+ * <p>For scaling that reacts to the actual processing load, specify a
+ * {@link #setConsumerScalingPolicy ConsumerScalingPolicy} such as
+ * {@link SmoothConsumerScalingPolicy}. The container then collects statistics on
+ * receive attempts and processing times for each
+ * {@link #setConsumerScalingInterval scaling interval}, optionally combined with
+ * the current {@link #setQueueDepthSupplier queue depth}, and lets the policy
+ * determine the number of consumers between "concurrentConsumers" and
+ * "maxConcurrentConsumers". The statistics of the most recent interval are
+ * available through {@link #getConsumerScalingMetrics()}.
+ *
  * <p><b>Note: Don't use Spring's {@link org.springframework.jms.connection.CachingConnectionFactory}
  * in combination with dynamic scaling.</b> Ideally, don't use it with a message
  * listener container at all, since it is generally preferable to let the
@@ -136,6 +150,12 @@ public class DefaultMessageListenerContainer extends AbstractPollingMessageListe
 	 */
 	public static final long DEFAULT_RECOVERY_INTERVAL = 5000;
 
+	/**
+	 * The default consumer scaling interval: 1000 ms = 1 second.
+	 * @since 5.3.7
+	 */
+	public static final long DEFAULT_CONSUMER_SCALING_INTERVAL = 1000;
+
 
 	/**
 	 * Constant that indicates to cache no JMS resources at all.
@@ -194,6 +214,29 @@ public class DefaultMessageListenerContainer extends AbstractPollingMessageListe
 
 	private int idleReceivesPerTaskLimit = Integer.MIN_VALUE;
 
+	@Nullable
+	private volatile ConsumerScalingPolicy consumerScalingPolicy;
+
+	private volatile long consumerScalingInterval = DEFAULT_CONSUMER_SCALING_INTERVAL;
+
+	@Nullable
+	private volatile LongSupplier queueDepthSupplier;
+
+	private int targetConsumerCount = 0;
+
+	private final LongAdder receiveCount = new LongAdder();
+
+	private final LongAdder emptyReceiveCount = new LongAdder();
+
+	private final LongAdder processingNanos = new LongAdder();
+
+	private final AtomicLong scalingIntervalStart = new AtomicLong(System.nanoTime());
+
+	@Nullable
+	private volatile ConsumerScalingMetrics consumerScalingMetrics;
+
+	private volatile boolean consumerScalingMetricsRequested;
+
 	private final Set<AsyncMessageListenerInvoker> scheduledInvokers = new HashSet<>();
 
 	private int activeInvokerCount = 0;
@@ -553,6 +596,84 @@ public class DefaultMessageListenerContainer extends AbstractPollingMessageListe
 		}
 	}
 
+	/**
+	 * Specify a policy for scaling the number of consumers between
+	 * "concurrentConsumers" and "maxConcurrentConsumers", replacing the default
+	 * scaling based on the "idleConsumerLimit" and "idleTaskExecutionLimit".
+	 * <p>The policy is consulted once per {@link #setConsumerScalingInterval
+	 * scaling interval}, on a consumer thread, with the statistics collected
+	 * for that interval. Policies are typically stateful: use a dedicated
+	 * instance for each listener container.
+	 * <p><b>This setting can be modified at runtime, for example through JMX.</b>
+	 * @since 5.3.7
+	 * @see SmoothConsumerScalingPolicy
+	 * @see #setMaxConcurrentConsumers
+	 */
+	public void setConsumerScalingPolicy(@Nullable ConsumerScalingPolicy consumerScalingPolicy) {
+		synchronized (this.lifecycleMonitor) {
+			this.consumerScalingPolicy = consumerScalingPolicy;
+			this.targetConsumerCount = 0;
+		}
+	}
+
+	/**
+	 * Return the policy for scaling the number of consumers, if any.
+	 * @since 5.3.7
+	 */
+	@Nullable
+	public ConsumerScalingPolicy getConsumerScalingPolicy() {
+		return this.consumerScalingPolicy;
+	}
+
+	/**
+	 * Specify the interval for collecting consumer statistics and consulting
+	 * the {@link #setConsumerScalingPolicy consumer scaling policy}, in milliseconds.
+	 * <p>Default is 1000. Since statistics are only collected by the consumers
+	 * themselves, the effective interval may be longer, up to the
+	 * {@link #setReceiveTimeout "receiveTimeout"} of an idle consumer.
+	 * @since 5.3.7
+	 */
+	public void setConsumerScalingInterval(long consumerScalingInterval) {
+		Assert.isTrue(consumerScalingInterval > 0, "'consumerScalingInterval' must be greater than 0");
+		this.consumerScalingInterval = consumerScalingInterval;
+	}
+
+	/**
+	 * Return the interval for collecting consumer statistics.
+	 * @since 5.3.7
+	 */
+	public long getConsumerScalingInterval() {
+		return this.consumerScalingInterval;
+	}
+
+	/**
+	 * Specify a supplier for the number of messages pending in the destination,
+	 * for example based on a JMX attribute of the broker, to be included in the
+	 * {@link #getConsumerScalingMetrics() consumer scaling metrics}.
+	 * <p>The supplier is called once per scaling interval on a consumer thread and
+	 * should therefore return quickly. A negative value indicates an unknown depth.
+	 * @since 5.3.7
+	 * @see ConsumerScalingMetrics#getQueueDepth()
+	 */
+	public void setQueueDepthSupplier(@Nullable LongSupplier queueDepthSupplier) {
+		this.queueDepthSupplier = queueDepthSupplier;
+	}
+
+	/**
+	 * Return the statistics collected for the consumers of this container
+	 * in the most recent scaling interval.
+	 * <p>Statistics are only collected while a {@link #setConsumerScalingPolicy
+	 * consumer scaling policy} is set, or once this method has been called.
+	 * @return the statistics, or {@code null} if no interval has completed yet
+	 * @since 5.3.7
+	 * @see #setConsumerScalingInterval
+	 */
+	@Nullable
+	public ConsumerScalingMetrics getConsumerScalingMetrics() {
+		this.consumerScalingMetricsRequested = true;
+		return this.consumerScalingMetrics;
+	}
+
 
 	//-------------------------------------------------------------------------
 	// Implementation of AbstractMessageListenerContainer's template methods
@@ -786,8 +907,18 @@ public class DefaultMessageListenerContainer extends AbstractPollingMessageListe
 	 */
 	@Override
 	protected void messageReceived(Object invoker, Session session) {
-		((AsyncMessageListenerInvoker) invoker).setIdle(false);
-		scheduleNewInvokerIfAppropriate();
+		AsyncMessageListenerInvoker asyncInvoker = (AsyncMessageListenerInvoker) invoker;
+		asyncInvoker.setIdle(false);
+		if (isCollectingConsumerScalingMetrics()) {
+			asyncInvoker.processingStarted();
+			this.receiveCount.increment();
+		}
+		if (this.consumerScalingPolicy == null) {
+			scheduleNewInvokerIfAppropriate();
+		}
+		else if (isRunning()) {
+			resumePausedTasks();
+		}
 	}
 
 	/**
@@ -796,6 +927,10 @@ public class DefaultMessageListenerContainer extends AbstractPollingMessageListe
 	@Override
 	protected void noMessageReceived(Object invoker, Session session) {
 		((AsyncMessageListenerInvoker) invoker).setIdle(true);
+		if (isCollectingConsumerScalingMetrics()) {
+			this.receiveCount.increment();
+			this.emptyReceiveCount.increment();
+		}
 	}
 
 	/**
@@ -831,12 +966,108 @@ public class DefaultMessageListenerContainer extends AbstractPollingMessageListe
 	 * that this invoker task has already accumulated (in a row)
 	 */
 	private boolean shouldRescheduleInvoker(int idleTaskExecutionCount) {
+		if (this.consumerScalingPolicy != null) {
+			return (this.scheduledInvokers.size() <= getConsumerLimit());
+		}
 		boolean superfluous =
 				(idleTaskExecutionCount >= this.idleTaskExecutionLimit && getIdleInvokerCount() > 1);
 		return (this.scheduledInvokers.size() <=
 				(superfluous ? this.concurrentConsumers : this.maxConcurrentConsumers));
 	}
 
+	/**
+	 * Determine the maximum number of consumers to keep scheduled: the
+	 * "maxConcurrentConsumers" value, or the consumer count determined
+	 * by the consumer scaling policy, if any.
+	 */
+	private int getConsumerLimit() {
+		if (this.consumerScalingPolicy != null && this.targetConsumerCount > 0) {
+			return Math.max(Math.min(this.targetConsumerCount, this.maxConcurrentConsumers), this.concurrentConsumers);
+		}
+		return this.maxConcurrentConsumers;
+	}
+
+	/**
+	 * Determine whether to collect consumer statistics: only if there is a
+	 * consumer scaling policy or someone asked for the metrics.
+	 */
+	private boolean isCollectingConsumerScalingMetrics() {
+		return (this.consumerScalingPolicy != null || this.consumerScalingMetricsRequested);
+	}
+
+	/**
+	 * Complete the current scaling interval if it has elapsed: capture the
+	 * collected statistics and consult the consumer scaling policy, if any,
+	 * scheduling new invokers right away if the policy asks for more consumers.
+	 * @see #setConsumerScalingPolicy
+	 * @see #getConsumerScalingMetrics()
+	 */
+	private void updateConsumerScalingIfNecessary() {
+		long now = System.nanoTime();
+		long intervalStart = this.scalingIntervalStart.get();
+		long intervalNanos = now - intervalStart;
+		if (intervalNanos < TimeUnit.MILLISECONDS.toNanos(this.consumerScalingInterval) ||
+				!this.scalingIntervalStart.compareAndSet(intervalStart, now)) {
+			return;
+		}
+		// Potentially slow user callback: not to be called with the lifecycle monitor held
+		long queueDepth = determineQueueDepth();
+		int minConsumers;
+		int maxConsumers;
+		ConsumerScalingMetrics metrics;
+		synchronized (this.lifecycleMonitor) {
+			minConsumers = this.concurrentConsumers;
+			maxConsumers = this.maxConcurrentConsumers;
+			metrics = new ConsumerScalingMetrics(intervalNanos, this.scheduledInvokers.size(),
+					this.activeInvokerCount, this.receiveCount.sumThenReset(),
+					this.emptyReceiveCount.sumThenReset(), this.processingNanos.sumThenReset(),
+					queueDepth);
+		}
+		this.consumerScalingMetrics = metrics;
+
+		ConsumerScalingPolicy policy = this.consumerScalingPolicy;
+		if (policy == null || !isRunning()) {
+			return;
+		}
+		int consumerCount;
+		try {
+			consumerCount = policy.determineConsumerCount(metrics, minConsumers, maxConsumers);
+		}
+		catch (RuntimeException ex) {
+			logger.warn("Consumer scaling policy failed to determine consumer count", ex);
+			return;
+		}
+		synchronized (this.lifecycleMonitor) {
+			if (this.consumerScalingPolicy != policy) {
+				return;
+			}
+			this.targetConsumerCount = consumerCount;
+			int consumerLimit = getConsumerLimit();
+			if (logger.isDebugEnabled() && consumerLimit != this.scheduledInvokers.size()) {
+				logger.debug("Adjusting scheduled invoker count from " + this.scheduledInvokers.size() +
+						" to " + consumerLimit + " based on " + metrics);
+			}
+			while (this.scheduledInvokers.size() < consumerLimit && isRunning()) {
+				scheduleNewInvoker();
+			}
+		}
+	}
+
+	private long determineQueueDepth() {
+		LongSupplier queueDepthSupplier = this.queueDepthSupplier;
+		if (queueDepthSupplier != null) {
+			try {
+				return Math.max(queueDepthSupplier.getAsLong(), -1);
+			}
+			catch (RuntimeException ex) {
+				if (logger.isDebugEnabled()) {
+					logger.debug("Failed to determine queue depth for consumer scaling", ex);
+				}
+			}
+		}
+		return -1;
+	}
+
 	/**
 	 * Determine whether this listener container currently has more
 	 * than one idle instance among its scheduled invokers.
@@ -1106,6 +1337,8 @@ public class DefaultMessageListenerContainer extends AbstractPollingMessageListe
 		@Nullable
 		private volatile Thread currentReceiveThread;
 
+		private long processingStartTime;
+
 		@Override
 		public void run() {
 			synchronized (lifecycleMonitor) {
@@ -1219,7 +1452,7 @@ public class DefaultMessageListenerContainer extends AbstractPollingMessageListe
 					if (wasWaiting) {
 						activeInvokerCount++;
 					}
-					if (scheduledInvokers.size() > maxConcurrentConsumers) {
+					if (scheduledInvokers.size() > getConsumerLimit()) {
 						active = false;
 					}
 				}
@@ -1240,6 +1473,21 @@ public class DefaultMessageListenerContainer extends AbstractPollingMessageListe
 			}
 			finally {
 				this.currentReceiveThread = null;
+				processingCompleted();
+			}
+		}
+
+		private void processingStarted() {
+			this.processingStartTime = System.nanoTime();
+		}
+
+		private void processingCompleted() {
+			if (this.processingStartTime != 0) {
+				processingNanos.add(System.nanoTime() - this.processingStartTime);
+				this.processingStartTime = 0;
+			}
+			if (isCollectingConsumerScalingMetrics()) {
+				updateConsumerScalingIfNecessary();
 			}
 		}
 
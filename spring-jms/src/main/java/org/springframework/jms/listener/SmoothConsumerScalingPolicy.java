@@ -0,0 +1,189 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jms.listener;
+
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.util.Assert;
+
+/**
+ * Default {@link ConsumerScalingPolicy}, sizing the number of consumers
+ * according to the observed demand while avoiding oscillation.
+ *
+ * <p>The demand for consumers is estimated from the utilization of the current
+ * consumers, i.e. the fraction of time they spent processing messages, relative
+ * to a {@link #setTargetUtilization target utilization}. If every receive attempt
+ * returned a message, the consumers are considered saturated and at least one more
+ * consumer is requested. If the queue depth is known, enough consumers to drain
+ * the pending messages within the {@link #setBacklogDrainTime backlog drain time}
+ * are requested as well, based on the average processing time.
+ *
+ * <p>Consumers are added as soon as the demand exceeds the current number,
+ * at most doubling the number of consumers per scaling interval. Consumers are
+ * removed one at a time, only once both the demand and the
+ * {@link #setSmoothingFactor smoothed} demand have been below the current number
+ * for a number of {@link #setScaleDownIntervals consecutive intervals}, and only
+ * while some receive attempts actually time out.
+ *
+ * <p>Instances hold state for a single listener container and must not be
+ * shared between containers.
+ *
+ * @author agent (agent@local)
+ * @since 5.3.7
+ */
+public class SmoothConsumerScalingPolicy implements ConsumerScalingPolicy {
+
+	private double targetUtilization = 0.75;
+
+	private double smoothingFactor = 0.5;
+
+	private int scaleDownIntervals = 3;
+
+	private long backlogDrainTime = 5000;
+
+	private double smoothedDemand = -1;
+
+	private int scaleDownCount;
+
+
+	/**
+	 * Set the fraction of time that consumers should spend processing messages,
+	 * between 0 (exclusive) and 1 (inclusive).
+	 * <p>Default is 0.75, leaving headroom for bursts.
+	 */
+	public void setTargetUtilization(double targetUtilization) {
+		Assert.isTrue(targetUtilization > 0 && targetUtilization <= 1,
+				"'targetUtilization' must be greater than 0 and not greater than 1");
+		this.targetUtilization = targetUtilization;
+	}
+
+	/**
+	 * Return the target utilization of consumers.
+	 */
+	public double getTargetUtilization() {
+		return this.targetUtilization;
+	}
+
+	/**
+	 * Set the weight of the most recent interval in the smoothed demand that
+	 * consumers are removed against, between 0 (exclusive) and 1 (inclusive).
+	 * <p>Default is 0.5. Lower values make the removal of consumers less
+	 * sensitive to short dips in load.
+	 */
+	public void setSmoothingFactor(double smoothingFactor) {
+		Assert.isTrue(smoothingFactor > 0 && smoothingFactor <= 1,
+				"'smoothingFactor' must be greater than 0 and not greater than 1");
+		this.smoothingFactor = smoothingFactor;
+	}
+
+	/**
+	 * Return the weight of the most recent interval in the smoothed demand.
+	 */
+	public double getSmoothingFactor() {
+		return this.smoothingFactor;
+	}
+
+	/**
+	 * Set the number of consecutive scaling intervals with a smoothed demand below
+	 * the current number of consumers before a consumer is removed.
+	 * <p>Default is 3.
+	 */
+	public void setScaleDownIntervals(int scaleDownIntervals) {
+		Assert.isTrue(scaleDownIntervals > 0, "'scaleDownIntervals' must be 1 or higher");
+		this.scaleDownIntervals = scaleDownIntervals;
+	}
+
+	/**
+	 * Return the number of consecutive scaling intervals before a consumer is removed.
+	 */
+	public int getScaleDownIntervals() {
+		return this.scaleDownIntervals;
+	}
+
+	/**
+	 * Set the time within which a known backlog of pending messages should
+	 * be drained, in milliseconds.
+	 * <p>Default is 5000. Only applies if the listener container has been
+	 * configured with a {@link DefaultMessageListenerContainer#setQueueDepthSupplier
+	 * queue depth supplier}.
+	 */
+	public void setBacklogDrainTime(long backlogDrainTime) {
+		Assert.isTrue(backlogDrainTime > 0, "'backlogDrainTime' must be greater than 0");
+		this.backlogDrainTime = backlogDrainTime;
+	}
+
+	/**
+	 * Return the time within which a known backlog should be drained.
+	 */
+	public long getBacklogDrainTime() {
+		return this.backlogDrainTime;
+	}
+
+
+	@Override
+	public synchronized int determineConsumerCount(ConsumerScalingMetrics metrics, int minConsumers, int maxConsumers) {
+		int consumerCount = metrics.getConsumerCount();
+		double demand = determineDemand(metrics, maxConsumers);
+		this.smoothedDemand = (this.smoothedDemand < 0 ? demand :
+				this.smoothingFactor * demand + (1 - this.smoothingFactor) * this.smoothedDemand);
+
+		int requiredCount = toConsumerCount(demand);
+		if (requiredCount > consumerCount) {
+			this.scaleDownCount = 0;
+			return Math.min(requiredCount, Math.max(consumerCount * 2, minConsumers));
+		}
+		if (requiredCount < consumerCount && toConsumerCount(this.smoothedDemand) < consumerCount &&
+				metrics.getEmptyReceiveCount() > 0) {
+			if (++this.scaleDownCount >= this.scaleDownIntervals) {
+				this.scaleDownCount = 0;
+				return consumerCount - 1;
+			}
+		}
+		else {
+			this.scaleDownCount = 0;
+		}
+		return consumerCount;
+	}
+
+	/**
+	 * Estimate the number of consumers required for the given statistics.
+	 * @param metrics the statistics for the most recent scaling interval
+	 * @param maxConsumers the maximum number of consumers
+	 * @return the estimated number of consumers, possibly fractional
+	 */
+	protected double determineDemand(ConsumerScalingMetrics metrics, int maxConsumers) {
+		int consumerCount = metrics.getConsumerCount();
+		double demand = metrics.getUtilization() * consumerCount / this.targetUtilization;
+		if (metrics.getMessageCount() > 0 && metrics.getEmptyReceiveCount() == 0 && consumerCount < maxConsumers) {
+			// Every receive attempt returned a message: there is more work than consumers
+			demand = Math.max(demand, consumerCount + 1);
+		}
+		long queueDepth = metrics.getQueueDepth();
+		long averageProcessingNanos = metrics.getAverageProcessingNanos();
+		if (queueDepth > 0 && averageProcessingNanos > 0) {
+			double drainNanos = TimeUnit.MILLISECONDS.toNanos(this.backlogDrainTime);
+			demand = Math.max(demand, queueDepth * averageProcessingNanos / drainNanos);
+		}
+		return demand;
+	}
+
+	private static int toConsumerCount(double demand) {
+		// Tolerate rounding errors right above a whole number of consumers
+		return (int) Math.ceil(demand - 0.001);
+	}
+
+}
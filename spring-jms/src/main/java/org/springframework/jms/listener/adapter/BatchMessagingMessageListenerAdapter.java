@@ -0,0 +1,111 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jms.listener.adapter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.jms.JMSException;
+import javax.jms.Session;
+
+import org.springframework.jms.listener.BatchMessageListener;
+import org.springframework.lang.Nullable;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.util.Assert;
+
+/**
+ * A {@link MessagingMessageListenerAdapter} for handler methods that process
+ * a batch of messages through a {@link List} parameter.
+ *
+ * <p>The handler method is invoked with a {@link Message} whose payload is the
+ * list of batch elements, created from the received JMS messages according to
+ * the configured {@link #setElementType element type}: the JMS messages as-is,
+ * Spring {@link Message Messages}, or the message bodies extracted through the
+ * configured {@link org.springframework.jms.support.converter.MessageConverter}.
+ * The JMS {@link Session} is provided as an additional argument.
+ *
+ * <p>Return values are not supported since there is no single message to
+ * reply to.
+ *
+ * @author agent (agent@local)
+ * @since 5.3.7
+ * @see BatchMessageListener
+ * @see org.springframework.jms.listener.AbstractPollingMessageListenerContainer#setBatchSize
+ */
+public class BatchMessagingMessageListenerAdapter extends MessagingMessageListenerAdapter
+		implements BatchMessageListener {
+
+	private Class<?> elementType = Object.class;
+
+
+	/**
+	 * Set the declared element type of the batch parameter of the handler method.
+	 * <p>Default is {@code Object}, passing the extracted message bodies.
+	 */
+	public void setElementType(Class<?> elementType) {
+		Assert.notNull(elementType, "Element type must not be null");
+		this.elementType = elementType;
+	}
+
+	/**
+	 * Return the declared element type of the batch parameter.
+	 */
+	public Class<?> getElementType() {
+		return this.elementType;
+	}
+
+
+	@Override
+	public void onMessage(javax.jms.Message jmsMessage, @Nullable Session session) throws JMSException {
+		onMessages(Collections.singletonList(jmsMessage), session);
+	}
+
+	@Override
+	public void onMessages(List<javax.jms.Message> jmsMessages, @Nullable Session session) throws JMSException {
+		List<Object> elements = new ArrayList<>(jmsMessages.size());
+		for (javax.jms.Message jmsMessage : jmsMessages) {
+			elements.add(toBatchElement(jmsMessage));
+		}
+		Message<List<Object>> message = MessageBuilder.withPayload(elements).build();
+		if (logger.isDebugEnabled()) {
+			logger.debug("Processing batch of " + elements.size() + " messages");
+		}
+		Object result = invokeHandler(message, session);
+		if (result != null && logger.isWarnEnabled()) {
+			logger.warn("Listener method returned result [" + result +
+					"]: not generating response message for a batch of messages");
+		}
+	}
+
+	/**
+	 * Create the element to pass to the handler method for the given JMS message.
+	 * @param jmsMessage the received JMS message
+	 * @return the JMS message, a Spring {@link Message}, or the extracted message body
+	 */
+	protected Object toBatchElement(javax.jms.Message jmsMessage) {
+		if (javax.jms.Message.class.isAssignableFrom(this.elementType)) {
+			return jmsMessage;
+		}
+		if (Message.class.isAssignableFrom(this.elementType)) {
+			return toMessagingMessage(jmsMessage);
+		}
+		return extractMessage(jmsMessage);
+	}
+
+}
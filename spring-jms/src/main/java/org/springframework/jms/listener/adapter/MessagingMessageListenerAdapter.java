@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2017 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -74,7 +74,7 @@ public class MessagingMessageListenerAdapter extends AbstractAdaptableMessageLis
 		if (logger.isDebugEnabled()) {
 			logger.debug("Processing [" + message + "]");
 		}
-		Object result = invokeHandler(jmsMessage, session, message);
+		Object result = invokeHandler(message, jmsMessage, session);
 		if (result != null) {
 			handleResult(result, jmsMessage, session);
 		}
@@ -106,12 +106,16 @@ public class MessagingMessageListenerAdapter extends AbstractAdaptableMessageLis
 	/**
 	 * Invoke the handler, wrapping any exception to a {@link ListenerExecutionFailedException}
 	 * with a dedicated error message.
+	 * @param message the message to resolve handler method arguments from
+	 * @param providedArgs further argument values to match by type, such as
+	 * the original JMS message and the JMS Session
+	 * @since 5.3.7
 	 */
 	@Nullable
-	private Object invokeHandler(javax.jms.Message jmsMessage, @Nullable Session session, Message<?> message) {
+	protected Object invokeHandler(Message<?> message, @Nullable Object... providedArgs) {
 		InvocableHandlerMethod handlerMethod = getHandlerMethod();
 		try {
-			return handlerMethod.invoke(message, jmsMessage, session);
+			return handlerMethod.invoke(message, providedArgs);
 		}
 		catch (MessagingException ex) {
 			throw new ListenerExecutionFailedException(
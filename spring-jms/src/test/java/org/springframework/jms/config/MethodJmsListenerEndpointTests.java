@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -20,6 +20,7 @@ import java.io.Serializable;
 import java.lang.reflect.Method;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import javax.jms.Destination;
@@ -40,6 +41,7 @@ import org.springframework.jms.StubTextMessage;
 import org.springframework.jms.listener.DefaultMessageListenerContainer;
 import org.springframework.jms.listener.MessageListenerContainer;
 import org.springframework.jms.listener.SimpleMessageListenerContainer;
+import org.springframework.jms.listener.adapter.BatchMessagingMessageListenerAdapter;
 import org.springframework.jms.listener.adapter.ListenerExecutionFailedException;
 import org.springframework.jms.listener.adapter.MessagingMessageListenerAdapter;
 import org.springframework.jms.listener.adapter.ReplyFailureException;
@@ -236,6 +238,49 @@ class MethodJmsListenerEndpointTests {
 		assertDefaultListenerMethodInvocation();
 	}
 
+	@Test
+	void resolveBatchPayloads() throws JMSException {
+		this.container.setBatchSize(10);
+		MessagingMessageListenerAdapter listener = createInstance(this.factory,
+				getDefaultListenerMethod(List.class), this.container);
+		assertThat(listener).isInstanceOf(BatchMessagingMessageListenerAdapter.class);
+
+		Session session = mock(Session.class);
+		((BatchMessagingMessageListenerAdapter) listener).onMessages(Arrays.asList(
+				createSimpleJmsTextMessage("first"), createSimpleJmsTextMessage("second")), session);
+		assertDefaultListenerMethodInvocation();
+	}
+
+	@Test
+	void resolveBatchMessagesAndSession() throws JMSException {
+		this.container.setBatchSize(10);
+		MessagingMessageListenerAdapter listener = createInstance(this.factory,
+				getDefaultListenerMethod(List.class, Session.class), this.container);
+		assertThat(listener).isInstanceOf(BatchMessagingMessageListenerAdapter.class);
+
+		Session session = mock(Session.class);
+		((BatchMessagingMessageListenerAdapter) listener).onMessages(Arrays.asList(
+				createSimpleJmsTextMessage("first"), createSimpleJmsTextMessage("second")), session);
+		assertDefaultListenerMethodInvocation();
+	}
+
+	@Test
+	void resolveSingleMessageAsBatch() throws JMSException {
+		this.container.setBatchSize(10);
+		MessagingMessageListenerAdapter listener = createInstance(this.factory,
+				getListenerMethod("resolveBatchPayloads", List.class), this.container);
+
+		listener.onMessage(createSimpleJmsTextMessage("first"), mock(Session.class));
+		assertListenerMethodInvocation(this.sample, "resolveBatchPayloads");
+	}
+
+	@Test
+	void noBatchListenerWithoutBatchSize() {
+		MessagingMessageListenerAdapter listener = createInstance(this.factory,
+				getListenerMethod("resolveBatchPayloads", List.class), this.container);
+		assertThat(listener).isNotInstanceOf(BatchMessagingMessageListenerAdapter.class);
+	}
+
 	@Test
 	void processAndReply() throws JMSException {
 		MessagingMessageListenerAdapter listener = createDefaultInstance(String.class);
@@ -585,6 +630,19 @@ class MethodJmsListenerEndpointTests {
 			assertThat(counter).as("Wrong content for payload").isEqualTo(Integer.valueOf(33));
 		}
 
+		public void resolveBatchPayloads(List<String> contents) {
+			this.invocations.put("resolveBatchPayloads", true);
+			assertThat(contents).as("Batch payloads not injected").isNotEmpty();
+			assertThat(contents.get(0)).as("Wrong content for payload").isEqualTo("first");
+		}
+
+		public void resolveBatchMessagesAndSession(List<javax.jms.Message> messages, Session session) throws JMSException {
+			this.invocations.put("resolveBatchMessagesAndSession", true);
+			assertThat(messages).as("Batch messages not injected").hasSize(2);
+			assertThat(((TextMessage) messages.get(1)).getText()).as("Wrong message").isEqualTo("second");
+			assertThat(session).as("Session not injected").isNotNull();
+		}
+
 		public String processAndReply(@Payload String content) {
 			this.invocations.put("processAndReply", true);
 			return content;
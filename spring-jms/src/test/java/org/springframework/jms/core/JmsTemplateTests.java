@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -18,8 +18,12 @@ package org.springframework.jms.core;
 
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
+import javax.jms.CompletionListener;
 import javax.jms.Connection;
 import javax.jms.ConnectionFactory;
 import javax.jms.DeliveryMode;
@@ -36,6 +40,7 @@ import javax.naming.Context;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 
 import org.springframework.jms.InvalidClientIDException;
 import org.springframework.jms.InvalidDestinationException;
@@ -64,9 +69,14 @@ import org.springframework.transaction.support.TransactionSynchronizationManager
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.BDDMockito.willThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
 /**
@@ -445,6 +455,129 @@ class JmsTemplateTests {
 		verify(this.connection).close();
 	}
 
+	@Test
+	void testSendBatch() throws Exception {
+		JmsTemplate template = createTemplate();
+		template.setConnectionFactory(this.connectionFactory);
+		template.setSendBatchSize(2);
+
+		Session batchSession = mock(Session.class);
+		MessageProducer messageProducer = mock(MessageProducer.class);
+		TextMessage textMessage = mock(TextMessage.class);
+
+		given(this.connection.createSession(true, Session.SESSION_TRANSACTED)).willReturn(batchSession);
+		given(batchSession.getTransacted()).willReturn(true);
+		given(batchSession.createProducer(this.queue)).willReturn(messageProducer);
+		given(batchSession.createTextMessage("Hello world")).willReturn(textMessage);
+
+		template.convertAndSendBatch(this.queue, Arrays.asList("Hello world", "Hello world", "Hello world"));
+
+		verify(batchSession).createProducer(this.queue);
+		verify(messageProducer, times(3)).send(textMessage);
+		verify(batchSession, times(2)).commit();
+		verify(messageProducer).close();
+		verify(batchSession).close();
+		verify(this.connection).close();
+	}
+
+	@Test
+	void testSendBatchRollsBackFailedBatch() throws Exception {
+		JmsTemplate template = createTemplate();
+		template.setConnectionFactory(this.connectionFactory);
+		template.setSendBatchSize(2);
+
+		Session batchSession = mock(Session.class);
+		MessageProducer messageProducer = mock(MessageProducer.class);
+		TextMessage textMessage = mock(TextMessage.class);
+		TextMessage failingMessage = mock(TextMessage.class);
+
+		given(this.connection.createSession(true, Session.SESSION_TRANSACTED)).willReturn(batchSession);
+		given(batchSession.getTransacted()).willReturn(true);
+		given(batchSession.createProducer(this.queue)).willReturn(messageProducer);
+		willThrow(new javax.jms.IllegalStateException("broken")).given(messageProducer).send(failingMessage);
+
+		assertThatExceptionOfType(org.springframework.jms.IllegalStateException.class).isThrownBy(() ->
+				template.sendBatch(this.queue, Arrays.<MessageCreator>asList(
+						session -> textMessage, session -> textMessage, session -> failingMessage)));
+
+		verify(batchSession).commit();
+		verify(batchSession).rollback();
+		verify(messageProducer).close();
+		verify(batchSession).close();
+		verify(this.connection).close();
+	}
+
+	@Test
+	void testSendAsync() throws Exception {
+		JmsTemplate template = createTemplate();
+		template.setConnectionFactory(this.connectionFactory);
+
+		MessageProducer messageProducer = mock(MessageProducer.class);
+		TextMessage textMessage = mock(TextMessage.class);
+
+		given(this.session.createProducer(this.queue)).willReturn(messageProducer);
+		given(this.session.createTextMessage("Hello world")).willReturn(textMessage);
+
+		CompletableFuture<Message> future = template.convertAndSendAsync(this.queue, "Hello world");
+
+		ArgumentCaptor<CompletionListener> listener = ArgumentCaptor.forClass(CompletionListener.class);
+		verify(messageProducer).send(any(Message.class), listener.capture());
+		verify(messageProducer, never()).send(textMessage);
+		assertThat(future).isNotDone();
+
+		listener.getValue().onCompletion(textMessage);
+		assertThat(future).isCompletedWithValue(textMessage);
+		verify(messageProducer).close();
+		verify(this.session).close();
+		verify(this.connection).close();
+	}
+
+	@Test
+	void testSendAsyncWithFailure() throws Exception {
+		JmsTemplate template = createTemplate();
+		template.setConnectionFactory(this.connectionFactory);
+		template.setQosSettings(this.qosSettings);
+
+		MessageProducer messageProducer = mock(MessageProducer.class);
+		TextMessage textMessage = mock(TextMessage.class);
+
+		given(this.session.createProducer(this.queue)).willReturn(messageProducer);
+
+		CompletableFuture<Message> future = template.sendAsync(this.queue, session -> textMessage);
+
+		ArgumentCaptor<CompletionListener> listener = ArgumentCaptor.forClass(CompletionListener.class);
+		verify(messageProducer).send(any(Message.class), anyInt(), anyInt(), anyLong(), listener.capture());
+		listener.getValue().onException(textMessage, new javax.jms.InvalidDestinationException("gone"));
+		assertThat(future).isCompletedExceptionally();
+		assertThatExceptionOfType(Exception.class).isThrownBy(future::join)
+				.withCauseInstanceOf(InvalidDestinationException.class);
+	}
+
+	@Test
+	void testSendAsyncWithinInFlightLimit() throws Exception {
+		JmsTemplate template = createTemplate();
+		template.setConnectionFactory(this.connectionFactory);
+		template.setMaxAsyncSendsInFlight(1);
+
+		MessageProducer messageProducer = mock(MessageProducer.class);
+		TextMessage textMessage = mock(TextMessage.class);
+
+		given(this.session.createProducer(this.queue)).willReturn(messageProducer);
+
+		CompletableFuture<Message> first = template.sendAsync(this.queue, session -> textMessage);
+		ArgumentCaptor<CompletionListener> listener = ArgumentCaptor.forClass(CompletionListener.class);
+		verify(messageProducer).send(any(Message.class), listener.capture());
+
+		CompletableFuture<CompletableFuture<Message>> second =
+				CompletableFuture.supplyAsync(() -> template.sendAsync(this.queue, session -> textMessage));
+		Thread.sleep(100);
+		assertThat(second).isNotDone();
+
+		listener.getValue().onCompletion(textMessage);
+		assertThat(first).isCompletedWithValue(textMessage);
+		assertThat(second.get(5, TimeUnit.SECONDS)).isNotDone();
+	}
+
 	@Test
 	void testReceiveDefaultDestination() throws Exception {
 		doTestReceive(true, true, false, false, false, false, JmsTemplate.RECEIVE_TIMEOUT_INDEFINITE_WAIT);
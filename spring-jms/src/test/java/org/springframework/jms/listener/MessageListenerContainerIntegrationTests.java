@@ -16,13 +16,18 @@
 
 package org.springframework.jms.listener;
 
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.jms.JMSException;
+import javax.jms.Message;
 import javax.jms.Session;
 import javax.jms.TextMessage;
 
@@ -73,6 +78,96 @@ public class MessageListenerContainerIntegrationTests {
 		testMessageListenerContainer(mlc);
 	}
 
+	@Test
+	public void defaultMessageListenerContainerWithConsumerScalingPolicy() throws InterruptedException {
+		DefaultMessageListenerContainer mlc = new DefaultMessageListenerContainer();
+		mlc.setConcurrentConsumers(1);
+		mlc.setMaxConcurrentConsumers(3);
+		mlc.setReceiveTimeout(100);
+		mlc.setConsumerScalingPolicy(new SmoothConsumerScalingPolicy());
+		mlc.setConsumerScalingInterval(1);
+		mlc.setQueueDepthSupplier(() -> 0);
+
+		testMessageListenerContainer(mlc);
+		assertThat(mlc.getConsumerScalingMetrics()).isNotNull();
+		assertThat(mlc.getConsumerScalingMetrics().getQueueDepth()).isEqualTo(0);
+	}
+
+	@Test
+	public void defaultMessageListenerContainerWithoutConsumerScalingPolicy() throws InterruptedException {
+		DefaultMessageListenerContainer mlc = new DefaultMessageListenerContainer();
+		mlc.setReceiveTimeout(100);
+		mlc.setConsumerScalingInterval(1);
+
+		testMessageListenerContainer(mlc);
+		assertThat(mlc.getConsumerScalingMetrics()).isNull();
+	}
+
+	@Test
+	public void defaultMessageListenerContainerWithBatchSize() throws InterruptedException {
+		DefaultMessageListenerContainer mlc = new DefaultMessageListenerContainer();
+		mlc.setSessionTransacted(true);
+		mlc.setBatchSize(10);
+		mlc.setBatchTimeout(100);
+
+		testMessageListenerContainer(mlc);
+	}
+
+	@Test
+	public void defaultMessageListenerContainerWithBatchMessageListener() throws Exception {
+		ActiveMQConnectionFactory aqcf = new ActiveMQConnectionFactory("vm://localhost?broker.persistent=false");
+		JmsTemplate jt = new JmsTemplate(aqcf);
+		jt.setDefaultDestinationName("batch");
+		for (int i = 0; i < 5; i++) {
+			jt.convertAndSend("text" + i);
+		}
+
+		TestBatchMessageListener tbml = new TestBatchMessageListener(5, false);
+		DefaultMessageListenerContainer mlc = new DefaultMessageListenerContainer();
+		mlc.setConnectionFactory(aqcf);
+		mlc.setMessageListener(tbml);
+		mlc.setDestinationName("batch");
+		mlc.setSessionTransacted(true);
+		mlc.setBatchSize(10);
+		mlc.setBatchTimeout(2000);
+		mlc.afterPropertiesSet();
+		mlc.start();
+
+		assertThat(tbml.await()).isTrue();
+		assertThat(tbml.batches).hasSize(1);
+		assertThat(tbml.batches.get(0)).containsExactly("text0", "text1", "text2", "text3", "text4");
+
+		mlc.destroy();
+	}
+
+	@Test
+	public void defaultMessageListenerContainerWithBatchRolledBack() throws Exception {
+		ActiveMQConnectionFactory aqcf = new ActiveMQConnectionFactory("vm://localhost?broker.persistent=false");
+		JmsTemplate jt = new JmsTemplate(aqcf);
+		jt.setDefaultDestinationName("batch.rollback");
+		for (int i = 0; i < 3; i++) {
+			jt.convertAndSend("text" + i);
+		}
+
+		TestBatchMessageListener tbml = new TestBatchMessageListener(3, true);
+		DefaultMessageListenerContainer mlc = new DefaultMessageListenerContainer();
+		mlc.setConnectionFactory(aqcf);
+		mlc.setMessageListener(tbml);
+		mlc.setDestinationName("batch.rollback");
+		mlc.setSessionTransacted(true);
+		mlc.setBatchSize(10);
+		mlc.setBatchTimeout(500);
+		mlc.afterPropertiesSet();
+		mlc.start();
+
+		assertThat(tbml.await()).isTrue();
+		assertThat(tbml.redelivered.get()).isTrue();
+		assertThat(tbml.batches.stream().flatMap(List::stream))
+				.containsExactlyInAnyOrder("text0", "text1", "text2");
+
+		mlc.destroy();
+	}
+
 	private void testMessageListenerContainer(AbstractMessageListenerContainer mlc) throws InterruptedException {
 		ActiveMQConnectionFactory aqcf = new ActiveMQConnectionFactory("vm://localhost?broker.persistent=false");
 		TestMessageListener tml = new TestMessageListener();
@@ -116,4 +211,43 @@ public class MessageListenerContainerIntegrationTests {
 		}
 	}
 
+
+	private static class TestBatchMessageListener implements BatchMessageListener {
+
+		private final CountDownLatch latch;
+
+		private final AtomicBoolean failFirst;
+
+		private final AtomicBoolean redelivered = new AtomicBoolean();
+
+		private final List<List<String>> batches = new CopyOnWriteArrayList<>();
+
+		TestBatchMessageListener(int expectedMessages, boolean failFirst) {
+			this.latch = new CountDownLatch(expectedMessages);
+			this.failFirst = new AtomicBoolean(failFirst);
+		}
+
+		@Override
+		public void onMessages(List<Message> messages, Session session) throws JMSException {
+			if (this.failFirst.compareAndSet(true, false)) {
+				throw new IllegalStateException("Batch rejected");
+			}
+			List<String> texts = new ArrayList<>(messages.size());
+			for (Message message : messages) {
+				texts.add(((TextMessage) message).getText());
+				if (message.getJMSRedelivered()) {
+					this.redelivered.set(true);
+				}
+			}
+			this.batches.add(texts);
+			for (int i = 0; i < messages.size(); i++) {
+				this.latch.countDown();
+			}
+		}
+
+		public boolean await() throws InterruptedException {
+			return this.latch.await(10, TimeUnit.SECONDS);
+		}
+	}
+
 }
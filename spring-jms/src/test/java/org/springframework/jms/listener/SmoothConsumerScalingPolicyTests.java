@@ -0,0 +1,123 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jms.listener;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link SmoothConsumerScalingPolicy}.
+ *
+ * @author agent (agent@local)
+ */
+class SmoothConsumerScalingPolicyTests {
+
+	private static final long INTERVAL = TimeUnit.SECONDS.toNanos(1);
+
+	private final SmoothConsumerScalingPolicy policy = new SmoothConsumerScalingPolicy();
+
+
+	@Test
+	void scaleUpWhenSaturated() {
+		// 2 consumers busy all the time, no receive timeouts
+		ConsumerScalingMetrics metrics = metrics(2, 200, 0, 2 * INTERVAL, -1);
+
+		assertThat(this.policy.determineConsumerCount(metrics, 1, 10)).isEqualTo(3);
+	}
+
+	@Test
+	void scaleUpAtMostDoubling() {
+		ConsumerScalingMetrics metrics = metrics(2, 200, 0, 2 * INTERVAL, 10_000);
+
+		assertThat(this.policy.determineConsumerCount(metrics, 1, 10)).isEqualTo(4);
+	}
+
+	@Test
+	void scaleUpForBacklog() {
+		// 10ms per message, 1000 pending messages to drain within 5 seconds -> 2 consumers
+		ConsumerScalingMetrics metrics = metrics(1, 50, 10, TimeUnit.MILLISECONDS.toNanos(400), 1000);
+
+		assertThat(this.policy.determineConsumerCount(metrics, 1, 10)).isEqualTo(2);
+	}
+
+	@Test
+	void keepConsumersAtTargetUtilization() {
+		// 4 consumers, 70% busy
+		ConsumerScalingMetrics metrics = metrics(4, 100, 20, INTERVAL * 28 / 10, -1);
+
+		for (int i = 0; i < 10; i++) {
+			assertThat(this.policy.determineConsumerCount(metrics, 1, 10)).isEqualTo(4);
+		}
+	}
+
+	@Test
+	void scaleDownGraduallyWhenIdle() {
+		this.policy.setScaleDownIntervals(2);
+		ConsumerScalingMetrics idle = metrics(4, 40, 40, 0, -1);
+
+		assertThat(this.policy.determineConsumerCount(idle, 1, 10)).isEqualTo(4);
+		assertThat(this.policy.determineConsumerCount(idle, 1, 10)).isEqualTo(3);
+		idle = metrics(3, 30, 30, 0, -1);
+		assertThat(this.policy.determineConsumerCount(idle, 1, 10)).isEqualTo(3);
+		assertThat(this.policy.determineConsumerCount(idle, 1, 10)).isEqualTo(2);
+	}
+
+	@Test
+	void noScaleDownAfterShortDip() {
+		this.policy.setScaleDownIntervals(2);
+		ConsumerScalingMetrics busy = metrics(4, 100, 20, INTERVAL * 28 / 10, -1);
+		ConsumerScalingMetrics idle = metrics(4, 40, 40, 0, -1);
+
+		assertThat(this.policy.determineConsumerCount(busy, 1, 10)).isEqualTo(4);
+		assertThat(this.policy.determineConsumerCount(idle, 1, 10)).isEqualTo(4);
+		assertThat(this.policy.determineConsumerCount(busy, 1, 10)).isEqualTo(4);
+		assertThat(this.policy.determineConsumerCount(idle, 1, 10)).isEqualTo(4);
+	}
+
+	@Test
+	void noScaleDownWithoutReceiveTimeouts() {
+		this.policy.setScaleDownIntervals(1);
+		// Fast messages keeping 4 consumers receiving, at low utilization
+		ConsumerScalingMetrics metrics = metrics(4, 1000, 0, INTERVAL / 10, -1);
+
+		assertThat(this.policy.determineConsumerCount(metrics, 1, 4)).isEqualTo(4);
+	}
+
+	@Test
+	void derivedMetrics() {
+		ConsumerScalingMetrics metrics = metrics(2, 100, 20, INTERVAL, 5);
+
+		assertThat(metrics.getMessageCount()).isEqualTo(80);
+		assertThat(metrics.getEmptyReceiveRatio()).isEqualTo(0.2);
+		assertThat(metrics.getAverageProcessingNanos()).isEqualTo(INTERVAL / 80);
+		assertThat(metrics.getUtilization()).isEqualTo(0.5);
+		assertThat(metrics.getQueueDepth()).isEqualTo(5);
+		assertThat(metrics.getIntervalMillis()).isEqualTo(1000);
+	}
+
+
+	private static ConsumerScalingMetrics metrics(int consumers, long receives, long emptyReceives,
+			long processingNanos, long queueDepth) {
+
+		return new ConsumerScalingMetrics(INTERVAL, consumers, consumers, receives, emptyReceives,
+				processingNanos, queueDepth);
+	}
+
+}
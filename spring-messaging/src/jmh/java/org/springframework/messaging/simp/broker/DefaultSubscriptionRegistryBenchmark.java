@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -40,7 +40,7 @@ public class DefaultSubscriptionRegistryBenchmark {
 
 	@State(Scope.Benchmark)
 	public static class ServerState {
-		@Param("1000")
+		@Param({"1000", "100000"})
 		public int sessions;
 
 		@Param("10")
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.messaging.support;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Compares {@link ExecutorSubscribableChannel} with {@link BatchingExecutorSubscribableChannel}
+ * for workloads similar to the {@code clientInboundChannel}, where several
+ * message handlers are subscribed, and the {@code clientOutboundChannel},
+ * where a single handler writes to WebSocket sessions.
+ *
+ * <p>Messages are sent for several sessions on a multi-threaded executor, with
+ * handlers that either return immediately or take some time, as a slow
+ * {@code @MessageMapping} method would. The batching channel is measured with
+ * a single lane and with one lane per processor, keyed by session id.
+ *
+ * @author agent (agent@local)
+ */
+@BenchmarkMode(Mode.Throughput)
+public class SubscribableChannelBenchmark {
+
+	private static final int BURST_SIZE = 1000;
+
+	private static final int SESSION_COUNT = 16;
+
+
+	@State(Scope.Benchmark)
+	public static class ChannelState {
+
+		@Param({"executor", "batching"})
+		public String channelType;
+
+		@Param({"clientInbound", "clientOutbound"})
+		public String workload;
+
+		@Param({"false", "true"})
+		public boolean batchHandlers;
+
+		@Param({"1", "processors"})
+		public String lanes;
+
+		@Param({"0", "20000"})
+		public long handlerNanos;
+
+		public ThreadPoolTaskExecutor executor;
+
+		public MessageChannel channel;
+
+		public Message<?>[] messages;
+
+		public final AtomicLong handled = new AtomicLong();
+
+		public int subscriberCount;
+
+		@Setup(Level.Trial)
+		public void doSetup() {
+			this.executor = new ThreadPoolTaskExecutor();
+			this.executor.setCorePoolSize(Runtime.getRuntime().availableProcessors() * 2);
+			this.executor.setAllowCoreThreadTimeOut(true);
+			this.executor.initialize();
+
+			ExecutorSubscribableChannel channel;
+			if ("batching".equals(this.channelType)) {
+				int laneCount = ("processors".equals(this.lanes) ? Runtime.getRuntime().availableProcessors() : 1);
+				BatchingExecutorSubscribableChannel batchingChannel =
+						new BatchingExecutorSubscribableChannel(this.executor, 16 * 1024, laneCount);
+				batchingChannel.setLaneKeyResolver(message -> SimpMessageHeaderAccessor.getSessionId(message.getHeaders()));
+				channel = batchingChannel;
+			}
+			else {
+				channel = new ExecutorSubscribableChannel(this.executor);
+			}
+			this.subscriberCount = ("clientInbound".equals(this.workload) ? 3 : 1);
+			for (int i = 0; i < this.subscriberCount; i++) {
+				channel.subscribe(this.batchHandlers ? new CountingBatchHandler(this.handled, this.handlerNanos) :
+						message -> handle(this.handled, 1, this.handlerNanos));
+			}
+			this.channel = channel;
+
+			this.messages = new Message<?>[SESSION_COUNT];
+			for (int i = 0; i < SESSION_COUNT; i++) {
+				SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+				accessor.setSessionId("session" + i);
+				accessor.setDestination("/topic/prices");
+				this.messages[i] = MessageBuilder.createMessage(new byte[64], accessor.getMessageHeaders());
+			}
+		}
+
+		@TearDown(Level.Trial)
+		public void doTearDown() {
+			this.executor.shutdown();
+		}
+	}
+
+
+	@Benchmark
+	@OperationsPerInvocation(BURST_SIZE)
+	public void sendBurst(ChannelState state) {
+		long expected = state.handled.get() + (long) BURST_SIZE * state.subscriberCount;
+		for (int i = 0; i < BURST_SIZE; i++) {
+			state.channel.send(state.messages[i % SESSION_COUNT]);
+		}
+		while (state.handled.get() < expected) {
+			Thread.yield();
+		}
+	}
+
+
+	private static void handle(AtomicLong handled, int count, long handlerNanos) {
+		if (handlerNanos > 0) {
+			LockSupport.parkNanos(count * handlerNanos);
+		}
+		handled.addAndGet(count);
+	}
+
+
+	private static class CountingBatchHandler implements BatchMessageHandler {
+
+		private final AtomicLong handled;
+
+		private final long handlerNanos;
+
+		CountingBatchHandler(AtomicLong handled, long handlerNanos) {
+			this.handled = handled;
+			this.handlerNanos = handlerNanos;
+		}
+
+		@Override
+		public void handleMessage(Message<?> message) {
+			handle(this.handled, 1, this.handlerNanos);
+		}
+
+		@Override
+		public void handleMessages(List<Message<?>> messages) {
+			handle(this.handled, messages.size(), this.handlerNanos);
+		}
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -84,6 +84,15 @@ public class SimpMessageHeaderAccessor extends NativeMessageHeaderAccessor {
 	 */
 	public static final String IGNORE_ERROR = "simpIgnoreError";
 
+	/**
+	 * A header for internal use by brokers that send the same message to many
+	 * subscriptions. The value is an {@link java.util.concurrent.atomic.AtomicReference}
+	 * shared by all copies of the message, in which protocol handlers may keep
+	 * an encoded form of the common headers and payload.
+	 * @since 5.3.7
+	 */
+	public static final String SHARED_ENCODING_HEADER = "simpSharedEncoding";
+
 
 	@Nullable
 	private Consumer<Principal> userCallback;
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -22,11 +22,14 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Queue;
+import java.util.Set;
+import java.util.StringTokenizer;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 import org.springframework.expression.EvaluationContext;
 import org.springframework.expression.Expression;
@@ -57,6 +60,12 @@ import org.springframework.util.StringUtils;
  * header on subscription messages with Spring EL expressions evaluated against
  * the headers to filter out messages in addition to destination matching.
  *
+ * <p>As of 5.3.7, destinations are resolved against an index that is updated
+ * incrementally on subscribe and unsubscribe: plain destinations are looked up
+ * directly, while patterns are kept in a trie keyed by their leading literal
+ * segments, so only patterns that share a prefix with the destination are
+ * matched with the {@code PathMatcher}.
+ *
  * @author Rossen Stoyanchev
  * @author Sebastien Deleuze
  * @author Juergen Hoeller
@@ -74,6 +83,9 @@ public class DefaultSubscriptionRegistry extends AbstractSubscriptionRegistry {
 
 	private PathMatcher pathMatcher = new AntPathMatcher();
 
+	@Nullable
+	private String patternSegmentSeparator = determineSegmentSeparator(this.pathMatcher);
+
 	private int cacheLimit = DEFAULT_CACHE_LIMIT;
 
 	@Nullable
@@ -87,12 +99,19 @@ public class DefaultSubscriptionRegistry extends AbstractSubscriptionRegistry {
 
 	private final SessionRegistry sessionRegistry = new SessionRegistry();
 
+	private final SubscriptionIndex subscriptionIndex = new SubscriptionIndex();
+
+	// sessions with at least one subscription that has a selector
+	private final Set<String> selectorSessionIds = ConcurrentHashMap.newKeySet();
+
 
 	/**
 	 * Specify the {@link PathMatcher} to use.
 	 */
 	public void setPathMatcher(PathMatcher pathMatcher) {
 		this.pathMatcher = pathMatcher;
+		this.patternSegmentSeparator = determineSegmentSeparator(pathMatcher);
+		this.subscriptionIndex.rebuild();
 	}
 
 	/**
@@ -151,9 +170,14 @@ public class DefaultSubscriptionRegistry extends AbstractSubscriptionRegistry {
 
 		boolean isPattern = this.pathMatcher.isPattern(destination);
 		Expression expression = getSelectorExpression(message.getHeaders());
-		Subscription subscription = new Subscription(subscriptionId, destination, isPattern, expression);
+		Subscription subscription = new Subscription(sessionId, subscriptionId, destination, isPattern, expression);
 
-		this.sessionRegistry.addSubscription(sessionId, subscription);
+		if (expression != null) {
+			this.selectorSessionIds.add(sessionId);
+		}
+		if (this.sessionRegistry.addSubscription(sessionId, subscription)) {
+			this.subscriptionIndex.add(subscription);
+		}
 		this.destinationCache.updateAfterNewSubscription(sessionId, subscription);
 	}
 
@@ -188,6 +212,7 @@ public class DefaultSubscriptionRegistry extends AbstractSubscriptionRegistry {
 		if (info != null) {
 			Subscription subscription = info.removeSubscription(subscriptionId);
 			if (subscription != null) {
+				this.subscriptionIndex.remove(subscription);
 				this.destinationCache.updateAfterRemovedSubscription(sessionId, subscription);
 			}
 		}
@@ -197,18 +222,27 @@ public class DefaultSubscriptionRegistry extends AbstractSubscriptionRegistry {
 	public void unregisterAllSubscriptions(String sessionId) {
 		SessionInfo info = this.sessionRegistry.removeSubscriptions(sessionId);
 		if (info != null) {
+			for (Subscription subscription : info.getSubscriptions()) {
+				this.subscriptionIndex.remove(subscription);
+			}
 			this.destinationCache.updateAfterRemovedSession(sessionId, info);
 		}
+		this.selectorSessionIds.remove(sessionId);
 	}
 
 	@Override
 	protected MultiValueMap<String, String> findSubscriptionsInternal(String destination, Message<?> message) {
 		MultiValueMap<String, String> allMatches = this.destinationCache.getSubscriptions(destination);
-		if (!this.selectorHeaderInUse) {
+		if (!this.selectorHeaderInUse || !hasSelectorSession(allMatches)) {
 			return allMatches;
 		}
 		MultiValueMap<String, String> result = new LinkedMultiValueMap<>(allMatches.size());
 		allMatches.forEach((sessionId, subscriptionIds) -> {
+			if (!this.selectorSessionIds.contains(sessionId)) {
+				// No selectors to evaluate for this session
+				result.put(sessionId, subscriptionIds);
+				return;
+			}
 			SessionInfo info = this.sessionRegistry.getSession(sessionId);
 			if (info != null) {
 				for (String subscriptionId : subscriptionIds) {
@@ -222,6 +256,18 @@ public class DefaultSubscriptionRegistry extends AbstractSubscriptionRegistry {
 		return result;
 	}
 
+	private boolean hasSelectorSession(MultiValueMap<String, String> matches) {
+		if (this.selectorSessionIds.isEmpty()) {
+			return false;
+		}
+		for (String sessionId : matches.keySet()) {
+			if (this.selectorSessionIds.contains(sessionId)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
 	private boolean evaluateExpression(@Nullable Expression expression, Message<?> message) {
 		if (expression == null) {
 			return true;
@@ -243,6 +289,26 @@ public class DefaultSubscriptionRegistry extends AbstractSubscriptionRegistry {
 		return false;
 	}
 
+	/**
+	 * Determine the separator to split patterns into segments for the pattern
+	 * trie, or {@code null} if the given PathMatcher does not match literal
+	 * segments exactly, in which case all patterns are checked for every
+	 * destination not found in the cache.
+	 */
+	@Nullable
+	private static String determineSegmentSeparator(PathMatcher pathMatcher) {
+		if (pathMatcher.getClass() != AntPathMatcher.class ||
+				pathMatcher.match("a", "A") || pathMatcher.match("a", " a")) {
+			// Custom matching, case-insensitive or trimming tokens
+			return null;
+		}
+		String combined = pathMatcher.combine("a", "b");
+		if (combined.length() < 3 || !combined.startsWith("a") || !combined.endsWith("b")) {
+			return null;
+		}
+		return combined.substring(1, combined.length() - 1);
+	}
+
 
 	/**
 	 * Cache for destinations resolved previously via
@@ -275,14 +341,10 @@ public class DefaultSubscriptionRegistry extends AbstractSubscriptionRegistry {
 
 		private LinkedMultiValueMap<String, String> computeMatchingSubscriptions(String destination) {
 			LinkedMultiValueMap<String, String> sessionIdToSubscriptionIds = new LinkedMultiValueMap<>();
-			DefaultSubscriptionRegistry.this.sessionRegistry.forEachSubscription((sessionId, subscription) -> {
-				if (subscription.isPattern()) {
-					if (pathMatcher.match(subscription.getDestination(), destination)) {
-						addMatchedSubscriptionId(sessionIdToSubscriptionIds, sessionId, subscription.getId());
-					}
-				}
-				else if (destination.equals(subscription.getDestination())) {
-					addMatchedSubscriptionId(sessionIdToSubscriptionIds, sessionId, subscription.getId());
+			subscriptionIndex.forEachCandidate(destination, subscription -> {
+				if (!subscription.isPattern() || pathMatcher.match(subscription.getDestination(), destination)) {
+					addMatchedSubscriptionId(sessionIdToSubscriptionIds,
+							subscription.getSessionId(), subscription.getId());
 				}
 			});
 			return sessionIdToSubscriptionIds;
@@ -377,6 +439,168 @@ public class DefaultSubscriptionRegistry extends AbstractSubscriptionRegistry {
 		}
 	}
 
+	/**
+	 * Index of all subscriptions by destination, used to resolve destinations
+	 * that are not in the {@link DestinationCache}.
+	 * <p>Subscriptions to plain destinations are kept in a map. Patterns are kept
+	 * in a trie, attached to the node for their leading literal segments, so that
+	 * a lookup only visits patterns that could match the destination's prefix.
+	 * Patterns that start with a wildcard segment, or all patterns if there is
+	 * no segment separator, are attached to the root node.
+	 */
+	private final class SubscriptionIndex {
+
+		// destination -> subscriptions to that exact destination
+		private final ConcurrentMap<String, Set<Subscription>> plainSubscriptions = new ConcurrentHashMap<>();
+
+		private volatile PatternTrie patternTrie = new PatternTrie(patternSegmentSeparator);
+
+		public void add(Subscription subscription) {
+			if (subscription.isPattern()) {
+				synchronized (this) {
+					this.patternTrie.add(subscription);
+				}
+			}
+			else {
+				this.plainSubscriptions.compute(subscription.getDestination(), (destination, subscriptions) -> {
+					if (subscriptions == null) {
+						subscriptions = ConcurrentHashMap.newKeySet();
+					}
+					subscriptions.add(subscription);
+					return subscriptions;
+				});
+			}
+		}
+
+		public void remove(Subscription subscription) {
+			if (subscription.isPattern()) {
+				synchronized (this) {
+					this.patternTrie.remove(subscription);
+				}
+			}
+			else {
+				this.plainSubscriptions.computeIfPresent(subscription.getDestination(), (destination, subscriptions) -> {
+					subscriptions.remove(subscription);
+					return (subscriptions.isEmpty() ? null : subscriptions);
+				});
+			}
+		}
+
+		/**
+		 * Pass every subscription to the consumer that may match the given
+		 * destination: all plain subscriptions to the destination, and the
+		 * patterns to be checked against it.
+		 */
+		public void forEachCandidate(String destination, Consumer<Subscription> consumer) {
+			Set<Subscription> subscriptions = this.plainSubscriptions.get(destination);
+			if (subscriptions != null) {
+				subscriptions.forEach(consumer);
+			}
+			this.patternTrie.forEachCandidate(destination, consumer);
+		}
+
+		/**
+		 * Re-create the pattern trie, e.g. after a change of the segment separator.
+		 */
+		public synchronized void rebuild() {
+			PatternTrie trie = new PatternTrie(patternSegmentSeparator);
+			sessionRegistry.forEachSubscription((sessionId, subscription) -> {
+				if (subscription.isPattern()) {
+					trie.add(subscription);
+				}
+			});
+			this.patternTrie = trie;
+		}
+	}
+
+	/**
+	 * Trie of pattern subscriptions keyed by literal segments. Modifications
+	 * must be synchronized externally; lookups are not blocked.
+	 */
+	private static final class PatternTrie {
+
+		@Nullable
+		private final String separator;
+
+		private final PatternNode root = new PatternNode();
+
+		public PatternTrie(@Nullable String separator) {
+			this.separator = separator;
+		}
+
+		public void add(Subscription subscription) {
+			PatternNode node = this.root;
+			for (String segment : getLiteralSegments(subscription.getDestination())) {
+				node = node.children.computeIfAbsent(segment, _segment -> new PatternNode());
+			}
+			node.subscriptions.add(subscription);
+		}
+
+		public void remove(Subscription subscription) {
+			List<String> segments = getLiteralSegments(subscription.getDestination());
+			PatternNode[] path = new PatternNode[segments.size() + 1];
+			path[0] = this.root;
+			for (int i = 0; i < segments.size(); i++) {
+				path[i + 1] = path[i].children.get(segments.get(i));
+				if (path[i + 1] == null) {
+					return;
+				}
+			}
+			if (path[segments.size()].subscriptions.remove(subscription)) {
+				// Prune nodes left without subscriptions and children
+				for (int i = segments.size(); i > 0 && path[i].isEmpty(); i--) {
+					path[i - 1].children.remove(segments.get(i - 1), path[i]);
+				}
+			}
+		}
+
+		public void forEachCandidate(String destination, Consumer<Subscription> consumer) {
+			PatternNode node = this.root;
+			node.subscriptions.forEach(consumer);
+			if (this.separator == null || node.children.isEmpty()) {
+				return;
+			}
+			StringTokenizer tokenizer = new StringTokenizer(destination, this.separator);
+			while (tokenizer.hasMoreTokens()) {
+				node = node.children.get(tokenizer.nextToken());
+				if (node == null) {
+					return;
+				}
+				node.subscriptions.forEach(consumer);
+			}
+		}
+
+		private List<String> getLiteralSegments(String pattern) {
+			if (this.separator == null) {
+				return Collections.emptyList();
+			}
+			List<String> segments = new ArrayList<>();
+			StringTokenizer tokenizer = new StringTokenizer(pattern, this.separator);
+			while (tokenizer.hasMoreTokens()) {
+				String segment = tokenizer.nextToken();
+				if (segment.indexOf('*') != -1 || segment.indexOf('?') != -1 || segment.indexOf('{') != -1) {
+					break;
+				}
+				segments.add(segment);
+			}
+			return segments;
+		}
+	}
+
+	/**
+	 * Node of the {@link PatternTrie}.
+	 */
+	private static final class PatternNode {
+
+		private final ConcurrentMap<String, PatternNode> children = new ConcurrentHashMap<>(4);
+
+		private final Set<Subscription> subscriptions = ConcurrentHashMap.newKeySet(2);
+
+		public boolean isEmpty() {
+			return (this.subscriptions.isEmpty() && this.children.isEmpty());
+		}
+	}
+
 	/**
 	 * Registry for all session and their subscriptions.
 	 */
@@ -394,9 +618,9 @@ public class DefaultSubscriptionRegistry extends AbstractSubscriptionRegistry {
 				info.getSubscriptions().forEach(subscription -> consumer.accept(sessionId, subscription)));
 		}
 
-		public void addSubscription(String sessionId, Subscription subscription) {
+		public boolean addSubscription(String sessionId, Subscription subscription) {
 			SessionInfo info = this.sessions.computeIfAbsent(sessionId, _sessionId -> new SessionInfo());
-			info.addSubscription(subscription);
+			return info.addSubscription(subscription);
 		}
 
 		@Nullable
@@ -422,8 +646,8 @@ public class DefaultSubscriptionRegistry extends AbstractSubscriptionRegistry {
 			return this.subscriptionMap.get(subscriptionId);
 		}
 
-		public void addSubscription(Subscription subscription) {
-			this.subscriptionMap.putIfAbsent(subscription.getId(), subscription);
+		public boolean addSubscription(Subscription subscription) {
+			return (this.subscriptionMap.putIfAbsent(subscription.getId(), subscription) == null);
 		}
 
 		@Nullable
@@ -437,6 +661,8 @@ public class DefaultSubscriptionRegistry extends AbstractSubscriptionRegistry {
 	 */
 	private static final class Subscription {
 
+		private final String sessionId;
+
 		private final String id;
 
 		private final String destination;
@@ -446,15 +672,23 @@ public class DefaultSubscriptionRegistry extends AbstractSubscriptionRegistry {
 		@Nullable
 		private final Expression selector;
 
-		public Subscription(String id, String destination, boolean isPattern, @Nullable Expression selector) {
+		public Subscription(String sessionId, String id, String destination,
+				boolean isPattern, @Nullable Expression selector) {
+
+			Assert.notNull(sessionId, "Session id must not be null");
 			Assert.notNull(id, "Subscription id must not be null");
 			Assert.notNull(destination, "Subscription destination must not be null");
+			this.sessionId = sessionId;
 			this.id = id;
 			this.selector = selector;
 			this.destination = destination;
 			this.isPattern = isPattern;
 		}
 
+		public String getSessionId() {
+			return this.sessionId;
+		}
+
 		public String getId() {
 			return this.id;
 		}
@@ -474,18 +708,24 @@ public class DefaultSubscriptionRegistry extends AbstractSubscriptionRegistry {
 
 		@Override
 		public boolean equals(@Nullable Object other) {
-			return (this == other ||
-					(other instanceof Subscription && this.id.equals(((Subscription) other).id)));
+			if (this == other) {
+				return true;
+			}
+			if (!(other instanceof Subscription)) {
+				return false;
+			}
+			Subscription otherSubscription = (Subscription) other;
+			return (this.id.equals(otherSubscription.id) && this.sessionId.equals(otherSubscription.sessionId));
 		}
 
 		@Override
 		public int hashCode() {
-			return this.id.hashCode();
+			return this.id.hashCode() * 29 + this.sessionId.hashCode();
 		}
 
 		@Override
 		public String toString() {
-			return "subscription(id=" + this.id + ")";
+			return "subscription(id=" + this.id + ", session=" + this.sessionId + ")";
 		}
 	}
 
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -21,7 +21,14 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
 import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.springframework.lang.Nullable;
 import org.springframework.messaging.Message;
@@ -34,6 +41,7 @@ import org.springframework.messaging.support.MessageBuilder;
 import org.springframework.messaging.support.MessageHeaderAccessor;
 import org.springframework.messaging.support.MessageHeaderInitializer;
 import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.util.Assert;
 import org.springframework.util.MultiValueMap;
 import org.springframework.util.PathMatcher;
@@ -43,6 +51,11 @@ import org.springframework.util.PathMatcher;
  * {@link SimpMessageType}, keeps track of subscriptions with the help of a
  * {@link SubscriptionRegistry} and sends messages to subscribers.
  *
+ * <p>As of 5.3.7, messages may be dispatched to subscribers on a configurable
+ * number of {@link #setShardCount shards}, each served by a single thread, in
+ * order to preserve the publish order per destination while sending to
+ * different destinations in parallel.
+ *
  * @author Rossen Stoyanchev
  * @author Juergen Hoeller
  * @since 4.0
@@ -70,6 +83,12 @@ public class SimpleBrokerMessageHandler extends AbstractBrokerMessageHandler {
 	@Nullable
 	private MessageHeaderInitializer headerInitializer;
 
+	private int shardCount;
+
+	private int shardQueueCapacity = 10000;
+
+	private boolean dropOnShardOverflow;
+
 
 	private SubscriptionRegistry subscriptionRegistry;
 
@@ -78,6 +97,9 @@ public class SimpleBrokerMessageHandler extends AbstractBrokerMessageHandler {
 	@Nullable
 	private ScheduledFuture<?> heartbeatFuture;
 
+	@Nullable
+	private volatile ExecutorService[] shards;
+
 
 	/**
 	 * Create a SimpleBrokerMessageHandler instance with the given message channels
@@ -249,9 +271,100 @@ public class SimpleBrokerMessageHandler extends AbstractBrokerMessageHandler {
 		return this.headerInitializer;
 	}
 
+	/**
+	 * Configure the number of shards to dispatch messages to subscribers on.
+	 * Destinations are assigned to shards by hash, and each shard sends its
+	 * messages in order from a single thread, so messages published to the
+	 * same destination reach subscribers in the order in which they were
+	 * received by this handler, while different destinations are served in
+	 * parallel.
+	 * <p>Subscriptions are shared by all shards, and messages from several
+	 * shards to the same session are passed to the client outbound channel
+	 * concurrently; consider {@link #setPreservePublishOrder} to keep them
+	 * ordered per session.
+	 * <p>Only MESSAGE frames are dispatched to shards; SUBSCRIBE, UNSUBSCRIBE
+	 * and DISCONNECT frames are handled inline, so messages that were queued
+	 * on a shard before an UNSUBSCRIBE or DISCONNECT may still be delivered
+	 * to the subscription or session after it.
+	 * <p>By default this is set to 0, in which case messages are dispatched
+	 * on the thread that handles them.
+	 * @param shardCount the number of shards, or 0 to disable sharding
+	 * @since 5.3.7
+	 * @see #setShardQueueCapacity(int)
+	 */
+	public void setShardCount(int shardCount) {
+		Assert.isTrue(shardCount >= 0, "Shard count must not be negative");
+		this.shardCount = shardCount;
+	}
+
+	/**
+	 * Return the configured number of shards.
+	 * @since 5.3.7
+	 */
+	public int getShardCount() {
+		return this.shardCount;
+	}
+
+	/**
+	 * Configure the maximum number of messages that may be queued on each
+	 * shard, so that a slow client outbound channel cannot exhaust memory.
+	 * When the queue of a shard is full, the thread handling a message for it
+	 * waits until there is room again, which preserves the order of messages
+	 * and slows down the broker channel, unless
+	 * {@link #setDropOnShardOverflow dropOnShardOverflow} is enabled.
+	 * <p>By default this is set to 10000.
+	 * @param shardQueueCapacity the queue capacity per shard
+	 * @since 5.3.7
+	 * @see #setShardCount(int)
+	 */
+	public void setShardQueueCapacity(int shardQueueCapacity) {
+		Assert.isTrue(shardQueueCapacity > 0, "Shard queue capacity must be greater than 0");
+		this.shardQueueCapacity = shardQueueCapacity;
+	}
+
+	/**
+	 * Return the configured queue capacity per shard.
+	 * @since 5.3.7
+	 */
+	public int getShardQueueCapacity() {
+		return this.shardQueueCapacity;
+	}
+
+	/**
+	 * Whether to drop messages dispatched to a shard whose queue is full,
+	 * logging them at warn level, rather than waiting for the shard to catch up.
+	 * <p>By default this is set to {@code false}, i.e. messages are never
+	 * dropped and a full shard slows down the handling of further messages.
+	 * @param dropOnShardOverflow whether to drop messages on shard overflow
+	 * @since 5.3.7
+	 * @see #setShardQueueCapacity(int)
+	 */
+	public void setDropOnShardOverflow(boolean dropOnShardOverflow) {
+		this.dropOnShardOverflow = dropOnShardOverflow;
+	}
+
+	/**
+	 * Whether messages are dropped when the queue of a shard is full.
+	 * @since 5.3.7
+	 */
+	public boolean isDropOnShardOverflow() {
+		return this.dropOnShardOverflow;
+	}
+
 
 	@Override
 	public void startInternal() {
+		if (this.shardCount > 0) {
+			CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("SimpleBrokerShard-");
+			RejectedExecutionHandler overflowHandler = (this.dropOnShardOverflow ?
+					new ThreadPoolExecutor.AbortPolicy() : new WaitForShardCapacityPolicy());
+			ExecutorService[] shards = new ExecutorService[this.shardCount];
+			for (int i = 0; i < shards.length; i++) {
+				shards[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+						new LinkedBlockingQueue<>(this.shardQueueCapacity), threadFactory, overflowHandler);
+			}
+			this.shards = shards;
+		}
 		publishBrokerAvailableEvent();
 		if (this.taskScheduler != null) {
 			long interval = initHeartbeatTaskDelay();
@@ -284,6 +397,13 @@ public class SimpleBrokerMessageHandler extends AbstractBrokerMessageHandler {
 		if (this.heartbeatFuture != null) {
 			this.heartbeatFuture.cancel(true);
 		}
+		ExecutorService[] shards = this.shards;
+		if (shards != null) {
+			this.shards = null;
+			for (ExecutorService shard : shards) {
+				shard.shutdown();
+			}
+		}
 	}
 
 	@Override
@@ -301,7 +421,13 @@ public class SimpleBrokerMessageHandler extends AbstractBrokerMessageHandler {
 		SimpMessageType messageType = SimpMessageHeaderAccessor.getMessageType(headers);
 		if (SimpMessageType.MESSAGE.equals(messageType)) {
 			logMessage(message);
-			sendMessageToSubscribers(destination, message);
+			ExecutorService[] shards = this.shards;
+			if (shards != null) {
+				dispatchToShard(shards, destination, message);
+			}
+			else {
+				sendMessageToSubscribers(destination, message);
+			}
 		}
 		else if (SimpMessageType.CONNECT.equals(messageType)) {
 			logMessage(message);
@@ -340,6 +466,36 @@ public class SimpleBrokerMessageHandler extends AbstractBrokerMessageHandler {
 		}
 	}
 
+	private void dispatchToShard(ExecutorService[] shards, @Nullable String destination, Message<?> message) {
+		int hash = (destination != null ? destination.hashCode() : 0);
+		ExecutorService shard = shards[Math.floorMod(hash, shards.length)];
+		try {
+			shard.execute(() -> {
+				try {
+					sendMessageToSubscribers(destination, message);
+				}
+				catch (Throwable ex) {
+					if (logger.isErrorEnabled()) {
+						logger.error("Failed to send " + message, ex);
+					}
+				}
+			});
+		}
+		catch (RejectedExecutionException ex) {
+			if (shard.isShutdown()) {
+				// Broker stopped in the meantime
+				if (logger.isDebugEnabled()) {
+					logger.debug("Dropped " + message + " after broker shutdown");
+				}
+			}
+			else if (logger.isWarnEnabled()) {
+				logger.warn("Dropped " + message + (this.dropOnShardOverflow ?
+						": shard queue capacity of " + this.shardQueueCapacity + " exceeded" :
+						": interrupted while waiting for shard queue capacity"));
+			}
+		}
+	}
+
 	private void updateSessionReadTime(@Nullable String sessionId) {
 		if (sessionId != null) {
 			SessionInfo info = this.sessions.get(sessionId);
@@ -385,17 +541,20 @@ public class SimpleBrokerMessageHandler extends AbstractBrokerMessageHandler {
 			logger.debug("Broadcasting to " + subscriptions.size() + " sessions.");
 		}
 		long now = System.currentTimeMillis();
+		Object payload = message.getPayload();
+		// Lets protocol handlers encode the common part of all copies only once
+		AtomicReference<Object> sharedEncoding = new AtomicReference<>();
 		subscriptions.forEach((sessionId, subscriptionIds) -> {
+			SessionInfo info = this.sessions.get(sessionId);
 			for (String subscriptionId : subscriptionIds) {
 				SimpMessageHeaderAccessor headerAccessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
 				initHeaders(headerAccessor);
 				headerAccessor.setSessionId(sessionId);
 				headerAccessor.setSubscriptionId(subscriptionId);
+				headerAccessor.setHeader(SimpMessageHeaderAccessor.SHARED_ENCODING_HEADER, sharedEncoding);
 				headerAccessor.copyHeadersIfAbsent(message.getHeaders());
 				headerAccessor.setLeaveMutable(true);
-				Object payload = message.getPayload();
 				Message<?> reply = MessageBuilder.createMessage(payload, headerAccessor.getMessageHeaders());
-				SessionInfo info = this.sessions.get(sessionId);
 				if (info != null) {
 					try {
 						info.getClientOutboundChannel().send(reply);
@@ -523,4 +682,26 @@ public class SimpleBrokerMessageHandler extends AbstractBrokerMessageHandler {
 		}
 	}
 
+
+	/**
+	 * Wait for room in the queue of a full shard rather than rejecting the
+	 * message, which keeps messages in order and slows down the caller.
+	 */
+	private static class WaitForShardCapacityPolicy implements RejectedExecutionHandler {
+
+		@Override
+		public void rejectedExecution(Runnable task, ThreadPoolExecutor executor) {
+			if (executor.isShutdown()) {
+				throw new RejectedExecutionException("Shard has been shut down");
+			}
+			try {
+				executor.getQueue().put(task);
+			}
+			catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				throw new RejectedExecutionException("Interrupted while waiting for shard queue capacity", ex);
+			}
+		}
+	}
+
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -39,6 +39,13 @@ public class SimpleBrokerRegistration extends AbstractBrokerRegistration {
 	@Nullable
 	private String selectorHeaderName = "selector";
 
+	private int shardCount;
+
+	@Nullable
+	private Integer shardQueueCapacity;
+
+	private boolean dropOnShardOverflow;
+
 
 	public SimpleBrokerRegistration(SubscribableChannel inChannel, MessageChannel outChannel, String[] prefixes) {
 		super(inChannel, outChannel, prefixes);
@@ -89,6 +96,46 @@ public class SimpleBrokerRegistration extends AbstractBrokerRegistration {
 		this.selectorHeaderName = selectorHeaderName;
 	}
 
+	/**
+	 * Configure the number of single-threaded shards to dispatch messages to
+	 * subscribers on, preserving the publish order per destination.
+	 * <p>By default this is set to 0, i.e. messages are dispatched on the
+	 * thread that handles them.
+	 * @param shardCount the number of shards
+	 * @since 5.3.7
+	 * @see SimpleBrokerMessageHandler#setShardCount(int)
+	 */
+	public SimpleBrokerRegistration setShardCount(int shardCount) {
+		this.shardCount = shardCount;
+		return this;
+	}
+
+	/**
+	 * Configure the maximum number of messages that may be queued on each
+	 * shard before the handling of further messages for it has to wait.
+	 * <p>By default this is set to 10000.
+	 * @param shardQueueCapacity the queue capacity per shard
+	 * @since 5.3.7
+	 * @see SimpleBrokerMessageHandler#setShardQueueCapacity(int)
+	 */
+	public SimpleBrokerRegistration setShardQueueCapacity(int shardQueueCapacity) {
+		this.shardQueueCapacity = shardQueueCapacity;
+		return this;
+	}
+
+	/**
+	 * Whether to drop messages for a shard whose queue is full rather than
+	 * waiting for the shard to catch up.
+	 * <p>By default this is set to {@code false}.
+	 * @param dropOnShardOverflow whether to drop messages on shard overflow
+	 * @since 5.3.7
+	 * @see SimpleBrokerMessageHandler#setDropOnShardOverflow(boolean)
+	 */
+	public SimpleBrokerRegistration setDropOnShardOverflow(boolean dropOnShardOverflow) {
+		this.dropOnShardOverflow = dropOnShardOverflow;
+		return this;
+	}
+
 
 	@Override
 	protected SimpleBrokerMessageHandler getMessageHandler(SubscribableChannel brokerChannel) {
@@ -101,6 +148,11 @@ public class SimpleBrokerRegistration extends AbstractBrokerRegistration {
 			handler.setHeartbeatValue(this.heartbeat);
 		}
 		handler.setSelectorHeaderName(this.selectorHeaderName);
+		handler.setShardCount(this.shardCount);
+		if (this.shardQueueCapacity != null) {
+			handler.setShardQueueCapacity(this.shardQueueCapacity);
+		}
+		handler.setDropOnShardOverflow(this.dropOnShardOverflow);
 		return handler;
 	}
 
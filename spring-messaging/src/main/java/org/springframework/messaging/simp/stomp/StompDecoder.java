@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,7 +16,6 @@
 
 package org.springframework.messaging.simp.stomp;
 
-import java.io.ByteArrayOutputStream;
 import java.nio.Buffer;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
@@ -33,7 +32,6 @@ import org.springframework.messaging.support.MessageHeaderInitializer;
 import org.springframework.messaging.support.NativeMessageHeaderAccessor;
 import org.springframework.util.InvalidMimeTypeException;
 import org.springframework.util.MultiValueMap;
-import org.springframework.util.StreamUtils;
 
 /**
  * Decodes one or more STOMP frames contained in a {@link ByteBuffer}.
@@ -54,6 +52,30 @@ public class StompDecoder {
 
 	private static final Log logger = SimpLogging.forLogName(StompDecoder.class);
 
+	private static final StompCommand[] COMMANDS = StompCommand.values();
+
+	private static final byte[][] COMMAND_BYTES = new byte[COMMANDS.length][];
+
+	private static final String[] KNOWN_HEADER_NAMES = new String[] {
+			StompHeaderAccessor.STOMP_DESTINATION_HEADER, StompHeaderAccessor.STOMP_CONTENT_LENGTH_HEADER,
+			StompHeaderAccessor.STOMP_CONTENT_TYPE_HEADER, StompHeaderAccessor.STOMP_ID_HEADER,
+			StompHeaderAccessor.STOMP_SUBSCRIPTION_HEADER, StompHeaderAccessor.STOMP_MESSAGE_ID_HEADER,
+			StompHeaderAccessor.STOMP_RECEIPT_HEADER, StompHeaderAccessor.STOMP_ACK_HEADER,
+			StompHeaderAccessor.STOMP_ACCEPT_VERSION_HEADER, StompHeaderAccessor.STOMP_HOST_HEADER,
+			StompHeaderAccessor.STOMP_HEARTBEAT_HEADER, StompHeaderAccessor.STOMP_LOGIN_HEADER,
+			StompHeaderAccessor.STOMP_PASSCODE_HEADER};
+
+	private static final byte[][] KNOWN_HEADER_NAME_BYTES = new byte[KNOWN_HEADER_NAMES.length][];
+
+	static {
+		for (int i = 0; i < COMMANDS.length; i++) {
+			COMMAND_BYTES[i] = COMMANDS[i].name().getBytes(StandardCharsets.UTF_8);
+		}
+		for (int i = 0; i < KNOWN_HEADER_NAMES.length; i++) {
+			KNOWN_HEADER_NAME_BYTES[i] = KNOWN_HEADER_NAMES[i].getBytes(StandardCharsets.UTF_8);
+		}
+	}
+
 	@Nullable
 	private MessageHeaderInitializer headerInitializer;
 
@@ -140,16 +162,20 @@ public class StompDecoder {
 		Buffer buffer = byteBuffer;
 		buffer.mark();
 
-		String command = readCommand(byteBuffer);
-		if (command.length() > 0) {
+		if (byteBuffer.hasRemaining()) {
 			StompHeaderAccessor headerAccessor = null;
 			byte[] payload = null;
-			if (byteBuffer.remaining() > 0) {
-				StompCommand stompCommand = StompCommand.valueOf(command);
-				headerAccessor = StompHeaderAccessor.create(stompCommand);
-				initHeaders(headerAccessor);
-				readHeaders(byteBuffer, headerAccessor);
-				payload = readPayload(byteBuffer, headerAccessor);
+			int commandStart = byteBuffer.position();
+			int commandEnd = findEndOfLine(byteBuffer);
+			if (commandEnd != -1) {
+				consumeEndOfLine(byteBuffer, commandEnd);
+				if (byteBuffer.remaining() > 0) {
+					StompCommand stompCommand = readCommand(byteBuffer, commandStart, commandEnd);
+					headerAccessor = StompHeaderAccessor.create(stompCommand);
+					initHeaders(headerAccessor);
+					readHeaders(byteBuffer, headerAccessor);
+					payload = readPayload(byteBuffer, headerAccessor);
+				}
 			}
 			if (payload != null) {
 				if (payload.length > 0) {
@@ -212,51 +238,74 @@ public class StompDecoder {
 		}
 	}
 
-	private String readCommand(ByteBuffer byteBuffer) {
-		ByteArrayOutputStream command = new ByteArrayOutputStream(256);
-		while (byteBuffer.remaining() > 0 && !tryConsumeEndOfLine(byteBuffer)) {
-			command.write(byteBuffer.get());
+	/**
+	 * Resolve the command on the line between the given indexes, comparing
+	 * bytes against the known commands rather than decoding a String first.
+	 */
+	private StompCommand readCommand(ByteBuffer byteBuffer, int start, int end) {
+		int length = end - start;
+		for (int i = 0; i < COMMANDS.length; i++) {
+			if (matches(byteBuffer, start, length, COMMAND_BYTES[i])) {
+				return COMMANDS[i];
+			}
 		}
-		return StreamUtils.copyToString(command, StandardCharsets.UTF_8);
+		// Unknown command: fails with the usual IllegalArgumentException
+		return StompCommand.valueOf(toString(byteBuffer, start, length));
 	}
 
+	/**
+	 * Read headers line by line, decoding names and values directly from the
+	 * input buffer. Well-known header names are not decoded but shared.
+	 */
 	private void readHeaders(ByteBuffer byteBuffer, StompHeaderAccessor headerAccessor) {
 		while (true) {
-			ByteArrayOutputStream headerStream = new ByteArrayOutputStream(256);
-			boolean headerComplete = false;
-			while (byteBuffer.hasRemaining()) {
-				if (tryConsumeEndOfLine(byteBuffer)) {
-					headerComplete = true;
-					break;
+			int start = byteBuffer.position();
+			int end = findEndOfLine(byteBuffer);
+			if (end == -1) {
+				// Incomplete header line
+				((Buffer) byteBuffer).position(byteBuffer.limit());
+				break;
+			}
+			consumeEndOfLine(byteBuffer, end);
+			if (end == start) {
+				// Blank line before the body
+				break;
+			}
+			int colonIndex = indexOf(byteBuffer, (byte) ':', start, end);
+			if (colonIndex <= start) {
+				if (byteBuffer.remaining() > 0) {
+					throw new StompConversionException("Illegal header: '" + toString(byteBuffer, start, end - start) +
+							"'. A header must be of the form <name>:[<value>].");
 				}
-				headerStream.write(byteBuffer.get());
 			}
-			if (headerStream.size() > 0 && headerComplete) {
-				String header = StreamUtils.copyToString(headerStream, StandardCharsets.UTF_8);
-				int colonIndex = header.indexOf(':');
-				if (colonIndex <= 0) {
-					if (byteBuffer.remaining() > 0) {
-						throw new StompConversionException("Illegal header: '" + header +
-								"'. A header must be of the form <name>:[<value>].");
-					}
+			else {
+				String headerName = readHeaderName(byteBuffer, start, colonIndex);
+				String headerValue = readEscaped(byteBuffer, colonIndex + 1, end);
+				try {
+					headerAccessor.addNativeHeader(headerName, headerValue);
 				}
-				else {
-					String headerName = unescape(header.substring(0, colonIndex));
-					String headerValue = unescape(header.substring(colonIndex + 1));
-					try {
-						headerAccessor.addNativeHeader(headerName, headerValue);
-					}
-					catch (InvalidMimeTypeException ex) {
-						if (byteBuffer.remaining() > 0) {
-							throw ex;
-						}
+				catch (InvalidMimeTypeException ex) {
+					if (byteBuffer.remaining() > 0) {
+						throw ex;
 					}
 				}
 			}
-			else {
-				break;
+		}
+	}
+
+	private String readHeaderName(ByteBuffer byteBuffer, int start, int end) {
+		int length = end - start;
+		for (int i = 0; i < KNOWN_HEADER_NAMES.length; i++) {
+			if (matches(byteBuffer, start, length, KNOWN_HEADER_NAME_BYTES[i])) {
+				return KNOWN_HEADER_NAMES[i];
 			}
 		}
+		return readEscaped(byteBuffer, start, end);
+	}
+
+	private String readEscaped(ByteBuffer byteBuffer, int start, int end) {
+		String value = toString(byteBuffer, start, end - start);
+		return (indexOf(byteBuffer, (byte) '\\', start, end) != -1 ? unescape(value) : value);
 	}
 
 	/**
@@ -325,18 +374,77 @@ public class StompDecoder {
 			}
 		}
 		else {
-			ByteArrayOutputStream payload = new ByteArrayOutputStream(256);
-			while (byteBuffer.remaining() > 0) {
-				byte b = byteBuffer.get();
-				if (b == 0) {
-					return payload.toByteArray();
-				}
-				else {
-					payload.write(b);
+			int nullIndex = indexOf(byteBuffer, (byte) 0, byteBuffer.position(), byteBuffer.limit());
+			if (nullIndex != -1) {
+				byte[] payload = new byte[nullIndex - byteBuffer.position()];
+				byteBuffer.get(payload);
+				byteBuffer.get();
+				return payload;
+			}
+			else {
+				((Buffer) byteBuffer).position(byteBuffer.limit());
+				return null;
+			}
+		}
+	}
+
+	/**
+	 * Find the end of the line starting at the current position, without
+	 * changing the position.
+	 * @return the index of the EOL ("\n" or the "\r" of "\r\n"), or -1
+	 * if the buffer ends before the line does
+	 */
+	private static int findEndOfLine(ByteBuffer byteBuffer) {
+		int limit = byteBuffer.limit();
+		for (int i = byteBuffer.position(); i < limit; i++) {
+			byte b = byteBuffer.get(i);
+			if (b == '\n') {
+				return i;
+			}
+			else if (b == '\r') {
+				if (i + 1 < limit && byteBuffer.get(i + 1) == '\n') {
+					return i;
 				}
+				throw new StompConversionException("'\\r' must be followed by '\\n'");
 			}
 		}
-		return null;
+		return -1;
+	}
+
+	private static void consumeEndOfLine(ByteBuffer byteBuffer, int endOfLine) {
+		((Buffer) byteBuffer).position(endOfLine + (byteBuffer.get(endOfLine) == '\r' ? 2 : 1));
+	}
+
+	private static int indexOf(ByteBuffer byteBuffer, byte value, int from, int to) {
+		for (int i = from; i < to; i++) {
+			if (byteBuffer.get(i) == value) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private static boolean matches(ByteBuffer byteBuffer, int start, int length, byte[] bytes) {
+		if (length != bytes.length) {
+			return false;
+		}
+		for (int i = 0; i < length; i++) {
+			if (byteBuffer.get(start + i) != bytes[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static String toString(ByteBuffer byteBuffer, int start, int length) {
+		if (byteBuffer.hasArray()) {
+			return new String(byteBuffer.array(), byteBuffer.arrayOffset() + start, length, StandardCharsets.UTF_8);
+		}
+		byte[] bytes = new byte[length];
+		for (int i = 0; i < length; i++) {
+			bytes[i] = byteBuffer.get(start + i);
+		}
+		return new String(bytes, StandardCharsets.UTF_8);
 	}
 
 	/**
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -111,12 +111,52 @@ public class StompEncoder  {
 		return result.toByteArray();
 	}
 
+	/**
+	 * Encode the headers and payload of a MESSAGE frame sent to several
+	 * subscriptions once, except for the "subscription" and "message-id"
+	 * headers which are then added for each subscription through
+	 * {@link SharedMessageFrame#encode(String, String)}.
+	 * @param headers the headers
+	 * @param payload the payload
+	 * @return the encoded frame to complete for each subscription
+	 * @since 5.3.7
+	 */
+	public SharedMessageFrame encodeSharedMessage(Map<String, Object> headers, byte[] payload) {
+		Assert.notNull(headers, "'headers' is required");
+		Assert.notNull(payload, "'payload' is required");
+
+		StompCommand command = StompHeaderAccessor.getCommand(headers);
+		Assert.isTrue(StompCommand.MESSAGE.equals(command), () -> "Expected MESSAGE frame: " + headers);
+
+		Map<String, List<String>> commonHeaders = new LinkedHashMap<>();
+		Map<String, List<String>> nativeHeaders = getNativeHeaders(headers);
+		if (nativeHeaders != null) {
+			nativeHeaders.forEach((name, values) -> {
+				if (!SharedMessageFrame.isExcludedHeader(name)) {
+					commonHeaders.put(name, values);
+				}
+			});
+		}
+
+		Result result = new DefaultResult();
+		writeHeaders(command, Collections.singletonMap(NativeMessageHeaderAccessor.NATIVE_HEADERS, commonHeaders),
+				payload, result);
+		result.add(LINE_FEED_BYTE);
+		result.add(payload);
+		result.add((byte) 0);
+		return new SharedMessageFrame(commonHeaders, payload, result.toByteArray());
+	}
+
+	@SuppressWarnings("unchecked")
+	@Nullable
+	private static Map<String, List<String>> getNativeHeaders(Map<String, Object> headers) {
+		return (Map<String, List<String>>) headers.get(NativeMessageHeaderAccessor.NATIVE_HEADERS);
+	}
+
 	private void writeHeaders(
 			StompCommand command, Map<String, Object> headers, byte[] payload, Result result) {
 
-		@SuppressWarnings("unchecked")
-		Map<String,List<String>> nativeHeaders =
-				(Map<String, List<String>>) headers.get(NativeMessageHeaderAccessor.NATIVE_HEADERS);
+		Map<String,List<String>> nativeHeaders = getNativeHeaders(headers);
 
 		if (logger.isTraceEnabled()) {
 			logger.trace("Encoding STOMP " + command + ", headers=" + nativeHeaders);
@@ -182,7 +222,7 @@ public class StompEncoder  {
 	 * See STOMP Spec 1.2:
 	 * <a href="https://stomp.github.io/stomp-specification-1.2.html#Value_Encoding">"Value Encoding"</a>.
 	 */
-	private String escape(String inString) {
+	private static String escape(String inString) {
 		StringBuilder sb = null;
 		for (int i = 0; i < inString.length(); i++) {
 			char c = inString.charAt(i);
@@ -209,7 +249,7 @@ public class StompEncoder  {
 		return (sb != null ? sb.toString() : inString);
 	}
 
-	private StringBuilder getStringBuilder(@Nullable StringBuilder sb, String inString, int i) {
+	private static StringBuilder getStringBuilder(@Nullable StringBuilder sb, String inString, int i) {
 		if (sb == null) {
 			sb = new StringBuilder(inString.length());
 			sb.append(inString, 0, i);
@@ -218,6 +258,92 @@ public class StompEncoder  {
 	}
 
 
+	/**
+	 * A MESSAGE frame with the common headers and the payload encoded once,
+	 * to be completed with the "subscription" and "message-id" headers of
+	 * each subscription.
+	 * @since 5.3.7
+	 * @see #encodeSharedMessage(Map, byte[])
+	 */
+	public static final class SharedMessageFrame {
+
+		private static final byte[] SUBSCRIPTION_PREFIX =
+				("MESSAGE\n" + StompHeaderAccessor.STOMP_SUBSCRIPTION_HEADER + ":").getBytes(StandardCharsets.UTF_8);
+
+		private static final byte[] MESSAGE_ID_PREFIX =
+				("\n" + StompHeaderAccessor.STOMP_MESSAGE_ID_HEADER + ":").getBytes(StandardCharsets.UTF_8);
+
+		private final Map<String, List<String>> commonHeaders;
+
+		private final byte[] payload;
+
+		// common headers, content-length, blank line, payload and NULL octet
+		private final byte[] encodedSuffix;
+
+		private SharedMessageFrame(Map<String, List<String>> commonHeaders, byte[] payload, byte[] encodedSuffix) {
+			this.commonHeaders = commonHeaders;
+			this.payload = payload;
+			this.encodedSuffix = encodedSuffix;
+		}
+
+		/**
+		 * Whether this frame was encoded from the same payload instance and
+		 * from the same native headers, apart from the per-subscription ones.
+		 */
+		public boolean matches(Map<String, Object> headers, byte[] payload) {
+			if (payload != this.payload) {
+				return false;
+			}
+			Map<String, List<String>> nativeHeaders = getNativeHeaders(headers);
+			int count = 0;
+			if (nativeHeaders != null) {
+				for (Entry<String, List<String>> entry : nativeHeaders.entrySet()) {
+					if (isExcludedHeader(entry.getKey())) {
+						continue;
+					}
+					if (!entry.getValue().equals(this.commonHeaders.get(entry.getKey()))) {
+						return false;
+					}
+					count++;
+				}
+			}
+			return (count == this.commonHeaders.size());
+		}
+
+		/**
+		 * Complete the frame for the given subscription.
+		 * @param subscriptionId the value for the "subscription" header
+		 * @param messageId the value for the "message-id" header
+		 * @return the encoded frame
+		 */
+		public byte[] encode(String subscriptionId, String messageId) {
+			byte[] subscriptionBytes = escape(subscriptionId).getBytes(StandardCharsets.UTF_8);
+			byte[] messageIdBytes = escape(messageId).getBytes(StandardCharsets.UTF_8);
+			byte[] result = new byte[SUBSCRIPTION_PREFIX.length + subscriptionBytes.length +
+					MESSAGE_ID_PREFIX.length + messageIdBytes.length + 1 + this.encodedSuffix.length];
+			int position = 0;
+			position = append(SUBSCRIPTION_PREFIX, result, position);
+			position = append(subscriptionBytes, result, position);
+			position = append(MESSAGE_ID_PREFIX, result, position);
+			position = append(messageIdBytes, result, position);
+			result[position++] = LINE_FEED_BYTE;
+			append(this.encodedSuffix, result, position);
+			return result;
+		}
+
+		private static int append(byte[] src, byte[] dest, int position) {
+			System.arraycopy(src, 0, dest, position, src.length);
+			return position + src.length;
+		}
+
+		private static boolean isExcludedHeader(String name) {
+			return (StompHeaderAccessor.STOMP_SUBSCRIPTION_HEADER.equals(name) ||
+					StompHeaderAccessor.STOMP_MESSAGE_ID_HEADER.equals(name) ||
+					StompHeaderAccessor.STOMP_CONTENT_LENGTH_HEADER.equals(name));
+		}
+	}
+
+
 	/**
 	 * Accumulates byte content and returns an aggregated byte[] at the end.
 	 */
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.messaging.simp.user;
+
+import org.springframework.util.Assert;
+
+/**
+ * {@link SimpSubscriptionMatcher} for subscriptions to a specific destination,
+ * as created through {@link SimpSubscriptionMatcher#forDestination}.
+ *
+ * @author agent (agent@local)
+ * @since 5.3.7
+ */
+final class DestinationSubscriptionMatcher implements SimpSubscriptionMatcher {
+
+	private final String destination;
+
+
+	DestinationSubscriptionMatcher(String destination) {
+		Assert.notNull(destination, "Destination must not be null");
+		this.destination = destination;
+	}
+
+
+	public String getDestination() {
+		return this.destination;
+	}
+
+	@Override
+	public boolean match(SimpSubscription subscription) {
+		return this.destination.equals(subscription.getDestination());
+	}
+
+	@Override
+	public String toString() {
+		return "DestinationSubscriptionMatcher[destination=" + this.destination + "]";
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -26,6 +26,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.springframework.context.ApplicationEvent;
 import org.springframework.context.event.SmartApplicationListener;
@@ -44,6 +45,13 @@ import org.springframework.util.ObjectUtils;
  * handled by {@link UserRegistryMessageHandler} which in turn notifies this
  * registry when updates are received.
  *
+ * <p>Each broadcast carries a version. Besides full snapshots, the local
+ * registry can be broadcast as a delta with only the users that were added,
+ * changed, or removed since the previous broadcast. A delta is applied to a
+ * remote registry only if it is based on the version held locally; otherwise
+ * it is ignored until the next full snapshot arrives. Any broadcast from a
+ * known server, including an ignored delta, keeps its registry from expiring.
+ *
  * @author Rossen Stoyanchev
  * @since 4.2
  */
@@ -61,6 +69,12 @@ public class MultiServerUserRegistry implements SimpUserRegistry, SmartApplicati
 	/* Cross-server session lookup (e.g. same user connected to multiple servers) */
 	private final SessionLookup sessionLookup = new SessionLookup();
 
+	/* Version of the last broadcast of the local registry (guarded by "this") */
+	private long localVersion;
+
+	/* User fingerprints as of the last broadcast, to compute deltas (guarded by "this") */
+	private Map<String, Integer> localFingerprints = Collections.emptyMap();
+
 
 	/**
 	 * Create an instance wrapping the local user registry.
@@ -149,6 +163,11 @@ public class MultiServerUserRegistry implements SimpUserRegistry, SmartApplicati
 		return userCount;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 * <p>Matchers created through {@link SimpSubscriptionMatcher#forDestination}
+	 * are resolved through a per-server destination index for remote registries.
+	 */
 	@Override
 	public Set<SimpSubscription> findSubscriptions(SimpSubscriptionMatcher matcher) {
 		Set<SimpSubscription> result = new HashSet<>();
@@ -162,15 +181,73 @@ public class MultiServerUserRegistry implements SimpUserRegistry, SmartApplicati
 
 	// Internal methods for UserRegistryMessageHandler to manage broadcasts
 
-	Object getLocalRegistryDto() {
-		return new UserRegistrySnapshot(this.id, this.localRegistry);
+	synchronized Object getLocalRegistryDto() {
+		this.localFingerprints = Collections.emptyMap();
+		return new UserRegistrySnapshot(this.id, ++this.localVersion, this.localRegistry);
+	}
+
+	/**
+	 * Return a full snapshot, or a delta relative to the previous call, of the
+	 * local registry, keeping track of what has been broadcast.
+	 * @param checkpoint whether to return a full snapshot
+	 */
+	synchronized Object getLocalRegistryDto(boolean checkpoint) {
+		Set<SimpUser> users = this.localRegistry.getUsers();
+		Map<String, Integer> fingerprints = CollectionUtils.newHashMap(users.size());
+		long baseVersion = this.localVersion;
+		UserRegistrySnapshot snapshot = new UserRegistrySnapshot(this.id, ++this.localVersion);
+		for (SimpUser user : users) {
+			Integer fingerprint = fingerprint(user);
+			fingerprints.put(user.getName(), fingerprint);
+			if (checkpoint || !fingerprint.equals(this.localFingerprints.get(user.getName()))) {
+				snapshot.getUserMap().put(user.getName(), new TransferSimpUser(user));
+			}
+		}
+		if (!checkpoint) {
+			Set<String> removedUsers = new HashSet<>();
+			for (String userName : this.localFingerprints.keySet()) {
+				if (!fingerprints.containsKey(userName)) {
+					removedUsers.add(userName);
+				}
+			}
+			snapshot.markAsDelta(baseVersion, removedUsers);
+		}
+		this.localFingerprints = fingerprints;
+		return snapshot;
+	}
+
+	/**
+	 * Order-independent hash of a user's sessions and subscriptions.
+	 * A collision only delays an update until the next full snapshot.
+	 */
+	private static int fingerprint(SimpUser user) {
+		int hash = user.getName().hashCode();
+		for (SimpSession session : user.getSessions()) {
+			int sessionHash = session.getId().hashCode();
+			for (SimpSubscription subscription : session.getSubscriptions()) {
+				sessionHash += 31 * subscription.getId().hashCode() + subscription.getDestination().hashCode();
+			}
+			hash += 31 * sessionHash;
+		}
+		return hash;
 	}
 
 	void addRemoteRegistryDto(Message<?> message, MessageConverter converter, long expirationPeriod) {
 		UserRegistrySnapshot registry = (UserRegistrySnapshot) converter.fromMessage(message, UserRegistrySnapshot.class);
-		if (registry != null && !registry.getId().equals(this.id)) {
+		if (registry == null || registry.getId().equals(this.id)) {
+			return;
+		}
+		if (registry.isDelta()) {
+			UserRegistrySnapshot current = this.remoteRegistries.get(registry.getId());
+			// Without a matching base version, wait for the next full snapshot
+			if (current != null) {
+				current.applyDelta(registry, expirationPeriod, this.sessionLookup);
+			}
+		}
+		else {
 			registry.init(expirationPeriod, this.sessionLookup);
-			this.remoteRegistries.put(registry.getId(), registry);
+			this.remoteRegistries.merge(registry.getId(), registry,
+					(current, update) -> (current.getVersion() <= update.getVersion() ? update : current));
 		}
 	}
 
@@ -194,9 +271,20 @@ public class MultiServerUserRegistry implements SimpUserRegistry, SmartApplicati
 
 		private String id = "";
 
+		private long version;
+
+		private boolean delta;
+
+		private long baseVersion;
+
 		private Map<String, TransferSimpUser> users = Collections.emptyMap();
 
-		private long expirationTime;
+		private Set<String> removedUsers = Collections.emptySet();
+
+		/* Destination -> subscriptions, maintained for remote registries only */
+		private final ConcurrentMap<String, Set<SimpSubscription>> subscriptionIndex = new ConcurrentHashMap<>();
+
+		private volatile long expirationTime;
 
 		/**
 		 * Default constructor for JSON deserialization.
@@ -205,11 +293,21 @@ public class MultiServerUserRegistry implements SimpUserRegistry, SmartApplicati
 		public UserRegistrySnapshot() {
 		}
 
+		/**
+		 * Constructor to create an empty DTO to add local users to.
+		 */
+		public UserRegistrySnapshot(String id, long version) {
+			this.id = id;
+			this.version = version;
+			this.users = new HashMap<>();
+		}
+
 		/**
 		 * Constructor to create DTO from a local user registry.
 		 */
-		public UserRegistrySnapshot(String id, SimpUserRegistry registry) {
+		public UserRegistrySnapshot(String id, long version, SimpUserRegistry registry) {
 			this.id = id;
+			this.version = version;
 			Set<SimpUser> users = registry.getUsers();
 			this.users = CollectionUtils.newHashMap(users.size());
 			for (SimpUser user : users) {
@@ -226,6 +324,33 @@ public class MultiServerUserRegistry implements SimpUserRegistry, SmartApplicati
 			return this.id;
 		}
 
+		@SuppressWarnings("unused")
+		public void setVersion(long version) {
+			this.version = version;
+		}
+
+		public long getVersion() {
+			return this.version;
+		}
+
+		@SuppressWarnings("unused")
+		public void setDelta(boolean delta) {
+			this.delta = delta;
+		}
+
+		public boolean isDelta() {
+			return this.delta;
+		}
+
+		@SuppressWarnings("unused")
+		public void setBaseVersion(long baseVersion) {
+			this.baseVersion = baseVersion;
+		}
+
+		public long getBaseVersion() {
+			return this.baseVersion;
+		}
+
 		@SuppressWarnings("unused")
 		public void setUserMap(Map<String, TransferSimpUser> users) {
 			this.users = users;
@@ -235,18 +360,92 @@ public class MultiServerUserRegistry implements SimpUserRegistry, SmartApplicati
 			return this.users;
 		}
 
+		@SuppressWarnings("unused")
+		public void setRemovedUsers(Set<String> removedUsers) {
+			this.removedUsers = removedUsers;
+		}
+
+		public Set<String> getRemovedUsers() {
+			return this.removedUsers;
+		}
+
+		public void markAsDelta(long baseVersion, Set<String> removedUsers) {
+			this.delta = true;
+			this.baseVersion = baseVersion;
+			this.removedUsers = removedUsers;
+		}
+
 		public boolean isExpired(long now) {
 			return (now > this.expirationTime);
 		}
 
 		public void init(long expirationPeriod, SessionLookup sessionLookup) {
 			this.expirationTime = System.currentTimeMillis() + expirationPeriod;
+			this.users = new ConcurrentHashMap<>(this.users);
 			for (TransferSimpUser user : this.users.values()) {
 				user.afterDeserialization(sessionLookup);
+				index(user);
+			}
+		}
+
+		/**
+		 * Apply the given delta if it is based on the current version.
+		 * <p>The expiration time is refreshed either way, since the delta shows
+		 * that the remote server is still alive: its users are kept, even if
+		 * possibly stale, until the next full snapshot brings them up to date.
+		 * @return whether the delta was applied
+		 */
+		public synchronized boolean applyDelta(
+				UserRegistrySnapshot delta, long expirationPeriod, SessionLookup sessionLookup) {
+
+			this.expirationTime = System.currentTimeMillis() + expirationPeriod;
+			if (delta.getBaseVersion() != this.version) {
+				return false;
+			}
+			for (String userName : delta.getRemovedUsers()) {
+				TransferSimpUser user = this.users.remove(userName);
+				if (user != null) {
+					unindex(user);
+				}
+			}
+			for (TransferSimpUser user : delta.getUserMap().values()) {
+				user.afterDeserialization(sessionLookup);
+				TransferSimpUser previous = this.users.put(user.getName(), user);
+				if (previous != null) {
+					unindex(previous);
+				}
+				index(user);
+			}
+			this.version = delta.getVersion();
+			return true;
+		}
+
+		private void index(TransferSimpUser user) {
+			for (TransferSimpSession session : user.sessions) {
+				for (SimpSubscription subscription : session.subscriptions) {
+					this.subscriptionIndex.computeIfAbsent(subscription.getDestination(),
+							destination -> ConcurrentHashMap.newKeySet()).add(subscription);
+				}
+			}
+		}
+
+		private void unindex(TransferSimpUser user) {
+			for (TransferSimpSession session : user.sessions) {
+				for (SimpSubscription subscription : session.subscriptions) {
+					this.subscriptionIndex.computeIfPresent(subscription.getDestination(), (destination, set) -> {
+						set.remove(subscription);
+						return (set.isEmpty() ? null : set);
+					});
+				}
 			}
 		}
 
 		public Set<SimpSubscription> findSubscriptions(SimpSubscriptionMatcher matcher) {
+			if (matcher instanceof DestinationSubscriptionMatcher) {
+				String destination = ((DestinationSubscriptionMatcher) matcher).getDestination();
+				Set<SimpSubscription> subscriptions = this.subscriptionIndex.get(destination);
+				return (subscriptions != null ? new HashSet<>(subscriptions) : Collections.emptySet());
+			}
 			Set<SimpSubscription> result = new HashSet<>();
 			for (TransferSimpUser user : this.users.values()) {
 				for (TransferSimpSession session : user.sessions) {
@@ -262,7 +461,7 @@ public class MultiServerUserRegistry implements SimpUserRegistry, SmartApplicati
 
 		@Override
 		public String toString() {
-			return "id=" + this.id + ", users=" + this.users;
+			return "id=" + this.id + ", version=" + this.version + ", users=" + this.users;
 		}
 	}
 
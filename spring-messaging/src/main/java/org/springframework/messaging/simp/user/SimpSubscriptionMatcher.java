@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2016 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -32,4 +32,17 @@ public interface SimpSubscriptionMatcher {
 	 */
 	boolean match(SimpSubscription subscription);
 
+
+	/**
+	 * Create a matcher for subscriptions to the given destination. Registries
+	 * may recognize such matchers and resolve them through an index rather
+	 * than by testing every subscription.
+	 * @param destination the exact destination to match
+	 * @return the matcher
+	 * @since 5.3.7
+	 */
+	static SimpSubscriptionMatcher forDestination(String destination) {
+		return new DestinationSubscriptionMatcher(destination);
+	}
+
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2017 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,8 +16,14 @@
 
 package org.springframework.messaging.simp.user;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 import org.springframework.context.ApplicationListener;
 import org.springframework.lang.Nullable;
@@ -29,8 +35,11 @@ import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
 import org.springframework.messaging.simp.SimpMessageType;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.messaging.simp.broker.BrokerAvailabilityEvent;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.messaging.support.NativeMessageHeaderAccessor;
 import org.springframework.scheduling.TaskScheduler;
 import org.springframework.util.Assert;
+import org.springframework.util.StreamUtils;
 
 /**
  * {@code MessageHandler} that handles user registry broadcasts from other
@@ -39,11 +48,26 @@ import org.springframework.util.Assert;
  *
  * <p>The aggregated information is maintained in a {@link MultiServerUserRegistry}.
  *
+ * <p>By default every broadcast contains the full local registry. With a
+ * {@link #setCheckpointInterval checkpoint interval} greater than 1, only
+ * every n-th broadcast is a full snapshot while the ones in between contain
+ * the changes since the previous broadcast. Broadcasts may also be
+ * {@link #setCompressionEnabled compressed}.
+ *
  * @author Rossen Stoyanchev
  * @since 4.2
  */
 public class UserRegistryMessageHandler implements MessageHandler, ApplicationListener<BrokerAvailabilityEvent> {
 
+	/**
+	 * Native header that indicates a compressed broadcast payload.
+	 * @since 5.3.7
+	 */
+	public static final String CONTENT_ENCODING_HEADER = "content-encoding";
+
+	private static final String GZIP_ENCODING = "gzip";
+
+
 	private final MultiServerUserRegistry userRegistry;
 
 	private final SimpMessagingTemplate brokerTemplate;
@@ -59,6 +83,10 @@ public class UserRegistryMessageHandler implements MessageHandler, ApplicationLi
 
 	private long registryExpirationPeriod = TimeUnit.SECONDS.toMillis(20);
 
+	private int checkpointInterval = 1;
+
+	private boolean compressionEnabled;
+
 
 	/**
 	 * Constructor.
@@ -107,10 +135,56 @@ public class UserRegistryMessageHandler implements MessageHandler, ApplicationLi
 		return this.registryExpirationPeriod;
 	}
 
+	/**
+	 * Configure how often to broadcast a full snapshot of the local registry,
+	 * in number of broadcasts. Broadcasts in between only contain the users
+	 * added, changed, or removed since the previous broadcast, which other
+	 * servers apply to their copy of this server's registry. A server that
+	 * missed a broadcast, or joined the cluster later, ignores changes until
+	 * the next full snapshot.
+	 * <p>By default this is set to 1, i.e. every broadcast is a full snapshot,
+	 * as expected by servers running an earlier version.
+	 * @param checkpointInterval the number of broadcasts per full snapshot
+	 * @since 5.3.7
+	 */
+	public void setCheckpointInterval(int checkpointInterval) {
+		Assert.isTrue(checkpointInterval > 0, "'checkpointInterval' must be greater than 0");
+		this.checkpointInterval = checkpointInterval;
+	}
+
+	/**
+	 * Return the configured checkpoint interval.
+	 * @since 5.3.7
+	 */
+	public int getCheckpointInterval() {
+		return this.checkpointInterval;
+	}
+
+	/**
+	 * Whether to GZIP-compress the serialized content of broadcasts, marking
+	 * them with a {@link #CONTENT_ENCODING_HEADER} native header. Compressed
+	 * broadcasts from other servers are always accepted.
+	 * <p>By default this is set to {@code false}.
+	 * @since 5.3.7
+	 */
+	public void setCompressionEnabled(boolean compressionEnabled) {
+		this.compressionEnabled = compressionEnabled;
+	}
+
+	/**
+	 * Whether broadcasts are compressed.
+	 * @since 5.3.7
+	 */
+	public boolean isCompressionEnabled() {
+		return this.compressionEnabled;
+	}
+
 
 	@Override
 	public void onApplicationEvent(BrokerAvailabilityEvent event) {
 		if (event.isBrokerAvailable()) {
+			// Other servers may have missed changes, so start over with a full snapshot
+			this.schedulerTask.resetCheckpoint();
 			long delay = getRegistryExpirationPeriod() / 2;
 			this.scheduledFuture = this.scheduler.scheduleWithFixedDelay(this.schedulerTask, delay);
 		}
@@ -126,25 +200,76 @@ public class UserRegistryMessageHandler implements MessageHandler, ApplicationLi
 	@Override
 	public void handleMessage(Message<?> message) throws MessagingException {
 		MessageConverter converter = this.brokerTemplate.getMessageConverter();
-		this.userRegistry.addRemoteRegistryDto(message, converter, getRegistryExpirationPeriod());
+		this.userRegistry.addRemoteRegistryDto(decompressIfNecessary(message), converter, getRegistryExpirationPeriod());
+	}
+
+	private Message<?> decompressIfNecessary(Message<?> message) {
+		String encoding = NativeMessageHeaderAccessor.getFirstNativeHeader(CONTENT_ENCODING_HEADER, message.getHeaders());
+		if (!GZIP_ENCODING.equals(encoding) || !(message.getPayload() instanceof byte[])) {
+			return message;
+		}
+		try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream((byte[]) message.getPayload()))) {
+			return MessageBuilder.createMessage(StreamUtils.copyToByteArray(in), message.getHeaders());
+		}
+		catch (IOException ex) {
+			throw new MessagingException(message, "Failed to decompress user registry broadcast", ex);
+		}
+	}
+
+	private static byte[] compress(Object payload) throws IOException {
+		byte[] bytes = (payload instanceof byte[] ? (byte[]) payload :
+				payload.toString().getBytes(StandardCharsets.UTF_8));
+		ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 4 + 64);
+		try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+			gzip.write(bytes);
+		}
+		return out.toByteArray();
 	}
 
 
 	private class UserRegistryTask implements Runnable {
 
+		private int broadcastCount;
+
 		@Override
 		public void run() {
 			try {
 				SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
 				accessor.setHeader(SimpMessageHeaderAccessor.IGNORE_ERROR, true);
 				accessor.setLeaveMutable(true);
-				Object payload = userRegistry.getLocalRegistryDto();
+				Object payload = getPayload();
+				if (isCompressionEnabled()) {
+					Message<?> message = brokerTemplate.getMessageConverter().toMessage(payload, accessor.getMessageHeaders());
+					if (message != null) {
+						accessor.setNativeHeader(CONTENT_ENCODING_HEADER, GZIP_ENCODING);
+						byte[] content = compress(message.getPayload());
+						Message<byte[]> compressed = MessageBuilder.createMessage(content, accessor.getMessageHeaders());
+						brokerTemplate.send(getBroadcastDestination(), compressed);
+						return;
+					}
+				}
 				brokerTemplate.convertAndSend(getBroadcastDestination(), payload, accessor.getMessageHeaders());
 			}
+			catch (IOException ex) {
+				throw new MessagingException("Failed to compress user registry broadcast", ex);
+			}
 			finally {
 				userRegistry.purgeExpiredRegistries();
 			}
 		}
+
+		void resetCheckpoint() {
+			this.broadcastCount = 0;
+		}
+
+		private Object getPayload() {
+			int interval = getCheckpointInterval();
+			if (interval == 1) {
+				return userRegistry.getLocalRegistryDto();
+			}
+			boolean checkpoint = (this.broadcastCount++ % interval == 0);
+			return userRegistry.getLocalRegistryDto(checkpoint);
+		}
 	}
 
 }
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.messaging.support;
+
+import java.util.List;
+
+import org.springframework.lang.Nullable;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+
+/**
+ * An extension of {@link ChannelInterceptor} with callbacks to intercept the
+ * dispatching of a batch of messages to a specific subscriber. Supported on
+ * {@link BatchingExecutorSubscribableChannel}, where the callbacks are invoked
+ * once per batch rather than once per message.
+ *
+ * <p>Unlike with {@link ExecutorChannelInterceptor}, the subscriber is not
+ * necessarily invoked right after {@link #beforeHandle(List, MessageChannel, MessageHandler)}
+ * for each message, so these callbacks are not suitable for setting up
+ * per-message thread-bound state such as a security context.
+ *
+ * @author agent (agent@local)
+ * @since 5.3.7
+ * @see BatchingExecutorSubscribableChannel
+ */
+public interface BatchChannelInterceptor extends ChannelInterceptor {
+
+	/**
+	 * Invoked in the thread dispatching the batch, before the target
+	 * MessageHandler is invoked. Allows for modification of the batch, e.g.
+	 * filtering out messages. If the returned list is empty, the MessageHandler
+	 * is not invoked.
+	 * @param messages the messages to be handled
+	 * @param channel the channel on which the messages were sent to
+	 * @param handler the target handler to handle the messages
+	 * @return the input messages, or a new list of messages
+	 */
+	default List<Message<?>> beforeHandle(List<Message<?>> messages, MessageChannel channel, MessageHandler handler) {
+		return messages;
+	}
+
+	/**
+	 * Invoked in the thread dispatching the batch after the target
+	 * MessageHandler was invoked, regardless of the outcome, thus allowing
+	 * for proper resource cleanup.
+	 * <p>Note that this will be invoked only if beforeHandle successfully
+	 * completed and returned a non-empty list of messages.
+	 * @param messages the messages handled
+	 * @param channel the channel on which the messages were sent to
+	 * @param handler the target handler that handled the messages
+	 * @param ex any exception that may been raised by the handler
+	 */
+	default void afterMessagesHandled(List<Message<?>> messages, MessageChannel channel, MessageHandler handler,
+			@Nullable Exception ex) {
+	}
+
+}
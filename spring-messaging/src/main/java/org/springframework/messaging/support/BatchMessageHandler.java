@@ -0,0 +1,50 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.messaging.support;
+
+import java.util.List;
+
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.MessagingException;
+
+/**
+ * An extension of {@link MessageHandler} for handlers that can process several
+ * messages at once. Channels that dispatch messages in batches, such as
+ * {@link BatchingExecutorSubscribableChannel}, pass all messages of a batch
+ * to {@link #handleMessages} instead of invoking {@link #handleMessage} once
+ * per message.
+ *
+ * @author agent (agent@local)
+ * @since 5.3.7
+ * @see BatchingExecutorSubscribableChannel
+ */
+public interface BatchMessageHandler extends MessageHandler {
+
+	/**
+	 * Handle the given messages, in the order in which they were sent.
+	 * <p>The default implementation delegates to {@link #handleMessage}
+	 * for each message.
+	 * @param messages the messages to be handled, never empty
+	 * @throws MessagingException if the handler failed to process the messages
+	 */
+	default void handleMessages(List<Message<?>> messages) throws MessagingException {
+		for (Message<?> message : messages) {
+			handleMessage(message);
+		}
+	}
+
+}
@@ -0,0 +1,417 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.messaging.support;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+import org.springframework.lang.Nullable;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.util.Assert;
+
+/**
+ * An {@link ExecutorSubscribableChannel} that buffers sent messages in bounded,
+ * lock-free ring buffers and dispatches them to subscribers in batches.
+ *
+ * <p>Messages are spread across a configurable number of lanes, each with its
+ * own buffer. Rather than submitting a task per message and subscriber, a
+ * single drain task per lane at a time is submitted to the {@link Executor},
+ * which takes up to {@link #setMaxBatchSize maxBatchSize} messages from the
+ * lane and passes them to each subscriber. As a consequence, each lane is
+ * handled by at most one thread at a time, in the order in which its messages
+ * were sent, and a slow subscriber holds up all further messages in its lane.
+ * With a single lane, the default, this channel is single-consumer: it is not
+ * suitable for subscribers that block, such as a {@code clientInboundChannel}
+ * with long-running {@code @MessageMapping} methods, where one slow message
+ * would stall every session.
+ *
+ * <p>With several lanes, messages are assigned to lanes by the key returned
+ * from the {@link #setLaneKeyResolver laneKeyResolver}, e.g. the session id,
+ * so that messages with the same key stay in order while different keys are
+ * handled in parallel. Messages without a key are spread across lanes without
+ * any ordering guarantee.
+ *
+ * <p>Subscribers that implement {@link BatchMessageHandler} receive the whole
+ * batch at once, unless {@link ExecutorChannelInterceptor ExecutorChannelInterceptors}
+ * are configured, since those need to be invoked around the handling of each
+ * individual message. {@link BatchChannelInterceptor BatchChannelInterceptors}
+ * are invoked once per batch and subscriber.
+ *
+ * <p>When the buffer is full, {@link #send(Message, long)} waits up to the given
+ * timeout for the buffer to be drained, or indefinitely for {@link #send(Message)},
+ * and returns {@code false} if no space became available. Subscribers should
+ * therefore not send back to the same channel with an indefinite timeout.
+ *
+ * @author agent (agent@local)
+ * @since 5.3.7
+ */
+public class BatchingExecutorSubscribableChannel extends ExecutorSubscribableChannel {
+
+	private static final int DEFAULT_MAX_BATCH_SIZE = 64;
+
+	private static final long FULL_BUFFER_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+
+	private final Lane[] lanes;
+
+	private final AtomicInteger nextLane = new AtomicInteger();
+
+	@Nullable
+	private Function<Message<?>, Object> laneKeyResolver;
+
+	private int maxBatchSize = DEFAULT_MAX_BATCH_SIZE;
+
+	private final List<BatchChannelInterceptor> batchInterceptors = new ArrayList<>(4);
+
+
+	/**
+	 * Create a new {@link BatchingExecutorSubscribableChannel} instance
+	 * with a single lane.
+	 * @param executor the executor used to dispatch messages to subscribers
+	 * @param capacity the maximum number of buffered messages, rounded up
+	 * to the next power of two
+	 */
+	public BatchingExecutorSubscribableChannel(Executor executor, int capacity) {
+		this(executor, capacity, 1);
+	}
+
+	/**
+	 * Create a new {@link BatchingExecutorSubscribableChannel} instance.
+	 * @param executor the executor used to dispatch messages to subscribers
+	 * @param capacity the maximum number of buffered messages per lane,
+	 * rounded up to the next power of two
+	 * @param laneCount the number of lanes that are drained independently
+	 * @see #setLaneKeyResolver
+	 */
+	public BatchingExecutorSubscribableChannel(Executor executor, int capacity, int laneCount) {
+		super(executor);
+		Assert.notNull(executor, "Executor must not be null");
+		Assert.isTrue(capacity > 0 && capacity <= (1 << 30), "Capacity must be between 1 and 2^30");
+		Assert.isTrue(laneCount > 0, "Lane count must be greater than 0");
+		this.lanes = new Lane[laneCount];
+		for (int i = 0; i < laneCount; i++) {
+			this.lanes[i] = new Lane(capacity);
+		}
+	}
+
+
+	/**
+	 * Configure a function that returns the key by which messages are assigned
+	 * to lanes, e.g. the session id of a message, or {@code null} if a message
+	 * may go to any lane.
+	 * <p>By default this is not set, in which case messages are spread across
+	 * lanes without any ordering guarantee unless there is a single lane.
+	 */
+	public void setLaneKeyResolver(@Nullable Function<Message<?>, Object> laneKeyResolver) {
+		this.laneKeyResolver = laneKeyResolver;
+	}
+
+	/**
+	 * Return the configured function to determine the lane key of a message.
+	 */
+	@Nullable
+	public Function<Message<?>, Object> getLaneKeyResolver() {
+		return this.laneKeyResolver;
+	}
+
+	/**
+	 * Return the number of lanes that are drained independently.
+	 */
+	public int getLaneCount() {
+		return this.lanes.length;
+	}
+
+
+	/**
+	 * Set the maximum number of messages to pass to subscribers at once.
+	 * <p>By default this is 64.
+	 */
+	public void setMaxBatchSize(int maxBatchSize) {
+		Assert.isTrue(maxBatchSize > 0, "Max batch size must be greater than 0");
+		this.maxBatchSize = maxBatchSize;
+	}
+
+	/**
+	 * Return the maximum number of messages to pass to subscribers at once.
+	 */
+	public int getMaxBatchSize() {
+		return this.maxBatchSize;
+	}
+
+	/**
+	 * Return the capacity of the buffer of each lane.
+	 */
+	public int getCapacity() {
+		return this.lanes[0].ringBuffer.capacity();
+	}
+
+	/**
+	 * Return the number of messages waiting to be dispatched in all lanes.
+	 */
+	public int getBufferedMessageCount() {
+		int count = 0;
+		for (Lane lane : this.lanes) {
+			count += lane.ringBuffer.size();
+		}
+		return count;
+	}
+
+	@Override
+	public void setInterceptors(List<ChannelInterceptor> interceptors) {
+		super.setInterceptors(interceptors);
+		this.batchInterceptors.clear();
+		interceptors.forEach(this::updateBatchInterceptorsFor);
+	}
+
+	@Override
+	public void addInterceptor(ChannelInterceptor interceptor) {
+		super.addInterceptor(interceptor);
+		updateBatchInterceptorsFor(interceptor);
+	}
+
+	@Override
+	public void addInterceptor(int index, ChannelInterceptor interceptor) {
+		super.addInterceptor(index, interceptor);
+		updateBatchInterceptorsFor(interceptor);
+	}
+
+	private void updateBatchInterceptorsFor(ChannelInterceptor interceptor) {
+		if (interceptor instanceof BatchChannelInterceptor) {
+			this.batchInterceptors.add((BatchChannelInterceptor) interceptor);
+		}
+	}
+
+
+	@Override
+	public boolean sendInternal(Message<?> message, long timeout) {
+		Lane lane = selectLane(message);
+		if (!lane.offer(message, timeout)) {
+			return false;
+		}
+		lane.scheduleDrain();
+		return true;
+	}
+
+	private Lane selectLane(Message<?> message) {
+		if (this.lanes.length == 1) {
+			return this.lanes[0];
+		}
+		Object key = (this.laneKeyResolver != null ? this.laneKeyResolver.apply(message) : null);
+		int hash = (key != null ? key.hashCode() : this.nextLane.getAndIncrement());
+		return this.lanes[Math.floorMod(hash, this.lanes.length)];
+	}
+
+	private void dispatch(List<Message<?>> batch, MessageHandler handler) {
+		List<Message<?>> messages = batch;
+		int interceptorIndex = -1;
+		for (BatchChannelInterceptor interceptor : this.batchInterceptors) {
+			List<Message<?>> result = interceptor.beforeHandle(messages, this, handler);
+			if (result.isEmpty()) {
+				if (logger.isDebugEnabled()) {
+					logger.debug(interceptor.getClass().getSimpleName() +
+							" returned no messages from beforeHandle, i.e. precluding the send.");
+				}
+				triggerAfterMessagesHandled(messages, handler, interceptorIndex, null);
+				return;
+			}
+			messages = result;
+			interceptorIndex++;
+		}
+		Exception failure = null;
+		if (handler instanceof BatchMessageHandler && !hasExecutorInterceptors()) {
+			try {
+				((BatchMessageHandler) handler).handleMessages(Collections.unmodifiableList(messages));
+			}
+			catch (Exception ex) {
+				logger.error("Failed to handle " + messages.size() + " messages in " + handler, ex);
+				failure = ex;
+			}
+		}
+		else {
+			for (Message<?> message : messages) {
+				try {
+					new SendTask(message, handler).run();
+				}
+				catch (Exception ex) {
+					logger.error("Failed to handle " + message + " in " + handler, ex);
+					if (failure == null) {
+						failure = ex;
+					}
+				}
+			}
+		}
+		triggerAfterMessagesHandled(messages, handler, interceptorIndex, failure);
+	}
+
+	private void triggerAfterMessagesHandled(
+			List<Message<?>> messages, MessageHandler handler, int interceptorIndex, @Nullable Exception ex) {
+
+		for (int i = interceptorIndex; i >= 0; i--) {
+			BatchChannelInterceptor interceptor = this.batchInterceptors.get(i);
+			try {
+				interceptor.afterMessagesHandled(messages, this, handler, ex);
+			}
+			catch (Throwable ex2) {
+				logger.error("Exception from afterMessagesHandled in " + interceptor, ex2);
+			}
+		}
+	}
+
+
+	/**
+	 * A buffer of messages with its own drain task, so that at most one thread
+	 * at a time dispatches the messages of a lane.
+	 */
+	private class Lane {
+
+		private final RingBuffer ringBuffer;
+
+		private final AtomicBoolean drainScheduled = new AtomicBoolean();
+
+		private final Runnable drainTask = this::drain;
+
+		Lane(int capacity) {
+			this.ringBuffer = new RingBuffer(capacity);
+		}
+
+		boolean offer(Message<?> message, long timeout) {
+			if (this.ringBuffer.offer(message)) {
+				return true;
+			}
+			if (timeout == 0) {
+				return false;
+			}
+			long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+			while (!this.ringBuffer.offer(message)) {
+				if (timeout > 0 && System.nanoTime() - deadline >= 0) {
+					return false;
+				}
+				LockSupport.parkNanos(FULL_BUFFER_PARK_NANOS);
+			}
+			return true;
+		}
+
+		void scheduleDrain() {
+			if (this.drainScheduled.compareAndSet(false, true)) {
+				Executor executor = getExecutor();
+				Assert.state(executor != null, "No Executor");
+				try {
+					executor.execute(this.drainTask);
+				}
+				catch (RuntimeException ex) {
+					this.drainScheduled.set(false);
+					throw ex;
+				}
+			}
+		}
+
+		private void drain() {
+			try {
+				List<Message<?>> batch = this.ringBuffer.poll(maxBatchSize);
+				if (!batch.isEmpty()) {
+					for (MessageHandler handler : getSubscribers()) {
+						dispatch(batch, handler);
+					}
+				}
+			}
+			finally {
+				this.drainScheduled.set(false);
+			}
+			if (this.ringBuffer.hasNext()) {
+				scheduleDrain();
+			}
+		}
+	}
+
+
+	/**
+	 * Bounded ring buffer for multiple producers and a single consumer.
+	 * Producers claim a position by incrementing the tail and then publish the
+	 * message into the slot; the consumer, which is guaranteed to be the only
+	 * one through the {@code drainScheduled} flag of its lane, takes published messages
+	 * starting at the head and clears their slots.
+	 */
+	private static final class RingBuffer {
+
+		private final AtomicReferenceArray<Message<?>> slots;
+
+		private final int mask;
+
+		private final AtomicLong tail = new AtomicLong();
+
+		private volatile long head;
+
+		RingBuffer(int capacity) {
+			int size = (capacity > 1 ? Integer.highestOneBit(capacity - 1) << 1 : 1);
+			this.slots = new AtomicReferenceArray<>(size);
+			this.mask = size - 1;
+		}
+
+		int capacity() {
+			return this.slots.length();
+		}
+
+		int size() {
+			return (int) Math.max(0, this.tail.get() - this.head);
+		}
+
+		boolean offer(Message<?> message) {
+			long position;
+			do {
+				position = this.tail.get();
+				if (position - this.head >= this.slots.length()) {
+					return false;
+				}
+			}
+			while (!this.tail.compareAndSet(position, position + 1));
+			this.slots.set((int) position & this.mask, message);
+			return true;
+		}
+
+		boolean hasNext() {
+			return (this.slots.get((int) this.head & this.mask) != null);
+		}
+
+		List<Message<?>> poll(int maxCount) {
+			long position = this.head;
+			List<Message<?>> messages = new ArrayList<>(Math.min(maxCount, size()));
+			while (messages.size() < maxCount) {
+				int index = (int) position & this.mask;
+				Message<?> message = this.slots.get(index);
+				if (message == null) {
+					// Empty, or claimed by a producer but not published yet
+					break;
+				}
+				this.slots.lazySet(index, null);
+				messages.add(message);
+				position++;
+			}
+			this.head = position;
+			return messages;
+		}
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -91,6 +91,14 @@ public class ExecutorSubscribableChannel extends AbstractSubscribableChannel {
 		}
 	}
 
+	/**
+	 * Whether any {@link ExecutorChannelInterceptor} has been configured.
+	 * @since 5.3.7
+	 */
+	boolean hasExecutorInterceptors() {
+		return !this.executorInterceptors.isEmpty();
+	}
+
 
 	@Override
 	public boolean sendInternal(Message<?> message, long timeout) {
@@ -110,7 +118,7 @@ public class ExecutorSubscribableChannel extends AbstractSubscribableChannel {
 	/**
 	 * Invoke a MessageHandler with ExecutorChannelInterceptors.
 	 */
-	private class SendTask implements MessageHandlingRunnable {
+	class SendTask implements MessageHandlingRunnable {
 
 		private final Message<?> inputMessage;
 
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -28,6 +28,7 @@ import org.springframework.messaging.Message;
 import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
 import org.springframework.messaging.simp.SimpMessageType;
 import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.util.AntPathMatcher;
 import org.springframework.util.MultiValueMap;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -213,6 +214,62 @@ public class DefaultSubscriptionRegistryTests {
 		assertThat(actual.size()).isEqualTo(0);
 	}
 
+	@Test
+	public void registerSubscriptionsWithNestedPatterns() {
+		this.registry.registerSubscription(subscribeMessage("sess01", "subs01", "/**"));
+		this.registry.registerSubscription(subscribeMessage("sess01", "subs02", "/topic/**"));
+		this.registry.registerSubscription(subscribeMessage("sess01", "subs03", "/topic/chat/*"));
+		this.registry.registerSubscription(subscribeMessage("sess01", "subs04", "/topic/news/*"));
+		this.registry.registerSubscription(subscribeMessage("sess02", "subs01", "/topic/chat/room1/**"));
+		this.registry.registerSubscription(subscribeMessage("sess02", "subs02", "/*/chat/room1"));
+
+		MultiValueMap<String, String> actual = this.registry.findSubscriptions(createMessage("/topic/chat/room1"));
+		assertThat(actual.get("sess01")).containsExactlyInAnyOrder("subs01", "subs02", "subs03");
+		assertThat(actual.get("sess02")).containsExactlyInAnyOrder("subs01", "subs02");
+
+		actual = this.registry.findSubscriptions(createMessage("/queue/other"));
+		assertThat(actual.size()).isEqualTo(1);
+		assertThat(actual.get("sess01")).containsExactly("subs01");
+
+		this.registry.unregisterSubscription(unsubscribeMessage("sess01", "subs03"));
+		this.registry.unregisterAllSubscriptions("sess02");
+		this.registry.registerSubscription(subscribeMessage("sess03", "subs01", "/topic/chat/room*"));
+
+		actual = this.registry.findSubscriptions(createMessage("/topic/chat/room2"));
+		assertThat(actual.size()).isEqualTo(2);
+		assertThat(actual.get("sess01")).containsExactlyInAnyOrder("subs01", "subs02");
+		assertThat(actual.get("sess03")).containsExactly("subs01");
+	}
+
+	@Test
+	public void registerSubscriptionsWithDotSeparatedPatterns() {
+		this.registry.setPathMatcher(new AntPathMatcher("."));
+		this.registry.registerSubscription(subscribeMessage("sess01", "subs01", "price.stock.*.IBM"));
+		this.registry.registerSubscription(subscribeMessage("sess01", "subs02", "price.**"));
+		this.registry.registerSubscription(subscribeMessage("sess02", "subs01", "price.bond.*"));
+
+		MultiValueMap<String, String> actual = this.registry.findSubscriptions(createMessage("price.stock.NASDAQ.IBM"));
+		assertThat(actual.size()).isEqualTo(1);
+		assertThat(actual.get("sess01")).containsExactlyInAnyOrder("subs01", "subs02");
+
+		actual = this.registry.findSubscriptions(createMessage("price.bond.US"));
+		assertThat(actual.get("sess01")).containsExactly("subs02");
+		assertThat(actual.get("sess02")).containsExactly("subs01");
+	}
+
+	@Test
+	public void registerSubscriptionsWithCaseInsensitivePathMatcher() {
+		this.registry.registerSubscription(subscribeMessage("sess01", "subs01", "/topic/price/*"));
+
+		AntPathMatcher pathMatcher = new AntPathMatcher();
+		pathMatcher.setCaseSensitive(false);
+		this.registry.setPathMatcher(pathMatcher);
+
+		MultiValueMap<String, String> actual = this.registry.findSubscriptions(createMessage("/TOPIC/Price/IBM"));
+		assertThat(actual.size()).isEqualTo(1);
+		assertThat(actual.get("sess01")).containsExactly("subs01");
+	}
+
 	@Test  // SPR-11755
 	public void registerAndUnregisterMultipleDestinations() {
 		String sess1 = "sess01";
@@ -299,6 +356,25 @@ public class DefaultSubscriptionRegistryTests {
 		assertThat(actual.size()).isEqualTo(0);
 	}
 
+	@Test
+	public void registerSubscriptionsWithAndWithoutSelector() {
+		String destination = "/foo";
+		this.registry.registerSubscription(subscribeMessage("sess01", "subs01", destination, "headers.foo == 'bar'"));
+		this.registry.registerSubscription(subscribeMessage("sess01", "subs02", destination));
+		this.registry.registerSubscription(subscribeMessage("sess02", "subs01", destination));
+
+		MultiValueMap<String, String> actual = this.registry.findSubscriptions(createMessage(destination));
+		assertThat(actual.size()).isEqualTo(2);
+		assertThat(actual.get("sess01")).containsExactly("subs02");
+		assertThat(actual.get("sess02")).containsExactly("subs01");
+
+		this.registry.unregisterAllSubscriptions("sess01");
+
+		actual = this.registry.findSubscriptions(createMessage(destination));
+		assertThat(actual.size()).isEqualTo(1);
+		assertThat(actual.get("sess02")).containsExactly("subs01");
+	}
+
 	@Test
 	public void registerSubscriptionWithSelectorNotSupported() {
 		String sessionId = "sess01";
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -19,7 +19,11 @@ package org.springframework.messaging.simp.broker;
 import java.security.Principal;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -112,6 +116,117 @@ public class SimpleBrokerMessageHandlerTests {
 		assertThat(messageCaptured("sess2", "sub3", "/bar")).isTrue();
 	}
 
+	@Test
+	public void subscribePublishWithShards() throws Exception {
+		this.messageHandler.setShardCount(4);
+		startSession("sess1");
+
+		this.messageHandler.handleMessage(createSubscriptionMessage("sess1", "sub1", "/foo"));
+		this.messageHandler.handleMessage(createSubscriptionMessage("sess1", "sub2", "/bar"));
+
+		int count = 100;
+		List<Message<?>> sent = new CopyOnWriteArrayList<>();
+		List<String> threadNames = new CopyOnWriteArrayList<>();
+		CountDownLatch latch = new CountDownLatch(count * 2);
+		given(this.clientOutChannel.send(any())).willAnswer(invocation -> {
+			sent.add(invocation.getArgument(0));
+			threadNames.add(Thread.currentThread().getName());
+			latch.countDown();
+			return true;
+		});
+
+		for (int i = 0; i < count; i++) {
+			this.messageHandler.handleMessage(createMessage("/foo", String.valueOf(i)));
+			this.messageHandler.handleMessage(createMessage("/bar", String.valueOf(i)));
+		}
+
+		assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+		assertThat(threadNames).allMatch(name -> name.startsWith("SimpleBrokerShard-"));
+		for (String destination : new String[] {"/foo", "/bar"}) {
+			List<Object> payloads = sent.stream()
+					.filter(message -> destination.equals(SimpMessageHeaderAccessor.getDestination(message.getHeaders())))
+					.map(Message::getPayload)
+					.collect(Collectors.toList());
+			assertThat(payloads).hasSize(count);
+			for (int i = 0; i < count; i++) {
+				assertThat(payloads.get(i)).isEqualTo(String.valueOf(i));
+			}
+		}
+
+		this.messageHandler.stop();
+	}
+
+	@Test
+	public void publishWithShardsWaitsWhenQueueIsFull() throws Exception {
+		this.messageHandler.setShardCount(1);
+		this.messageHandler.setShardQueueCapacity(1);
+		startSession("sess1");
+
+		this.messageHandler.handleMessage(createSubscriptionMessage("sess1", "sub1", "/foo"));
+
+		List<Object> payloads = new CopyOnWriteArrayList<>();
+		CountDownLatch sending = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		CountDownLatch sent = new CountDownLatch(3);
+		given(this.clientOutChannel.send(any())).willAnswer(invocation -> {
+			sending.countDown();
+			release.await(5, TimeUnit.SECONDS);
+			payloads.add(invocation.getArgument(0, Message.class).getPayload());
+			sent.countDown();
+			return true;
+		});
+
+		this.messageHandler.handleMessage(createMessage("/foo", "0"));
+		assertThat(sending.await(5, TimeUnit.SECONDS)).isTrue();
+		this.messageHandler.handleMessage(createMessage("/foo", "1"));
+
+		CountDownLatch handled = new CountDownLatch(1);
+		Thread publisher = new Thread(() -> {
+			this.messageHandler.handleMessage(createMessage("/foo", "2"));
+			handled.countDown();
+		});
+		publisher.start();
+		assertThat(handled.await(200, TimeUnit.MILLISECONDS)).isFalse();
+
+		release.countDown();
+		assertThat(handled.await(5, TimeUnit.SECONDS)).isTrue();
+		assertThat(sent.await(5, TimeUnit.SECONDS)).isTrue();
+		this.messageHandler.stop();
+		assertThat(payloads).containsExactly("0", "1", "2");
+	}
+
+	@Test
+	public void publishWithShardsDropsMessagesWhenQueueIsFull() throws Exception {
+		this.messageHandler.setShardCount(1);
+		this.messageHandler.setShardQueueCapacity(1);
+		this.messageHandler.setDropOnShardOverflow(true);
+		startSession("sess1");
+
+		this.messageHandler.handleMessage(createSubscriptionMessage("sess1", "sub1", "/foo"));
+
+		List<Object> payloads = new CopyOnWriteArrayList<>();
+		CountDownLatch sending = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		CountDownLatch sent = new CountDownLatch(2);
+		given(this.clientOutChannel.send(any())).willAnswer(invocation -> {
+			sending.countDown();
+			release.await(5, TimeUnit.SECONDS);
+			payloads.add(invocation.getArgument(0, Message.class).getPayload());
+			sent.countDown();
+			return true;
+		});
+
+		this.messageHandler.handleMessage(createMessage("/foo", "0"));
+		assertThat(sending.await(5, TimeUnit.SECONDS)).isTrue();
+		this.messageHandler.handleMessage(createMessage("/foo", "1"));
+		this.messageHandler.handleMessage(createMessage("/foo", "2"));
+		release.countDown();
+
+		assertThat(sent.await(5, TimeUnit.SECONDS)).isTrue();
+		this.messageHandler.stop();
+		assertThat(payloads).containsExactly("0", "1");
+	}
+
 	@Test
 	public void subscribeDisconnectPublish() {
 		String sess1 = "sess1";
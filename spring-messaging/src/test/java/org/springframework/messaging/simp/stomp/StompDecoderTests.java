@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -17,6 +17,7 @@
 package org.springframework.messaging.simp.stomp;
 
 import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 import org.junit.jupiter.api.Test;
@@ -159,6 +160,36 @@ public class StompDecoderTests {
 		assertThat(headers.getFirstNativeHeader("a:\r\n\\b")).isEqualTo("alpha:bravo\r\n\\");
 	}
 
+	@Test
+	public void decodeFrameFromDirectBuffer() {
+		byte[] bytes = "SEND\ndestination:/topic/\u00e9t\u00e9\nx\\cy:z\n\nThe body\0".getBytes(StandardCharsets.UTF_8);
+		ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+		buffer.put(bytes);
+		buffer.flip();
+
+		Message<byte[]> frame = decode(buffer);
+		StompHeaderAccessor headers = StompHeaderAccessor.wrap(frame);
+
+		assertThat(headers.getCommand()).isEqualTo(StompCommand.SEND);
+		assertThat(headers.getDestination()).isEqualTo("/topic/\u00e9t\u00e9");
+		assertThat(headers.getFirstNativeHeader("x:y")).isEqualTo("z");
+		assertThat(new String(frame.getPayload(), StandardCharsets.UTF_8)).isEqualTo("The body");
+	}
+
+	@Test
+	public void decodeFrameFromBufferSlice() {
+		byte[] bytes = "xxSEND\ndestination:test\n\nThe body\0xx".getBytes(StandardCharsets.UTF_8);
+		ByteBuffer buffer = ByteBuffer.wrap(bytes, 2, bytes.length - 4).slice();
+
+		Message<byte[]> frame = decode(buffer);
+		StompHeaderAccessor headers = StompHeaderAccessor.wrap(frame);
+
+		assertThat(headers.getCommand()).isEqualTo(StompCommand.SEND);
+		assertThat(headers.getDestination()).isEqualTo("test");
+		assertThat(new String(frame.getPayload(), StandardCharsets.UTF_8)).isEqualTo("The body");
+		assertThat(buffer.hasRemaining()).isFalse();
+	}
+
 	@Test
 	public void decodeFrameBodyNotAllowed() {
 		assertThatExceptionOfType(StompConversionException.class).isThrownBy(() ->
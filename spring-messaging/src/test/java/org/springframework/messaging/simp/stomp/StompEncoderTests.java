@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -83,4 +83,27 @@ public class StompEncoderTests {
 		assertThat(new String(encoder.encode(frame))).isEqualTo("SEND\ncontent-length:12\n\nMessage body\0");
 	}
 
+	@Test
+	public void encodeSharedMessageFrame() {
+		StompHeaderAccessor headers = StompHeaderAccessor.create(StompCommand.MESSAGE);
+		headers.setDestination("/topic/a");
+		headers.setSubscriptionId("sub0");
+		headers.setMessageId("mess0");
+		byte[] payload = "Message body".getBytes();
+		Message<byte[]> frame = MessageBuilder.createMessage(payload, headers.getMessageHeaders());
+
+		StompEncoder.SharedMessageFrame sharedFrame = encoder.encodeSharedMessage(frame.getHeaders(), payload);
+
+		assertThat(new String(sharedFrame.encode("sub1", "mess:1"))).isEqualTo(
+				"MESSAGE\nsubscription:sub1\nmessage-id:mess\\c1\ndestination:/topic/a\n" +
+				"content-length:12\n\nMessage body\0");
+		assertThat(sharedFrame.matches(frame.getHeaders(), payload)).isTrue();
+		assertThat(sharedFrame.matches(frame.getHeaders(), "Message body".getBytes())).isFalse();
+
+		headers = StompHeaderAccessor.create(StompCommand.MESSAGE);
+		headers.setDestination("/topic/b");
+		headers.setSubscriptionId("sub0");
+		assertThat(sharedFrame.matches(headers.getMessageHeaders(), payload)).isFalse();
+	}
+
 }
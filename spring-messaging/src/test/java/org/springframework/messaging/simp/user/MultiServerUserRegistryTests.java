@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,6 +16,7 @@
 
 package org.springframework.messaging.simp.user;
 
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
@@ -178,4 +179,108 @@ class MultiServerUserRegistryTests {
 		assertThat(this.registry.getUserCount()).isEqualTo(0);
 	}
 
+	@Test
+	void applyDeltaFromRemoteRegistry() {
+		Set<SimpUser> remoteUsers = new HashSet<>();
+		remoteUsers.add(createUser("joe", "sess1", "/topic/a"));
+		remoteUsers.add(createUser("jane", "sess2", "/topic/b"));
+		SimpUserRegistry remoteRegistry = mock(SimpUserRegistry.class);
+		given(remoteRegistry.getUsers()).willReturn(remoteUsers);
+		MultiServerUserRegistry remoteServer = new MultiServerUserRegistry(remoteRegistry);
+
+		this.registry.addRemoteRegistryDto(toMessage(remoteServer.getLocalRegistryDto(true)), this.converter, 20000);
+		assertThat(this.registry.getUserCount()).isEqualTo(2);
+
+		remoteUsers.removeIf(user -> user.getName().equals("joe"));
+		remoteUsers.add(createUser("jack", "sess3", "/topic/a"));
+		Object delta = remoteServer.getLocalRegistryDto(false);
+		assertThat(new String((byte[]) toMessage(delta).getPayload(), StandardCharsets.UTF_8)).doesNotContain("jane");
+
+		this.registry.addRemoteRegistryDto(toMessage(delta), this.converter, 20000);
+		assertThat(this.registry.getUserCount()).isEqualTo(2);
+		assertThat(this.registry.getUser("joe")).isNull();
+		assertThat(this.registry.getUser("jane")).isNotNull();
+		assertThat(this.registry.getUser("jack")).isNotNull();
+		assertThat(this.registry.getUser("jack").getSession("sess3")).isNotNull();
+	}
+
+	@Test
+	void ignoreDeltaWithoutMatchingBaseVersion() {
+		Set<SimpUser> remoteUsers = new HashSet<>();
+		remoteUsers.add(createUser("joe", "sess1", "/topic/a"));
+		SimpUserRegistry remoteRegistry = mock(SimpUserRegistry.class);
+		given(remoteRegistry.getUsers()).willReturn(remoteUsers);
+		MultiServerUserRegistry remoteServer = new MultiServerUserRegistry(remoteRegistry);
+
+		this.registry.addRemoteRegistryDto(toMessage(remoteServer.getLocalRegistryDto(true)), this.converter, 20000);
+
+		remoteUsers.add(createUser("jane", "sess2", "/topic/a"));
+		remoteServer.getLocalRegistryDto(false);
+		remoteUsers.add(createUser("jack", "sess3", "/topic/a"));
+		this.registry.addRemoteRegistryDto(toMessage(remoteServer.getLocalRegistryDto(false)), this.converter, 20000);
+		assertThat(this.registry.getUserCount()).isEqualTo(1);
+
+		this.registry.addRemoteRegistryDto(toMessage(remoteServer.getLocalRegistryDto(true)), this.converter, 20000);
+		assertThat(this.registry.getUserCount()).isEqualTo(3);
+	}
+
+	@Test
+	void ignoredDeltaKeepsRemoteRegistryFromExpiring() {
+		Set<SimpUser> remoteUsers = new HashSet<>();
+		remoteUsers.add(createUser("joe", "sess1", "/topic/a"));
+		SimpUserRegistry remoteRegistry = mock(SimpUserRegistry.class);
+		given(remoteRegistry.getUsers()).willReturn(remoteUsers);
+		MultiServerUserRegistry remoteServer = new MultiServerUserRegistry(remoteRegistry);
+
+		// Snapshot that would have expired by the time of the next purge
+		this.registry.addRemoteRegistryDto(toMessage(remoteServer.getLocalRegistryDto(true)), this.converter, -1);
+
+		// Missed delta, followed by one that is ignored
+		remoteUsers.add(createUser("jane", "sess2", "/topic/a"));
+		remoteServer.getLocalRegistryDto(false);
+		remoteUsers.add(createUser("jack", "sess3", "/topic/a"));
+		this.registry.addRemoteRegistryDto(toMessage(remoteServer.getLocalRegistryDto(false)), this.converter, 20000);
+
+		this.registry.purgeExpiredRegistries();
+		assertThat(this.registry.getUserCount()).isEqualTo(1);
+		assertThat(this.registry.getUser("joe")).isNotNull();
+	}
+
+	@Test
+	void findSubscriptionsByDestination() {
+		Set<SimpUser> remoteUsers = new HashSet<>();
+		remoteUsers.add(createUser("joe", "sess1", "/topic/a"));
+		remoteUsers.add(createUser("jane", "sess2", "/topic/b"));
+		SimpUserRegistry remoteRegistry = mock(SimpUserRegistry.class);
+		given(remoteRegistry.getUsers()).willReturn(remoteUsers);
+		MultiServerUserRegistry remoteServer = new MultiServerUserRegistry(remoteRegistry);
+
+		this.registry.addRemoteRegistryDto(toMessage(remoteServer.getLocalRegistryDto(true)), this.converter, 20000);
+		Set<SimpSubscription> subscriptions = this.registry.findSubscriptions(SimpSubscriptionMatcher.forDestination("/topic/a"));
+		assertThat(subscriptions).hasSize(1);
+		assertThat(subscriptions.iterator().next().getSession().getUser().getName()).isEqualTo("joe");
+
+		remoteUsers.removeIf(user -> user.getName().equals("joe"));
+		remoteUsers.add(createUser("jack", "sess3", "/topic/b"));
+		this.registry.addRemoteRegistryDto(toMessage(remoteServer.getLocalRegistryDto(false)), this.converter, 20000);
+
+		assertThat(this.registry.findSubscriptions(SimpSubscriptionMatcher.forDestination("/topic/a"))).isEmpty();
+		assertThat(this.registry.findSubscriptions(SimpSubscriptionMatcher.forDestination("/topic/b"))).hasSize(2);
+		assertThat(this.registry.findSubscriptions(subscription -> subscription.getDestination().equals("/topic/b")))
+				.hasSize(2);
+	}
+
+
+	private static TestSimpUser createUser(String name, String sessionId, String destination) {
+		TestSimpUser user = new TestSimpUser(name);
+		TestSimpSession session = new TestSimpSession(sessionId);
+		session.addSubscriptions(new TestSimpSubscription(sessionId + "-sub", destination));
+		user.addSessions(session);
+		return user;
+	}
+
+	private Message<?> toMessage(Object registryDto) {
+		return this.converter.toMessage(registryDto, null);
+	}
+
 }
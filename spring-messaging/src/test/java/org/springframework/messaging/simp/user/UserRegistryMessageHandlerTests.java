@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,9 +16,12 @@
 
 package org.springframework.messaging.simp.user;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 import java.util.concurrent.ScheduledFuture;
 
 import org.junit.jupiter.api.BeforeEach;
@@ -36,6 +39,8 @@ import org.springframework.messaging.converter.MessageConverter;
 import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.messaging.simp.broker.BrokerAvailabilityEvent;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.messaging.support.NativeMessageHeaderAccessor;
 import org.springframework.scheduling.TaskScheduler;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -175,6 +180,83 @@ public class UserRegistryMessageHandlerTests {
 		assertThat(this.multiServerRegistry.getUserCount()).isEqualTo(1);
 	}
 
+	@Test
+	public void broadcastDeltasThroughBroker() {
+		// In-process stand-in for a broker relay that delivers broadcasts to all servers
+		ExecutorSubscribableChannel broker = new ExecutorSubscribableChannel();
+		List<Message<?>> broadcasts = new ArrayList<>();
+		broker.subscribe(broadcasts::add);
+
+		Set<SimpUser> users = new HashSet<>();
+		users.add(createUser("joe", "sess1"));
+		SimpUserRegistry serverUserRegistry = mock(SimpUserRegistry.class);
+		given(serverUserRegistry.getUsers()).willReturn(users);
+		TaskScheduler serverScheduler = mock(TaskScheduler.class);
+		UserRegistryMessageHandler server = subscribeServer(broker, serverUserRegistry, serverScheduler);
+		server.setCheckpointInterval(3);
+		server.setCompressionEnabled(true);
+
+		MultiServerUserRegistry peer = new MultiServerUserRegistry(mock(SimpUserRegistry.class));
+		subscribeServer(broker, peer);
+
+		server.onApplicationEvent(new BrokerAvailabilityEvent(true, this));
+		ArgumentCaptor<Runnable> captor = ArgumentCaptor.forClass(Runnable.class);
+		verify(serverScheduler).scheduleWithFixedDelay(captor.capture(), eq(10000L));
+		Runnable task = captor.getValue();
+
+		task.run();
+		assertThat(peer.getUserCount()).isEqualTo(1);
+
+		MultiServerUserRegistry latePeer = new MultiServerUserRegistry(mock(SimpUserRegistry.class));
+		subscribeServer(broker, latePeer);
+
+		users.add(createUser("jane", "sess2"));
+		task.run();
+		assertThat(peer.getUserCount()).isEqualTo(2);
+		assertThat(latePeer.getUserCount()).isEqualTo(0);
+
+		users.removeIf(user -> user.getName().equals("joe"));
+		task.run();
+		assertThat(peer.getUserCount()).isEqualTo(1);
+		assertThat(peer.getUser("jane")).isNotNull();
+		assertThat(latePeer.getUserCount()).isEqualTo(0);
+
+		task.run();
+		assertThat(latePeer.getUserCount()).isEqualTo(1);
+		assertThat(latePeer.getUser("jane")).isNotNull();
+
+		assertThat(broadcasts).hasSize(4);
+		assertThat(broadcasts).allSatisfy(message -> assertThat(NativeMessageHeaderAccessor.getFirstNativeHeader(
+				UserRegistryMessageHandler.CONTENT_ENCODING_HEADER, message.getHeaders())).isEqualTo("gzip"));
+	}
+
+
+	private UserRegistryMessageHandler subscribeServer(
+			ExecutorSubscribableChannel broker, SimpUserRegistry userRegistry, TaskScheduler scheduler) {
+
+		return subscribeServer(broker, new MultiServerUserRegistry(userRegistry), scheduler);
+	}
+
+	private UserRegistryMessageHandler subscribeServer(ExecutorSubscribableChannel broker, MultiServerUserRegistry registry) {
+		return subscribeServer(broker, registry, mock(TaskScheduler.class));
+	}
+
+	private UserRegistryMessageHandler subscribeServer(
+			ExecutorSubscribableChannel broker, MultiServerUserRegistry registry, TaskScheduler scheduler) {
+
+		SimpMessagingTemplate brokerTemplate = new SimpMessagingTemplate(broker);
+		brokerTemplate.setMessageConverter(this.converter);
+		UserRegistryMessageHandler handler =
+				new UserRegistryMessageHandler(registry, brokerTemplate, "/topic/simp-user-registry", scheduler);
+		broker.subscribe(handler);
+		return handler;
+	}
+
+	private static TestSimpUser createUser(String name, String sessionId) {
+		TestSimpUser user = new TestSimpUser(name);
+		user.addSessions(new TestSimpSession(sessionId));
+		return user;
+	}
 
 	private Runnable getUserRegistryTask() {
 		BrokerAvailabilityEvent event = new BrokerAvailabilityEvent(true, this);
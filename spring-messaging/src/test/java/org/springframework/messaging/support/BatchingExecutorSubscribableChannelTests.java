@@ -0,0 +1,227 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.messaging.support;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+import org.springframework.lang.Nullable;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for {@link BatchingExecutorSubscribableChannel}.
+ *
+ * @author agent (agent@local)
+ */
+public class BatchingExecutorSubscribableChannelTests {
+
+	private final List<Runnable> tasks = new ArrayList<>();
+
+	private final BatchingExecutorSubscribableChannel channel =
+			new BatchingExecutorSubscribableChannel(this.tasks::add, 16);
+
+
+	@Test
+	public void capacityRoundedUpToPowerOfTwo() {
+		assertThat(new BatchingExecutorSubscribableChannel(this.tasks::add, 5).getCapacity()).isEqualTo(8);
+		assertThat(new BatchingExecutorSubscribableChannel(this.tasks::add, 1).getCapacity()).isEqualTo(1);
+		assertThat(this.channel.getCapacity()).isEqualTo(16);
+	}
+
+	@Test
+	public void sendBatches() {
+		TestBatchHandler handler = new TestBatchHandler();
+		this.channel.setMaxBatchSize(3);
+		this.channel.subscribe(handler);
+
+		for (int i = 0; i < 5; i++) {
+			assertThat(this.channel.send(message(i))).isTrue();
+		}
+		assertThat(this.tasks).hasSize(1);
+		assertThat(this.channel.getBufferedMessageCount()).isEqualTo(5);
+
+		runTasks();
+		assertThat(handler.batches).containsExactly("0,1,2", "3,4");
+		assertThat(this.channel.getBufferedMessageCount()).isEqualTo(0);
+	}
+
+	@Test
+	public void sendToLanes() {
+		TestBatchHandler handler = new TestBatchHandler();
+		BatchingExecutorSubscribableChannel channel = new BatchingExecutorSubscribableChannel(this.tasks::add, 16, 2);
+		channel.setLaneKeyResolver(message -> (Integer) message.getPayload() % 2);
+		channel.subscribe(handler);
+
+		for (int i = 0; i < 6; i++) {
+			assertThat(channel.send(message(i))).isTrue();
+		}
+		assertThat(channel.getLaneCount()).isEqualTo(2);
+		assertThat(channel.getBufferedMessageCount()).isEqualTo(6);
+		assertThat(this.tasks).hasSize(2);
+
+		this.tasks.remove(1).run();
+		assertThat(handler.batches).hasSize(1);
+		assertThat(channel.getBufferedMessageCount()).isEqualTo(3);
+
+		runTasks();
+		assertThat(handler.batches).containsExactlyInAnyOrder("0,2,4", "1,3,5");
+		assertThat(channel.getBufferedMessageCount()).isEqualTo(0);
+	}
+
+	@Test
+	public void sendToPlainHandler() {
+		List<Object> payloads = new ArrayList<>();
+		this.channel.subscribe(message -> payloads.add(message.getPayload()));
+
+		this.channel.send(message(1));
+		this.channel.send(message(2));
+		runTasks();
+
+		assertThat(payloads).containsExactly(1, 2);
+	}
+
+	@Test
+	public void sendWithExecutorInterceptor() {
+		AtomicInteger beforeHandleCount = new AtomicInteger();
+		this.channel.addInterceptor(new ExecutorChannelInterceptor() {
+			@Override
+			public Message<?> beforeHandle(Message<?> message, MessageChannel channel, MessageHandler handler) {
+				beforeHandleCount.incrementAndGet();
+				return message;
+			}
+		});
+		TestBatchHandler handler = new TestBatchHandler();
+		this.channel.subscribe(handler);
+
+		this.channel.send(message(1));
+		this.channel.send(message(2));
+		runTasks();
+
+		assertThat(beforeHandleCount.get()).isEqualTo(2);
+		assertThat(handler.batches).containsExactly("1", "2");
+	}
+
+	@Test
+	public void sendWithBatchInterceptor() {
+		TestBatchInterceptor interceptor = new TestBatchInterceptor();
+		this.channel.addInterceptor(interceptor);
+		TestBatchHandler handler = new TestBatchHandler();
+		this.channel.subscribe(handler);
+
+		for (int i = 0; i < 4; i++) {
+			this.channel.send(message(i));
+		}
+		runTasks();
+
+		assertThat(handler.batches).containsExactly("0,2");
+		assertThat(interceptor.beforeHandleCount).isEqualTo(1);
+		assertThat(interceptor.handledPayloads).containsExactly(0, 2);
+	}
+
+	@Test
+	public void sendWhenBufferFull() {
+		BatchingExecutorSubscribableChannel channel = new BatchingExecutorSubscribableChannel(this.tasks::add, 2);
+		TestBatchHandler handler = new TestBatchHandler();
+		channel.subscribe(handler);
+
+		assertThat(channel.send(message(0))).isTrue();
+		assertThat(channel.send(message(1))).isTrue();
+		assertThat(channel.send(message(2), 0)).isFalse();
+		assertThat(channel.send(message(2), 10)).isFalse();
+
+		runTasks();
+		assertThat(channel.send(message(2), 0)).isTrue();
+		runTasks();
+		assertThat(handler.batches).containsExactly("0,1", "2");
+	}
+
+	@Test
+	public void handlerFailureDoesNotStopDispatch() {
+		TestBatchHandler handler = new TestBatchHandler();
+		this.channel.subscribe(message -> {
+			throw new IllegalStateException("Expected");
+		});
+		this.channel.subscribe(handler);
+
+		this.channel.send(message(1));
+		runTasks();
+		this.channel.send(message(2));
+		runTasks();
+
+		assertThat(handler.batches).containsExactly("1", "2");
+	}
+
+
+	private static Message<Integer> message(int payload) {
+		return MessageBuilder.withPayload(payload).build();
+	}
+
+	private void runTasks() {
+		while (!this.tasks.isEmpty()) {
+			this.tasks.remove(0).run();
+		}
+	}
+
+
+	private static class TestBatchHandler implements BatchMessageHandler {
+
+		private final List<String> batches = new ArrayList<>();
+
+		@Override
+		public void handleMessage(Message<?> message) {
+			this.batches.add(String.valueOf(message.getPayload()));
+		}
+
+		@Override
+		public void handleMessages(List<Message<?>> messages) {
+			this.batches.add(messages.stream()
+					.map(message -> String.valueOf(message.getPayload()))
+					.collect(Collectors.joining(",")));
+		}
+	}
+
+
+	private static class TestBatchInterceptor implements BatchChannelInterceptor {
+
+		private int beforeHandleCount;
+
+		private final List<Object> handledPayloads = new ArrayList<>();
+
+		@Override
+		public List<Message<?>> beforeHandle(List<Message<?>> messages, MessageChannel channel, MessageHandler handler) {
+			this.beforeHandleCount++;
+			return messages.stream()
+					.filter(message -> ((Integer) message.getPayload()) % 2 == 0)
+					.collect(Collectors.toList());
+		}
+
+		@Override
+		public void afterMessagesHandled(List<Message<?>> messages, MessageChannel channel, MessageHandler handler,
+				@Nullable Exception ex) {
+
+			messages.forEach(message -> this.handledPayloads.add(message.getPayload()));
+		}
+	}
+
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.r2dbc.core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import org.springframework.r2dbc.core.binding.BindMarkersFactory;
+import org.springframework.r2dbc.core.binding.BindTarget;
+
+/**
+ * Benchmarks for the per-execution overhead of named parameter expansion,
+ * comparing parsing and expanding on every call with the cached expansion
+ * of {@link NamedParameterExpander}.
+ *
+ * @author agent (agent@local)
+ */
+@BenchmarkMode(Mode.Throughput)
+public class NamedParameterExpanderBenchmark {
+
+	private static final String SQL = "SELECT id, first_name, last_name FROM person " +
+			"WHERE last_name = :lastName AND age > :age AND id IN (:ids) ORDER BY id";
+
+
+	@Benchmark
+	public void uncached(BenchmarkState state, Blackhole bh) {
+		PreparedOperation<String> operation =
+				NamedParameterUtils.substituteNamedParameters(SQL, state.bindMarkers, state.paramSource);
+		bh.consume(operation.toQuery());
+		operation.bindTo(state.bindTarget);
+	}
+
+	@Benchmark
+	public void cached(BenchmarkState state, Blackhole bh) {
+		PreparedOperation<String> operation = state.expander.expand(SQL, state.bindMarkers, state.paramSource);
+		bh.consume(operation.toQuery());
+		operation.bindTo(state.bindTarget);
+	}
+
+
+	@State(Scope.Benchmark)
+	public static class BenchmarkState {
+
+		@Param({"1", "10", "100"})
+		public int inListSize;
+
+		public NamedParameterExpander expander;
+
+		public BindMarkersFactory bindMarkers;
+
+		public MapBindParameterSource paramSource;
+
+		public BindTarget bindTarget;
+
+		@Setup(Level.Trial)
+		public void setup() {
+			this.expander = new NamedParameterExpander();
+			this.bindMarkers = BindMarkersFactory.indexed("$", 1);
+			List<Integer> ids = new ArrayList<>(this.inListSize);
+			for (int i = 0; i < this.inListSize; i++) {
+				ids.add(i);
+			}
+			this.paramSource = new MapBindParameterSource()
+					.addValue("lastName", "White")
+					.addValue("age", 42)
+					.addValue("ids", ids);
+			this.bindTarget = new BindTarget() {
+				@Override
+				public void bind(String identifier, Object value) {
+				}
+				@Override
+				public void bind(int index, Object value) {
+				}
+				@Override
+				public void bindNull(String identifier, Class<?> type) {
+				}
+				@Override
+				public void bindNull(int index, Class<?> type) {
+				}
+			};
+		}
+	}
+
+}
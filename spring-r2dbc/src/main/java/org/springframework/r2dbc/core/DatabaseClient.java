@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -22,10 +22,13 @@ import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Supplier;
 
+import io.r2dbc.spi.Connection;
 import io.r2dbc.spi.ConnectionFactory;
 import io.r2dbc.spi.Row;
 import io.r2dbc.spi.RowMetadata;
 import io.r2dbc.spi.Statement;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import org.springframework.r2dbc.core.binding.BindMarkersFactory;
@@ -88,6 +91,25 @@ public interface DatabaseClient extends ConnectionAccessor {
 	 */
 	GenericExecuteSpec sql(Supplier<String> sqlSupplier);
 
+	/**
+	 * Specify a static {@code sql} statement to run for many parameter sets.
+	 * Parameter sets are grouped into batches, each executed as a single
+	 * {@link Statement} with one {@link Statement#add() binding} per parameter set.
+	 * The SQL string can contain either native parameter bind markers or named
+	 * parameters (e.g. {@literal :foo, :bar}) when {@link NamedParameterExpander}
+	 * is enabled.
+	 * <p>The default implementation throws {@link UnsupportedOperationException};
+	 * it is overridden by the {@code DatabaseClient} obtained from
+	 * {@link #create(ConnectionFactory)} or {@link #builder()}.
+	 * @param sql the SQL statement
+	 * @return a new {@link BulkExecuteSpec}
+	 * @since 5.3.7
+	 * @see NamedParameterExpander
+	 */
+	default BulkExecuteSpec bulk(String sql) {
+		throw new UnsupportedOperationException("Bulk execution not supported by " + getClass().getName());
+	}
+
 
 	// Static factory methods
 
@@ -244,4 +266,76 @@ public interface DatabaseClient extends ConnectionAccessor {
 		Mono<Void> then();
 	}
 
+
+	/**
+	 * Contract for running an SQL statement for many parameter sets, grouped
+	 * into {@link Statement#add() batches}.
+	 * <p>All batches are executed on a single {@link Connection} (the current
+	 * transactional one, if any), consuming the parameter sets with backpressure:
+	 * only as many parameter sets are requested as fit into the batches in flight.
+	 * <pre class="code">
+	 * Flux&lt;Map&lt;String, Object&gt;&gt; rows = …;
+	 * client.bulk("INSERT INTO book (id, title) VALUES (:id, :title)")
+	 *     .batchSize(500)
+	 *     .execute(rows)
+	 *     .reduce(0, Integer::sum);
+	 * </pre>
+	 * @since 5.3.7
+	 */
+	interface BulkExecuteSpec {
+
+		/**
+		 * Default number of parameter sets per batch.
+		 */
+		int DEFAULT_BATCH_SIZE = 256;
+
+		/**
+		 * Specify the maximum number of parameter sets per batch.
+		 * <p>Default is {@value #DEFAULT_BATCH_SIZE}.
+		 * @param batchSize the batch size (must be positive)
+		 */
+		BulkExecuteSpec batchSize(int batchSize);
+
+		/**
+		 * Specify the maximum number of batches in flight on the connection.
+		 * <p>Default is 1, executing one batch after the other. Higher values allow
+		 * drivers that support pipelining to send further batches before the results
+		 * of previous batches have been received. Results are emitted in batch order
+		 * either way.
+		 * @param concurrency the number of batches in flight (must be positive)
+		 */
+		BulkExecuteSpec concurrency(int concurrency);
+
+		/**
+		 * Add the given filter to the end of the filter chain, applied to the
+		 * {@link Statement} of each batch.
+		 * @param filterFunction the filter to be added to the chain
+		 * @see GenericExecuteSpec#filter(Function)
+		 */
+		default BulkExecuteSpec filter(Function<? super Statement, ? extends Statement> filterFunction) {
+			Assert.notNull(filterFunction, "Filter function must not be null");
+			return filter((statement, next) -> next.execute(filterFunction.apply(statement)));
+		}
+
+		/**
+		 * Add the given filter to the end of the filter chain, applied to the
+		 * {@link Statement} of each batch.
+		 * @param filter the filter to be added to the chain
+		 * @see GenericExecuteSpec#filter(StatementFilterFunction)
+		 */
+		BulkExecuteSpec filter(StatementFilterFunction filter);
+
+		/**
+		 * Execute the statement for the given parameter sets.
+		 * <p>Each parameter set maps parameter names to either a scalar value or
+		 * a {@link Parameter}; {@code null} values need to be specified through
+		 * {@link Parameter#empty(Class)}. All parameter sets within a batch must
+		 * expand to the same SQL.
+		 * @param parameters the parameter sets to bind
+		 * @return a {@link Flux} emitting the number of updated rows per batch,
+		 * in batch order
+		 */
+		Flux<Integer> execute(Publisher<? extends Map<String, ?>> parameters);
+	}
+
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -103,6 +103,13 @@ class DefaultDatabaseClient implements DatabaseClient {
 		return new DefaultGenericExecuteSpec(sqlSupplier);
 	}
 
+	@Override
+	public BulkExecuteSpec bulk(String sql) {
+		Assert.hasText(sql, "SQL must not be null or empty");
+		return new DefaultBulkExecuteSpec(sql, BulkExecuteSpec.DEFAULT_BATCH_SIZE, 1,
+				StatementFilterFunction.EMPTY_FILTER);
+	}
+
 	@Override
 	public <T> Mono<T> inConnection(Function<Connection, Mono<T>> action) throws DataAccessException {
 		Assert.notNull(action, "Callback object must not be null");
@@ -455,6 +462,138 @@ class DefaultDatabaseClient implements DatabaseClient {
 	}
 
 
+	/**
+	 * Default {@link DatabaseClient.BulkExecuteSpec} implementation.
+	 */
+	class DefaultBulkExecuteSpec implements BulkExecuteSpec {
+
+		final String sql;
+
+		final int batchSize;
+
+		final int concurrency;
+
+		final StatementFilterFunction filterFunction;
+
+		DefaultBulkExecuteSpec(String sql, int batchSize, int concurrency, StatementFilterFunction filterFunction) {
+			this.sql = sql;
+			this.batchSize = batchSize;
+			this.concurrency = concurrency;
+			this.filterFunction = filterFunction;
+		}
+
+		@Override
+		public DefaultBulkExecuteSpec batchSize(int batchSize) {
+			Assert.isTrue(batchSize > 0, "Batch size must be greater than 0");
+			return new DefaultBulkExecuteSpec(this.sql, batchSize, this.concurrency, this.filterFunction);
+		}
+
+		@Override
+		public DefaultBulkExecuteSpec concurrency(int concurrency) {
+			Assert.isTrue(concurrency > 0, "Concurrency must be greater than 0");
+			return new DefaultBulkExecuteSpec(this.sql, this.batchSize, concurrency, this.filterFunction);
+		}
+
+		@Override
+		public DefaultBulkExecuteSpec filter(StatementFilterFunction filter) {
+			Assert.notNull(filter, "Statement FilterFunction must not be null");
+			return new DefaultBulkExecuteSpec(
+					this.sql, this.batchSize, this.concurrency, this.filterFunction.andThen(filter));
+		}
+
+		@Override
+		public Flux<Integer> execute(Publisher<? extends Map<String, ?>> parameters) {
+			Assert.notNull(parameters, "Parameters must not be null");
+			// Batches are requested from upstream only as far as batch slots are available.
+			ConnectionFunction<Flux<Integer>> action = new ConnectionFunction<>(this.sql, connection ->
+					Flux.<Map<String, ?>>from(parameters)
+							.buffer(this.batchSize)
+							.flatMapSequential(batch -> executeBatch(connection, batch), this.concurrency, 1));
+			return inConnectionMany(action);
+		}
+
+		private Mono<Integer> executeBatch(Connection connection, List<Map<String, ?>> batch) {
+			return Mono.defer(() -> {
+				if (logger.isDebugEnabled()) {
+					logger.debug("Executing SQL batch of " + batch.size() + " parameter sets [" + this.sql + "]");
+				}
+				Statement statement = createStatement(connection, batch);
+				return Flux.from(this.filterFunction.filter(statement, DefaultDatabaseClient.this.executeFunction))
+						.cast(Result.class)
+						.flatMap(Result::getRowsUpdated)
+						.collect(Collectors.summingInt(Integer::intValue));
+			}).checkpoint("SQL \"" + this.sql + "\" [DatabaseClient bulk]");
+		}
+
+		private Statement createStatement(Connection connection, List<Map<String, ?>> batch) {
+			NamedParameterExpander expander = DefaultDatabaseClient.this.namedParameterExpander;
+			Statement statement = null;
+			String statementSql = null;
+			for (Map<String, ?> parameters : batch) {
+				Map<String, Parameter> bindings = toParameters(parameters);
+				if (expander != null) {
+					PreparedOperation<String> operation = expander.expand(
+							this.sql, DefaultDatabaseClient.this.bindMarkersFactory, new MapBindParameterSource(bindings));
+					String expanded = operation.toQuery();
+					if (statement == null) {
+						if (logger.isTraceEnabled()) {
+							logger.trace("Expanded SQL [" + expanded + "]");
+						}
+						statement = connection.createStatement(expanded);
+						statementSql = expanded;
+					}
+					else {
+						if (!expanded.equals(statementSql)) {
+							throw new InvalidDataAccessApiUsageException(String.format(
+									"Parameter sets within a batch must expand to the same SQL: [%s] vs [%s]",
+									statementSql, expanded));
+						}
+						statement.add();
+					}
+					operation.bindTo(new StatementWrapper(statement));
+				}
+				else {
+					if (statement == null) {
+						statement = connection.createStatement(this.sql);
+					}
+					else {
+						statement.add();
+					}
+					Statement target = statement;
+					bindings.forEach((name, parameter) -> {
+						Object value = parameter.getValue();
+						if (value != null) {
+							target.bind(name, value);
+						}
+						else {
+							target.bindNull(name, parameter.getType());
+						}
+					});
+				}
+			}
+			Assert.state(statement != null, "Empty batch");
+			return statement;
+		}
+
+		private Map<String, Parameter> toParameters(Map<String, ?> parameters) {
+			Map<String, Parameter> bindings = CollectionUtils.newLinkedHashMap(parameters.size());
+			parameters.forEach((name, value) -> {
+				if (value instanceof Parameter) {
+					bindings.put(name, (Parameter) value);
+				}
+				else if (value != null) {
+					bindings.put(name, Parameter.fromOrEmpty(value, value.getClass()));
+				}
+				else {
+					throw new InvalidDataAccessApiUsageException(String.format(
+							"Value for parameter %s must not be null. Use Parameter.empty(…) instead.", name));
+				}
+			});
+			return bindings;
+		}
+	}
+
+
 	/**
 	 * Invocation handler that suppresses close calls on R2DBC Connections. Also prepares
 	 * returned Statement (Prepared/CallbackStatement) objects.
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,8 +16,12 @@
 
 package org.springframework.r2dbc.core;
 
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
 
+import org.springframework.lang.Nullable;
+import org.springframework.r2dbc.core.NamedParameterUtils.ExpandedSql;
 import org.springframework.r2dbc.core.binding.BindMarkersFactory;
 import org.springframework.util.ConcurrentLruCache;
 
@@ -49,6 +53,10 @@ class NamedParameterExpander {
 	private final ConcurrentLruCache<String, ParsedSql> parsedSqlCache =
 			new ConcurrentLruCache<>(DEFAULT_CACHE_LIMIT, NamedParameterUtils::parseSqlStatement);
 
+	/** Cache of parsed SQL, bind markers and collection sizes to expanded SQL. */
+	private final ConcurrentLruCache<SqlShape, ExpandedSql> expandedSqlCache =
+			new ConcurrentLruCache<>(DEFAULT_CACHE_LIMIT * 4, SqlShape::expand);
+
 
 	/**
 	 * Obtain a parsed representation of the given SQL statement.
@@ -74,6 +82,8 @@ class NamedParameterExpander {
 	 * placeholders to be used for a select list. Select lists should be limited
 	 * to 100 or fewer elements. A larger number of elements is not guaranteed to be
 	 * supported by the database and is strictly vendor-dependent.
+	 * <p>The expanded SQL is cached per SQL statement, bind marker factory and
+	 * number of values per collection parameter.
 	 * @param sql sql the original SQL statement
 	 * @param bindMarkersFactory the bind marker factory
 	 * @param paramSource the source for named parameters
@@ -84,7 +94,12 @@ class NamedParameterExpander {
 			String sql, BindMarkersFactory bindMarkersFactory, BindParameterSource paramSource) {
 
 		ParsedSql parsedSql = getParsedSql(sql);
-		return NamedParameterUtils.substituteNamedParameters(parsedSql, bindMarkersFactory, paramSource);
+		SqlShape shape = SqlShape.of(parsedSql, bindMarkersFactory, paramSource);
+		if (shape == null) {
+			// Nested value arrays in collections: not cacheable by size alone.
+			return NamedParameterUtils.substituteNamedParameters(parsedSql, bindMarkersFactory, paramSource);
+		}
+		return this.expandedSqlCache.get(shape).bind(paramSource);
 	}
 
 	/**
@@ -96,4 +111,83 @@ class NamedParameterExpander {
 		return getParsedSql(sql).getParameterNames();
 	}
 
+
+
+	/**
+	 * Cache key for the expansion of a {@link ParsedSql} statement, capturing the
+	 * bind markers to use and the number of placeholders per parameter.
+	 */
+	private static final class SqlShape {
+
+		private final ParsedSql parsedSql;
+
+		private final BindMarkersFactory bindMarkersFactory;
+
+		private final int[] placeholderCounts;
+
+		private final int hashCode;
+
+		private SqlShape(ParsedSql parsedSql, BindMarkersFactory bindMarkersFactory, int[] placeholderCounts) {
+			this.parsedSql = parsedSql;
+			this.bindMarkersFactory = bindMarkersFactory;
+			this.placeholderCounts = placeholderCounts;
+			this.hashCode = (parsedSql.getOriginalSql().hashCode() * 31 +
+					System.identityHashCode(bindMarkersFactory)) * 31 + Arrays.hashCode(placeholderCounts);
+		}
+
+		/**
+		 * Determine the shape of the given statement for the given parameters,
+		 * or {@code null} if it cannot be captured by collection sizes alone.
+		 */
+		@Nullable
+		static SqlShape of(ParsedSql parsedSql, BindMarkersFactory bindMarkersFactory,
+				BindParameterSource paramSource) {
+
+			List<String> paramNames = parsedSql.getParameterNames();
+			int[] placeholderCounts = new int[paramNames.size()];
+			for (int i = 0; i < paramNames.size(); i++) {
+				String paramName = paramNames.get(i);
+				int count = NamedParameterUtils.SINGLE_VALUE;
+				if (paramSource.hasValue(paramName)) {
+					Object value = paramSource.getValue(paramName);
+					if (value instanceof Collection) {
+						count = 0;
+						for (Object entryItem : (Collection<?>) value) {
+							if (entryItem instanceof Object[]) {
+								return null;
+							}
+							count++;
+						}
+					}
+				}
+				placeholderCounts[i] = count;
+			}
+			return new SqlShape(parsedSql, bindMarkersFactory, placeholderCounts);
+		}
+
+		ExpandedSql expand() {
+			return NamedParameterUtils.expandSql(this.parsedSql, this.bindMarkersFactory, this.placeholderCounts);
+		}
+
+		@Override
+		public boolean equals(@Nullable Object other) {
+			if (this == other) {
+				return true;
+			}
+			if (!(other instanceof SqlShape)) {
+				return false;
+			}
+			SqlShape otherShape = (SqlShape) other;
+			return (this.hashCode == otherShape.hashCode &&
+					this.bindMarkersFactory == otherShape.bindMarkersFactory &&
+					this.parsedSql.getOriginalSql().equals(otherShape.parsedSql.getOriginalSql()) &&
+					Arrays.equals(this.placeholderCounts, otherShape.placeholderCounts));
+		}
+
+		@Override
+		public int hashCode() {
+			return this.hashCode;
+		}
+	}
+
 }
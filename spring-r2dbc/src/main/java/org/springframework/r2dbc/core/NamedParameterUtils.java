@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -52,6 +52,12 @@ import org.springframework.util.Assert;
  */
 abstract class NamedParameterUtils {
 
+	/**
+	 * Placeholder count denoting a single value rather than a collection.
+	 * @see #expandSql
+	 */
+	static final int SINGLE_VALUE = -1;
+
 	/**
 	 * Set of characters that qualify as comment or quotes starting characters.
 	 */
@@ -335,6 +341,50 @@ abstract class NamedParameterUtils {
 		return new ExpandedQuery(actualSql.toString(), markerHolder, paramSource);
 	}
 
+	/**
+	 * Substitute named parameters for native bind markers, given the number of
+	 * placeholders per parameter occurrence rather than the actual values.
+	 * <p>Equivalent to {@link #substituteNamedParameters(ParsedSql, BindMarkersFactory, BindParameterSource)}
+	 * for parameter values that are either single values or collections of single
+	 * values, allowing the result to be reused for any parameters of the same shape.
+	 * @param parsedSql the parsed representation of the SQL statement
+	 * @param bindMarkersFactory the bind marker factory
+	 * @param placeholderCounts the number of placeholders for each parameter
+	 * occurrence in {@link ParsedSql#getParameterNames()} order, or
+	 * {@link #SINGLE_VALUE} for a single value
+	 * @return the expanded SQL, to be bound to actual parameters
+	 * @since 5.3.7
+	 */
+	static ExpandedSql expandSql(ParsedSql parsedSql, BindMarkersFactory bindMarkersFactory,
+			int[] placeholderCounts) {
+
+		NamedParameters markerHolder = new NamedParameters(bindMarkersFactory);
+		String originalSql = parsedSql.getOriginalSql();
+		List<String> paramNames = parsedSql.getParameterNames();
+		StringBuilder actualSql = new StringBuilder(originalSql.length());
+		int lastIndex = 0;
+		for (int i = 0; i < paramNames.size(); i++) {
+			int[] indexes = parsedSql.getParameterIndexes(i);
+			actualSql.append(originalSql, lastIndex, indexes[0]);
+			NamedParameters.NamedParameter marker = markerHolder.getOrCreate(paramNames.get(i));
+			int count = placeholderCounts[i];
+			if (count == SINGLE_VALUE) {
+				actualSql.append(marker.getPlaceholder());
+			}
+			else {
+				for (int k = 0; k < count; k++) {
+					if (k > 0) {
+						actualSql.append(", ");
+					}
+					actualSql.append(marker.getPlaceholder(k));
+				}
+			}
+			lastIndex = indexes[1];
+		}
+		actualSql.append(originalSql, lastIndex, originalSql.length());
+		return new ExpandedSql(actualSql.toString(), markerHolder);
+	}
+
 	/**
 	 * Determine whether a parameter name ends at the current position,
 	 * that is, whether the given character qualifies as a separator.
@@ -491,6 +541,41 @@ abstract class NamedParameterUtils {
 	}
 
 
+	/**
+	 * SQL with named parameters substituted for bind markers, independent of
+	 * actual parameter values. Immutable once created, and therefore reusable
+	 * across concurrent executions.
+	 */
+	static final class ExpandedSql {
+
+		private final String sql;
+
+		private final NamedParameters parameters;
+
+		ExpandedSql(String sql, NamedParameters parameters) {
+			this.sql = sql;
+			this.parameters = parameters;
+		}
+
+		/**
+		 * Return the expanded SQL.
+		 */
+		String getSql() {
+			return this.sql;
+		}
+
+		/**
+		 * Create a {@link PreparedOperation} binding the given parameters
+		 * to the bind markers of this expanded SQL.
+		 * @param paramSource the source for named parameters, matching the
+		 * shape this SQL has been expanded for
+		 */
+		PreparedOperation<String> bind(BindParameterSource paramSource) {
+			return new ExpandedQuery(this.sql, this.parameters, paramSource);
+		}
+	}
+
+
 	/**
 	 * Expanded query that allows binding of parameters using parameter names that were
 	 * used to expand the query. Binding unrolls {@link Collection}s and nested arrays.
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,6 +16,9 @@
 
 package org.springframework.r2dbc.core;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import io.r2dbc.spi.ConnectionFactory;
 import io.r2dbc.spi.Result;
 import org.junit.jupiter.api.BeforeEach;
@@ -149,4 +152,32 @@ public abstract class AbstractDatabaseClientIntegrationTests {
 				.verifyComplete();
 	}
 
+	@Test
+	public void executeBulkInsert() {
+		DatabaseClient databaseClient = DatabaseClient.create(connectionFactory);
+
+		Flux<Map<String, Object>> rows = Flux.range(1, 10).map(i -> {
+			Map<String, Object> row = new HashMap<>();
+			row.put("id", 42000 + i);
+			row.put("name", "SET " + i);
+			row.put("manual", Parameter.empty(Integer.class));
+			return row;
+		});
+
+		databaseClient.bulk("INSERT INTO legoset (id, name, manual) VALUES(:id, :name, :manual)")
+				.batchSize(3)
+				.concurrency(2)
+				.execute(rows)
+				.as(StepVerifier::create)
+				.expectNext(3, 3, 3, 1)
+				.verifyComplete();
+
+		databaseClient.sql("SELECT COUNT(*) FROM legoset")
+				.map(row -> ((Number) row.get(0)).intValue())
+				.first()
+				.as(StepVerifier::create)
+				.expectNext(10)
+				.verifyComplete();
+	}
+
 }
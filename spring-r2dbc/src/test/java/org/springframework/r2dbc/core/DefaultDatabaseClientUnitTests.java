@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -17,6 +17,7 @@
 package org.springframework.r2dbc.core;
 
 import java.util.Arrays;
+import java.util.Collections;
 
 import io.r2dbc.spi.Connection;
 import io.r2dbc.spi.ConnectionFactory;
@@ -42,6 +43,7 @@ import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
 import org.springframework.dao.IncorrectResultSizeDataAccessException;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
 import org.springframework.lang.Nullable;
 import org.springframework.r2dbc.core.binding.BindMarkersFactory;
 import org.springframework.r2dbc.core.binding.BindTarget;
@@ -397,6 +399,66 @@ class DefaultDatabaseClientUnitTests {
 		inOrder.verifyNoMoreInteractions();
 	}
 
+	@Test
+	void bulkShouldGroupParameterSetsIntoBatches() {
+		Result result = mock(Result.class);
+		when(result.getRowsUpdated()).thenReturn(Mono.just(1));
+		Statement statement = mockStatementFor("INSERT INTO person (name) VALUES ($1)", result);
+		doReturn(Flux.just(result, result), Flux.just(result)).when(statement).execute();
+
+		DatabaseClient databaseClient = databaseClientBuilder.build();
+
+		databaseClient.bulk("INSERT INTO person (name) VALUES (:name)")
+				.batchSize(2)
+				.execute(Flux.just(
+						Collections.singletonMap("name", "Walter"),
+						Collections.singletonMap("name", "Jesse"),
+						Collections.singletonMap("name", "Skyler")))
+				.as(StepVerifier::create)
+				.expectNext(2, 1)
+				.verifyComplete();
+
+		InOrder inOrder = inOrder(statement);
+		inOrder.verify(statement).bind(0, "Walter");
+		inOrder.verify(statement).add();
+		inOrder.verify(statement).bind(0, "Jesse");
+		inOrder.verify(statement).execute();
+		inOrder.verify(statement).bind(0, "Skyler");
+		inOrder.verify(statement).execute();
+		inOrder.verifyNoMoreInteractions();
+		verify(connection, times(1)).close();
+	}
+
+	@Test
+	void bulkShouldBindNullValuesByName() {
+		Statement statement = mockStatementFor("INSERT INTO person (name) VALUES ($1)");
+
+		DatabaseClient databaseClient = databaseClientBuilder.namedParameters(false).build();
+
+		databaseClient.bulk("INSERT INTO person (name) VALUES ($1)")
+				.execute(Mono.just(Collections.singletonMap("$1", Parameter.empty(String.class))))
+				.as(StepVerifier::create)
+				.expectNext(0)
+				.verifyComplete();
+
+		verify(statement).bindNull("$1", String.class);
+	}
+
+	@Test
+	void bulkShouldRejectBatchesWithDifferentExpansion() {
+		mockStatementFor("SELECT * FROM person WHERE id IN ($1)");
+
+		DatabaseClient databaseClient = databaseClientBuilder.build();
+
+		databaseClient.bulk("SELECT * FROM person WHERE id IN (:ids)")
+				.execute(Flux.just(
+						Collections.singletonMap("ids", Arrays.asList(1)),
+						Collections.singletonMap("ids", Arrays.asList(1, 2))))
+				.as(StepVerifier::create)
+				.expectError(InvalidDataAccessApiUsageException.class)
+				.verify();
+	}
+
 	private Statement mockStatement() {
 		return mockStatementFor(null, null);
 	}
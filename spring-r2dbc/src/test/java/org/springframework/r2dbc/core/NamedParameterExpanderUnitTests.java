@@ -0,0 +1,136 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.r2dbc.core;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+
+import org.junit.jupiter.api.Test;
+
+import org.springframework.r2dbc.core.binding.BindMarkersFactory;
+import org.springframework.r2dbc.core.binding.BindTarget;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+
+/**
+ * Unit tests for {@link NamedParameterExpander}.
+ *
+ * @author agent (agent@local)
+ */
+class NamedParameterExpanderUnitTests {
+
+	private final NamedParameterExpander expander = new NamedParameterExpander();
+
+	private final BindMarkersFactory bindMarkers = BindMarkersFactory.indexed("$", 1);
+
+
+	@Test
+	void expandedSqlIsReusedForSameShape() {
+		PreparedOperation<String> first = this.expander.expand(
+				"SELECT * FROM person WHERE id = :id AND name = :name", this.bindMarkers, params("id", 1, "name", "Walter"));
+		PreparedOperation<String> second = this.expander.expand(
+				"SELECT * FROM person WHERE id = :id AND name = :name", this.bindMarkers, params("id", 2, "name", "Jesse"));
+
+		assertThat(first.toQuery()).isEqualTo("SELECT * FROM person WHERE id = $1 AND name = $2");
+		assertThat(second.toQuery()).isSameAs(first.toQuery());
+
+		BindTarget bindTarget = mock(BindTarget.class);
+		second.bindTo(bindTarget);
+		verify(bindTarget).bind(0, 2);
+		verify(bindTarget).bind(1, "Jesse");
+		verifyNoMoreInteractions(bindTarget);
+	}
+
+	@Test
+	void collectionsOfDifferentSizeExpandSeparately() {
+		String sql = "SELECT * FROM person WHERE id IN (:ids) AND name = :name";
+		PreparedOperation<String> two = this.expander.expand(
+				sql, this.bindMarkers, params("ids", Arrays.asList(1, 2), "name", "Walter"));
+		PreparedOperation<String> three = this.expander.expand(
+				sql, this.bindMarkers, params("ids", Arrays.asList(1, 2, 3), "name", "Walter"));
+		PreparedOperation<String> twoAgain = this.expander.expand(
+				sql, this.bindMarkers, params("ids", Arrays.asList(4, 5), "name", "Skyler"));
+
+		assertThat(two.toQuery()).isEqualTo("SELECT * FROM person WHERE id IN ($1, $2) AND name = $3");
+		assertThat(three.toQuery()).isEqualTo("SELECT * FROM person WHERE id IN ($1, $2, $3) AND name = $4");
+		assertThat(twoAgain.toQuery()).isSameAs(two.toQuery());
+
+		BindTarget bindTarget = mock(BindTarget.class);
+		twoAgain.bindTo(bindTarget);
+		verify(bindTarget).bind(0, 4);
+		verify(bindTarget).bind(1, 5);
+		verify(bindTarget).bind(2, "Skyler");
+		verifyNoMoreInteractions(bindTarget);
+	}
+
+	@Test
+	void bindMarkersAreRespectedPerFactory() {
+		String sql = "SELECT * FROM person WHERE id = :id OR parent = :id";
+		PreparedOperation<String> indexed = this.expander.expand(sql, this.bindMarkers, params("id", 1));
+		PreparedOperation<String> anonymous = this.expander.expand(
+				sql, BindMarkersFactory.anonymous("?"), params("id", 1));
+
+		assertThat(indexed.toQuery()).isEqualTo("SELECT * FROM person WHERE id = $1 OR parent = $1");
+		assertThat(anonymous.toQuery()).isEqualTo("SELECT * FROM person WHERE id = ? OR parent = ?");
+
+		BindTarget bindTarget = mock(BindTarget.class);
+		this.expander.expand(sql, BindMarkersFactory.anonymous("?"), params("id", 2)).bindTo(bindTarget);
+		verify(bindTarget).bind(0, 2);
+		verify(bindTarget).bind(1, 2);
+		verifyNoMoreInteractions(bindTarget);
+	}
+
+	@Test
+	void nullValuesAreBoundAsNull() {
+		MapBindParameterSource paramSource = new MapBindParameterSource(new HashMap<>());
+		paramSource.addValue("id", 1);
+		BindTarget bindTarget = mock(BindTarget.class);
+
+		this.expander.expand("SELECT * FROM person WHERE id = :id", this.bindMarkers, paramSource)
+				.bindTo(bindTarget);
+		MapBindParameterSource nullSource = new MapBindParameterSource(
+				Collections.singletonMap("id", Parameter.empty(Integer.class)));
+		this.expander.expand("SELECT * FROM person WHERE id = :id", this.bindMarkers, nullSource)
+				.bindTo(bindTarget);
+
+		verify(bindTarget).bind(0, 1);
+		verify(bindTarget).bindNull(0, Integer.class);
+	}
+
+	@Test
+	void nestedArraysAreExpandedWithoutCache() {
+		PreparedOperation<String> operation = this.expander.expand(
+				"SELECT * FROM person WHERE (name, age) IN (:tuples)", this.bindMarkers,
+				params("tuples", Arrays.asList(new Object[] {"Walter", 50}, new Object[] {"Jesse", 25})));
+
+		assertThat(operation.toQuery()).isEqualTo("SELECT * FROM person WHERE (name, age) IN (($1, $2), ($3, $4))");
+	}
+
+
+	private static MapBindParameterSource params(Object... namesAndValues) {
+		MapBindParameterSource paramSource = new MapBindParameterSource(new HashMap<>());
+		for (int i = 0; i < namesAndValues.length; i += 2) {
+			paramSource.addValue((String) namesAndValues[i], namesAndValues[i + 1]);
+		}
+		return paramSource;
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -53,6 +53,7 @@ import org.springframework.transaction.support.CallbackPreferringPlatformTransac
 import org.springframework.util.Assert;
 import org.springframework.util.ClassUtils;
 import org.springframework.util.ConcurrentReferenceHashMap;
+import org.springframework.util.ReflectionUtils;
 import org.springframework.util.StringUtils;
 
 /**
@@ -185,6 +186,11 @@ public abstract class TransactionAspectSupport implements BeanFactoryAware, Init
 	private final ConcurrentMap<Method, ReactiveTransactionSupport> transactionSupportCache =
 			new ConcurrentReferenceHashMap<>(1024);
 
+	private final ConcurrentMap<Method, TransactionDispatch> transactionDispatchCache =
+			new ConcurrentReferenceHashMap<>(1024);
+
+	private final boolean transactionDispatchCacheable;
+
 
 	protected TransactionAspectSupport() {
 		if (reactiveStreamsPresent) {
@@ -193,6 +199,11 @@ public abstract class TransactionAspectSupport implements BeanFactoryAware, Init
 		else {
 			this.reactiveAdapterRegistry = null;
 		}
+		// Transaction manager resolution may be customized per invocation by subclasses.
+		Method determineMethod = ReflectionUtils.findMethod(
+				getClass(), "determineTransactionManager", TransactionAttribute.class);
+		this.transactionDispatchCacheable =
+				(determineMethod != null && determineMethod.getDeclaringClass() == TransactionAspectSupport.class);
 	}
 
 
@@ -203,6 +214,7 @@ public abstract class TransactionAspectSupport implements BeanFactoryAware, Init
 	 */
 	public void setTransactionManagerBeanName(@Nullable String transactionManagerBeanName) {
 		this.transactionManagerBeanName = transactionManagerBeanName;
+		this.transactionDispatchCache.clear();
 	}
 
 	/**
@@ -224,6 +236,7 @@ public abstract class TransactionAspectSupport implements BeanFactoryAware, Init
 	 */
 	public void setTransactionManager(@Nullable TransactionManager transactionManager) {
 		this.transactionManager = transactionManager;
+		this.transactionDispatchCache.clear();
 	}
 
 	/**
@@ -252,6 +265,7 @@ public abstract class TransactionAspectSupport implements BeanFactoryAware, Init
 		NameMatchTransactionAttributeSource tas = new NameMatchTransactionAttributeSource();
 		tas.setProperties(transactionAttributes);
 		this.transactionAttributeSource = tas;
+		this.transactionDispatchCache.clear();
 	}
 
 	/**
@@ -264,6 +278,7 @@ public abstract class TransactionAspectSupport implements BeanFactoryAware, Init
 	 */
 	public void setTransactionAttributeSources(TransactionAttributeSource... transactionAttributeSources) {
 		this.transactionAttributeSource = new CompositeTransactionAttributeSource(transactionAttributeSources);
+		this.transactionDispatchCache.clear();
 	}
 
 	/**
@@ -277,6 +292,7 @@ public abstract class TransactionAspectSupport implements BeanFactoryAware, Init
 	 */
 	public void setTransactionAttributeSource(@Nullable TransactionAttributeSource transactionAttributeSource) {
 		this.transactionAttributeSource = transactionAttributeSource;
+		this.transactionDispatchCache.clear();
 	}
 
 	/**
@@ -293,6 +309,7 @@ public abstract class TransactionAspectSupport implements BeanFactoryAware, Init
 	@Override
 	public void setBeanFactory(@Nullable BeanFactory beanFactory) {
 		this.beanFactory = beanFactory;
+		this.transactionDispatchCache.clear();
 	}
 
 	/**
@@ -338,8 +355,17 @@ public abstract class TransactionAspectSupport implements BeanFactoryAware, Init
 
 		// If the transaction attribute is null, the method is non-transactional.
 		TransactionAttributeSource tas = getTransactionAttributeSource();
-		final TransactionAttribute txAttr = (tas != null ? tas.getTransactionAttribute(method, targetClass) : null);
-		final TransactionManager tm = determineTransactionManager(txAttr);
+		TransactionDispatch dispatch = getTransactionDispatch(tas, method, targetClass);
+		final TransactionAttribute txAttr;
+		final TransactionManager tm;
+		if (dispatch != null) {
+			txAttr = dispatch.transactionAttribute;
+			tm = dispatch.transactionManager;
+		}
+		else {
+			txAttr = (tas != null ? tas.getTransactionAttribute(method, targetClass) : null);
+			tm = determineTransactionManager(txAttr);
+		}
 
 		if (this.reactiveAdapterRegistry != null && tm instanceof ReactiveTransactionManager) {
 			boolean isSuspendingFunction = KotlinDetector.isSuspendingFunction(method);
@@ -475,9 +501,39 @@ public abstract class TransactionAspectSupport implements BeanFactoryAware, Init
 	 */
 	protected void clearTransactionManagerCache() {
 		this.transactionManagerCache.clear();
+		this.transactionDispatchCache.clear();
 		this.beanFactory = null;
 	}
 
+	/**
+	 * Obtain the resolved transaction attribute and transaction manager for the
+	 * given method, with a single lookup per invocation once resolved.
+	 * <p>Only applies to attribute sources that cache their attributes permanently
+	 * anyway, and only if the transaction manager resolution is not customized.
+	 * @return the resolved dispatch entry, or {@code null} if not cacheable
+	 */
+	@Nullable
+	private TransactionDispatch getTransactionDispatch(@Nullable TransactionAttributeSource tas,
+			Method method, @Nullable Class<?> targetClass) {
+
+		if (!this.transactionDispatchCacheable || !(tas instanceof AbstractFallbackTransactionAttributeSource)) {
+			return null;
+		}
+		TransactionDispatch head = this.transactionDispatchCache.get(method);
+		for (TransactionDispatch dispatch = head; dispatch != null; dispatch = dispatch.next) {
+			if (dispatch.targetClass == targetClass) {
+				return dispatch;
+			}
+		}
+		TransactionAttribute txAttr = tas.getTransactionAttribute(method, targetClass);
+		TransactionDispatch dispatch = new TransactionDispatch(
+				targetClass, txAttr, determineTransactionManager(txAttr), head);
+		// A concurrently added entry for another target class may get lost here;
+		// it will simply be resolved again on its next invocation.
+		this.transactionDispatchCache.put(method, dispatch);
+		return dispatch;
+	}
+
 	/**
 	 * Determine the specific transaction manager to use for the given transaction.
 	 */
@@ -712,6 +768,35 @@ public abstract class TransactionAspectSupport implements BeanFactoryAware, Init
 	}
 
 
+	/**
+	 * Resolved transaction attribute and transaction manager for a method on a
+	 * specific target class, chained with the entries for other target classes.
+	 */
+	private static final class TransactionDispatch {
+
+		@Nullable
+		final Class<?> targetClass;
+
+		@Nullable
+		final TransactionAttribute transactionAttribute;
+
+		@Nullable
+		final TransactionManager transactionManager;
+
+		@Nullable
+		final TransactionDispatch next;
+
+		TransactionDispatch(@Nullable Class<?> targetClass, @Nullable TransactionAttribute transactionAttribute,
+				@Nullable TransactionManager transactionManager, @Nullable TransactionDispatch next) {
+
+			this.targetClass = targetClass;
+			this.transactionAttribute = transactionAttribute;
+			this.transactionManager = transactionManager;
+			this.next = next;
+		}
+	}
+
+
 	/**
 	 * Opaque object used to hold transaction information. Subclasses
 	 * must pass it back to methods on this class, but not see its internals.
@@ -0,0 +1,445 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.transaction.support;
+
+import java.lang.reflect.UndeclaredThrowableException;
+import java.time.Duration;
+import java.util.function.Consumer;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.lang.Nullable;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.TransactionSystemException;
+import org.springframework.util.Assert;
+
+/**
+ * Variant of {@link TransactionTemplate} that groups many small logical units of
+ * work into one physical transaction ("group commit"), trading commit latency for
+ * throughput in high-rate processing loops.
+ *
+ * <p>A group is scoped to an {@link #executeGroup} call: the given callback
+ * receives a {@link UnitExecutor} for running logical units. The first unit
+ * begins a physical transaction according to this template's definition. Each
+ * unit then runs in a {@link TransactionDefinition#PROPAGATION_NESTED nested}
+ * transaction within it, i.e. within a savepoint: a failing unit is rolled back
+ * on its own, without affecting the other units of its group. The physical
+ * transaction gets committed once the {@linkplain #setMaxUnitsPerCommit maximum
+ * number of units} has been reached, once the {@linkplain #setMaxCommitDelay
+ * maximum delay} since its start has passed (as checked whenever a unit starts
+ * or ends), when {@link UnitExecutor#flush()} is called, and in any case before
+ * {@code executeGroup} returns. No transaction remains bound to the thread
+ * after {@code executeGroup} has returned.
+ *
+ * <pre class="code">
+ * template.executeGroup(units -&gt; {
+ *     for (Event event : events) {
+ *         units.executeWithoutResult(status -&gt; repository.save(event));
+ *     }
+ * });</pre>
+ *
+ * <p><b>NOTE:</b> A logical unit is only durable once its group has been committed.
+ * A failing group commit affects all units of the group, including units whose
+ * {@code execute} calls have returned already; the exception is thrown by the
+ * {@code execute}, {@code flush} or {@code executeGroup} call that triggered the
+ * commit. An exception thrown by the group callback itself rolls back the units
+ * not committed yet. While a group is open, any transactional code running on
+ * the same thread participates in its physical transaction.
+ *
+ * <p>Requires a transaction manager supporting nested transactions through
+ * savepoints, e.g. {@code DataSourceTransactionManager} or
+ * {@code JdbcTransactionManager}. Groups are
+ * meant to start outside of any existing transaction; within an existing
+ * transaction, a group just participates in it.
+ *
+ * @author agent (agent@local)
+ * @since 5.3.7
+ * @see TransactionTemplate
+ * @see TransactionStatus#createSavepoint()
+ * @see org.springframework.jdbc.datasource.DataSourceTransactionManager
+ */
+@SuppressWarnings("serial")
+public class GroupCommitTransactionTemplate extends DefaultTransactionDefinition implements InitializingBean {
+
+	/**
+	 * Default maximum number of logical units per physical commit: 100.
+	 */
+	public static final int DEFAULT_MAX_UNITS_PER_COMMIT = 100;
+
+	/**
+	 * Default maximum delay of a physical commit: 10 milliseconds.
+	 */
+	public static final Duration DEFAULT_MAX_COMMIT_DELAY = Duration.ofMillis(10);
+
+	private static final TransactionDefinition UNIT_DEFINITION =
+			new DefaultTransactionDefinition(TransactionDefinition.PROPAGATION_NESTED);
+
+
+	/** Logger available to subclasses. */
+	protected final Log logger = LogFactory.getLog(getClass());
+
+	@Nullable
+	private PlatformTransactionManager transactionManager;
+
+	private int maxUnitsPerCommit = DEFAULT_MAX_UNITS_PER_COMMIT;
+
+	private long maxCommitDelayNanos = DEFAULT_MAX_COMMIT_DELAY.toNanos();
+
+
+	/**
+	 * Construct a new GroupCommitTransactionTemplate for bean usage.
+	 * <p>Note: The PlatformTransactionManager needs to be set before
+	 * any {@code executeGroup} calls.
+	 * @see #setTransactionManager
+	 */
+	public GroupCommitTransactionTemplate() {
+	}
+
+	/**
+	 * Construct a new GroupCommitTransactionTemplate using the given transaction manager.
+	 * @param transactionManager the transaction management strategy to be used
+	 */
+	public GroupCommitTransactionTemplate(PlatformTransactionManager transactionManager) {
+		this.transactionManager = transactionManager;
+	}
+
+
+	/**
+	 * Set the transaction management strategy to be used.
+	 */
+	public void setTransactionManager(@Nullable PlatformTransactionManager transactionManager) {
+		this.transactionManager = transactionManager;
+	}
+
+	/**
+	 * Return the transaction management strategy to be used.
+	 */
+	@Nullable
+	public PlatformTransactionManager getTransactionManager() {
+		return this.transactionManager;
+	}
+
+	/**
+	 * Set the maximum number of logical units to group into one physical commit.
+	 * <p>Default is {@value #DEFAULT_MAX_UNITS_PER_COMMIT}. A value of 1 commits
+	 * every unit immediately, still within a savepoint.
+	 */
+	public void setMaxUnitsPerCommit(int maxUnitsPerCommit) {
+		Assert.isTrue(maxUnitsPerCommit > 0, "'maxUnitsPerCommit' must be greater than 0");
+		this.maxUnitsPerCommit = maxUnitsPerCommit;
+	}
+
+	/**
+	 * Return the maximum number of logical units per physical commit.
+	 */
+	public int getMaxUnitsPerCommit() {
+		return this.maxUnitsPerCommit;
+	}
+
+	/**
+	 * Set the maximum time between the start of a physical transaction and its
+	 * commit, as checked whenever a logical unit starts or ends.
+	 * <p>Default is 10 milliseconds.
+	 */
+	public void setMaxCommitDelay(Duration maxCommitDelay) {
+		Assert.isTrue(!maxCommitDelay.isNegative(), "'maxCommitDelay' must not be negative");
+		this.maxCommitDelayNanos = maxCommitDelay.toNanos();
+	}
+
+	/**
+	 * Return the maximum time between the start of a physical transaction and its commit.
+	 */
+	public Duration getMaxCommitDelay() {
+		return Duration.ofNanos(this.maxCommitDelayNanos);
+	}
+
+	@Override
+	public void afterPropertiesSet() {
+		if (this.transactionManager == null) {
+			throw new IllegalArgumentException("Property 'transactionManager' is required");
+		}
+		if (this.transactionManager instanceof CallbackPreferringPlatformTransactionManager) {
+			throw new IllegalArgumentException(
+					"Group commit is not supported for CallbackPreferringPlatformTransactionManager");
+		}
+	}
+
+
+	/**
+	 * Run the given callback with a {@link UnitExecutor} for executing logical
+	 * units in groups, committing any pending group before returning.
+	 * <p>The {@code UnitExecutor} may only be used on the current thread,
+	 * and only until this method returns.
+	 * @param action the callback executing the logical units
+	 * @throws TransactionException in case of initialization, rollback, or system errors,
+	 * including a failed commit of a group
+	 * @throws RuntimeException if thrown by the callback or a logical unit
+	 */
+	public void executeGroup(Consumer<? super UnitExecutor> action) throws TransactionException {
+		Assert.notNull(action, "Callback object must not be null");
+		GroupUnitExecutor executor = new GroupUnitExecutor(obtainTransactionManager());
+		try {
+			action.accept(executor);
+		}
+		catch (RuntimeException | Error ex) {
+			executor.close(ex);
+			throw ex;
+		}
+		executor.close(null);
+	}
+
+	private PlatformTransactionManager obtainTransactionManager() {
+		PlatformTransactionManager tm = getTransactionManager();
+		Assert.state(tm != null, "No PlatformTransactionManager set");
+		return tm;
+	}
+
+	@Override
+	public boolean equals(@Nullable Object other) {
+		return (this == other || (super.equals(other) && (!(other instanceof GroupCommitTransactionTemplate) ||
+				getTransactionManager() == ((GroupCommitTransactionTemplate) other).getTransactionManager())));
+	}
+
+
+	/**
+	 * Executor for logical units within a {@link #executeGroup} callback.
+	 */
+	public interface UnitExecutor {
+
+		/**
+		 * Execute the action specified by the given callback object as a logical
+		 * unit within the current group, committing the group if due.
+		 * <p>The given {@link TransactionStatus} represents the logical unit: marking
+		 * it as rollback-only rolls back the unit's changes only.
+		 * @param action the callback object that specifies the transactional action
+		 * @return a result object returned by the callback, or {@code null} if none
+		 * @throws TransactionException in case of initialization, rollback, or system errors,
+		 * including a failed commit of the group
+		 * @throws RuntimeException if thrown by the TransactionCallback
+		 */
+		@Nullable
+		<T> T execute(TransactionCallback<T> action) throws TransactionException;
+
+		/**
+		 * Execute the action specified by the given callback object as a logical
+		 * unit within the current group, committing the group if due.
+		 * @param action the callback object that specifies the transactional action
+		 * @throws TransactionException in case of initialization, rollback, or system errors
+		 * @throws RuntimeException if thrown by the callback
+		 * @see #execute(TransactionCallback)
+		 */
+		default void executeWithoutResult(Consumer<TransactionStatus> action) throws TransactionException {
+			execute(status -> {
+				action.accept(status);
+				return null;
+			});
+		}
+
+		/**
+		 * Commit the pending group of logical units, if any, for example
+		 * when a processing loop runs out of work.
+		 * @throws TransactionException in case of a failed commit
+		 */
+		void flush() throws TransactionException;
+
+		/**
+		 * Return the number of logical units executed so far and still
+		 * waiting for their group to be committed.
+		 */
+		int getPendingUnitCount();
+	}
+
+
+	/**
+	 * {@link UnitExecutor} holding the current physical transaction of an
+	 * {@link #executeGroup} call.
+	 */
+	private class GroupUnitExecutor implements UnitExecutor {
+
+		private final PlatformTransactionManager transactionManager;
+
+		private final Thread thread = Thread.currentThread();
+
+		@Nullable
+		private TransactionStatus groupStatus;
+
+		private long groupStartNanos;
+
+		private int unitCount;
+
+		private boolean closed;
+
+		GroupUnitExecutor(PlatformTransactionManager transactionManager) {
+			this.transactionManager = transactionManager;
+		}
+
+		@Override
+		@Nullable
+		public <T> T execute(TransactionCallback<T> action) throws TransactionException {
+			assertUsable();
+			PlatformTransactionManager tm = this.transactionManager;
+			if (this.groupStatus != null && isCommitDue()) {
+				commitGroup();
+			}
+			if (this.groupStatus == null) {
+				this.groupStatus = tm.getTransaction(GroupCommitTransactionTemplate.this);
+				this.groupStartNanos = System.nanoTime();
+			}
+
+			TransactionStatus status;
+			try {
+				status = tm.getTransaction(UNIT_DEFINITION);
+			}
+			catch (RuntimeException | Error ex) {
+				rollbackGroup(ex);
+				throw ex;
+			}
+			T result;
+			try {
+				result = action.doInTransaction(status);
+			}
+			catch (RuntimeException | Error ex) {
+				// Transactional code threw application exception -> rollback of unit
+				rollbackUnitOnException(status, ex);
+				throw ex;
+			}
+			catch (Throwable ex) {
+				// Transactional code threw unexpected exception -> rollback of unit
+				rollbackUnitOnException(status, ex);
+				throw new UndeclaredThrowableException(ex, "TransactionCallback threw undeclared checked exception");
+			}
+			try {
+				tm.commit(status);
+			}
+			catch (RuntimeException | Error ex) {
+				rollbackGroup(ex);
+				throw ex;
+			}
+			this.unitCount++;
+			if (isCommitDue()) {
+				commitGroup();
+			}
+			return result;
+		}
+
+		@Override
+		public void flush() throws TransactionException {
+			assertUsable();
+			if (this.groupStatus != null) {
+				commitGroup();
+			}
+		}
+
+		@Override
+		public int getPendingUnitCount() {
+			return this.unitCount;
+		}
+
+		/**
+		 * End the scope of this executor: commit the pending group,
+		 * or roll it back if the group callback failed.
+		 */
+		void close(@Nullable Throwable failure) {
+			if (this.closed) {
+				return;
+			}
+			this.closed = true;
+			if (this.groupStatus != null) {
+				if (failure != null) {
+					rollbackGroup(failure);
+				}
+				else {
+					commitGroup();
+				}
+			}
+		}
+
+		private void assertUsable() {
+			Assert.state(!this.closed, "UnitExecutor used outside of its executeGroup callback");
+			Assert.state(Thread.currentThread() == this.thread, "UnitExecutor used on a different thread");
+		}
+
+		private boolean isCommitDue() {
+			return (this.unitCount >= maxUnitsPerCommit ||
+					System.nanoTime() - this.groupStartNanos >= maxCommitDelayNanos);
+		}
+
+		private void commitGroup() {
+			TransactionStatus status = this.groupStatus;
+			Assert.state(status != null, "No pending group");
+			if (logger.isDebugEnabled()) {
+				logger.debug("Committing group of " + this.unitCount + " logical units");
+			}
+			this.groupStatus = null;
+			this.unitCount = 0;
+			this.transactionManager.commit(status);
+		}
+
+		/**
+		 * Roll back the given logical unit, handling rollback exceptions properly
+		 * by rolling back the entire group.
+		 */
+		private void rollbackUnitOnException(TransactionStatus status, Throwable ex) {
+			logger.debug("Initiating rollback of logical unit on application exception", ex);
+			try {
+				this.transactionManager.rollback(status);
+			}
+			catch (TransactionSystemException ex2) {
+				logger.error("Application exception overridden by rollback exception", ex);
+				ex2.initApplicationException(ex);
+				rollbackGroup(ex2);
+				throw ex2;
+			}
+			catch (RuntimeException | Error ex2) {
+				logger.error("Application exception overridden by rollback exception", ex);
+				rollbackGroup(ex2);
+				throw ex2;
+			}
+			TransactionStatus groupStatus = this.groupStatus;
+			if (groupStatus != null && groupStatus.isRollbackOnly()) {
+				// Rolled back beyond the savepoint: the group cannot be committed anymore.
+				rollbackGroup(ex);
+			}
+		}
+
+		/**
+		 * Roll back the entire group after a failure, discarding all of its units.
+		 */
+		private void rollbackGroup(Throwable ex) {
+			TransactionStatus status = this.groupStatus;
+			this.groupStatus = null;
+			int discardedUnits = this.unitCount;
+			this.unitCount = 0;
+			if (status == null || status.isCompleted()) {
+				return;
+			}
+			logger.warn("Rolling back group of " + discardedUnits + " logical units after failure", ex);
+			try {
+				this.transactionManager.rollback(status);
+			}
+			catch (RuntimeException | Error ex2) {
+				logger.error("Group rollback failed", ex2);
+			}
+		}
+	}
+
+}
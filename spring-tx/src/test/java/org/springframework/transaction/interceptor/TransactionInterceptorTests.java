@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -17,6 +17,7 @@
 package org.springframework.transaction.interceptor;
 
 import java.io.Serializable;
+import java.lang.reflect.Method;
 import java.util.Properties;
 
 import org.junit.jupiter.api.Test;
@@ -24,6 +25,8 @@ import org.junit.jupiter.api.Test;
 import org.springframework.aop.framework.ProxyFactory;
 import org.springframework.beans.factory.BeanFactory;
 import org.springframework.beans.factory.NoSuchBeanDefinitionException;
+import org.springframework.beans.testfixture.beans.ITestBean;
+import org.springframework.beans.testfixture.beans.TestBean;
 import org.springframework.core.testfixture.io.SerializationTestUtils;
 import org.springframework.lang.Nullable;
 import org.springframework.transaction.PlatformTransactionManager;
@@ -34,6 +37,7 @@ import org.springframework.transaction.TransactionStatus;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
@@ -262,6 +266,70 @@ public class TransactionInterceptorTests extends AbstractTransactionAspectTests
 	}
 
 
+	@Test
+	public void transactionAttributeAndManagerResolvedOncePerMethod() {
+		BeanFactory beanFactory = mock(BeanFactory.class);
+		TransactionStatus status = mock(TransactionStatus.class);
+		PlatformTransactionManager txManager = transactionManagerReturning(status);
+		given(beanFactory.getBean(TransactionManager.class)).willReturn(txManager);
+		CountingTransactionAttributeSource tas = new CountingTransactionAttributeSource();
+
+		TransactionInterceptor ti = new TransactionInterceptor();
+		ti.setBeanFactory(beanFactory);
+		ti.setTransactionAttributeSource(tas);
+		ITestBean itb = (ITestBean) proxy(new TestBean(), ti);
+
+		itb.getName();
+		itb.getName();
+		itb.getAge();
+		itb.getName();
+
+		assertThat(tas.invocationCount).isEqualTo(2);
+		verify(beanFactory, times(1)).getBean(TransactionManager.class);
+		verify(txManager, times(4)).commit(status);
+	}
+
+	@Test
+	public void transactionDispatchCacheClearedOnTransactionManagerChange() {
+		TransactionStatus status = mock(TransactionStatus.class);
+		PlatformTransactionManager txManager1 = transactionManagerReturning(status);
+		PlatformTransactionManager txManager2 = transactionManagerReturning(status);
+
+		TransactionInterceptor ti = new TransactionInterceptor();
+		ti.setTransactionManager(txManager1);
+		ti.setTransactionAttributeSource(new CountingTransactionAttributeSource());
+		ITestBean itb = (ITestBean) proxy(new TestBean(), ti);
+
+		itb.getName();
+		ti.setTransactionManager(txManager2);
+		itb.getName();
+
+		verify(txManager1, times(1)).commit(status);
+		verify(txManager2, times(1)).commit(status);
+	}
+
+	@Test
+	public void customTransactionManagerResolutionCalledPerInvocation() {
+		TransactionStatus status = mock(TransactionStatus.class);
+		PlatformTransactionManager txManager = transactionManagerReturning(status);
+		int[] resolutionCount = new int[1];
+		TransactionInterceptor ti = new TransactionInterceptor() {
+			@Override
+			protected TransactionManager determineTransactionManager(@Nullable TransactionAttribute txAttr) {
+				resolutionCount[0]++;
+				return txManager;
+			}
+		};
+		ti.setTransactionAttributeSource(new CountingTransactionAttributeSource());
+		ITestBean itb = (ITestBean) proxy(new TestBean(), ti);
+
+		itb.getName();
+		itb.getName();
+
+		assertThat(resolutionCount[0]).isEqualTo(2);
+		verify(txManager, times(2)).commit(status);
+	}
+
 	private TransactionInterceptor createTransactionInterceptor(BeanFactory beanFactory,
 			String transactionManagerName, PlatformTransactionManager transactionManager) {
 
@@ -297,6 +365,18 @@ public class TransactionInterceptorTests extends AbstractTransactionAspectTests
 		return createTransactionInterceptor(beanFactory, null, null);
 	}
 
+	private PlatformTransactionManager transactionManagerReturning(TransactionStatus status) {
+		PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+		given(transactionManager.getTransaction(any())).willReturn(status);
+		return transactionManager;
+	}
+
+	private Object proxy(Object target, TransactionInterceptor ti) {
+		ProxyFactory pf = new ProxyFactory(target);
+		pf.addAdvice(0, ti);
+		return pf.getProxy();
+	}
+
 	private PlatformTransactionManager associateTransactionManager(BeanFactory beanFactory, String name) {
 		PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
 		given(beanFactory.containsBean(name)).willReturn(true);
@@ -305,6 +385,31 @@ public class TransactionInterceptorTests extends AbstractTransactionAspectTests
 	}
 
 
+	private static class CountingTransactionAttributeSource extends AbstractFallbackTransactionAttributeSource {
+
+		int invocationCount;
+
+		@Override
+		@Nullable
+		public TransactionAttribute getTransactionAttribute(Method method, @Nullable Class<?> targetClass) {
+			this.invocationCount++;
+			return super.getTransactionAttribute(method, targetClass);
+		}
+
+		@Override
+		@Nullable
+		protected TransactionAttribute findTransactionAttribute(Class<?> clazz) {
+			return new DefaultTransactionAttribute();
+		}
+
+		@Override
+		@Nullable
+		protected TransactionAttribute findTransactionAttribute(Method method) {
+			return null;
+		}
+	}
+
+
 	/**
 	 * We won't use this: we just want to know it's serializable.
 	 */
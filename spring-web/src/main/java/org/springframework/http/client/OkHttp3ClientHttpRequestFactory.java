@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -37,6 +37,14 @@ import org.springframework.util.StringUtils;
  * {@link ClientHttpRequestFactory} implementation that uses
  * <a href="https://square.github.io/okhttp/">OkHttp</a> 3.x to create requests.
  *
+ * <p>OkHttp negotiates HTTP/2 over TLS where the server supports it, multiplexing
+ * concurrent requests to the same host over a shared connection from the
+ * client's connection pool. For many concurrent calls with large payloads,
+ * consider {@linkplain #setBufferRequestBody(boolean) streaming} the request
+ * body rather than buffering it per request. The reactive
+ * {@link org.springframework.http.client.reactive.ClientHttpConnector}
+ * implementations for {@code WebClient} always stream the request body.
+ *
  * @author Luciano Leggieri
  * @author Arjen Poutsma
  * @author Roy Clarkson
@@ -50,6 +58,8 @@ public class OkHttp3ClientHttpRequestFactory
 
 	private final boolean defaultClient;
 
+	private boolean bufferRequestBody = true;
+
 
 	/**
 	 * Create a factory with a default {@link OkHttpClient} instance.
@@ -100,10 +110,28 @@ public class OkHttp3ClientHttpRequestFactory
 				.build();
 	}
 
+	/**
+	 * Indicate whether this request factory should buffer the request body
+	 * internally.
+	 * <p>Default is {@code true}. When sending large amounts of data via
+	 * POST or PUT, it is recommended to change this property to {@code false},
+	 * so that the body is written directly into the connection instead of
+	 * being held in memory for each request.
+	 * @since 5.3.7
+	 */
+	public void setBufferRequestBody(boolean bufferRequestBody) {
+		this.bufferRequestBody = bufferRequestBody;
+	}
+
 
 	@Override
 	public ClientHttpRequest createRequest(URI uri, HttpMethod httpMethod) {
-		return new OkHttp3ClientHttpRequest(this.client, uri, httpMethod);
+		if (this.bufferRequestBody) {
+			return new OkHttp3ClientHttpRequest(this.client, uri, httpMethod);
+		}
+		else {
+			return new OkHttp3StreamingClientHttpRequest(this.client, uri, httpMethod);
+		}
 	}
 
 	@Override
@@ -133,6 +161,11 @@ public class OkHttp3ClientHttpRequestFactory
 		RequestBody body = (content.length > 0 ||
 				okhttp3.internal.http.HttpMethod.requiresRequestBody(method.name()) ?
 				RequestBody.create(contentType, content) : null);
+		return buildRequest(headers, body, uri, method);
+	}
+
+	static Request buildRequest(HttpHeaders headers, @Nullable RequestBody body, URI uri, HttpMethod method)
+			throws MalformedURLException {
 
 		Request.Builder builder = new Request.Builder().url(uri.toURL()).method(method.name(), body);
 		headers.forEach((headerName, headerValues) -> {
@@ -144,7 +177,13 @@ public class OkHttp3ClientHttpRequestFactory
 	}
 
 	@Nullable
-	private static okhttp3.MediaType getContentType(HttpHeaders headers) {
+	static RequestBody emptyRequestBody(HttpHeaders headers, HttpMethod method) {
+		return (okhttp3.internal.http.HttpMethod.requiresRequestBody(method.name()) ?
+				RequestBody.create(getContentType(headers), new byte[0]) : null);
+	}
+
+	@Nullable
+	static okhttp3.MediaType getContentType(HttpHeaders headers) {
 		String rawContentType = headers.getFirst(HttpHeaders.CONTENT_TYPE);
 		return (StringUtils.hasText(rawContentType) ? okhttp3.MediaType.parse(rawContentType) : null);
 	}
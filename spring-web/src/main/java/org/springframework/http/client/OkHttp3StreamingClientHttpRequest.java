@@ -0,0 +1,136 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.http.client;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.StreamingHttpOutputMessage;
+import org.springframework.lang.Nullable;
+import org.springframework.util.StreamUtils;
+
+/**
+ * {@link ClientHttpRequest} implementation based on OkHttp 3.x in streaming mode.
+ *
+ * <p>The request body is written straight into the OkHttp connection while the
+ * call executes, rather than being collected into a {@code byte[]} first.
+ *
+ * <p>Created via the {@link OkHttp3ClientHttpRequestFactory}.
+ *
+ * @author agent (agent@local)
+ * @since 5.3.7
+ * @see OkHttp3ClientHttpRequestFactory#setBufferRequestBody(boolean)
+ */
+final class OkHttp3StreamingClientHttpRequest extends AbstractClientHttpRequest
+		implements StreamingHttpOutputMessage {
+
+	private final OkHttpClient client;
+
+	private final URI uri;
+
+	private final HttpMethod method;
+
+	@Nullable
+	private Body body;
+
+
+	OkHttp3StreamingClientHttpRequest(OkHttpClient client, URI uri, HttpMethod method) {
+		this.client = client;
+		this.uri = uri;
+		this.method = method;
+	}
+
+
+	@Override
+	public HttpMethod getMethod() {
+		return this.method;
+	}
+
+	@Override
+	public String getMethodValue() {
+		return this.method.name();
+	}
+
+	@Override
+	public URI getURI() {
+		return this.uri;
+	}
+
+	@Override
+	public void setBody(Body body) {
+		assertNotExecuted();
+		this.body = body;
+	}
+
+	@Override
+	protected OutputStream getBodyInternal(HttpHeaders headers) throws IOException {
+		throw new UnsupportedOperationException("getBody not supported");
+	}
+
+	@Override
+	protected ClientHttpResponse executeInternal(HttpHeaders headers) throws IOException {
+		// Like in buffered mode, OkHttp rejects a body for a method that does not permit one
+		RequestBody requestBody = (this.body != null ? new StreamingRequestBody(headers, this.body) :
+				OkHttp3ClientHttpRequestFactory.emptyRequestBody(headers, this.method));
+		Request request = OkHttp3ClientHttpRequestFactory.buildRequest(headers, requestBody, this.uri, this.method);
+		return new OkHttp3ClientHttpResponse(this.client.newCall(request).execute());
+	}
+
+
+	private static class StreamingRequestBody extends RequestBody {
+
+		private final HttpHeaders headers;
+
+		private final Body body;
+
+		StreamingRequestBody(HttpHeaders headers, Body body) {
+			this.headers = headers;
+			this.body = body;
+		}
+
+		@Override
+		@Nullable
+		public okhttp3.MediaType contentType() {
+			return OkHttp3ClientHttpRequestFactory.getContentType(this.headers);
+		}
+
+		@Override
+		public long contentLength() {
+			return this.headers.getContentLength();
+		}
+
+		@Override
+		public boolean isOneShot() {
+			// The body callback may not be able to produce its content a second time
+			return true;
+		}
+
+		@Override
+		public void writeTo(BufferedSink sink) throws IOException {
+			this.body.writeTo(StreamUtils.nonClosing(sink.outputStream()));
+		}
+	}
+
+}
@@ -0,0 +1,341 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.web.filter;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.FilterChain;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletException;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.http.MediaType;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+import org.springframework.web.context.request.async.AsyncRequestTimeoutException;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.context.request.async.WebAsyncManager;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+
+/**
+ * {@link javax.servlet.Filter} that reads request bodies with a Servlet 3.1
+ * non-blocking {@link ReadListener}, and only invokes the rest of the filter
+ * chain, e.g. the {@code DispatcherServlet}, once the body has been fully
+ * received. As a result, container threads are not held up while a slow
+ * client is uploading the body, and subsequent reads from the request, e.g.
+ * by an {@code HttpMessageConverter} for an {@code @RequestBody} argument,
+ * are served from memory.
+ *
+ * <p>The filter relies on the {@link WebAsyncManager}: it starts async
+ * processing with a {@link DeferredResult} that is completed once the body
+ * has been read, which results in an async dispatch through which the rest
+ * of the chain is invoked with a request wrapper exposing the buffered body.
+ * The wrapper reports {@link DispatcherType#REQUEST} so that downstream
+ * filters process the request as usual. For this to work, the filter and
+ * the rest of the chain must be mapped to {@link DispatcherType#ASYNC}
+ * dispatches and support async processing, and the filter should be placed
+ * ahead of other filters that depend on the request body.
+ *
+ * <p>Only requests with a {@code Content-Length} up to the configured
+ * {@link #setMaxBodySize maximum body size} are buffered, since the buffer
+ * is sized upfront and held in memory until the request completes. Other
+ * requests, including those with chunked transfer encoding, as well as form
+ * and multipart requests, whose body is parsed by the Servlet container,
+ * proceed through the chain unchanged.
+ *
+ * @author agent (agent@local)
+ * @since 5.3.7
+ */
+public class AsyncRequestBodyFilter extends OncePerRequestFilter {
+
+	private static final String BODY_READ_ATTRIBUTE = AsyncRequestBodyFilter.class.getName() + ".BODY_READ";
+
+
+	private int maxBodySize = 256 * 1024;
+
+	@Nullable
+	private Long timeout;
+
+
+	/**
+	 * Set the maximum size in bytes of a request body to read asynchronously
+	 * and buffer in memory. Requests with a larger {@code Content-Length}
+	 * proceed through the chain without buffering.
+	 * <p>By default this is set to 256K.
+	 */
+	public void setMaxBodySize(int maxBodySize) {
+		Assert.isTrue(maxBodySize > 0, "Max body size must be greater than 0");
+		this.maxBodySize = maxBodySize;
+	}
+
+	/**
+	 * Return the configured maximum size of a request body to buffer.
+	 */
+	public int getMaxBodySize() {
+		return this.maxBodySize;
+	}
+
+	/**
+	 * Set the amount of time in milliseconds to wait for the request body.
+	 * If the body has not been received by then, a
+	 * {@code 408 "Request Timeout"} response is sent.
+	 * <p>By default this is not set, in which case the default async request
+	 * timeout of the Servlet container applies.
+	 */
+	public void setTimeout(@Nullable Long timeout) {
+		this.timeout = timeout;
+	}
+
+	/**
+	 * Return the configured timeout for reading the request body, if any.
+	 */
+	@Nullable
+	public Long getTimeout() {
+		return this.timeout;
+	}
+
+
+	/**
+	 * Returns {@code false} so that the filter may resume the chain in the
+	 * async dispatch that follows reading the body.
+	 */
+	@Override
+	protected boolean shouldNotFilterAsyncDispatch() {
+		return false;
+	}
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+			throws ServletException, IOException {
+
+		if (isAsyncDispatch(request)) {
+			if (request.getAttribute(BODY_READ_ATTRIBUTE) != null) {
+				request.removeAttribute(BODY_READ_ATTRIBUTE);
+				resumeWithBody(request, response, filterChain);
+			}
+			else {
+				filterChain.doFilter(request, response);
+			}
+			return;
+		}
+
+		if (!shouldReadAsync(request)) {
+			filterChain.doFilter(request, response);
+			return;
+		}
+
+		WebAsyncManager asyncManager = WebAsyncUtils.getAsyncManager(request);
+		asyncManager.setAsyncWebRequest(WebAsyncUtils.createAsyncWebRequest(request, response));
+
+		DeferredResult<byte[]> deferredResult = new DeferredResult<>(this.timeout);
+		request.setAttribute(BODY_READ_ATTRIBUTE, Boolean.TRUE);
+		try {
+			asyncManager.startDeferredResultProcessing(deferredResult);
+		}
+		catch (Exception ex) {
+			request.removeAttribute(BODY_READ_ATTRIBUTE);
+			throw new ServletException("Failed to start async processing", ex);
+		}
+
+		ServletInputStream inputStream = request.getInputStream();
+		inputStream.setReadListener(new BodyReadListener(inputStream, request.getContentLength(), deferredResult));
+	}
+
+	private boolean shouldReadAsync(HttpServletRequest request) {
+		int contentLength = request.getContentLength();
+		if (contentLength <= 0 || contentLength > this.maxBodySize || !request.isAsyncSupported() ||
+				request.isAsyncStarted()) {
+			return false;
+		}
+		String contentType = request.getContentType();
+		if (StringUtils.hasLength(contentType)) {
+			try {
+				MediaType mediaType = MediaType.parseMediaType(contentType);
+				if (MediaType.APPLICATION_FORM_URLENCODED.includes(mediaType) ||
+						MediaType.MULTIPART_FORM_DATA.includes(mediaType)) {
+					return false;
+				}
+			}
+			catch (IllegalArgumentException ex) {
+				// Leave it to the rest of the chain to reject
+			}
+		}
+		return true;
+	}
+
+	private void resumeWithBody(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+			throws ServletException, IOException {
+
+		WebAsyncManager asyncManager = WebAsyncUtils.getAsyncManager(request);
+		Object result = asyncManager.getConcurrentResult();
+		asyncManager.clearConcurrentResult();
+
+		if (result instanceof byte[]) {
+			filterChain.doFilter(new BufferedBodyRequestWrapper(request, (byte[]) result), response);
+		}
+		else if (result instanceof AsyncRequestTimeoutException) {
+			if (logger.isDebugEnabled()) {
+				logger.debug("Timeout while reading body of " + request.getRequestURI());
+			}
+			response.sendError(HttpServletResponse.SC_REQUEST_TIMEOUT);
+		}
+		else if (result instanceof IOException) {
+			throw (IOException) result;
+		}
+		else {
+			throw new ServletException("Failed to read request body", (Throwable) result);
+		}
+	}
+
+
+	/**
+	 * Reads the body into a buffer sized to the {@code Content-Length} as data
+	 * becomes available, and completes the {@link DeferredResult} once done.
+	 */
+	private static class BodyReadListener implements ReadListener {
+
+		private final ServletInputStream inputStream;
+
+		private final byte[] body;
+
+		private final DeferredResult<byte[]> deferredResult;
+
+		private int length;
+
+		BodyReadListener(ServletInputStream inputStream, int contentLength, DeferredResult<byte[]> deferredResult) {
+			this.inputStream = inputStream;
+			this.body = new byte[contentLength];
+			this.deferredResult = deferredResult;
+		}
+
+		@Override
+		public void onDataAvailable() throws IOException {
+			while (this.length < this.body.length && this.inputStream.isReady()) {
+				int read = this.inputStream.read(this.body, this.length, this.body.length - this.length);
+				if (read == -1) {
+					return;
+				}
+				this.length += read;
+			}
+		}
+
+		@Override
+		public void onAllDataRead() {
+			if (this.length < this.body.length) {
+				this.deferredResult.setErrorResult(new EOFException(
+						"Request body ended after " + this.length + " of " + this.body.length + " bytes"));
+			}
+			else {
+				this.deferredResult.setResult(this.body);
+			}
+		}
+
+		@Override
+		public void onError(Throwable ex) {
+			this.deferredResult.setErrorResult(ex);
+		}
+	}
+
+
+	/**
+	 * Request wrapper that serves the body from the buffer.
+	 */
+	private static class BufferedBodyRequestWrapper extends HttpServletRequestWrapper {
+
+		private final byte[] body;
+
+		BufferedBodyRequestWrapper(HttpServletRequest request, byte[] body) {
+			super(request);
+			this.body = body;
+		}
+
+		@Override
+		public DispatcherType getDispatcherType() {
+			return DispatcherType.REQUEST;
+		}
+
+		@Override
+		public ServletInputStream getInputStream() {
+			return new BufferedBodyInputStream(this.body);
+		}
+
+		@Override
+		public BufferedReader getReader() throws IOException {
+			String encoding = getCharacterEncoding();
+			Charset charset = (encoding != null ? Charset.forName(encoding) : StandardCharsets.ISO_8859_1);
+			return new BufferedReader(new InputStreamReader(getInputStream(), charset));
+		}
+	}
+
+
+	private static class BufferedBodyInputStream extends ServletInputStream {
+
+		private final ByteArrayInputStream delegate;
+
+		BufferedBodyInputStream(byte[] body) {
+			this.delegate = new ByteArrayInputStream(body);
+		}
+
+		@Override
+		public int read() {
+			return this.delegate.read();
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) {
+			return this.delegate.read(b, off, len);
+		}
+
+		@Override
+		public int available() {
+			return this.delegate.available();
+		}
+
+		@Override
+		public boolean isFinished() {
+			return (this.delegate.available() == 0);
+		}
+
+		@Override
+		public boolean isReady() {
+			return true;
+		}
+
+		@Override
+		public void setReadListener(ReadListener readListener) {
+			try {
+				readListener.onDataAvailable();
+				readListener.onAllDataRead();
+			}
+			catch (IOException ex) {
+				readListener.onError(ex);
+			}
+		}
+	}
+
+}
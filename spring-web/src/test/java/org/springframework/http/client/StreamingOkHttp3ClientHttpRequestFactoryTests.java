@@ -0,0 +1,90 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.http.client;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicReference;
+
+import okhttp3.OkHttpClient;
+import okhttp3.RequestBody;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.StreamingHttpOutputMessage;
+import org.springframework.util.StreamUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+/**
+ * @author agent (agent@local)
+ */
+public class StreamingOkHttp3ClientHttpRequestFactoryTests extends AbstractHttpRequestFactoryTests {
+
+	@Override
+	protected ClientHttpRequestFactory createRequestFactory() {
+		OkHttp3ClientHttpRequestFactory requestFactory = new OkHttp3ClientHttpRequestFactory();
+		requestFactory.setBufferRequestBody(false);
+		return requestFactory;
+	}
+
+	@Override
+	@Test
+	public void httpMethods() throws Exception {
+		super.httpMethods();
+		assertHttpMethod("patch", HttpMethod.PATCH);
+	}
+
+	@Test
+	public void requestBodyIsOneShot() throws Exception {
+		AtomicReference<RequestBody> requestBody = new AtomicReference<>();
+		OkHttpClient client = new OkHttpClient.Builder()
+				.addInterceptor(chain -> {
+					requestBody.set(chain.request().body());
+					return chain.proceed(chain.request());
+				})
+				.build();
+		OkHttp3ClientHttpRequestFactory requestFactory = new OkHttp3ClientHttpRequestFactory(client);
+		requestFactory.setBufferRequestBody(false);
+
+		ClientHttpRequest request = requestFactory.createRequest(new URI(baseUrl + "/echo"), HttpMethod.POST);
+		byte[] body = "Hello World".getBytes(StandardCharsets.UTF_8);
+		((StreamingHttpOutputMessage) request).setBody(outputStream -> StreamUtils.copy(body, outputStream));
+		try (ClientHttpResponse response = request.execute()) {
+			assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+		}
+		assertThat(requestBody.get()).isNotNull();
+		assertThat(requestBody.get().isOneShot()).isTrue();
+	}
+
+	@Test
+	public void requestBodyRejectedForMethodWithoutBody() throws Exception {
+		byte[] body = "Hello World".getBytes(StandardCharsets.UTF_8);
+
+		ClientHttpRequest request = this.factory.createRequest(new URI(baseUrl + "/echo"), HttpMethod.GET);
+		((StreamingHttpOutputMessage) request).setBody(outputStream -> StreamUtils.copy(body, outputStream));
+		assertThatIllegalArgumentException().isThrownBy(request::execute);
+
+		OkHttp3ClientHttpRequestFactory bufferingFactory = new OkHttp3ClientHttpRequestFactory();
+		ClientHttpRequest bufferedRequest = bufferingFactory.createRequest(new URI(baseUrl + "/echo"), HttpMethod.GET);
+		StreamUtils.copy(body, bufferedRequest.getBody());
+		assertThatIllegalArgumentException().isThrownBy(bufferedRequest::execute);
+	}
+
+}
@@ -0,0 +1,245 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.web.filter;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import javax.servlet.AsyncListener;
+import javax.servlet.DispatcherType;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletInputStream;
+import javax.servlet.ServletRequest;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.util.Assert;
+import org.springframework.util.FileCopyUtils;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.testfixture.servlet.MockAsyncContext;
+import org.springframework.web.testfixture.servlet.MockFilterChain;
+import org.springframework.web.testfixture.servlet.MockHttpServletRequest;
+import org.springframework.web.testfixture.servlet.MockHttpServletResponse;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+/**
+ * Unit tests for {@link AsyncRequestBodyFilter}.
+ *
+ * @author agent (agent@local)
+ */
+class AsyncRequestBodyFilterTests {
+
+	private final AsyncRequestBodyFilter filter = new AsyncRequestBodyFilter();
+
+	private final TestServletInputStream inputStream = new TestServletInputStream();
+
+	private final MockHttpServletResponse response = new MockHttpServletResponse();
+
+	private MockHttpServletRequest request;
+
+
+	@BeforeEach
+	void setup() {
+		this.request = new MockHttpServletRequest("POST", "/") {
+			@Override
+			public ServletInputStream getInputStream() {
+				return AsyncRequestBodyFilterTests.this.inputStream;
+			}
+		};
+		this.request.setAsyncSupported(true);
+		this.request.setContentType("application/json");
+		this.request.setContent("{\"name\":\"foo\"}".getBytes(StandardCharsets.UTF_8));
+	}
+
+
+	@Test
+	void bodyIsReadBeforeChainIsInvoked() throws Exception {
+		MockFilterChain chain = new MockFilterChain();
+		this.filter.doFilter(this.request, this.response, chain);
+
+		assertThat(chain.getRequest()).isNull();
+		assertThat(this.request.isAsyncStarted()).isTrue();
+		assertThat(this.inputStream.listener).isNotNull();
+
+		this.inputStream.receive("{\"name\":");
+		assertThat(getDispatchedPath()).isNull();
+		this.inputStream.receive("\"foo\"}");
+		this.inputStream.complete();
+		assertThat(getDispatchedPath()).isEqualTo("/");
+
+		ServletRequest resumedRequest = asyncDispatch();
+		assertThat(resumedRequest).isNotSameAs(this.request);
+		assertThat(resumedRequest.getDispatcherType()).isEqualTo(DispatcherType.REQUEST);
+		assertThat(StreamUtils.copyToString(resumedRequest.getInputStream(), StandardCharsets.UTF_8))
+				.isEqualTo("{\"name\":\"foo\"}");
+	}
+
+	@Test
+	void bodyIsAvailableThroughReader() throws Exception {
+		this.request.setCharacterEncoding("UTF-8");
+		this.filter.doFilter(this.request, this.response, new MockFilterChain());
+		this.inputStream.receive("{\"name\":\"foo\"}");
+		this.inputStream.complete();
+
+		ServletRequest resumedRequest = asyncDispatch();
+		assertThat(FileCopyUtils.copyToString(resumedRequest.getReader())).isEqualTo("{\"name\":\"foo\"}");
+	}
+
+	@Test
+	void prematureEndOfBody() throws Exception {
+		this.filter.doFilter(this.request, this.response, new MockFilterChain());
+		this.inputStream.receive("{\"name\":");
+		this.inputStream.complete();
+
+		this.request.setDispatcherType(DispatcherType.ASYNC);
+		assertThatExceptionOfType(EOFException.class)
+				.isThrownBy(() -> this.filter.doFilter(this.request, this.response, new MockFilterChain()));
+	}
+
+	@Test
+	void timeout() throws Exception {
+		this.filter.doFilter(this.request, this.response, new MockFilterChain());
+		this.inputStream.receive("{\"name\":");
+
+		MockAsyncContext asyncContext = (MockAsyncContext) this.request.getAsyncContext();
+		for (AsyncListener listener : asyncContext.getListeners()) {
+			listener.onTimeout(null);
+		}
+
+		MockFilterChain chain = new MockFilterChain();
+		this.request.setDispatcherType(DispatcherType.ASYNC);
+		this.filter.doFilter(this.request, this.response, chain);
+
+		assertThat(chain.getRequest()).isNull();
+		assertThat(this.response.getStatus()).isEqualTo(408);
+	}
+
+	@Test
+	void largeBodyIsNotBuffered() throws Exception {
+		this.filter.setMaxBodySize(5);
+		MockFilterChain chain = new MockFilterChain();
+		this.filter.doFilter(this.request, this.response, chain);
+
+		assertThat(chain.getRequest()).isSameAs(this.request);
+		assertThat(this.request.isAsyncStarted()).isFalse();
+	}
+
+	@Test
+	void formContentIsNotBuffered() throws Exception {
+		this.request.setContentType("application/x-www-form-urlencoded");
+		MockFilterChain chain = new MockFilterChain();
+		this.filter.doFilter(this.request, this.response, chain);
+
+		assertThat(chain.getRequest()).isSameAs(this.request);
+		assertThat(this.request.isAsyncStarted()).isFalse();
+	}
+
+	@Test
+	void asyncNotSupported() throws Exception {
+		this.request.setAsyncSupported(false);
+		MockFilterChain chain = new MockFilterChain();
+		this.filter.doFilter(this.request, this.response, chain);
+
+		assertThat(chain.getRequest()).isSameAs(this.request);
+	}
+
+	@Test
+	void subsequentAsyncDispatchIsPassedThrough() throws Exception {
+		this.filter.doFilter(this.request, this.response, new MockFilterChain());
+		this.inputStream.receive("{\"name\":\"foo\"}");
+		this.inputStream.complete();
+		asyncDispatch();
+
+		MockFilterChain chain = new MockFilterChain();
+		this.filter.doFilter(this.request, this.response, chain);
+		assertThat(chain.getRequest()).isSameAs(this.request);
+	}
+
+
+	private String getDispatchedPath() {
+		return ((MockAsyncContext) this.request.getAsyncContext()).getDispatchedPath();
+	}
+
+	private ServletRequest asyncDispatch() throws Exception {
+		MockFilterChain chain = new MockFilterChain();
+		this.request.setDispatcherType(DispatcherType.ASYNC);
+		this.filter.doFilter(this.request, this.response, chain);
+		assertThat(chain.getRequest()).isNotNull();
+		return chain.getRequest();
+	}
+
+
+	private static class TestServletInputStream extends ServletInputStream {
+
+		private byte[] content = new byte[0];
+
+		private int position;
+
+		private boolean finished;
+
+		private ReadListener listener;
+
+		void receive(String data) throws IOException {
+			byte[] bytes = data.getBytes(StandardCharsets.UTF_8);
+			byte[] newContent = new byte[this.content.length + bytes.length];
+			System.arraycopy(this.content, 0, newContent, 0, this.content.length);
+			System.arraycopy(bytes, 0, newContent, this.content.length, bytes.length);
+			this.content = newContent;
+			this.listener.onDataAvailable();
+		}
+
+		void complete() {
+			this.finished = true;
+			this.listener.onAllDataRead();
+		}
+
+		@Override
+		public int read() {
+			Assert.state(isReady(), "Not ready");
+			return this.content[this.position++];
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) {
+			Assert.state(isReady(), "Not ready");
+			int count = Math.min(len, this.content.length - this.position);
+			System.arraycopy(this.content, this.position, b, off, count);
+			this.position += count;
+			return count;
+		}
+
+		@Override
+		public boolean isReady() {
+			return (this.position < this.content.length);
+		}
+
+		@Override
+		public boolean isFinished() {
+			return this.finished;
+		}
+
+		@Override
+		public void setReadListener(ReadListener listener) {
+			this.listener = listener;
+		}
+	}
+
+}
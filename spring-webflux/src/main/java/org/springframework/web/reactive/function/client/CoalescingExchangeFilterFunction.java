@@ -0,0 +1,301 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.web.reactive.function.client;
+
+import java.net.URI;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+import org.springframework.util.MultiValueMap;
+import org.springframework.util.ObjectUtils;
+
+/**
+ * {@link ExchangeFilterFunction} that merges concurrent, identical {@code GET}
+ * and {@code HEAD} requests into a single exchange.
+ *
+ * <p>Two requests are considered identical if they have the same method, URL,
+ * headers, cookies, and values for the configured request attribute names.
+ * Requests that arrive while an identical exchange is waiting for its response
+ * join that exchange; once the response status and headers are received, the
+ * exchange is closed and subsequent requests start a new one.
+ *
+ * <p>Each participant receives its own {@link ClientResponse} whose body
+ * replays the shared response body. Participants get retained slices of the
+ * shared {@link DataBuffer DataBuffers}, so they must consume or
+ * {@linkplain ClientResponse#releaseBody() release} the body as usual. The
+ * shared buffers are retained until every participant is done with the body,
+ * and are then released. This makes the filter suitable for bounded responses
+ * rather than for unbounded streams.
+ *
+ * @author agent (agent@local)
+ * @since 5.3.7
+ * @see ExchangeFilterFunctions#coalesceRequests(String...)
+ */
+final class CoalescingExchangeFilterFunction implements ExchangeFilterFunction {
+
+	private static final Log logger = LogFactory.getLog(CoalescingExchangeFilterFunction.class);
+
+
+	private final String[] attributeNames;
+
+	private final ConcurrentMap<RequestKey, InFlightExchange> inFlightExchanges = new ConcurrentHashMap<>();
+
+
+	CoalescingExchangeFilterFunction(String... attributeNames) {
+		this.attributeNames = attributeNames;
+	}
+
+
+	@Override
+	public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+		if (!HttpMethod.GET.equals(request.method()) && !HttpMethod.HEAD.equals(request.method())) {
+			return next.exchange(request);
+		}
+		return Mono.defer(() -> {
+			RequestKey key = new RequestKey(request, this.attributeNames);
+			while (true) {
+				InFlightExchange exchange = this.inFlightExchanges.computeIfAbsent(key,
+						k -> new InFlightExchange(k, request, next));
+				Mono<ClientResponse> response = exchange.join();
+				if (response != null) {
+					return response;
+				}
+				// Closed in the meantime: make sure it is gone and try again
+				this.inFlightExchanges.remove(key, exchange);
+			}
+		});
+	}
+
+	/**
+	 * Return the number of exchanges currently waiting for a response.
+	 */
+	int getInFlightExchangeCount() {
+		return this.inFlightExchanges.size();
+	}
+
+
+	/**
+	 * A single exchange shared by all requests with the same {@link RequestKey}.
+	 */
+	private class InFlightExchange {
+
+		private final RequestKey key;
+
+		private final Mono<ClientResponse> sharedResponse;
+
+		private final Queue<DataBuffer> retainedBuffers = new ConcurrentLinkedQueue<>();
+
+		private int participants;
+
+		private boolean closed;
+
+		private boolean released;
+
+		@Nullable
+		private ClientResponse response;
+
+		@Nullable
+		private Flux<DataBuffer> sharedBody;
+
+		@Nullable
+		private Disposable bodyConnection;
+
+		InFlightExchange(RequestKey key, ClientRequest request, ExchangeFunction next) {
+			this.key = key;
+			this.sharedResponse = Mono.defer(() -> next.exchange(request))
+					.doOnNext(this::onResponse)
+					.doFinally(signalType -> close())
+					.cache();
+		}
+
+		/**
+		 * Register a participant and return its response, or {@code null} if
+		 * this exchange no longer accepts participants.
+		 */
+		@Nullable
+		Mono<ClientResponse> join() {
+			synchronized (this) {
+				if (this.closed) {
+					return null;
+				}
+				this.participants++;
+			}
+			AtomicBoolean responded = new AtomicBoolean();
+			AtomicBoolean left = new AtomicBoolean();
+			Runnable onDone = () -> {
+				if (left.compareAndSet(false, true)) {
+					leave();
+				}
+			};
+			return this.sharedResponse
+					.map(original -> {
+						responded.set(true);
+						return participantResponse(original, onDone);
+					})
+					.doOnError(ex -> onDone.run())
+					.doOnCancel(() -> {
+						// Once the response is handed out, the body subscription decides
+						if (!responded.get()) {
+							onDone.run();
+						}
+					});
+		}
+
+		private void onResponse(ClientResponse original) {
+			Flux<DataBuffer> body = original.bodyToFlux(DataBuffer.class)
+					.doOnNext(this.retainedBuffers::add);
+			synchronized (this) {
+				this.response = original;
+				this.sharedBody = body.replay().autoConnect(1, connection -> {
+					synchronized (this) {
+						this.bodyConnection = connection;
+					}
+				});
+			}
+		}
+
+		private void close() {
+			synchronized (this) {
+				this.closed = true;
+			}
+			CoalescingExchangeFilterFunction.this.inFlightExchanges.remove(this.key, this);
+			releaseIfUnused();
+		}
+
+		private ClientResponse participantResponse(ClientResponse original, Runnable onDone) {
+			Flux<DataBuffer> sharedBody;
+			synchronized (this) {
+				sharedBody = this.sharedBody;
+			}
+			Assert.state(sharedBody != null, "No shared body");
+			Flux<DataBuffer> body = sharedBody
+					.map(buffer -> buffer.retainedSlice(buffer.readPosition(), buffer.readableByteCount()))
+					.doFinally(signalType -> onDone.run());
+
+			ClientResponse.Builder builder = ClientResponse.create(original.rawStatusCode(), original.strategies())
+					.headers(headers -> headers.addAll(original.headers().asHttpHeaders()))
+					.cookies(cookies -> cookies.addAll(original.cookies()))
+					.body(body);
+			if (original instanceof DefaultClientResponse) {
+				builder.request(((DefaultClientResponse) original).request());
+			}
+			return builder.build();
+		}
+
+		private void leave() {
+			synchronized (this) {
+				this.participants--;
+			}
+			releaseIfUnused();
+		}
+
+		private void releaseIfUnused() {
+			ClientResponse response;
+			Disposable connection;
+			synchronized (this) {
+				if (!this.closed || this.participants > 0 || this.released) {
+					return;
+				}
+				this.released = true;
+				response = this.response;
+				connection = this.bodyConnection;
+			}
+			if (connection != null) {
+				connection.dispose();
+			}
+			else if (response != null) {
+				if (logger.isTraceEnabled()) {
+					logger.trace(response.logPrefix() + "Releasing unconsumed coalesced response body");
+				}
+				response.releaseBody().subscribe();
+			}
+			DataBuffer buffer;
+			while ((buffer = this.retainedBuffers.poll()) != null) {
+				DataBufferUtils.release(buffer);
+			}
+		}
+	}
+
+
+	/**
+	 * Identifies requests that can share a single exchange.
+	 */
+	private static final class RequestKey {
+
+		private final HttpMethod method;
+
+		private final URI url;
+
+		private final HttpHeaders headers;
+
+		private final MultiValueMap<String, String> cookies;
+
+		private final Map<String, Object> attributes;
+
+		private final int hashCode;
+
+		RequestKey(ClientRequest request, String[] attributeNames) {
+			this.method = request.method();
+			this.url = request.url();
+			this.headers = request.headers();
+			this.cookies = request.cookies();
+			this.attributes = new LinkedHashMap<>(attributeNames.length);
+			for (String name : attributeNames) {
+				this.attributes.put(name, request.attributes().get(name));
+			}
+			this.hashCode = ObjectUtils.nullSafeHashCode(new Object[] {
+					this.method, this.url, this.headers, this.cookies, this.attributes});
+		}
+
+		@Override
+		public boolean equals(@Nullable Object other) {
+			if (this == other) {
+				return true;
+			}
+			if (!(other instanceof RequestKey)) {
+				return false;
+			}
+			RequestKey otherKey = (RequestKey) other;
+			return (this.method == otherKey.method && this.url.equals(otherKey.url) &&
+					this.headers.equals(otherKey.headers) && this.cookies.equals(otherKey.cookies) &&
+					this.attributes.equals(otherKey.attributes));
+		}
+
+		@Override
+		public int hashCode() {
+			return this.hashCode;
+		}
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -67,6 +67,25 @@ public abstract class ExchangeFilterFunctions {
 								.build());
 	}
 
+	/**
+	 * Return a filter that merges concurrent, identical {@code GET} and
+	 * {@code HEAD} requests into a single exchange, sharing the response
+	 * among all of them.
+	 * <p>Requests are identical if they have the same method, URL, headers,
+	 * and cookies, as well as the same values for the given request attribute
+	 * names. Every caller receives its own {@link ClientResponse} and must
+	 * consume or release its body as usual; the shared response body is
+	 * kept in memory until all callers are done with it.
+	 * @param attributeNames the names of request attributes that further
+	 * distinguish requests, e.g. a tenant or security context
+	 * @return the filter to coalesce requests with
+	 * @since 5.3.7
+	 */
+	public static ExchangeFilterFunction coalesceRequests(String... attributeNames) {
+		Assert.noNullElements(attributeNames, "Attribute names must not contain null");
+		return new CoalescingExchangeFilterFunction(attributeNames);
+	}
+
 	/**
 	 * Return a filter that generates an error signal when the given
 	 * {@link HttpStatus} predicate matches.
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -18,6 +18,8 @@ package org.springframework.web.reactive.result.view.freemarker;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
 import java.nio.charset.Charset;
@@ -33,7 +35,10 @@ import freemarker.template.ObjectWrapper;
 import freemarker.template.SimpleHash;
 import freemarker.template.Template;
 import freemarker.template.Version;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import org.springframework.beans.BeansException;
 import org.springframework.beans.factory.BeanFactoryUtils;
@@ -41,6 +46,7 @@ import org.springframework.beans.factory.NoSuchBeanDefinitionException;
 import org.springframework.context.ApplicationContextException;
 import org.springframework.context.i18n.LocaleContextHolder;
 import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
 import org.springframework.core.io.buffer.DataBufferUtils;
 import org.springframework.core.io.buffer.PooledDataBuffer;
 import org.springframework.http.MediaType;
@@ -63,6 +69,11 @@ import org.springframework.web.server.ServerWebExchange;
  * template relative to the FreeMarkerConfigurer's
  * {@link FreeMarkerConfigurer#setTemplateLoaderPath templateLoaderPath}.
  *
+ * <p>By default the template output is collected into a single buffer before it
+ * is written to the response. Set a {@link #setStreamingBufferSize streaming
+ * buffer size} to write and flush the output in chunks while the template
+ * is being processed instead.
+ *
  * <p>Note: Spring's FreeMarker support requires FreeMarker 2.3 or higher.
  *
  * @author Rossen Stoyanchev
@@ -90,6 +101,8 @@ public class FreeMarkerView extends AbstractUrlBasedView {
 
 	private boolean exposeSpringMacroHelpers = true;
 
+	private int streamingBufferSize = -1;
+
 
 	/**
 	 * Set the FreeMarker {@link Configuration} to be used by this view.
@@ -154,6 +167,33 @@ public class FreeMarkerView extends AbstractUrlBasedView {
 		this.exposeSpringMacroHelpers = exposeSpringMacroHelpers;
 	}
 
+	/**
+	 * Set the size of the buffers to render the template into, in bytes, in
+	 * order to stream the output to the client while the template is processed.
+	 * <p>Each buffer is written and flushed as soon as it is full, when the
+	 * template flushes its output (e.g. through the {@code <#flush>} directive),
+	 * and at the end of the template. This reduces the time to first byte
+	 * for large pages, and keeps individual buffers small.
+	 * <p>In streaming mode, the template is processed on the
+	 * {@link Schedulers#boundedElastic() bounded elastic} scheduler, since it
+	 * blocks whenever the response does not accept further buffers yet.
+	 * <p>By default this is set to -1, in which case the whole page is rendered
+	 * into a single buffer before it is written.
+	 * @param streamingBufferSize the buffer size in bytes, or -1 to not stream
+	 * @since 5.3.7
+	 */
+	public void setStreamingBufferSize(int streamingBufferSize) {
+		this.streamingBufferSize = streamingBufferSize;
+	}
+
+	/**
+	 * Return the configured {@link #setStreamingBufferSize streaming buffer size}.
+	 * @since 5.3.7
+	 */
+	public int getStreamingBufferSize() {
+		return this.streamingBufferSize;
+	}
+
 
 	@Override
 	public void afterPropertiesSet() throws Exception {
@@ -242,6 +282,11 @@ public class FreeMarkerView extends AbstractUrlBasedView {
 	protected Mono<Void> renderInternal(Map<String, Object> renderAttributes,
 			@Nullable MediaType contentType, ServerWebExchange exchange) {
 
+		if (this.streamingBufferSize > 0) {
+			return exchange.getResponse().writeAndFlushWith(
+					renderStreaming(renderAttributes, contentType, exchange).map(Mono::just));
+		}
+
 		return exchange.getResponse().writeWith(Mono
 				.fromCallable(() -> {
 					// Expose all standard FreeMarker hash models.
@@ -272,6 +317,42 @@ public class FreeMarkerView extends AbstractUrlBasedView {
 				.doOnDiscard(PooledDataBuffer.class, DataBufferUtils::release));
 	}
 
+	private Flux<DataBuffer> renderStreaming(Map<String, Object> renderAttributes,
+			@Nullable MediaType contentType, ServerWebExchange exchange) {
+
+		return Flux.<DataBuffer>create(sink -> {
+					// Expose all standard FreeMarker hash models.
+					SimpleHash freeMarkerModel = getTemplateModel(renderAttributes, exchange);
+
+					if (logger.isDebugEnabled()) {
+						logger.debug(exchange.getLogPrefix() + "Rendering [" + getUrl() + "] in streaming mode");
+					}
+
+					Locale locale = LocaleContextHolder.getLocale(exchange.getLocaleContext());
+					ChunkedOutputStream outputStream = new ChunkedOutputStream(
+							exchange.getResponse().bufferFactory(), this.streamingBufferSize, sink);
+					sink.onRequest(outputStream::request);
+					sink.onDispose(outputStream::cancel);
+					try {
+						Charset charset = getCharset(contentType);
+						Writer writer = new OutputStreamWriter(outputStream, charset);
+						getTemplate(locale).process(freeMarkerModel, writer);
+						writer.close();
+						sink.complete();
+					}
+					catch (Throwable ex) {
+						outputStream.discard();
+						if (sink.isCancelled()) {
+							return;
+						}
+						sink.error(ex instanceof IOException ? new IllegalStateException(
+								"Could not load FreeMarker template for URL [" + getUrl() + "]", ex) : ex);
+					}
+				})
+				.subscribeOn(Schedulers.boundedElastic())
+				.doOnDiscard(PooledDataBuffer.class, DataBufferUtils::release);
+	}
+
 	private Charset getCharset(@Nullable MediaType mediaType) {
 		return Optional.ofNullable(mediaType).map(MimeType::getCharset).orElse(getDefaultCharset());
 	}
@@ -312,4 +393,131 @@ public class FreeMarkerView extends AbstractUrlBasedView {
 				obtainConfiguration().getTemplate(getUrl(), locale));
 	}
 
+
+	/**
+	 * {@link OutputStream} that writes into buffers of a fixed size and
+	 * emits each buffer when it is full or when the output is flushed,
+	 * blocking the rendering thread until there is demand for it.
+	 */
+	private static class ChunkedOutputStream extends OutputStream {
+
+		private final DataBufferFactory bufferFactory;
+
+		private final int bufferSize;
+
+		private final FluxSink<DataBuffer> sink;
+
+		private final Object demandMonitor = new Object();
+
+		private long demand;
+
+		private boolean cancelled;
+
+		@Nullable
+		private DataBuffer buffer;
+
+		ChunkedOutputStream(DataBufferFactory bufferFactory, int bufferSize, FluxSink<DataBuffer> sink) {
+			this.bufferFactory = bufferFactory;
+			this.bufferSize = bufferSize;
+			this.sink = sink;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			DataBuffer buffer = obtainBuffer();
+			buffer.write((byte) b);
+			if (buffer.readableByteCount() >= this.bufferSize) {
+				emit();
+			}
+		}
+
+		@Override
+		public void write(byte[] bytes, int off, int len) throws IOException {
+			while (len > 0) {
+				DataBuffer buffer = obtainBuffer();
+				int count = Math.min(len, this.bufferSize - buffer.readableByteCount());
+				buffer.write(bytes, off, count);
+				off += count;
+				len -= count;
+				if (buffer.readableByteCount() >= this.bufferSize) {
+					emit();
+				}
+			}
+		}
+
+		@Override
+		public void flush() throws IOException {
+			emit();
+		}
+
+		@Override
+		public void close() throws IOException {
+			emit();
+			discard();
+		}
+
+		void request(long n) {
+			synchronized (this.demandMonitor) {
+				this.demand = (this.demand + n < 0 ? Long.MAX_VALUE : this.demand + n);
+				this.demandMonitor.notifyAll();
+			}
+		}
+
+		void cancel() {
+			synchronized (this.demandMonitor) {
+				this.cancelled = true;
+				this.demandMonitor.notifyAll();
+			}
+		}
+
+		private DataBuffer obtainBuffer() throws IOException {
+			if (this.sink.isCancelled()) {
+				throw new IOException("Rendering cancelled");
+			}
+			DataBuffer buffer = this.buffer;
+			if (buffer == null) {
+				buffer = this.bufferFactory.allocateBuffer(this.bufferSize);
+				this.buffer = buffer;
+			}
+			return buffer;
+		}
+
+		private void emit() throws IOException {
+			DataBuffer buffer = this.buffer;
+			if (buffer != null && buffer.readableByteCount() > 0) {
+				awaitDemand();
+				this.buffer = null;
+				this.sink.next(buffer);
+			}
+		}
+
+		private void awaitDemand() throws IOException {
+			synchronized (this.demandMonitor) {
+				while (this.demand == 0 && !this.cancelled) {
+					try {
+						this.demandMonitor.wait();
+					}
+					catch (InterruptedException ex) {
+						Thread.currentThread().interrupt();
+						throw new InterruptedIOException("Interrupted while waiting for demand");
+					}
+				}
+				if (this.cancelled) {
+					throw new IOException("Rendering cancelled");
+				}
+				if (this.demand != Long.MAX_VALUE) {
+					this.demand--;
+				}
+			}
+		}
+
+		void discard() {
+			DataBuffer buffer = this.buffer;
+			if (buffer != null) {
+				this.buffer = null;
+				DataBufferUtils.release(buffer);
+			}
+		}
+	}
+
 }
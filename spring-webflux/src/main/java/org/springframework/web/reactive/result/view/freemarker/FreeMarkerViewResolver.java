@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -31,6 +31,9 @@ import org.springframework.web.reactive.result.view.UrlBasedViewResolver;
  */
 public class FreeMarkerViewResolver extends UrlBasedViewResolver {
 
+	private int streamingBufferSize = -1;
+
+
 	/**
 	 * Simple constructor.
 	 */
@@ -50,6 +53,18 @@ public class FreeMarkerViewResolver extends UrlBasedViewResolver {
 	}
 
 
+	/**
+	 * Set the size of the buffers that resolved views render their templates
+	 * into, in order to stream the output while the template is processed.
+	 * <p>Default is -1, i.e. render the whole page before writing it.
+	 * @since 5.3.7
+	 * @see FreeMarkerView#setStreamingBufferSize(int)
+	 */
+	public void setStreamingBufferSize(int streamingBufferSize) {
+		this.streamingBufferSize = streamingBufferSize;
+	}
+
+
 	/**
 	 * Requires {@link FreeMarkerView}.
 	 */
@@ -63,4 +78,13 @@ public class FreeMarkerViewResolver extends UrlBasedViewResolver {
 		return (getViewClass() == FreeMarkerView.class ? new FreeMarkerView() : super.instantiateView());
 	}
 
+	@Override
+	protected AbstractUrlBasedView createView(String viewName) {
+		AbstractUrlBasedView view = super.createView(viewName);
+		if (view instanceof FreeMarkerView) {
+			((FreeMarkerView) view).setStreamingBufferSize(this.streamingBufferSize);
+		}
+		return view;
+	}
+
 }
@@ -0,0 +1,214 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.web.reactive.function.client;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.testfixture.io.buffer.LeakAwareDataBufferFactory;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for {@link CoalescingExchangeFilterFunction}.
+ *
+ * @author agent (agent@local)
+ */
+class CoalescingExchangeFilterFunctionTests {
+
+	private static final URI DEFAULT_URL = URI.create("https://example.com");
+
+	private final LeakAwareDataBufferFactory bufferFactory = new LeakAwareDataBufferFactory();
+
+	private final CoalescingExchangeFilterFunction filter = new CoalescingExchangeFilterFunction("tenant");
+
+	private final AtomicInteger exchangeCount = new AtomicInteger();
+
+	private final Sinks.One<ClientResponse> responseSink = Sinks.one();
+
+	private final ExchangeFunction exchange = request -> {
+		this.exchangeCount.incrementAndGet();
+		return this.responseSink.asMono();
+	};
+
+
+	@AfterEach
+	void checkForLeaks() {
+		this.bufferFactory.checkForLeaks();
+	}
+
+
+	@Test
+	void identicalRequestsShareExchange() {
+		ClientRequest request = ClientRequest.create(HttpMethod.GET, DEFAULT_URL).header("Accept", "text/plain").build();
+
+		Mono<String> first = this.filter.filter(request, this.exchange).flatMap(r -> r.bodyToMono(String.class));
+		Mono<String> second = this.filter.filter(request, this.exchange).flatMap(r -> r.bodyToMono(String.class));
+
+		StepVerifier.create(Mono.zip(first, second))
+				.then(() -> {
+					assertThat(this.exchangeCount.get()).isEqualTo(1);
+					this.responseSink.tryEmitValue(response("foo", "bar"));
+				})
+				.consumeNextWith(tuple -> {
+					assertThat(tuple.getT1()).isEqualTo("foobar");
+					assertThat(tuple.getT2()).isEqualTo("foobar");
+				})
+				.verifyComplete();
+
+		assertThat(this.exchangeCount.get()).isEqualTo(1);
+		assertThat(this.filter.getInFlightExchangeCount()).isEqualTo(0);
+	}
+
+	@Test
+	void identicalRequestsShareStreamingBody() {
+		ClientRequest request = ClientRequest.create(HttpMethod.GET, DEFAULT_URL).build();
+
+		Flux<String> first = this.filter.filter(request, this.exchange).flatMapMany(r -> r.bodyToFlux(String.class));
+		Mono<String> second = this.filter.filter(request, this.exchange).flatMap(r -> r.bodyToMono(String.class));
+
+		StepVerifier.create(first.collectList().zipWith(second))
+				.then(() -> this.responseSink.tryEmitValue(response("foo", "bar")))
+				.consumeNextWith(tuple -> {
+					assertThat(String.join("", tuple.getT1())).isEqualTo("foobar");
+					assertThat(tuple.getT2()).isEqualTo("foobar");
+				})
+				.verifyComplete();
+
+		assertThat(this.exchangeCount.get()).isEqualTo(1);
+	}
+
+	@Test
+	void releaseBodyOfSharedResponse() {
+		ClientRequest request = ClientRequest.create(HttpMethod.GET, DEFAULT_URL).build();
+
+		Mono<Void> first = this.filter.filter(request, this.exchange).flatMap(ClientResponse::releaseBody);
+		Mono<String> second = this.filter.filter(request, this.exchange).flatMap(r -> r.bodyToMono(String.class));
+
+		StepVerifier.create(first.then(second))
+				.then(() -> this.responseSink.tryEmitValue(response("foo")))
+				.expectNext("foo")
+				.verifyComplete();
+	}
+
+	@Test
+	void differentHeadersDoNotShareExchange() {
+		ClientRequest request1 = ClientRequest.create(HttpMethod.GET, DEFAULT_URL).header("Accept", "text/plain").build();
+		ClientRequest request2 = ClientRequest.create(HttpMethod.GET, DEFAULT_URL).header("Accept", "text/html").build();
+
+		this.filter.filter(request1, this.exchange).subscribe();
+		this.filter.filter(request2, this.exchange).subscribe();
+
+		assertThat(this.exchangeCount.get()).isEqualTo(2);
+		assertThat(this.filter.getInFlightExchangeCount()).isEqualTo(2);
+	}
+
+	@Test
+	void differentAttributesDoNotShareExchange() {
+		ClientRequest request1 = ClientRequest.create(HttpMethod.GET, DEFAULT_URL).attribute("tenant", "a").build();
+		ClientRequest request2 = ClientRequest.create(HttpMethod.GET, DEFAULT_URL).attribute("tenant", "b").build();
+		ClientRequest request3 = ClientRequest.create(HttpMethod.GET, DEFAULT_URL).attribute("tenant", "a")
+				.attribute("other", "c").build();
+
+		this.filter.filter(request1, this.exchange).subscribe();
+		this.filter.filter(request2, this.exchange).subscribe();
+		this.filter.filter(request3, this.exchange).subscribe();
+
+		assertThat(this.exchangeCount.get()).isEqualTo(2);
+	}
+
+	@Test
+	void postIsNotCoalesced() {
+		ClientRequest request = ClientRequest.create(HttpMethod.POST, DEFAULT_URL).build();
+
+		this.filter.filter(request, this.exchange).subscribe();
+		this.filter.filter(request, this.exchange).subscribe();
+
+		assertThat(this.exchangeCount.get()).isEqualTo(2);
+		assertThat(this.filter.getInFlightExchangeCount()).isEqualTo(0);
+	}
+
+	@Test
+	void requestAfterResponseStartsNewExchange() {
+		ClientRequest request = ClientRequest.create(HttpMethod.GET, DEFAULT_URL).build();
+		ExchangeFunction exchange = r -> {
+			this.exchangeCount.incrementAndGet();
+			return Mono.just(response("foo"));
+		};
+
+		StepVerifier.create(this.filter.filter(request, exchange).flatMap(r -> r.bodyToMono(String.class)))
+				.expectNext("foo")
+				.verifyComplete();
+		StepVerifier.create(this.filter.filter(request, exchange).flatMap(r -> r.bodyToMono(String.class)))
+				.expectNext("foo")
+				.verifyComplete();
+
+		assertThat(this.exchangeCount.get()).isEqualTo(2);
+	}
+
+	@Test
+	void errorIsSharedWithAllRequests() {
+		ClientRequest request = ClientRequest.create(HttpMethod.GET, DEFAULT_URL).build();
+		Mono<ClientResponse> first = this.filter.filter(request, this.exchange);
+		Mono<ClientResponse> second = this.filter.filter(request, this.exchange);
+
+		StepVerifier.create(Mono.zip(first, second))
+				.then(() -> this.responseSink.tryEmitError(new IllegalStateException("boo")))
+				.expectError(IllegalStateException.class)
+				.verify();
+
+		assertThat(this.exchangeCount.get()).isEqualTo(1);
+		assertThat(this.filter.getInFlightExchangeCount()).isEqualTo(0);
+	}
+
+	@Test
+	void unconsumedResponseIsReleasedWhenAllRequestsCancel() {
+		ClientRequest request = ClientRequest.create(HttpMethod.GET, DEFAULT_URL).build();
+
+		Disposable first = this.filter.filter(request, this.exchange).subscribe();
+		Disposable second = this.filter.filter(request, this.exchange).subscribe();
+		first.dispose();
+		second.dispose();
+		this.responseSink.tryEmitValue(response("foo"));
+
+		assertThat(this.exchangeCount.get()).isEqualTo(1);
+		assertThat(this.filter.getInFlightExchangeCount()).isEqualTo(0);
+	}
+
+
+	private ClientResponse response(String... chunks) {
+		Flux<DataBuffer> body = Flux.fromArray(chunks)
+				.map(chunk -> this.bufferFactory.wrap(chunk.getBytes(StandardCharsets.UTF_8)));
+		return ClientResponse.create(HttpStatus.OK, ExchangeStrategies.withDefaults())
+				.header("Content-Type", "text/plain")
+				.body(body)
+				.build();
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -19,16 +19,27 @@ package org.springframework.web.reactive.result.view.freemarker;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import freemarker.template.Configuration;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.reactivestreams.Subscription;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
+import reactor.util.concurrent.Queues;
 
 import org.springframework.context.ApplicationContextException;
 import org.springframework.context.support.GenericApplicationContext;
 import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DefaultDataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
 import org.springframework.http.codec.ServerCodecConfigurer;
 import org.springframework.ui.ExtendedModelMap;
 import org.springframework.ui.ModelMap;
@@ -38,6 +49,7 @@ import org.springframework.web.server.adapter.DefaultServerWebExchange;
 import org.springframework.web.server.i18n.AcceptHeaderLocaleContextResolver;
 import org.springframework.web.server.session.DefaultWebSessionManager;
 import org.springframework.web.testfixture.http.server.reactive.MockServerHttpRequest;
+import org.springframework.web.testfixture.http.server.reactive.MockServerHttpResponse;
 import org.springframework.web.testfixture.server.MockServerWebExchange;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -118,6 +130,77 @@ public class FreeMarkerViewTests {
 				.verify();
 	}
 
+	@Test
+	public void renderStreaming() {
+		FreeMarkerView view = new FreeMarkerView();
+		view.setApplicationContext(this.context);
+		view.setConfiguration(this.freeMarkerConfig);
+		view.setUrl("test.ftl");
+		view.setStreamingBufferSize(16);
+
+		ModelMap model = new ExtendedModelMap();
+		model.addAttribute("hello", "hi FreeMarker");
+		view.render(model, null, this.exchange).block(Duration.ofMillis(5000));
+
+		StepVerifier.create(this.exchange.getResponse().getBody().map(FreeMarkerViewTests::asString).collectList())
+				.consumeNextWith(chunks -> {
+					assertThat(chunks).hasSizeGreaterThan(1);
+					assertThat(chunks).allSatisfy(chunk -> assertThat(chunk.length()).isLessThanOrEqualTo(16));
+					assertThat(String.join("", chunks)).isEqualTo("<html><body>hi FreeMarker</body></html>");
+				})
+				.expectComplete()
+				.verify();
+	}
+
+	@Test
+	public void renderStreamingHonoursDemand() throws Exception {
+		AtomicInteger allocatedBuffers = new AtomicInteger();
+		DataBufferFactory bufferFactory = new DefaultDataBufferFactory() {
+			@Override
+			public DefaultDataBuffer allocateBuffer(int initialCapacity) {
+				allocatedBuffers.incrementAndGet();
+				return super.allocateBuffer(initialCapacity);
+			}
+		};
+		List<DataBuffer> received = new CopyOnWriteArrayList<>();
+		BaseSubscriber<DataBuffer> subscriber = new BaseSubscriber<DataBuffer>() {
+			@Override
+			protected void hookOnSubscribe(Subscription subscription) {
+				request(1);
+			}
+			@Override
+			protected void hookOnNext(DataBuffer buffer) {
+				received.add(buffer);
+			}
+		};
+		MockServerHttpResponse response = new MockServerHttpResponse(bufferFactory);
+		response.setWriteHandler(body -> {
+			body.subscribe(subscriber);
+			return Mono.never();
+		});
+		ServerWebExchange exchange = new DefaultServerWebExchange(
+				MockServerHttpRequest.get("/path").build(), response,
+				new DefaultWebSessionManager(), ServerCodecConfigurer.create(),
+				new AcceptHeaderLocaleContextResolver());
+
+		FreeMarkerView view = new FreeMarkerView();
+		view.setApplicationContext(this.context);
+		view.setConfiguration(this.freeMarkerConfig);
+		view.setUrl("test.ftl");
+		view.setStreamingBufferSize(16);
+
+		// Rendering this model takes well over 100 buffers
+		ModelMap model = new ExtendedModelMap();
+		model.addAttribute("hello", String.join("", Collections.nCopies(2000, "x")));
+		view.render(model, null, exchange).subscribe();
+
+		Thread.sleep(500);
+		subscriber.dispose();
+		assertThat(received).hasSize(1);
+		// At most the prefetch of the response's concatMap, rather than the whole page
+		assertThat(allocatedBuffers.get()).isLessThanOrEqualTo(Queues.XS_BUFFER_SIZE + 2);
+	}
+
 	@Test // gh-22754
 	public void subscribeWithoutDemand() {
 		ZeroDemandResponse response = new ZeroDemandResponse();
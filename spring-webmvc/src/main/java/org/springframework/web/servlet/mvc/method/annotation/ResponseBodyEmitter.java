@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -18,7 +18,9 @@ package org.springframework.web.servlet.mvc.method.annotation;
 
 import java.io.IOException;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.function.Consumer;
 
 import org.springframework.http.MediaType;
@@ -89,11 +91,13 @@ public class ResponseBodyEmitter {
 	 */
 	private boolean sendFailed;
 
-	private final DefaultCallback timeoutCallback = new DefaultCallback();
+	private final DefaultCallback timeoutCallback = new DefaultCallback(false);
 
 	private final ErrorCallback errorCallback = new ErrorCallback();
 
-	private final DefaultCallback completionCallback = new DefaultCallback();
+	private final DefaultCallback completionCallback = new DefaultCallback(true);
+
+	private final List<Runnable> terminationCallbacks = new CopyOnWriteArrayList<>();
 
 
 	/**
@@ -199,6 +203,21 @@ public class ResponseBodyEmitter {
 		sendInternal(object, mediaType);
 	}
 
+	/**
+	 * Write content that has already been serialized, e.g. by a
+	 * {@link ResponseBodyEmitterBroadcaster}, bypassing any formatting that
+	 * subclasses apply in {@link #send(Object, MediaType)}.
+	 * @param content the serialized content
+	 * @throws IOException raised when an I/O error occurs
+	 * @since 5.3.7
+	 */
+	synchronized void sendSerialized(byte[] content) throws IOException {
+		Assert.state(!this.complete,
+				"ResponseBodyEmitter has already completed" +
+						(this.failure != null ? " with error: " + this.failure : ""));
+		sendInternal(content, MediaType.APPLICATION_OCTET_STREAM);
+	}
+
 	private void sendInternal(Object object, @Nullable MediaType mediaType) throws IOException {
 		if (this.handler != null) {
 			try {
@@ -288,6 +307,34 @@ public class ResponseBodyEmitter {
 		this.completionCallback.setDelegate(callback);
 	}
 
+	/**
+	 * Register internal code to invoke when the async request completes or
+	 * fails, independent of the single callback that applications may set via
+	 * {@link #onCompletion} and {@link #onError}. Invoked immediately if this
+	 * emitter has already completed. Since an error is usually followed by
+	 * completion, the callback may be invoked more than once.
+	 * @since 5.3.7
+	 * @see ResponseBodyEmitterBroadcaster#register
+	 */
+	void addTerminationCallback(Runnable callback) {
+		boolean complete;
+		synchronized (this) {
+			complete = this.complete;
+			if (!complete) {
+				this.terminationCallbacks.add(callback);
+			}
+		}
+		if (complete) {
+			callback.run();
+		}
+	}
+
+	private void runTerminationCallbacks() {
+		for (Runnable callback : this.terminationCallbacks) {
+			callback.run();
+		}
+	}
+
 
 	@Override
 	public String toString() {
@@ -346,9 +393,15 @@ public class ResponseBodyEmitter {
 
 	private class DefaultCallback implements Runnable {
 
+		private final boolean terminal;
+
 		@Nullable
 		private Runnable delegate;
 
+		DefaultCallback(boolean terminal) {
+			this.terminal = terminal;
+		}
+
 		public void setDelegate(Runnable delegate) {
 			this.delegate = delegate;
 		}
@@ -359,6 +412,9 @@ public class ResponseBodyEmitter {
 			if (this.delegate != null) {
 				this.delegate.run();
 			}
+			if (this.terminal) {
+				runTerminationCallbacks();
+			}
 		}
 	}
 
@@ -378,6 +434,7 @@ public class ResponseBodyEmitter {
 			if (this.delegate != null) {
 				this.delegate.accept(t);
 			}
+			runTerminationCallbacks();
 		}
 	}
 
@@ -0,0 +1,496 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.web.servlet.mvc.method.annotation;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+import org.springframework.util.ObjectUtils;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter.SseEventBuilder;
+
+/**
+ * Broadcasts events to any number of registered {@link ResponseBodyEmitter}
+ * and {@link SseEmitter} instances.
+ *
+ * <p>Each event is serialized only once, through the configured
+ * {@link HttpMessageConverter HttpMessageConverters}, and the resulting bytes
+ * are shared by all emitters. Writes are performed on the given
+ * {@link Executor}, concurrently across emitters but in order for each
+ * emitter, so that a slow client does not hold up the broadcasting thread or
+ * other clients.
+ *
+ * <p>Every emitter has a bounded queue of pending events. When the queue of a
+ * slow client is full, the configured {@link SlowConsumerPolicy} decides
+ * whether the new event is dropped, the client is disconnected, or queued
+ * events are coalesced.
+ *
+ * <p>Emitters are unregistered once their async request is over, as well as
+ * after a failed write. This does not use the emitter's
+ * {@link ResponseBodyEmitter#onCompletion onCompletion} and
+ * {@link ResponseBodyEmitter#onError onError} callbacks, which remain
+ * available to the application.
+ *
+ * @author agent (agent@local)
+ * @since 5.3.7
+ */
+public class ResponseBodyEmitterBroadcaster {
+
+	private static final Log logger = LogFactory.getLog(ResponseBodyEmitterBroadcaster.class);
+
+
+	private final List<HttpMessageConverter<?>> messageConverters;
+
+	private final Executor executor;
+
+	private final Map<ResponseBodyEmitter, Subscriber> subscribers = new ConcurrentHashMap<>();
+
+	private int queueCapacity = 256;
+
+	private SlowConsumerPolicy slowConsumerPolicy = SlowConsumerPolicy.DROP;
+
+	private final AtomicLong broadcastCount = new AtomicLong();
+
+	private final AtomicLong droppedEventCount = new AtomicLong();
+
+	private final AtomicLong disconnectedCount = new AtomicLong();
+
+
+	/**
+	 * Create a new broadcaster.
+	 * @param messageConverters the converters to serialize event data with
+	 * @param executor the executor to write to emitters with
+	 */
+	public ResponseBodyEmitterBroadcaster(List<HttpMessageConverter<?>> messageConverters, Executor executor) {
+		Assert.notEmpty(messageConverters, "HttpMessageConverter List must not be empty");
+		Assert.notNull(executor, "Executor must not be null");
+		this.messageConverters = new ArrayList<>(messageConverters);
+		this.executor = executor;
+	}
+
+
+	/**
+	 * Set the maximum number of events to queue for each emitter.
+	 * <p>Default is 256. Applies to emitters registered afterwards.
+	 */
+	public void setQueueCapacity(int queueCapacity) {
+		Assert.isTrue(queueCapacity > 0, "Queue capacity must be greater than 0");
+		this.queueCapacity = queueCapacity;
+	}
+
+	/**
+	 * Return the configured queue capacity per emitter.
+	 */
+	public int getQueueCapacity() {
+		return this.queueCapacity;
+	}
+
+	/**
+	 * Set the policy to apply when the queue of an emitter is full.
+	 * <p>Default is {@link SlowConsumerPolicy#DROP}. Applies to emitters
+	 * registered afterwards.
+	 */
+	public void setSlowConsumerPolicy(SlowConsumerPolicy slowConsumerPolicy) {
+		Assert.notNull(slowConsumerPolicy, "SlowConsumerPolicy must not be null");
+		this.slowConsumerPolicy = slowConsumerPolicy;
+	}
+
+	/**
+	 * Return the configured slow consumer policy.
+	 */
+	public SlowConsumerPolicy getSlowConsumerPolicy() {
+		return this.slowConsumerPolicy;
+	}
+
+
+	/**
+	 * Register the given emitter to receive subsequent broadcasts.
+	 * <p>The emitter is unregistered automatically when its async request
+	 * completes or fails, without taking over its
+	 * {@link ResponseBodyEmitter#onCompletion onCompletion} and
+	 * {@link ResponseBodyEmitter#onError onError} callbacks: the application
+	 * may set those before or after registration.
+	 * @param emitter the emitter to add
+	 */
+	public void register(ResponseBodyEmitter emitter) {
+		Subscriber subscriber = new Subscriber(emitter, this.queueCapacity, this.slowConsumerPolicy);
+		if (this.subscribers.putIfAbsent(emitter, subscriber) == null) {
+			emitter.addTerminationCallback(() -> unregister(emitter));
+		}
+	}
+
+	/**
+	 * Unregister the given emitter, discarding any events queued for it.
+	 * @param emitter the emitter to remove
+	 * @return whether the emitter was registered
+	 */
+	public boolean unregister(ResponseBodyEmitter emitter) {
+		Subscriber subscriber = this.subscribers.remove(emitter);
+		if (subscriber != null) {
+			subscriber.close();
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Broadcast the given object, serialized the same way as
+	 * {@link ResponseBodyEmitter#send(Object, MediaType)} would, but without
+	 * any SSE formatting, even for {@link SseEmitter} instances.
+	 * @param data the object to broadcast
+	 * @param mediaType a MediaType hint for selecting an HttpMessageConverter
+	 * @throws IOException if the object could not be serialized
+	 */
+	public void broadcast(Object data, @Nullable MediaType mediaType) throws IOException {
+		ByteArrayOutputMessage outputMessage = new ByteArrayOutputMessage();
+		write(data, mediaType, outputMessage);
+		broadcastSerialized(outputMessage.toByteArray(), null);
+	}
+
+	/**
+	 * Broadcast the given Server-Sent Event.
+	 * @param event the event to broadcast
+	 * @throws IOException if the event data could not be serialized
+	 */
+	public void broadcast(SseEventBuilder event) throws IOException {
+		broadcast(event, null);
+	}
+
+	/**
+	 * Broadcast the given Server-Sent Event with a key that identifies events
+	 * superseding each other, for use with {@link SlowConsumerPolicy#COALESCE}.
+	 * @param event the event to broadcast
+	 * @param coalescingKey the key of the event, or {@code null} if the event
+	 * does not replace any other
+	 * @throws IOException if the event data could not be serialized
+	 */
+	public void broadcast(SseEventBuilder event, @Nullable Object coalescingKey) throws IOException {
+		ByteArrayOutputMessage outputMessage = new ByteArrayOutputMessage();
+		for (DataWithMediaType item : event.build()) {
+			write(item.getData(), item.getMediaType(), outputMessage);
+		}
+		broadcastSerialized(outputMessage.toByteArray(), coalescingKey);
+	}
+
+	@SuppressWarnings("unchecked")
+	private <T> void write(T data, @Nullable MediaType mediaType, ByteArrayOutputMessage outputMessage)
+			throws IOException {
+
+		if (data instanceof String) {
+			Charset charset = (mediaType != null && mediaType.getCharset() != null ?
+					mediaType.getCharset() : StandardCharsets.UTF_8);
+			outputMessage.getBody().write(((String) data).getBytes(charset));
+			return;
+		}
+		for (HttpMessageConverter<?> converter : this.messageConverters) {
+			if (converter.canWrite(data.getClass(), mediaType)) {
+				((HttpMessageConverter<T>) converter).write(data, mediaType, outputMessage);
+				return;
+			}
+		}
+		throw new IllegalArgumentException("No suitable converter for " + data.getClass());
+	}
+
+	private void broadcastSerialized(byte[] content, @Nullable Object coalescingKey) {
+		Event event = new Event(content, coalescingKey);
+		this.broadcastCount.incrementAndGet();
+		for (Subscriber subscriber : this.subscribers.values()) {
+			subscriber.offer(event);
+		}
+	}
+
+
+	/**
+	 * Return the number of registered emitters.
+	 */
+	public int getSubscriberCount() {
+		return this.subscribers.size();
+	}
+
+	/**
+	 * Return the number of events currently queued across all emitters.
+	 */
+	public int getQueuedEventCount() {
+		int count = 0;
+		for (Subscriber subscriber : this.subscribers.values()) {
+			count += subscriber.getQueueSize();
+		}
+		return count;
+	}
+
+	/**
+	 * Return the highest number of events currently queued for a single emitter.
+	 */
+	public int getMaxQueuedEventCount() {
+		int max = 0;
+		for (Subscriber subscriber : this.subscribers.values()) {
+			max = Math.max(max, subscriber.getQueueSize());
+		}
+		return max;
+	}
+
+	/**
+	 * Return the total number of events broadcast so far.
+	 */
+	public long getBroadcastCount() {
+		return this.broadcastCount.get();
+	}
+
+	/**
+	 * Return the total number of events that were dropped or coalesced for
+	 * slow emitters so far.
+	 */
+	public long getDroppedEventCount() {
+		return this.droppedEventCount.get();
+	}
+
+	/**
+	 * Return the total number of emitters disconnected so far, either as a
+	 * slow consumer or after a failed write.
+	 */
+	public long getDisconnectedCount() {
+		return this.disconnectedCount.get();
+	}
+
+	@Override
+	public String toString() {
+		return "ResponseBodyEmitterBroadcaster[subscribers=" + getSubscriberCount() +
+				", queued=" + getQueuedEventCount() + ", broadcast=" + getBroadcastCount() +
+				", dropped=" + getDroppedEventCount() + ", disconnected=" + getDisconnectedCount() + "]";
+	}
+
+
+	/**
+	 * Policy to apply when an emitter cannot keep up with the rate of events.
+	 */
+	public enum SlowConsumerPolicy {
+
+		/**
+		 * Drop new events while the queue of the emitter is full.
+		 */
+		DROP,
+
+		/**
+		 * Complete the emitter and unregister it once its queue is full.
+		 */
+		DISCONNECT,
+
+		/**
+		 * Make room for a new event by removing a queued event with the same
+		 * coalescing key, or else the oldest queued event, so that a slow
+		 * client gets the latest state rather than the full history.
+		 */
+		COALESCE
+	}
+
+
+	/**
+	 * A serialized event.
+	 */
+	private static class Event {
+
+		private final byte[] content;
+
+		@Nullable
+		private final Object key;
+
+		Event(byte[] content, @Nullable Object key) {
+			this.content = content;
+			this.key = key;
+		}
+	}
+
+
+	/**
+	 * A registered emitter with its queue of pending events.
+	 */
+	private class Subscriber {
+
+		private final ResponseBodyEmitter emitter;
+
+		private final int queueCapacity;
+
+		private final SlowConsumerPolicy policy;
+
+		private final Deque<Event> queue = new ArrayDeque<>();
+
+		private boolean draining;
+
+		private boolean closed;
+
+		Subscriber(ResponseBodyEmitter emitter, int queueCapacity, SlowConsumerPolicy policy) {
+			this.emitter = emitter;
+			this.queueCapacity = queueCapacity;
+			this.policy = policy;
+		}
+
+		void offer(Event event) {
+			boolean disconnect = false;
+			boolean schedule = false;
+			synchronized (this) {
+				if (this.closed) {
+					return;
+				}
+				if (this.queue.size() >= this.queueCapacity) {
+					switch (this.policy) {
+						case DROP:
+							ResponseBodyEmitterBroadcaster.this.droppedEventCount.incrementAndGet();
+							return;
+						case DISCONNECT:
+							disconnect = true;
+							break;
+						case COALESCE:
+							removeSuperseded(event);
+							ResponseBodyEmitterBroadcaster.this.droppedEventCount.incrementAndGet();
+							break;
+					}
+				}
+				if (!disconnect) {
+					this.queue.add(event);
+					schedule = !this.draining;
+					this.draining = true;
+				}
+			}
+			if (disconnect) {
+				if (logger.isDebugEnabled()) {
+					logger.debug("Disconnecting slow consumer " + this.emitter);
+				}
+				ResponseBodyEmitterBroadcaster.this.disconnectedCount.incrementAndGet();
+				unregister(this.emitter);
+				this.emitter.complete();
+			}
+			else if (schedule) {
+				try {
+					ResponseBodyEmitterBroadcaster.this.executor.execute(this::drain);
+				}
+				catch (RejectedExecutionException ex) {
+					synchronized (this) {
+						this.draining = false;
+					}
+					if (logger.isWarnEnabled()) {
+						logger.warn("Failed to schedule write to " + this.emitter + ": " + ex.getMessage());
+					}
+				}
+			}
+		}
+
+		private void removeSuperseded(Event event) {
+			if (event.key != null) {
+				for (Iterator<Event> it = this.queue.iterator(); it.hasNext();) {
+					if (ObjectUtils.nullSafeEquals(it.next().key, event.key)) {
+						it.remove();
+						return;
+					}
+				}
+			}
+			this.queue.pollFirst();
+		}
+
+		private void drain() {
+			while (true) {
+				Event event;
+				synchronized (this) {
+					event = (this.closed ? null : this.queue.pollFirst());
+					if (event == null) {
+						this.draining = false;
+						return;
+					}
+				}
+				try {
+					this.emitter.sendSerialized(event.content);
+				}
+				catch (IOException | IllegalStateException ex) {
+					// Broken connection or emitter completed already: no point in further writes.
+					// The container notifies the emitter of I/O errors, no need to complete it here.
+					if (logger.isDebugEnabled()) {
+						logger.debug("Failed to write to " + this.emitter + ": " + ex.getMessage());
+					}
+					if (unregister(this.emitter)) {
+						ResponseBodyEmitterBroadcaster.this.disconnectedCount.incrementAndGet();
+					}
+					synchronized (this) {
+						this.draining = false;
+					}
+					return;
+				}
+				catch (Throwable ex) {
+					synchronized (this) {
+						this.draining = false;
+					}
+					throw ex;
+				}
+			}
+		}
+
+		synchronized int getQueueSize() {
+			return this.queue.size();
+		}
+
+		synchronized void close() {
+			this.closed = true;
+			this.queue.clear();
+		}
+	}
+
+
+	/**
+	 * {@link HttpOutputMessage} that collects the body into a byte array.
+	 */
+	private static class ByteArrayOutputMessage implements HttpOutputMessage {
+
+		private final HttpHeaders headers = new HttpHeaders();
+
+		private final ByteArrayOutputStream body = new ByteArrayOutputStream(256);
+
+		@Override
+		public OutputStream getBody() {
+			return this.body;
+		}
+
+		@Override
+		public HttpHeaders getHeaders() {
+			return this.headers;
+		}
+
+		byte[] toByteArray() {
+			return this.body.toByteArray();
+		}
+	}
+
+}
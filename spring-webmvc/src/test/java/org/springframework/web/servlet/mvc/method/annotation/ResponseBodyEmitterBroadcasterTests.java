@@ -0,0 +1,309 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.web.servlet.mvc.method.annotation;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.Test;
+
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitterBroadcaster.SlowConsumerPolicy;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.web.servlet.mvc.method.annotation.SseEmitter.event;
+
+/**
+ * Unit tests for {@link ResponseBodyEmitterBroadcaster}.
+ *
+ * @author agent (agent@local)
+ */
+class ResponseBodyEmitterBroadcasterTests {
+
+	private final List<HttpMessageConverter<?>> converters =
+			Collections.singletonList(new MappingJackson2HttpMessageConverter());
+
+	private final ManualExecutor manualExecutor = new ManualExecutor();
+
+
+	@Test
+	void broadcastSseEventToAllEmitters() throws Exception {
+		ResponseBodyEmitterBroadcaster broadcaster =
+				new ResponseBodyEmitterBroadcaster(this.converters, new SyncTaskExecutor());
+		TestHandler handler1 = register(broadcaster, new SseEmitter());
+		TestHandler handler2 = register(broadcaster, new SseEmitter());
+
+		broadcaster.broadcast(event().id("1").name("update").data(new Item("foo")));
+
+		String expected = "id:1\nevent:update\ndata:{\"name\":\"foo\"}\n\n";
+		assertThat(handler1.getContent()).containsExactly(expected);
+		assertThat(handler2.getContent()).containsExactly(expected);
+		assertThat(handler1.objects.get(0)).isSameAs(handler2.objects.get(0));
+		assertThat(broadcaster.getBroadcastCount()).isEqualTo(1);
+	}
+
+	@Test
+	void broadcastObjectToResponseBodyEmitter() throws Exception {
+		ResponseBodyEmitterBroadcaster broadcaster =
+				new ResponseBodyEmitterBroadcaster(this.converters, new SyncTaskExecutor());
+		TestHandler handler = register(broadcaster, new ResponseBodyEmitter());
+
+		broadcaster.broadcast(new Item("foo"), MediaType.APPLICATION_JSON);
+		broadcaster.broadcast("\n", MediaType.TEXT_PLAIN);
+
+		assertThat(handler.getContent()).containsExactly("{\"name\":\"foo\"}", "\n");
+	}
+
+	@Test
+	void unregister() throws Exception {
+		ResponseBodyEmitterBroadcaster broadcaster =
+				new ResponseBodyEmitterBroadcaster(this.converters, new SyncTaskExecutor());
+		SseEmitter emitter = new SseEmitter();
+		TestHandler handler = register(broadcaster, emitter);
+		assertThat(broadcaster.getSubscriberCount()).isEqualTo(1);
+
+		assertThat(broadcaster.unregister(emitter)).isTrue();
+		broadcaster.broadcast(event().data("foo"));
+
+		assertThat(handler.getContent()).isEmpty();
+		assertThat(broadcaster.getSubscriberCount()).isEqualTo(0);
+	}
+
+	@Test
+	void unregisterOnCompletion() throws Exception {
+		ResponseBodyEmitterBroadcaster broadcaster =
+				new ResponseBodyEmitterBroadcaster(this.converters, new SyncTaskExecutor());
+		TestHandler handler = register(broadcaster, new SseEmitter());
+
+		handler.completionCallback.run();
+
+		assertThat(broadcaster.getSubscriberCount()).isEqualTo(0);
+	}
+
+	@Test
+	void unregisterOnError() throws Exception {
+		ResponseBodyEmitterBroadcaster broadcaster =
+				new ResponseBodyEmitterBroadcaster(this.converters, new SyncTaskExecutor());
+		TestHandler handler = register(broadcaster, new SseEmitter());
+
+		handler.errorCallback.accept(new IOException("Broken pipe"));
+
+		assertThat(broadcaster.getSubscriberCount()).isEqualTo(0);
+	}
+
+	@Test
+	void applicationCallbacksSetAfterRegistration() throws Exception {
+		ResponseBodyEmitterBroadcaster broadcaster =
+				new ResponseBodyEmitterBroadcaster(this.converters, new SyncTaskExecutor());
+		SseEmitter emitter = new SseEmitter();
+		TestHandler handler = register(broadcaster, emitter);
+		List<String> invoked = new ArrayList<>();
+		emitter.onError(ex -> invoked.add("error"));
+		emitter.onCompletion(() -> invoked.add("completion"));
+
+		handler.errorCallback.accept(new IOException("Broken pipe"));
+		handler.completionCallback.run();
+
+		assertThat(invoked).containsExactly("error", "completion");
+		assertThat(broadcaster.getSubscriberCount()).isEqualTo(0);
+	}
+
+	@Test
+	void completedEmitterIsNotRegistered() throws Exception {
+		ResponseBodyEmitterBroadcaster broadcaster =
+				new ResponseBodyEmitterBroadcaster(this.converters, new SyncTaskExecutor());
+		ResponseBodyEmitter emitter = new ResponseBodyEmitter();
+		emitter.complete();
+		broadcaster.register(emitter);
+
+		assertThat(broadcaster.getSubscriberCount()).isEqualTo(0);
+	}
+
+	@Test
+	void failedWriteUnregistersEmitter() throws Exception {
+		ResponseBodyEmitterBroadcaster broadcaster =
+				new ResponseBodyEmitterBroadcaster(this.converters, new SyncTaskExecutor());
+		TestHandler handler = register(broadcaster, new SseEmitter());
+		handler.failure = new IOException("Broken pipe");
+
+		broadcaster.broadcast(event().data("foo"));
+
+		assertThat(broadcaster.getSubscriberCount()).isEqualTo(0);
+		assertThat(broadcaster.getDisconnectedCount()).isEqualTo(1);
+	}
+
+	@Test
+	void slowConsumerDrop() throws Exception {
+		ResponseBodyEmitterBroadcaster broadcaster =
+				new ResponseBodyEmitterBroadcaster(this.converters, this.manualExecutor);
+		broadcaster.setQueueCapacity(2);
+		TestHandler handler = register(broadcaster, new SseEmitter());
+
+		broadcaster.broadcast(event().data("1"));
+		broadcaster.broadcast(event().data("2"));
+		broadcaster.broadcast(event().data("3"));
+		assertThat(broadcaster.getQueuedEventCount()).isEqualTo(2);
+		assertThat(broadcaster.getDroppedEventCount()).isEqualTo(1);
+
+		this.manualExecutor.runAll();
+		assertThat(handler.getContent()).containsExactly("data:1\n\n", "data:2\n\n");
+		assertThat(broadcaster.getQueuedEventCount()).isEqualTo(0);
+	}
+
+	@Test
+	void slowConsumerDisconnect() throws Exception {
+		ResponseBodyEmitterBroadcaster broadcaster =
+				new ResponseBodyEmitterBroadcaster(this.converters, this.manualExecutor);
+		broadcaster.setQueueCapacity(1);
+		broadcaster.setSlowConsumerPolicy(SlowConsumerPolicy.DISCONNECT);
+		TestHandler handler = register(broadcaster, new SseEmitter());
+
+		broadcaster.broadcast(event().data("1"));
+		broadcaster.broadcast(event().data("2"));
+
+		assertThat(broadcaster.getSubscriberCount()).isEqualTo(0);
+		assertThat(broadcaster.getDisconnectedCount()).isEqualTo(1);
+		assertThat(handler.completed).isTrue();
+
+		this.manualExecutor.runAll();
+		assertThat(handler.getContent()).isEmpty();
+	}
+
+	@Test
+	void slowConsumerCoalesce() throws Exception {
+		ResponseBodyEmitterBroadcaster broadcaster =
+				new ResponseBodyEmitterBroadcaster(this.converters, this.manualExecutor);
+		broadcaster.setQueueCapacity(2);
+		broadcaster.setSlowConsumerPolicy(SlowConsumerPolicy.COALESCE);
+		TestHandler handler = register(broadcaster, new SseEmitter());
+
+		broadcaster.broadcast(event().data("a1"), "a");
+		broadcaster.broadcast(event().data("b1"), "b");
+		broadcaster.broadcast(event().data("a2"), "a");
+		broadcaster.broadcast(event().data("c1"), "c");
+
+		this.manualExecutor.runAll();
+		assertThat(handler.getContent()).containsExactly("data:a2\n\n", "data:c1\n\n");
+		assertThat(broadcaster.getDroppedEventCount()).isEqualTo(2);
+	}
+
+
+	private static TestHandler register(ResponseBodyEmitterBroadcaster broadcaster, ResponseBodyEmitter emitter)
+			throws IOException {
+
+		TestHandler handler = new TestHandler();
+		emitter.initialize(handler);
+		broadcaster.register(emitter);
+		return handler;
+	}
+
+
+	private static class ManualExecutor implements Executor {
+
+		private final Queue<Runnable> tasks = new ArrayDeque<>();
+
+		@Override
+		public void execute(Runnable task) {
+			this.tasks.add(task);
+		}
+
+		void runAll() {
+			Runnable task;
+			while ((task = this.tasks.poll()) != null) {
+				task.run();
+			}
+		}
+	}
+
+
+	private static class TestHandler implements ResponseBodyEmitter.Handler {
+
+		private final List<Object> objects = new ArrayList<>();
+
+		private IOException failure;
+
+		private Runnable completionCallback;
+
+		private Consumer<Throwable> errorCallback;
+
+		private boolean completed;
+
+		List<String> getContent() {
+			List<String> content = new ArrayList<>();
+			for (Object object : this.objects) {
+				content.add(new String((byte[]) object, StandardCharsets.UTF_8));
+			}
+			return content;
+		}
+
+		@Override
+		public void send(Object data, MediaType mediaType) throws IOException {
+			if (this.failure != null) {
+				throw this.failure;
+			}
+			this.objects.add(data);
+		}
+
+		@Override
+		public void complete() {
+			this.completed = true;
+		}
+
+		@Override
+		public void completeWithError(Throwable failure) {
+		}
+
+		@Override
+		public void onTimeout(Runnable callback) {
+		}
+
+		@Override
+		public void onError(Consumer<Throwable> callback) {
+			this.errorCallback = callback;
+		}
+
+		@Override
+		public void onCompletion(Runnable callback) {
+			this.completionCallback = callback;
+		}
+	}
+
+
+	private static class Item {
+
+		private final String name;
+
+		Item(String name) {
+			this.name = name;
+		}
+
+		public String getName() {
+			return this.name;
+		}
+	}
+
+}
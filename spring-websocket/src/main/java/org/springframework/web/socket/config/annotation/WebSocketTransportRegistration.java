@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -40,6 +40,9 @@ public class WebSocketTransportRegistration {
 	@Nullable
 	private Integer sendBufferSizeLimit;
 
+	@Nullable
+	private Integer sendBatchSizeLimit;
+
 	@Nullable
 	private Integer timeToFirstMessage;
 
@@ -146,6 +149,28 @@ public class WebSocketTransportRegistration {
 		return this.sendBufferSizeLimit;
 	}
 
+	/**
+	 * Configure the maximum number of bytes of buffered messages that may be
+	 * combined into a single WebSocket message when a client is slow to receive.
+	 * Combining STOMP frames this way is safe since each frame is terminated
+	 * with a NULL octet, and it reduces the number of writes per session.
+	 * <p>By default this is not set, i.e. buffered messages are sent one by one.
+	 * @param sendBatchSizeLimit the maximum size of a combined message in bytes
+	 * @since 5.3.7
+	 */
+	public WebSocketTransportRegistration setSendBatchSizeLimit(int sendBatchSizeLimit) {
+		this.sendBatchSizeLimit = sendBatchSizeLimit;
+		return this;
+	}
+
+	/**
+	 * Protected accessor for internal use.
+	 */
+	@Nullable
+	protected Integer getSendBatchSizeLimit() {
+		return this.sendBatchSizeLimit;
+	}
+
 	/**
 	 * Set the maximum time allowed in milliseconds after the WebSocket connection
 	 * is established and before the first sub-protocol message is received.
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -17,18 +17,26 @@
 package org.springframework.web.socket.handler;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Consumer;
+import java.util.function.Function;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import org.springframework.lang.Nullable;
+import org.springframework.web.socket.BinaryMessage;
 import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketMessage;
 import org.springframework.web.socket.WebSocketSession;
 
@@ -41,6 +49,11 @@ import org.springframework.web.socket.WebSocketSession;
  * At that time, the specified buffer-size limit and send-time limit will be checked
  * and the session will be closed if the limits are exceeded.
  *
+ * <p>Messages buffered during a slow send may optionally be combined into fewer,
+ * larger messages (see {@link #setBatchSizeLimit}), and messages that supersede
+ * each other may be coalesced so that only the latest one is sent
+ * (see {@link #setCoalescingKeyResolver}).
+ *
  * @author Rossen Stoyanchev
  * @author Juergen Hoeller
  * @since 4.0.3
@@ -59,11 +72,23 @@ public class ConcurrentWebSocketSessionDecorator extends WebSocketSessionDecorat
 	@Nullable
 	private Consumer<WebSocketMessage<?>> preSendCallback;
 
+	private int batchSizeLimit;
+
+	@Nullable
+	private Function<WebSocketMessage<?>, Object> coalescingKeyResolver;
+
 
 	private final Queue<WebSocketMessage<?>> buffer = new LinkedBlockingQueue<>();
 
 	private final AtomicInteger bufferSize = new AtomicInteger();
 
+	// Coalescing key -> most recently buffered message for that key
+	private final Map<Object, WebSocketMessage<?>> latestMessages = new ConcurrentHashMap<>();
+
+	// Message taken from the buffer that could not be added to the last batch (guarded by flushLock)
+	@Nullable
+	private WebSocketMessage<?> pendingMessage;
+
 	private volatile long sendStartTime;
 
 	private volatile boolean limitExceeded;
@@ -145,6 +170,45 @@ public class ConcurrentWebSocketSessionDecorator extends WebSocketSessionDecorat
 		this.preSendCallback = callback;
 	}
 
+	/**
+	 * Configure the maximum number of bytes of buffered messages to combine into
+	 * a single message when flushing the send buffer. Consecutive complete text
+	 * or binary messages of the same type are concatenated until the limit is
+	 * reached, which reduces the number of writes for a slow client.
+	 * <p><strong>Note:</strong> this is only safe for sub-protocols whose messages
+	 * are self-delimiting and may be received several per WebSocket message,
+	 * such as STOMP where each frame is terminated with a NULL octet.
+	 * <p>By default this is 0, in which case messages are always sent one by one.
+	 * @param batchSizeLimit the maximum size of a combined message (number of bytes)
+	 * @since 5.3.7
+	 */
+	public void setBatchSizeLimit(int batchSizeLimit) {
+		this.batchSizeLimit = batchSizeLimit;
+	}
+
+	/**
+	 * Return the configured batch-size limit (number of bytes).
+	 * @since 5.3.7
+	 */
+	public int getBatchSizeLimit() {
+		return this.batchSizeLimit;
+	}
+
+	/**
+	 * Configure a function that returns a coalescing key for a message, or
+	 * {@code null} if the message must always be sent. When a message is added
+	 * while an earlier message with the same key is still in the send buffer,
+	 * the earlier message is discarded and only the latest one is sent, e.g.
+	 * for periodic state updates of which only the most recent is of interest.
+	 * <p>The function is invoked once per buffered message, and again when the
+	 * message is taken from the buffer, so it should be cheap to evaluate.
+	 * @param keyResolver the function to use, or {@code null} to disable coalescing
+	 * @since 5.3.7
+	 */
+	public void setCoalescingKeyResolver(@Nullable Function<WebSocketMessage<?>, Object> keyResolver) {
+		this.coalescingKeyResolver = keyResolver;
+	}
+
 
 	@Override
 	public void sendMessage(WebSocketMessage<?> message) throws IOException {
@@ -152,6 +216,15 @@ public class ConcurrentWebSocketSessionDecorator extends WebSocketSessionDecorat
 			return;
 		}
 
+		Object key = (this.coalescingKeyResolver != null ? this.coalescingKeyResolver.apply(message) : null);
+		if (key != null) {
+			WebSocketMessage<?> superseded = this.latestMessages.put(key, message);
+			if (superseded != null && superseded != message) {
+				// Still in the buffer, and skipped when taken from it
+				this.bufferSize.addAndGet(-superseded.getPayloadLength());
+			}
+		}
+
 		this.buffer.add(message);
 		this.bufferSize.addAndGet(message.getPayloadLength());
 
@@ -181,11 +254,13 @@ public class ConcurrentWebSocketSessionDecorator extends WebSocketSessionDecorat
 		if (this.flushLock.tryLock()) {
 			try {
 				while (true) {
-					WebSocketMessage<?> message = this.buffer.poll();
+					WebSocketMessage<?> message = pollNextMessage();
 					if (message == null || shouldNotSend()) {
 						break;
 					}
-					this.bufferSize.addAndGet(-message.getPayloadLength());
+					if (this.batchSizeLimit > 0) {
+						message = batchMessages(message);
+					}
 					this.sendStartTime = System.currentTimeMillis();
 					getDelegate().sendMessage(message);
 					this.sendStartTime = 0;
@@ -200,6 +275,98 @@ public class ConcurrentWebSocketSessionDecorator extends WebSocketSessionDecorat
 		return false;
 	}
 
+	/**
+	 * Take the next message to send, starting with one left over from the last
+	 * batch, if any. Must be called with the flush lock held.
+	 */
+	@Nullable
+	private WebSocketMessage<?> pollNextMessage() {
+		WebSocketMessage<?> message = this.pendingMessage;
+		if (message != null) {
+			this.pendingMessage = null;
+			this.bufferSize.addAndGet(-message.getPayloadLength());
+			return message;
+		}
+		return pollBuffer();
+	}
+
+	/**
+	 * Take the next message from the buffer, skipping messages that have been
+	 * superseded by a later message with the same coalescing key.
+	 * <p>Messages are matched by identity, since a later message with the same
+	 * key may well have an equal payload, e.g. an unchanged state update.
+	 */
+	@Nullable
+	private WebSocketMessage<?> pollBuffer() {
+		while (true) {
+			WebSocketMessage<?> message = this.buffer.poll();
+			if (message == null) {
+				return null;
+			}
+			Object key = (this.coalescingKeyResolver != null ? this.coalescingKeyResolver.apply(message) : null);
+			if (key == null || this.latestMessages.computeIfPresent(
+					key, (k, latest) -> (latest == message ? null : latest)) == null) {
+				this.bufferSize.addAndGet(-message.getPayloadLength());
+				return message;
+			}
+			// Superseded: its size was already deducted when it was replaced
+		}
+	}
+
+	/**
+	 * Combine the given message with further buffered messages of the same type
+	 * up to the batch-size limit. Must be called with the flush lock held.
+	 */
+	private WebSocketMessage<?> batchMessages(WebSocketMessage<?> first) {
+		if (!isBatchable(first)) {
+			return first;
+		}
+		List<WebSocketMessage<?>> batch = null;
+		int size = first.getPayloadLength();
+		while (size < this.batchSizeLimit) {
+			WebSocketMessage<?> next = pollBuffer();
+			if (next == null) {
+				break;
+			}
+			if (next.getClass() != first.getClass() || !isBatchable(next) ||
+					size + next.getPayloadLength() > this.batchSizeLimit) {
+				this.pendingMessage = next;
+				this.bufferSize.addAndGet(next.getPayloadLength());
+				break;
+			}
+			if (batch == null) {
+				batch = new ArrayList<>();
+				batch.add(first);
+			}
+			batch.add(next);
+			size += next.getPayloadLength();
+		}
+		return (batch != null ? concatenate(batch, size) : first);
+	}
+
+	private static boolean isBatchable(WebSocketMessage<?> message) {
+		return ((message instanceof TextMessage || message instanceof BinaryMessage) && message.isLast());
+	}
+
+	private static WebSocketMessage<?> concatenate(List<WebSocketMessage<?>> messages, int size) {
+		byte[] bytes = new byte[size];
+		int position = 0;
+		for (WebSocketMessage<?> message : messages) {
+			if (message instanceof TextMessage) {
+				byte[] content = ((TextMessage) message).asBytes();
+				System.arraycopy(content, 0, bytes, position, content.length);
+				position += content.length;
+			}
+			else {
+				ByteBuffer content = ((BinaryMessage) message).getPayload().duplicate();
+				int length = content.remaining();
+				content.get(bytes, position, length);
+				position += length;
+			}
+		}
+		return (messages.get(0) instanceof TextMessage ? new TextMessage(bytes) : new BinaryMessage(bytes));
+	}
+
 	private void checkSessionLimits() {
 		if (!shouldNotSend() && this.closeLock.tryLock()) {
 			try {
@@ -218,11 +385,10 @@ public class ConcurrentWebSocketSessionDecorator extends WebSocketSessionDecorat
 						case DROP:
 							int i = 0;
 							while (getBufferSize() > getBufferSizeLimit()) {
-								WebSocketMessage<?> message = this.buffer.poll();
+								WebSocketMessage<?> message = pollBuffer();
 								if (message == null) {
 									break;
 								}
-								this.bufferSize.addAndGet(-message.getPayloadLength());
 								i++;
 							}
 							if (logger.isDebugEnabled()) {
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -25,6 +25,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -434,6 +435,7 @@ public class StompSubProtocolHandler implements SubProtocolHandler, ApplicationE
 
 		StompHeaderAccessor accessor = getStompHeaderAccessor(message);
 		StompCommand command = accessor.getCommand();
+		AtomicReference<Object> sharedEncoding = null;
 
 		if (StompCommand.MESSAGE.equals(command)) {
 			if (accessor.getSubscriptionId() == null && logger.isWarnEnabled()) {
@@ -445,6 +447,7 @@ public class StompSubProtocolHandler implements SubProtocolHandler, ApplicationE
 				accessor.removeNativeHeader(SimpMessageHeaderAccessor.ORIGINAL_DESTINATION);
 				accessor.setDestination(origDestination);
 			}
+			sharedEncoding = getSharedEncoding(message);
 		}
 		else if (StompCommand.CONNECTED.equals(command)) {
 			this.stats.incrementConnectedCount();
@@ -478,13 +481,28 @@ public class StompSubProtocolHandler implements SubProtocolHandler, ApplicationE
 			((ConcurrentWebSocketSessionDecorator) session).setMessageCallback(m -> task.run());
 		}
 
-		sendToClient(session, accessor, payload);
+		sendToClient(session, accessor, payload, sharedEncoding);
+	}
+
+	@SuppressWarnings("unchecked")
+	@Nullable
+	private AtomicReference<Object> getSharedEncoding(Message<?> message) {
+		Object value = message.getHeaders().get(SimpMessageHeaderAccessor.SHARED_ENCODING_HEADER);
+		// A subclass of StompEncoder may customize encoding
+		return (value instanceof AtomicReference && this.stompEncoder.getClass() == StompEncoder.class ?
+				(AtomicReference<Object>) value : null);
 	}
 
 	private void sendToClient(WebSocketSession session, StompHeaderAccessor stompAccessor, byte[] payload) {
+		sendToClient(session, stompAccessor, payload, null);
+	}
+
+	private void sendToClient(WebSocketSession session, StompHeaderAccessor stompAccessor, byte[] payload,
+			@Nullable AtomicReference<Object> sharedEncoding) {
+
 		StompCommand command = stompAccessor.getCommand();
 		try {
-			byte[] bytes = this.stompEncoder.encode(stompAccessor.getMessageHeaders(), payload);
+			byte[] bytes = encode(stompAccessor, payload, sharedEncoding);
 			boolean useBinary = (payload.length > 0 && !(session instanceof SockJsSession) &&
 					MimeTypeUtils.APPLICATION_OCTET_STREAM.isCompatibleWith(stompAccessor.getContentType()));
 			if (useBinary) {
@@ -517,6 +535,36 @@ public class StompSubProtocolHandler implements SubProtocolHandler, ApplicationE
 		}
 	}
 
+	/**
+	 * Encode the frame, reusing the headers and payload encoded for another
+	 * subscription to the same broadcast message, if available.
+	 */
+	private byte[] encode(StompHeaderAccessor accessor, byte[] payload,
+			@Nullable AtomicReference<Object> sharedEncoding) {
+
+		Map<String, Object> headers = accessor.getMessageHeaders();
+		String subscriptionId = getSingleNativeHeader(accessor, StompHeaderAccessor.STOMP_SUBSCRIPTION_HEADER);
+		String messageId = getSingleNativeHeader(accessor, StompHeaderAccessor.STOMP_MESSAGE_ID_HEADER);
+		if (sharedEncoding == null || subscriptionId == null || messageId == null) {
+			return this.stompEncoder.encode(headers, payload);
+		}
+		Object value = sharedEncoding.get();
+		StompEncoder.SharedMessageFrame frame = (value instanceof StompEncoder.SharedMessageFrame ?
+				(StompEncoder.SharedMessageFrame) value : null);
+		if (frame == null || !frame.matches(headers, payload)) {
+			// First subscription, or headers changed (e.g. by an interceptor)
+			frame = this.stompEncoder.encodeSharedMessage(headers, payload);
+			sharedEncoding.compareAndSet(null, frame);
+		}
+		return frame.encode(subscriptionId, messageId);
+	}
+
+	@Nullable
+	private static String getSingleNativeHeader(StompHeaderAccessor accessor, String headerName) {
+		List<String> values = accessor.getNativeHeader(headerName);
+		return (values != null && values.size() == 1 ? values.get(0) : null);
+	}
+
 	private StompHeaderAccessor getStompHeaderAccessor(Message<?> message) {
 		MessageHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, MessageHeaderAccessor.class);
 		if (accessor instanceof StompHeaderAccessor) {
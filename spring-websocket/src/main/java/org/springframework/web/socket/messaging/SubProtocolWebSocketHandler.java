@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -93,6 +93,8 @@ public class SubProtocolWebSocketHandler
 
 	private int sendBufferSizeLimit = 512 * 1024;
 
+	private int sendBatchSizeLimit;
+
 	private int timeToFirstMessage = DEFAULT_TIME_TO_FIRST_MESSAGE;
 
 	private volatile long lastSessionCheckTime = System.currentTimeMillis();
@@ -222,6 +224,25 @@ public class SubProtocolWebSocketHandler
 		return this.sendBufferSizeLimit;
 	}
 
+	/**
+	 * Specify the maximum number of bytes of buffered messages to combine into
+	 * a single WebSocket message when a session cannot keep up with sending.
+	 * <p>By default this is 0, i.e. buffered messages are sent one by one.
+	 * @since 5.3.7
+	 * @see ConcurrentWebSocketSessionDecorator#setBatchSizeLimit(int)
+	 */
+	public void setSendBatchSizeLimit(int sendBatchSizeLimit) {
+		this.sendBatchSizeLimit = sendBatchSizeLimit;
+	}
+
+	/**
+	 * Return the batch-size limit (number of bytes).
+	 * @since 5.3.7
+	 */
+	public int getSendBatchSizeLimit() {
+		return this.sendBatchSizeLimit;
+	}
+
 	/**
 	 * Set the maximum time allowed in milliseconds after the WebSocket connection
 	 * is established and before the first sub-protocol message is received.
@@ -409,13 +430,17 @@ public class SubProtocolWebSocketHandler
 	 * Decorate the given {@link WebSocketSession}, if desired.
 	 * <p>The default implementation builds a {@link ConcurrentWebSocketSessionDecorator}
 	 * with the configured {@link #getSendTimeLimit() send-time limit} and
-	 * {@link #getSendBufferSizeLimit() buffer-size limit}.
+	 * {@link #getSendBufferSizeLimit() buffer-size limit}, as well as the
+	 * {@link #getSendBatchSizeLimit() batch-size limit} if set.
 	 * @param session the original {@code WebSocketSession}
 	 * @return the decorated {@code WebSocketSession}, or potentially the given session as-is
 	 * @since 4.3.13
 	 */
 	protected WebSocketSession decorateSession(WebSocketSession session) {
-		return new ConcurrentWebSocketSessionDecorator(session, getSendTimeLimit(), getSendBufferSizeLimit());
+		ConcurrentWebSocketSessionDecorator decorator =
+				new ConcurrentWebSocketSessionDecorator(session, getSendTimeLimit(), getSendBufferSizeLimit());
+		decorator.setBatchSizeLimit(getSendBatchSizeLimit());
+		return decorator;
 	}
 
 	/**
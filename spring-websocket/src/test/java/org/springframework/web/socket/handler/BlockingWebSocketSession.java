@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -22,8 +22,8 @@ import java.util.concurrent.atomic.AtomicReference;
 import org.springframework.web.socket.WebSocketMessage;
 
 /**
- * Blocks indefinitely on sending a message but provides a latch to notify when
- * the message has been "sent" (i.e. session is blocked).
+ * Blocks on sending a message until {@link #release() released} but provides
+ * a latch to notify when the message has been "sent" (i.e. session is blocked).
  *
  * @author Rossen Stoyanchev
  */
@@ -39,19 +39,30 @@ public class BlockingWebSocketSession extends TestWebSocketSession {
 		return this.sendLatch.get();
 	}
 
+	/**
+	 * Release the send that is currently blocked, if any.
+	 */
+	public void release() {
+		CountDownLatch latch = this.releaseLatch.get();
+		if (latch != null) {
+			latch.countDown();
+		}
+	}
+
 	@Override
 	public void sendMessage(WebSocketMessage<?> message) throws IOException {
 		super.sendMessage(message);
+		CountDownLatch latch = new CountDownLatch(1);
+		this.releaseLatch.set(latch);
 		if (this.sendLatch.get() != null) {
 			this.sendLatch.get().countDown();
 		}
-		block();
+		block(latch);
 	}
 
-	private void block() {
+	private void block(CountDownLatch latch) {
 		try {
-			this.releaseLatch.set(new CountDownLatch(1));
-			this.releaseLatch.get().await();
+			latch.await();
 		}
 		catch (InterruptedException ex) {
 			ex.printStackTrace();
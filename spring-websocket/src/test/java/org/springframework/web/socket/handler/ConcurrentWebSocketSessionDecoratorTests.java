@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -23,8 +23,10 @@ import java.util.concurrent.TimeUnit;
 
 import org.junit.jupiter.api.Test;
 
+import org.springframework.web.socket.BinaryMessage;
 import org.springframework.web.socket.CloseStatus;
 import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
 import org.springframework.web.socket.WebSocketSession;
 import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator.OverflowStrategy;
 
@@ -152,6 +154,99 @@ public class ConcurrentWebSocketSessionDecoratorTests {
 		assertThat(session.isOpen()).isTrue();
 	}
 
+	@Test
+	public void batchBufferedMessages() throws Exception {
+
+		BlockingWebSocketSession session = new BlockingWebSocketSession();
+		session.setOpen(true);
+
+		ConcurrentWebSocketSessionDecorator decorator =
+				new ConcurrentWebSocketSessionDecorator(session, 10 * 1000, 1024);
+		decorator.setBatchSizeLimit(7);
+
+		sendBlockingMessage(decorator);
+
+		decorator.sendMessage(new TextMessage("abc"));
+		decorator.sendMessage(new TextMessage("def"));
+		decorator.sendMessage(new TextMessage("gh"));
+		decorator.sendMessage(new BinaryMessage(new byte[] {1}));
+		assertThat(decorator.getBufferSize()).isEqualTo(9);
+
+		session.release();
+		awaitSentMessages(session, 2);
+		assertThat(session.getSentMessages().get(1)).isEqualTo(new TextMessage("abcdef"));
+		assertThat(decorator.getBufferSize()).isEqualTo(3);
+
+		session.release();
+		awaitSentMessages(session, 3);
+		assertThat(session.getSentMessages().get(2)).isEqualTo(new TextMessage("gh"));
+
+		session.release();
+		awaitSentMessages(session, 4);
+		assertThat(session.getSentMessages().get(3)).isInstanceOf(BinaryMessage.class);
+		assertThat(decorator.getBufferSize()).isEqualTo(0);
+	}
+
+	@Test
+	public void coalesceBufferedMessages() throws Exception {
+
+		BlockingWebSocketSession session = new BlockingWebSocketSession();
+		session.setOpen(true);
+
+		ConcurrentWebSocketSessionDecorator decorator =
+				new ConcurrentWebSocketSessionDecorator(session, 10 * 1000, 1024);
+		decorator.setCoalescingKeyResolver(message -> {
+			String payload = ((TextMessage) message).getPayload();
+			return (payload.startsWith("price:") ? payload.substring(0, payload.indexOf('=')) : null);
+		});
+
+		sendBlockingMessage(decorator);
+
+		decorator.sendMessage(new TextMessage("price:a=1"));
+		decorator.sendMessage(new TextMessage("trade"));
+		decorator.sendMessage(new TextMessage("price:a=22"));
+		assertThat(decorator.getBufferSize()).isEqualTo(15);
+
+		session.release();
+		awaitSentMessages(session, 2);
+		session.release();
+		awaitSentMessages(session, 3);
+
+		assertThat(session.getSentMessages()).extracting(WebSocketMessage::getPayload)
+				.containsExactly("slow message", "trade", "price:a=22");
+		assertThat(decorator.getBufferSize()).isEqualTo(0);
+	}
+
+	@Test
+	public void coalesceBufferedMessagesWithEqualPayload() throws Exception {
+
+		BlockingWebSocketSession session = new BlockingWebSocketSession();
+		session.setOpen(true);
+
+		ConcurrentWebSocketSessionDecorator decorator =
+				new ConcurrentWebSocketSessionDecorator(session, 10 * 1000, 1024);
+		decorator.setCoalescingKeyResolver(message -> {
+			String payload = ((TextMessage) message).getPayload();
+			return (payload.startsWith("price:") ? payload.substring(0, payload.indexOf('=')) : null);
+		});
+
+		sendBlockingMessage(decorator);
+
+		decorator.sendMessage(new TextMessage("price:a=1"));
+		decorator.sendMessage(new TextMessage("trade"));
+		decorator.sendMessage(new TextMessage("price:a=1"));
+		assertThat(decorator.getBufferSize()).isEqualTo(14);
+
+		session.release();
+		awaitSentMessages(session, 2);
+		session.release();
+		awaitSentMessages(session, 3);
+
+		assertThat(session.getSentMessages()).extracting(WebSocketMessage::getPayload)
+				.containsExactly("slow message", "trade", "price:a=1");
+		assertThat(decorator.getBufferSize()).isEqualTo(0);
+	}
+
 	@Test
 	public void closeStatusNormal() throws Exception {
 
@@ -216,4 +311,11 @@ public class ConcurrentWebSocketSessionDecoratorTests {
 		assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
 	}
 
+	private void awaitSentMessages(TestWebSocketSession session, int count) throws InterruptedException {
+		for (int i = 0; i < 500 && session.getSentMessages().size() < count; i++) {
+			Thread.sleep(10);
+		}
+		assertThat(session.getSentMessages()).hasSize(count);
+	}
+
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2021 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -259,6 +259,28 @@ public class StompSubProtocolHandlerTests {
 		assertThat(((String) textMessage.getPayload()).contains(SimpMessageHeaderAccessor.ORIGINAL_DESTINATION)).isFalse();
 	}
 
+	@Test
+	public void handleMessageToClientWithSharedEncoding() {
+		AtomicReference<Object> sharedEncoding = new AtomicReference<>();
+		byte[] payload = "Hello".getBytes();
+
+		TestWebSocketSession session2 = new TestWebSocketSession();
+		session2.setId("s2");
+
+		this.protocolHandler.handleMessageToClient(this.session, broadcastMessage("s1", "sub1", payload, sharedEncoding));
+		Object frame = sharedEncoding.get();
+		this.protocolHandler.handleMessageToClient(session2, broadcastMessage("s2", "sub:2", payload, sharedEncoding));
+
+		assertThat(frame).isInstanceOf(StompEncoder.SharedMessageFrame.class);
+		assertThat(sharedEncoding.get()).isSameAs(frame);
+		String text1 = (String) this.session.getSentMessages().get(0).getPayload();
+		String text2 = (String) session2.getSentMessages().get(0).getPayload();
+		assertThat(text1).startsWith("MESSAGE\nsubscription:sub1\nmessage-id:s1-");
+		assertThat(text2).startsWith("MESSAGE\nsubscription:sub\\c2\nmessage-id:s2-");
+		assertThat(text1).endsWith("\ndestination:/topic/foo\ncontent-length:5\n\nHello\u0000");
+		assertThat(text2).endsWith("\ndestination:/topic/foo\ncontent-length:5\n\nHello\u0000");
+	}
+
 	// SPR-12475
 
 	@Test
@@ -519,6 +541,18 @@ public class StompSubProtocolHandlerTests {
 	}
 
 
+	private Message<byte[]> broadcastMessage(String sessionId, String subscriptionId, byte[] payload,
+			AtomicReference<Object> sharedEncoding) {
+
+		SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+		accessor.setSessionId(sessionId);
+		accessor.setSubscriptionId(subscriptionId);
+		accessor.setDestination("/topic/foo");
+		accessor.setHeader(SimpMessageHeaderAccessor.SHARED_ENCODING_HEADER, sharedEncoding);
+		return MessageBuilder.createMessage(payload, accessor.getMessageHeaders());
+	}
+
+
 	private static class UniqueUser extends TestPrincipal implements DestinationUserNameProvider {
 
 		private UniqueUser(String name) {